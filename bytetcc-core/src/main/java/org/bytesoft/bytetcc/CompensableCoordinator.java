@@ -15,6 +15,7 @@
  */
 package org.bytesoft.bytetcc;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -28,10 +29,12 @@ import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
-import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.bytetcc.supports.TransactionFilter;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableReconciler;
 import org.bytesoft.compensable.CompensableTransaction;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.compensable.aware.CompensableEndpointAware;
@@ -49,7 +52,8 @@ import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CompensableCoordinator implements RemoteCoordinator, CompensableBeanFactoryAware, CompensableEndpointAware {
+public class CompensableCoordinator
+		implements RemoteCoordinator, CompensableReconciler, CompensableBeanFactoryAware, CompensableEndpointAware {
 	static final Logger logger = LoggerFactory.getLogger(CompensableCoordinator.class);
 
 	@javax.inject.Inject
@@ -101,7 +105,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 			// 存储到仓储Repository中
 			compensableRepository.putTransaction(globalXid, transaction);
 			// 分布式事务开启, 打印一行日志
-			logger.info("{}| compensable transaction begin!", ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()));
+			logger.info("{}| compensable transaction begin!", CompensableXid.toGlobalTransactionKey(globalXid));
 		} else if (transaction.getTransactionStatus() != Status.STATUS_ACTIVE) {
 			throw new XAException(XAException.XAER_PROTO);
 		}
@@ -185,7 +189,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 			success = true;
 		} catch (XAException xaex) {
 			logger.error("Error occurred while committing transaction: {}." //
-					, ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), xaex);
+					, CompensableXid.toGlobalTransactionKey(xid), xaex);
 
 			switch (xaex.errorCode) {
 			case XAException.XA_HEURRB:
@@ -197,7 +201,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 			throw xaex; // throw XAException
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while committing transaction: {}." //
-					, ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), rex);
+					, CompensableXid.toGlobalTransactionKey(xid), rex);
 
 			throw new XAException(XAException.XAER_RMERR); // should never happen
 		} finally {
@@ -293,12 +297,12 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 			transaction.forget();
 		} catch (SystemException ex) {
 			logger.error("Error occurred while forgetting transaction: {}." //
-					, ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+					, CompensableXid.toGlobalTransactionKey(xid), ex);
 
 			throw new XAException(XAException.XAER_RMERR);
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while forgetting transaction: {}." //
-					, ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), rex);
+					, CompensableXid.toGlobalTransactionKey(xid), rex);
 
 			throw new XAException(XAException.XAER_RMERR);
 		}
@@ -313,11 +317,11 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 				break;
 			default:
 				logger.error("{}| Error occurred while forgeting remote coordinator.",
-						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+						CompensableXid.toGlobalTransactionKey(xid), ex);
 			}
 		} catch (RuntimeException ex) {
 			logger.error("{}| Error occurred while forgeting remote coordinator.",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(xid), ex);
 		}
 	}
 
@@ -349,6 +353,32 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 		return xidArray;
 	}
 
+	public Xid[] reconcile(byte[] filter) throws XAException {
+		this.checkParticipantReadyIfNecessary();
+
+		TransactionFilter transactionFilter = null;
+		try {
+			transactionFilter = TransactionFilter.decode(filter);
+		} catch (IllegalArgumentException ex) {
+			logger.error("Error occurred while decoding transaction filter.", ex);
+			throw new XAException(XAException.XAER_INVAL);
+		}
+
+		TransactionRepository repository = beanFactory.getTransactionRepository();
+		List<Transaction> transactionList = repository.getActiveTransactionList();
+
+		List<Xid> xidList = new ArrayList<Xid>();
+		for (int i = 0; i < transactionList.size(); i++) {
+			Transaction transaction = transactionList.get(i);
+			TransactionXid xid = transaction.getTransactionContext().getXid();
+			if (transactionFilter.mightContain(xid.getGlobalTransactionId())) {
+				xidList.add(xid);
+			}
+		}
+
+		return xidList.toArray(new Xid[xidList.size()]);
+	}
+
 	public void rollback(Xid xid) throws XAException {
 		this.checkParticipantReadyIfNecessary();
 
@@ -373,7 +403,7 @@ public class CompensableCoordinator implements RemoteCoordinator, CompensableBea
 			success = true;
 		} catch (RuntimeException ex) {
 			logger.error("Error occurred while rolling back transaction: {}." //
-					, ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+					, CompensableXid.toGlobalTransactionKey(xid), ex);
 
 			throw new XAException(XAException.XAER_RMERR); // should never happen
 		} finally {
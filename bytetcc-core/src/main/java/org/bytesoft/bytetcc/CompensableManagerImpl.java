@@ -30,9 +30,10 @@ import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
-import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableStatistic;
 import org.bytesoft.compensable.CompensableTransaction;
 import org.bytesoft.compensable.TransactionContext;
 import org.bytesoft.compensable.archive.CompensableArchive;
@@ -206,8 +207,8 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			synchronization.afterBegin(compensable.getTransaction(), createFlag);
 		} catch (XAException tex) {
 			logger.info("{}> begin-transaction: error occurred while starting jta-transaction: {}",
-					ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId()), tex);
+					CompensableXid.toGlobalTransactionKey(compensableXid),
+					CompensableXid.toGlobalTransactionKey(transactionXid), tex);
 			try {
 				transactionCoordinator.end(transactionContext, XAResource.TMFAIL);
 				throw new SystemException("Error occurred while beginning a compensable-transaction!");
@@ -230,8 +231,8 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			transactionCoordinator.rollback(transactionXid);
 		} catch (XAException tex) {
 			logger.info("{}> begin-transaction: error occurred while starting jta-transaction: {}",
-					ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId()), tex);
+					CompensableXid.toGlobalTransactionKey(compensableXid),
+					CompensableXid.toGlobalTransactionKey(transactionXid), tex);
 		}
 	}
 
@@ -265,7 +266,7 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 
 		// 将分布式事务对象, 存入以当前线程为Key的一个Map中, 存入以compensableXid事务xid为Key的一个Map中
 		this.associateThread(compensable);
-		logger.info("{}| compensable transaction begin!", ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()));
+		logger.info("{}| compensable transaction begin!", CompensableXid.toGlobalTransactionKey(compensableXid));
 
 		// 创建子事务上下文
 		TransactionContext transactionContext = new TransactionContext();
@@ -278,7 +279,7 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		} finally {
 			if (failure) {
 				logger.info("{}| compensable transaction failed!",
-						ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()));
+						CompensableXid.toGlobalTransactionKey(compensableXid));
 				// 如果分布式事务开启失败, 就从之前保存的两个Map中, 移除掉这个分布式事务对象
 				this.desociateThread();
 			}
@@ -295,11 +296,16 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			this.desociateThread();
 			compensableRepository.removeTransaction(compensableXid);
 			logger.info("{}| compensable transaction failed!",
-					ByteUtils.byteArrayToString(compensableXid.getGlobalTransactionId()));
+					CompensableXid.toGlobalTransactionKey(compensableXid));
 
 			throw new SystemException(XAException.XAER_PROTO); // should never happen
 		}
 
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireBeginTransaction(compensableXid);
+		}
+
 	}
 
 	public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException,
@@ -335,6 +341,10 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 
 	protected void invokeTransactionCommitIfNecessary(CompensableTransaction compensable) throws RollbackException,
 			HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException {
+		if (compensable.getTransactionContext().isCompensating() == false) {
+			this.invokeTransactionFlush(compensable);
+		}
+
 		// compensable.getTransaction().isMarkedRollbackOnly()
 		if (compensable.getTransaction().getTransactionStatus() == Status.STATUS_MARKED_ROLLBACK) {
 			this.invokeTransactionRollback(compensable);
@@ -344,6 +354,15 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		}
 	}
 
+	/**
+	 * The try-phase records of the compensable transaction must be durable before its local transaction commits, the
+	 * compensable logger marks the transaction rollback-only if they are not.
+	 */
+	protected void invokeTransactionFlush(CompensableTransaction compensable) {
+		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
+		compensableLogger.flushTransaction(compensable.getTransactionArchive());
+	}
+
 	protected void invokeTransactionCommit(CompensableTransaction compensable) throws RollbackException,
 			HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException {
 		Transaction transaction = compensable.getTransaction();
@@ -411,7 +430,7 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 
 			TransactionContext compensableContext = compensable.getTransactionContext();
 			logger.error("{}> jta-transaction in try-phase cannot be xa transaction.",
-					ByteUtils.byteArrayToString(compensableContext.getXid().getGlobalTransactionId()));
+					CompensableXid.toGlobalTransactionKey(compensableContext.getXid()));
 
 			transactionCoordinator.rollback(transactionXid);
 			throw new HeuristicRollbackException();
@@ -525,7 +544,12 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		}
 
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		TransactionXid xid = transactionContext.getXid();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireCommitTransactionStart(xid);
+		}
+
 		boolean success = false;
 		try {
 			this.desociateThread();
@@ -533,6 +557,12 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			success = true;
 		} finally {
 			compensableLock.unlockTransaction(xid, this.endpoint);
+			if (compensableStatistic != null && success) {
+				compensableStatistic.fireCommitTransactionSuccess(xid);
+			} else if (compensableStatistic != null) {
+				compensableStatistic.fireCommitTransactionFailure(xid);
+			}
+
 			if (success) {
 				transaction.forgetQuietly(); // forget transaction
 			} // end-if (success)
@@ -554,8 +584,14 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		boolean isLocalTransaction = transaction.isLocalTransaction();
 		try {
 			if (isLocalTransaction) /* transaction in try-phase cannot be xa transaction. */ {
-				this.invokeCompensableCommitIfLocalTransaction(compensable);
-				commitExists = true;
+				this.invokeTransactionFlush(compensable);
+				if (transaction.getTransactionStatus() == Status.STATUS_MARKED_ROLLBACK) {
+					this.invokeTransactionRollback(compensable);
+					rollbackExists = true;
+				} else {
+					this.invokeCompensableCommitIfLocalTransaction(compensable);
+					commitExists = true;
+				}
 			} else {
 				this.invokeCompensableCommitIfNotLocalTransaction(compensable);
 			}
@@ -572,6 +608,13 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			compensable.setTransactionalExtra(null);
 		}
 
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic != null && commitExists) {
+			compensableStatistic.fireTryPhaseSuccess(compensableContext.getXid());
+		} else if (compensableStatistic != null && (rollbackExists || errorExists)) {
+			compensableStatistic.fireTryPhaseFailure(compensableContext.getXid());
+		}
+
 		boolean failure = true;
 		try {
 			if (errorExists) {
@@ -638,7 +681,7 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			transactionCoordinator.end(transactionContext, XAResource.TMSUCCESS);
 			TransactionContext compensableContext = compensable.getTransactionContext();
 			logger.error("{}| jta-transaction in compensating-phase cannot be xa transaction.",
-					ByteUtils.byteArrayToString(compensableContext.getXid().getGlobalTransactionId()));
+					CompensableXid.toGlobalTransactionKey(compensableContext.getXid()));
 
 			transactionCoordinator.rollback(transactionXid);
 			throw new HeuristicRollbackException();
@@ -670,7 +713,12 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 		}
 
 		TransactionLock compensableLock = this.beanFactory.getCompensableLock();
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		TransactionXid xid = transactionContext.getXid();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireRollbackTransactionStart(xid);
+		}
+
 		boolean success = false;
 		try {
 			this.desociateThread();
@@ -678,6 +726,12 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			success = true;
 		} finally {
 			compensableLock.unlockTransaction(xid, this.endpoint);
+			if (compensableStatistic != null && success) {
+				compensableStatistic.fireRollbackTransactionSuccess(xid);
+			} else if (compensableStatistic != null) {
+				compensableStatistic.fireRollbackTransactionFailure(xid);
+			}
+
 			if (success) {
 				transaction.forgetQuietly(); // forget transaction
 			} // end-if (success)
@@ -706,6 +760,11 @@ public class CompensableManagerImpl implements CompensableManager, CompensableBe
 			compensable.setTransactionalExtra(null);
 		}
 
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireTryPhaseFailure(compensableContext.getXid());
+		}
+
 		boolean failure = true;
 		try {
 			this.fireCompensableRollback(compensable);
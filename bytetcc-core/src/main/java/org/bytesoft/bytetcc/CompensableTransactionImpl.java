@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -41,10 +42,13 @@ import org.bytesoft.bytejta.supports.jdbc.RecoveredResource;
 import org.bytesoft.bytejta.supports.resource.RemoteResourceDescriptor;
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
+import org.bytesoft.bytetcc.work.CompensableParticipantExecutor;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.CompensableStatistic;
 import org.bytesoft.compensable.CompensableTransaction;
 import org.bytesoft.compensable.ContainerContext;
 import org.bytesoft.compensable.TransactionContext;
@@ -74,6 +78,11 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		implements CompensableTransaction, CompensableRolledbackMarker {
 	static final Logger logger = LoggerFactory.getLogger(CompensableTransactionImpl.class);
 
+	static final int BRANCH_COMMITTED = 0x1;
+	static final int BRANCH_ROLLEDBACK = 0x2;
+	static final int BRANCH_UNFINISHED = 0x4;
+	static final int BRANCH_ERROR = 0x8;
+
 	private final TransactionContext transactionContext;
 	private final List<CompensableArchive> archiveList = new ArrayList<CompensableArchive>();
 	private final Map<RemoteSvc, XAResourceArchive> resourceMap = new HashMap<RemoteSvc, XAResourceArchive>();
@@ -151,6 +160,43 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 
 	private void fireCommit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException,
 			IllegalStateException, SystemException {
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		TransactionXid xid = this.transactionContext.getXid();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireConfirmPhaseStart(xid);
+		}
+
+		boolean success = false;
+		try {
+			this.invokeConfirm();
+			success = this.transactionStatus == Status.STATUS_COMMITTED && this.isNativeParticipantCompleted(true);
+		} finally {
+			if (compensableStatistic != null && success) {
+				compensableStatistic.fireConfirmPhaseSuccess(xid);
+			} else if (compensableStatistic != null) {
+				compensableStatistic.fireConfirmPhaseFailure(xid);
+			}
+		}
+	}
+
+	/**
+	 * A confirm/cancel which returns without completing the compensable(its local transaction is rolled back, for
+	 * example) is retried by the recovery later, so it is not counted as a successful phase.
+	 */
+	private boolean isNativeParticipantCompleted(boolean positive) {
+		for (int i = 0; i < this.archiveList.size(); i++) {
+			CompensableArchive current = this.archiveList.get(i);
+			if (positive && current.isConfirmed() == false) {
+				return false;
+			} else if (positive == false && current.isTried() && current.isCancelled() == false) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void invokeConfirm() throws RollbackException, HeuristicMixedException, HeuristicRollbackException,
+			SecurityException, IllegalStateException, SystemException {
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
 		this.transactionContext.setCompensating(true);
@@ -165,13 +211,13 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			systemEx = ex;
 
 			logger.info("{}| confirm native branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 		} catch (RuntimeException ex) {
 			systemEx = new SystemException(XAException.XAER_RMERR);
 			systemEx.initCause(ex);
 
 			logger.info("{}| confirm native branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 		}
 
 		try {
@@ -180,19 +226,19 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			this.fireRemoteParticipantConfirm();
 		} catch (HeuristicMixedException ex) {
 			logger.info("{}| confirm remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			throw ex;
 		} catch (HeuristicRollbackException ex) {
 			logger.info("{}| confirm remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			throw ex;
 		} catch (SystemException ex) {
 			logger.info("{}| confirm remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			throw ex;
 		} catch (RuntimeException ex) {
 			logger.info("{}| confirm remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			throw ex;
 		}
 
@@ -203,7 +249,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		this.transactionStatus = Status.STATUS_COMMITTED;
 		compensableLogger.updateTransactionStatus(this.getTransactionArchive()); // compensableLogger.updateTransaction(this.getTransactionArchive());
 		logger.info("{}| compensable transaction committed!",
-				ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
+				CompensableXid.toGlobalTransactionKey(transactionContext.getXid()));
 	}
 
 	public synchronized void recoveryCommit() throws CommitRequiredException, SystemException {
@@ -216,25 +262,25 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			this.fireCommit();
 		} catch (SecurityException ex) {
 			logger.error("{}| confirm native/remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			SystemException sysEx = new SystemException(XAException.XAER_RMERR);
 			sysEx.initCause(ex);
 			throw sysEx;
 		} catch (RollbackException ex) {
 			logger.error("{}| confirm native/remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			SystemException sysEx = new SystemException(XAException.XAER_RMERR);
 			sysEx.initCause(ex);
 			throw sysEx;
 		} catch (HeuristicMixedException ex) {
 			logger.error("{}| confirm native/remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			SystemException sysEx = new SystemException(XAException.XA_HEURMIX);
 			sysEx.initCause(ex);
 			throw sysEx;
 		} catch (HeuristicRollbackException ex) {
 			logger.error("{}| confirm native/remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			SystemException sysEx = new SystemException(XAException.XA_HEURRB);
 			sysEx.initCause(ex);
 			throw sysEx;
@@ -246,36 +292,53 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		boolean errorExists = false;
 
 		ContainerContext container = this.beanFactory.getContainerContext();
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		for (int i = this.archiveList.size() - 1; i >= 0; i--) {
 			CompensableArchive current = this.archiveList.get(i);
 			if (current.isConfirmed()) {
 				continue;
 			}
 
+			if (compensableStatistic != null) {
+				compensableStatistic.fireConfirmCompensableStart(this.transactionContext.getXid(), current);
+			}
+
 			try {
 				this.positive = true;
 				this.archive = current;
 				CompensableInvocation invocation = current.getCompensable();
 				if (invocation == null) {
 					errorExists = true;
+					if (compensableStatistic != null) {
+						compensableStatistic.fireConfirmCompensableFailure(this.transactionContext.getXid(), current);
+					}
 					logger.error(
 							"{}| error occurred while confirming service: {}, please check whether the params of method(compensable-service) supports serialization.",
-							ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()));
+							CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()),
+							CompensableXid.toGlobalTransactionKey(current.getIdentifier()));
 				} else if (StringUtils.isNotBlank(invocation.getConfirmableKey())) {
 					// 执行根据@Compensable注解标记的ConfirmableKey指定的confirm bean的业务逻辑
 					container.confirm(invocation);
+					if (compensableStatistic != null && current.isConfirmed() == false) {
+						compensableStatistic.fireConfirmCompensableFailure(this.transactionContext.getXid(), current);
+					}
 				} else {
 					current.setConfirmed(true);
 					logger.info("{}| confirm: identifier= {}, resourceKey= {}, resourceXid= {}.",
-							ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()),
+							CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+							CompensableXid.toGlobalTransactionKey(current.getIdentifier()),
 							current.getCompensableResourceKey(), current.getCompensableXid());
+					if (compensableStatistic != null) {
+						compensableStatistic.fireConfirmCompensableSuccess(this.transactionContext.getXid(), current);
+					}
 				}
 			} catch (RuntimeException rex) {
 				errorExists = true;
+				if (compensableStatistic != null) {
+					compensableStatistic.fireConfirmCompensableFailure(this.transactionContext.getXid(), current);
+				}
 				logger.error("{}| error occurred while confirming service: {}",
-						ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), current, rex);
+						CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), current, rex);
 			} finally {
 				this.archive = null;
 				this.positive = null;
@@ -295,6 +358,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		boolean unFinishExists = false;
 		boolean errorExists = false;
 
+		List<XAResourceArchive> participantList = new ArrayList<XAResourceArchive>();
 		// 这个resourceList是ByteTCC按照调用顺序存放的各个服务的信息
 		// 如果5个服务要confirm, 这里就会有5个服务信息
 		for (int i = 0; i < this.resourceList.size(); i++) {
@@ -309,118 +373,173 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 				continue;
 			}
 
-			CompensableLogger transactionLogger = this.beanFactory.getCompensableLogger();
-			XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
-			TransactionXid branchXid = (TransactionXid) current.getXid();
-			TransactionXid globalXid = xidFactory.createGlobalXid(branchXid.getGlobalTransactionId());
-			try {
-				current.commit(globalXid, true);
-				committedExists = true;
+			participantList.add(current);
+		}
+
+		List<Callable<Integer>> taskList = new ArrayList<Callable<Integer>>(participantList.size());
+		for (int i = 0; i < participantList.size(); i++) {
+			final XAResourceArchive current = participantList.get(i);
+			taskList.add(new Callable<Integer>() {
+				public Integer call() {
+					return CompensableTransactionImpl.this.fireRemoteParticipantConfirm(current);
+				}
+			});
+		}
+
+		int completion = this.invokeRemoteParticipants(taskList, participantList);
+		committedExists = committedExists || (completion & BRANCH_COMMITTED) != 0;
+		rolledbackExists = rolledbackExists || (completion & BRANCH_ROLLEDBACK) != 0;
+		unFinishExists = (completion & BRANCH_UNFINISHED) != 0;
+		errorExists = (completion & BRANCH_ERROR) != 0;
+
+		if (committedExists && rolledbackExists) {
+			throw new HeuristicMixedException();
+		} else if (unFinishExists) {
+			throw new CommitRequiredException();
+		} else if (errorExists) {
+			throw new SystemException(XAException.XAER_RMERR);
+		} else if (rolledbackExists) {
+			throw new HeuristicRollbackException();
+		}
+		// else if (committedExists == false) { throw new XAException(XAException.XA_RDONLY); }
+	}
+
+	private int fireRemoteParticipantConfirm(XAResourceArchive current) {
+		int completion = 0;
+
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		TransactionXid branchXid = (TransactionXid) current.getXid();
+		TransactionXid globalXid = xidFactory.createGlobalXid(branchXid.getGlobalTransactionId());
+		try {
+			current.commit(globalXid, true);
+			completion |= BRANCH_COMMITTED;
+
+			current.setCommitted(true);
+			current.setCompleted(true);
 
+			logger.info("{}| confirm remote branch: {}", CompensableXid.toGlobalTransactionKey(branchXid),
+					current.getDescriptor().getIdentifier());
+		} catch (XAException ex) {
+			switch (ex.errorCode) {
+			case XAException.XA_HEURCOM:
+				completion |= BRANCH_COMMITTED;
+				current.setHeuristic(true);
 				current.setCommitted(true);
 				current.setCompleted(true);
+				break;
+			case XAException.XA_HEURMIX:
+				completion |= BRANCH_COMMITTED;
+				completion |= BRANCH_ROLLEDBACK;
 
-				logger.info("{}| confirm remote branch: {}", ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-						current.getDescriptor().getIdentifier());
-			} catch (XAException ex) {
-				switch (ex.errorCode) {
-				case XAException.XA_HEURCOM:
-					committedExists = true;
-					current.setHeuristic(true);
-					current.setCommitted(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XA_HEURMIX:
-					committedExists = true;
-					rolledbackExists = true;
+				current.setHeuristic(true);
+				current.setCommitted(true);
+				current.setRolledback(true);
+				current.setCompleted(true);
 
-					current.setHeuristic(true);
-					current.setCommitted(true);
-					current.setRolledback(true);
-					current.setCompleted(true);
+				logger.error("{}| error occurred while confirming remote branch: {}, transaction has been completed!",
+						CompensableXid.toGlobalTransactionKey(branchXid),
+						current.getDescriptor().getIdentifier(), ex);
 
-					logger.error("{}| error occurred while confirming remote branch: {}, transaction has been completed!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-							current.getDescriptor().getIdentifier(), ex);
+				break;
+			case XAException.XA_HEURRB:
+				completion |= BRANCH_ROLLEDBACK;
 
-					break;
-				case XAException.XA_HEURRB:
-					rolledbackExists = true;
+				current.setHeuristic(true);
+				current.setRolledback(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XA_HEURHAZ:
+				completion |= BRANCH_UNFINISHED;
+
+				current.setHeuristic(true);
+				logger.warn("{}| error occurred while confirming remote branch: {}, transaction may has been completd!",
+						CompensableXid.toGlobalTransactionKey(branchXid),
+						current.getDescriptor().getIdentifier(), ex);
+				break;
+			case XAException.XAER_RMFAIL:
+				completion |= BRANCH_UNFINISHED;
+
+				logger.warn("{}| error occurred while confirming remote branch: {}, the remote branch is unreachable!",
+						CompensableXid.toGlobalTransactionKey(branchXid),
+						current.getDescriptor().getIdentifier(), ex);
+				break;
+			case XAException.XAER_NOTA:
+				completion |= BRANCH_COMMITTED; // TODO 1) tried & committed; 2) have not tried
+				current.setCommitted(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XAER_RMERR:
+			case XAException.XAER_INVAL:
+			case XAException.XAER_PROTO:
+				completion |= BRANCH_ERROR;
 
-					current.setHeuristic(true);
-					current.setRolledback(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XA_HEURHAZ:
-					unFinishExists = true;
+				logger.warn("{}| error occurred while confirming remote branch: {}!",
+						CompensableXid.toGlobalTransactionKey(branchXid),
+						current.getDescriptor().getIdentifier(), ex);
+				break;
+			case XAException.XA_RBCOMMFAIL:
+			case XAException.XA_RBDEADLOCK:
+			case XAException.XA_RBINTEGRITY:
+			case XAException.XA_RBOTHER:
+			case XAException.XA_RBPROTO:
+			case XAException.XA_RBROLLBACK:
+			case XAException.XA_RBTIMEOUT:
+			case XAException.XA_RBTRANSIENT:
+			default:
+				completion |= BRANCH_ROLLEDBACK;
 
-					current.setHeuristic(true);
-					logger.warn("{}| error occurred while confirming remote branch: {}, transaction may has been completd!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-							current.getDescriptor().getIdentifier(), ex);
-					break;
-				case XAException.XAER_RMFAIL:
-					unFinishExists = true;
+				current.setRolledback(true);
+				current.setCompleted(true);
 
-					logger.warn("{}| error occurred while confirming remote branch: {}, the remote branch is unreachable!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-							current.getDescriptor().getIdentifier(), ex);
-					break;
-				case XAException.XAER_NOTA:
-					committedExists = true; // TODO 1) tried & committed; 2) have not tried
-					current.setCommitted(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XAER_RMERR:
-				case XAException.XAER_INVAL:
-				case XAException.XAER_PROTO:
-					errorExists = true;
+				logger.error("{}| error occurred while confirming remote branch: {}, transaction has been rolled back!",
+						CompensableXid.toGlobalTransactionKey(branchXid),
+						current.getDescriptor().getIdentifier(), ex);
+			}
 
-					logger.warn("{}| error occurred while confirming remote branch: {}!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-							current.getDescriptor().getIdentifier(), ex);
-					break;
-				case XAException.XA_RBCOMMFAIL:
-				case XAException.XA_RBDEADLOCK:
-				case XAException.XA_RBINTEGRITY:
-				case XAException.XA_RBOTHER:
-				case XAException.XA_RBPROTO:
-				case XAException.XA_RBROLLBACK:
-				case XAException.XA_RBTIMEOUT:
-				case XAException.XA_RBTRANSIENT:
-				default:
-					rolledbackExists = true;
+		} catch (RuntimeException rex) {
+			completion |= BRANCH_ERROR;
+			logger.warn("{}| error occurred while confirming remote branch: {}!",
+					CompensableXid.toGlobalTransactionKey(branchXid),
+					current.getDescriptor().getIdentifier(), rex);
+		}
 
-					current.setRolledback(true);
-					current.setCompleted(true);
+		return completion;
+	}
 
-					logger.error("{}| error occurred while confirming remote branch: {}, transaction has been rolled back!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-							current.getDescriptor().getIdentifier(), ex);
-				}
+	/**
+	 * Completes the remote branches through the participant executor(if configured), and records the status of the
+	 * completed branches on the caller thread once all of them have returned.
+	 */
+	private int invokeRemoteParticipants(List<Callable<Integer>> taskList, List<XAResourceArchive> participantList) {
+		CompensableParticipantExecutor participantExecutor = this.beanFactory.getCompensableParticipantExecutor();
+		CompensableLogger transactionLogger = this.beanFactory.getCompensableLogger();
 
-			} catch (RuntimeException rex) {
-				errorExists = true;
-				logger.warn("{}| error occurred while confirming remote branch: {}!",
-						ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-						current.getDescriptor().getIdentifier(), rex);
-			} finally {
+		int completion = 0;
+		try {
+			if (participantExecutor == null) {
+				for (int i = 0; i < taskList.size(); i++) {
+					completion |= taskList.get(i).call();
+				}
+			} else {
+				List<Integer> resultList = participantExecutor.invokeAll(taskList);
+				for (int i = 0; i < resultList.size(); i++) {
+					completion |= resultList.get(i);
+				}
+			}
+		} catch (Exception ex) {
+			completion |= BRANCH_ERROR; // should never happen
+			logger.error("{}| error occurred while completing remote branchs!",
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
+		} finally {
+			for (int i = 0; i < participantList.size(); i++) {
+				XAResourceArchive current = participantList.get(i);
 				if (current.isCompleted()) {
 					transactionLogger.updateParticipantStatus(current); // transactionLogger.updateParticipant(current);
 				}
 			}
 		}
 
-		if (committedExists && rolledbackExists) {
-			throw new HeuristicMixedException();
-		} else if (unFinishExists) {
-			throw new CommitRequiredException();
-		} else if (errorExists) {
-			throw new SystemException(XAException.XAER_RMERR);
-		} else if (rolledbackExists) {
-			throw new HeuristicRollbackException();
-		}
-		// else if (committedExists == false) { throw new XAException(XAException.XA_RDONLY); }
+		return completion;
 	}
 
 	public int participantPrepare() throws RollbackRequiredException, CommitRequiredException {
@@ -484,6 +603,26 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public void fireRollback() throws IllegalStateException, SystemException {
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		TransactionXid xid = this.transactionContext.getXid();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireCancelPhaseStart(xid);
+		}
+
+		boolean success = false;
+		try {
+			this.invokeCancel();
+			success = this.transactionStatus == Status.STATUS_ROLLEDBACK && this.isNativeParticipantCompleted(false);
+		} finally {
+			if (compensableStatistic != null && success) {
+				compensableStatistic.fireCancelPhaseSuccess(xid);
+			} else if (compensableStatistic != null) {
+				compensableStatistic.fireCancelPhaseFailure(xid);
+			}
+		}
+	}
+
+	private void invokeCancel() throws IllegalStateException, SystemException {
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
 		this.transactionStatus = Status.STATUS_ROLLING_BACK;
@@ -501,24 +640,24 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			systemEx = ex;
 
 			logger.info("{}| cancel native branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 		} catch (RuntimeException ex) {
 			systemEx = new SystemException(XAException.XAER_RMERR);
 			systemEx.initCause(ex);
 
 			logger.info("{}| cancel native branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 		}
 
 		try {
 			this.fireRemoteParticipantCancel();
 		} catch (SystemException ex) {
 			logger.info("{}| cancel remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			throw ex;
 		} catch (RuntimeException ex) {
 			logger.info("{}| cancel remote branchs failed!",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), ex);
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), ex);
 			SystemException sysEx = new SystemException(XAException.XAER_RMERR);
 			sysEx.initCause(ex);
 			throw sysEx;
@@ -530,7 +669,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			this.transactionStatus = Status.STATUS_ROLLEDBACK;
 			compensableLogger.updateTransactionStatus(this.getTransactionArchive()); // ccompensableLogger.updateTransaction(this.getTransactionArchive());
 			logger.info("{}| compensable transaction rolled back!",
-					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
+					CompensableXid.toGlobalTransactionKey(transactionContext.getXid()));
 		}
 
 	}
@@ -548,42 +687,59 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		boolean errorExists = false;
 
 		ContainerContext container = this.beanFactory.getContainerContext();
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		for (int i = this.archiveList.size() - 1; i >= 0; i--) {
 			CompensableArchive current = this.archiveList.get(i);
 			if (current.isTried() == false) {
 				logger.info(
 						"{}| The operation in try phase is rolled back, so the cancel operation is ignored, compensable service: {}.",
-						ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()));
+						CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+						CompensableXid.toGlobalTransactionKey(current.getIdentifier()));
 				continue;
 			} else if (current.isCancelled()) {
 				continue;
 			}
 
+			if (compensableStatistic != null) {
+				compensableStatistic.fireCancelCompensableStart(this.transactionContext.getXid(), current);
+			}
+
 			try {
 				this.positive = false;
 				this.archive = current;
 				CompensableInvocation invocation = current.getCompensable();
 				if (invocation == null) {
 					errorExists = true;
+					if (compensableStatistic != null) {
+						compensableStatistic.fireCancelCompensableFailure(this.transactionContext.getXid(), current);
+					}
 					logger.error(
 							"{}| error occurred while cancelling service: {}, please check whether the params of method(compensable-service) supports serialization.",
-							ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()));
+							CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()),
+							CompensableXid.toGlobalTransactionKey(current.getIdentifier()));
 				} else if (StringUtils.isNotBlank(invocation.getCancellableKey())) {
 					// 执行根据@Compensable注解标记的CancellableKey指定的cancel bean的业务逻辑
 					container.cancel(invocation);
+					if (compensableStatistic != null && current.isCancelled() == false) {
+						compensableStatistic.fireCancelCompensableFailure(this.transactionContext.getXid(), current);
+					}
 				} else {
 					current.setCancelled(true);
 					logger.info("{}| cancel: identifier= {}, resourceKey= {}, resourceXid= {}.",
-							ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()),
+							CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()),
+							CompensableXid.toGlobalTransactionKey(current.getIdentifier()),
 							current.getCompensableResourceKey(), current.getCompensableXid());
+					if (compensableStatistic != null) {
+						compensableStatistic.fireCancelCompensableSuccess(this.transactionContext.getXid(), current);
+					}
 				}
 			} catch (RuntimeException rex) {
 				errorExists = true;
+				if (compensableStatistic != null) {
+					compensableStatistic.fireCancelCompensableFailure(this.transactionContext.getXid(), current);
+				}
 				logger.error("{}| error occurred while cancelling service: {}",
-						ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), current, rex);
+						CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()), current, rex);
 			} finally {
 				this.archive = null;
 				this.positive = null;
@@ -602,6 +758,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		boolean unFinishExists = false;
 		boolean errorExists = false;
 
+		List<XAResourceArchive> participantList = new ArrayList<XAResourceArchive>();
 		// 这个resourceList是ByteTCC按照调用顺序存放的各个服务的信息
 		// 如果5个服务, 前2个成功, 第3个失败, 这里就会有3个服务信息, 回滚try成功的服务执行cancel即可
 		for (int i = 0; i < this.resourceList.size(); i++) {
@@ -616,79 +773,25 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 				continue;
 			}
 
-			CompensableLogger transactionLogger = this.beanFactory.getCompensableLogger();
-			XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
-			TransactionXid branchXid = (TransactionXid) current.getXid();
-			TransactionXid globalXid = xidFactory.createGlobalXid(branchXid.getGlobalTransactionId());
-			try {
-				// 回滚事务
-				current.rollback(globalXid);
-				rolledbackExists = true;
-
-				current.setRolledback(true);
-				current.setCompleted(true);
+			participantList.add(current);
+		}
 
-				logger.info("{}| cancel remote branch: {}", ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()),
-						current.getDescriptor().getIdentifier());
-			} catch (XAException xaex) {
-				switch (xaex.errorCode) {
-				case XAException.XA_HEURHAZ:
-					unFinishExists = true;
-					current.setHeuristic(true);
-					logger.error("{}| error occurred while cancelling remote branch: {}",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), current, xaex);
-					break;
-				case XAException.XA_HEURMIX:
-					committedExists = true;
-					rolledbackExists = true;
-					current.setCommitted(true);
-					current.setRolledback(true);
-					current.setHeuristic(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XA_HEURCOM:
-					committedExists = true;
-					current.setCommitted(true);
-					current.setHeuristic(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XA_HEURRB:
-					rolledbackExists = true;
-					current.setRolledback(true);
-					current.setHeuristic(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XA_RDONLY:
-					current.setReadonly(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XAER_RMFAIL:
-					unFinishExists = true;
-					logger.error("{}| error occurred while cancelling remote branch: {}, the remote branch is unreachable!",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), current, xaex);
-					break;
-				case XAException.XAER_NOTA:
-					rolledbackExists = true;
-					current.setRolledback(true);
-					current.setCompleted(true);
-					break;
-				case XAException.XAER_RMERR:
-				default:
-					errorExists = true;
-					logger.error("{}| error occurred while cancelling remote branch: {}",
-							ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), current, xaex);
-				}
-			} catch (RuntimeException rex) {
-				errorExists = true;
-				logger.error("{}| error occurred while cancelling remote branch: {}",
-						ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), current, rex);
-			} finally {
-				if (current.isCompleted()) {
-					transactionLogger.updateParticipantStatus(current); // transactionLogger.updateParticipant(current);
+		List<Callable<Integer>> taskList = new ArrayList<Callable<Integer>>(participantList.size());
+		for (int i = 0; i < participantList.size(); i++) {
+			final XAResourceArchive current = participantList.get(i);
+			taskList.add(new Callable<Integer>() {
+				public Integer call() {
+					return CompensableTransactionImpl.this.fireRemoteParticipantCancel(current);
 				}
-			}
+			});
 		}
 
+		int completion = this.invokeRemoteParticipants(taskList, participantList);
+		committedExists = committedExists || (completion & BRANCH_COMMITTED) != 0;
+		rolledbackExists = rolledbackExists || (completion & BRANCH_ROLLEDBACK) != 0;
+		unFinishExists = (completion & BRANCH_UNFINISHED) != 0;
+		errorExists = (completion & BRANCH_ERROR) != 0;
+
 		if (committedExists && rolledbackExists) {
 			throw new SystemException(XAException.XA_HEURMIX);
 		} else if (unFinishExists) {
@@ -702,6 +805,79 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 
 	}
 
+	private int fireRemoteParticipantCancel(XAResourceArchive current) {
+		int completion = 0;
+
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		TransactionXid branchXid = (TransactionXid) current.getXid();
+		TransactionXid globalXid = xidFactory.createGlobalXid(branchXid.getGlobalTransactionId());
+		try {
+			// 回滚事务
+			current.rollback(globalXid);
+			completion |= BRANCH_ROLLEDBACK;
+
+			current.setRolledback(true);
+			current.setCompleted(true);
+
+			logger.info("{}| cancel remote branch: {}", CompensableXid.toGlobalTransactionKey(branchXid),
+					current.getDescriptor().getIdentifier());
+		} catch (XAException xaex) {
+			switch (xaex.errorCode) {
+			case XAException.XA_HEURHAZ:
+				completion |= BRANCH_UNFINISHED;
+				current.setHeuristic(true);
+				logger.error("{}| error occurred while cancelling remote branch: {}",
+						CompensableXid.toGlobalTransactionKey(branchXid), current, xaex);
+				break;
+			case XAException.XA_HEURMIX:
+				completion |= BRANCH_COMMITTED;
+				completion |= BRANCH_ROLLEDBACK;
+				current.setCommitted(true);
+				current.setRolledback(true);
+				current.setHeuristic(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XA_HEURCOM:
+				completion |= BRANCH_COMMITTED;
+				current.setCommitted(true);
+				current.setHeuristic(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XA_HEURRB:
+				completion |= BRANCH_ROLLEDBACK;
+				current.setRolledback(true);
+				current.setHeuristic(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XA_RDONLY:
+				current.setReadonly(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XAER_RMFAIL:
+				completion |= BRANCH_UNFINISHED;
+				logger.error("{}| error occurred while cancelling remote branch: {}, the remote branch is unreachable!",
+						CompensableXid.toGlobalTransactionKey(branchXid), current, xaex);
+				break;
+			case XAException.XAER_NOTA:
+				completion |= BRANCH_ROLLEDBACK;
+				current.setRolledback(true);
+				current.setCompleted(true);
+				break;
+			case XAException.XAER_RMERR:
+			default:
+				completion |= BRANCH_ERROR;
+				logger.error("{}| error occurred while cancelling remote branch: {}",
+						CompensableXid.toGlobalTransactionKey(branchXid), current, xaex);
+			}
+		} catch (RuntimeException rex) {
+			completion |= BRANCH_ERROR;
+			logger.error("{}| error occurred while cancelling remote branch: {}",
+					CompensableXid.toGlobalTransactionKey(branchXid), current, rex);
+		}
+
+		return completion;
+	}
+
 	public boolean enlistResource(XAResource xaRes) throws RollbackException, IllegalStateException, SystemException {
 		// 这里抛出异常, 可能会导致LoadBalancerContext报错Load balancer does not have available server for client
 		if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
@@ -745,7 +921,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			compensableLogger.createParticipant(resourceArchive);
 
 			logger.info("{}| enlist remote resource: {}." //
-					, ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()), descriptor.getIdentifier());
+					, CompensableXid.toGlobalTransactionKey(globalXid), descriptor.getIdentifier());
 
 			return true;
 		} else if (this.transactionContext.isStatefully()) {
@@ -856,9 +1032,14 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		}
 		compensableLogger.createCompensable(compensableArchive);
 
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireTryCompensableStart(this.transactionContext.getXid(), compensableArchive);
+		}
+
 		logger.info("{}| register compensable service: {}.",
-				ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
-				ByteUtils.byteArrayToString(compensableArchive.getIdentifier().getGlobalTransactionId()));
+				CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()),
+				CompensableXid.toGlobalTransactionKey(compensableArchive.getIdentifier()));
 	}
 
 	public void completeCompensable(CompensableInvocation invocation) {
@@ -953,6 +1134,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	private void onInvocationPhaseCoordinatorCommitSuccess(Xid xid) {
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		List<CompensableArchive> archiveList = this.xidToArchivesMap.get(xid);
 		for (Iterator<CompensableArchive> itr = (archiveList == null) ? null : archiveList.iterator(); itr != null
 				&& itr.hasNext();) {
@@ -962,9 +1144,12 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			// compensableLogger.updateCompensable(compensableArchive);
 
 			logger.info("{}| try: identifier= {}, resourceKey= {}, resourceXid= {}.",
-					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(compensableArchive.getIdentifier().getGlobalTransactionId()),
+					CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+					CompensableXid.toGlobalTransactionKey(compensableArchive.getIdentifier()),
 					compensableArchive.getTransactionResourceKey(), compensableArchive.getTransactionXid());
+			if (compensableStatistic != null) {
+				compensableStatistic.fireTryCompensableSuccess(this.transactionContext.getXid(), compensableArchive);
+			}
 		}
 
 		TransactionArchive transactionArchive = this.getTransactionArchive();
@@ -972,11 +1157,12 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 		this.beanFactory.getCompensableLogger().updateTransactionStatus(transactionArchive);
 		// this.beanFactory.getCompensableLogger().updateTransaction(transactionArchive);
 
-		logger.info("{}| try completed.", ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()));
+		logger.info("{}| try completed.", CompensableXid.toGlobalTransactionKey(transactionContext.getXid()));
 	}
 
 	private void onInvocationPhaseParticipantCommitSuccess(Xid xid) {
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		List<CompensableArchive> archiveList = this.xidToArchivesMap.get(xid);
 		for (Iterator<CompensableArchive> itr = (archiveList == null) ? null : archiveList.iterator(); itr != null
 				&& itr.hasNext();) {
@@ -986,9 +1172,25 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			compensableLogger.updateCompensableInvocationStatus(compensableArchive); // compensableLogger.updateCompensable(compensableArchive);
 
 			logger.info("{}| try: identifier= {}, resourceKey= {}, resourceXid= {}.",
-					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(compensableArchive.getIdentifier().getGlobalTransactionId()),
+					CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+					CompensableXid.toGlobalTransactionKey(compensableArchive.getIdentifier()),
 					compensableArchive.getTransactionResourceKey(), compensableArchive.getTransactionXid());
+			if (compensableStatistic != null) {
+				compensableStatistic.fireTryCompensableSuccess(this.transactionContext.getXid(), compensableArchive);
+			}
+		}
+	}
+
+	public void onRollbackSuccess(TransactionXid xid) {
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic == null || this.transactionContext.isCompensating()) {
+			return;
+		}
+
+		List<CompensableArchive> archiveList = this.xidToArchivesMap.get(xid);
+		for (int i = 0; archiveList != null && i < archiveList.size(); i++) {
+			CompensableArchive compensableArchive = archiveList.get(i);
+			compensableStatistic.fireTryCompensableFailure(this.transactionContext.getXid(), compensableArchive);
 		}
 	}
 
@@ -1007,20 +1209,27 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			return;
 		}
 
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
 		if (this.positive) {
 			logger.info("{}| confirm: identifier= {}, resourceKey= {}, resourceXid= {}.",
-					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(this.archive.getIdentifier().getGlobalTransactionId()),
+					CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+					CompensableXid.toGlobalTransactionKey(this.archive.getIdentifier()),
 					this.archive.getCompensableResourceKey(), this.archive.getCompensableXid());
 
 			this.archive.setConfirmed(true);
+			if (compensableStatistic != null) {
+				compensableStatistic.fireConfirmCompensableSuccess(this.transactionContext.getXid(), this.archive);
+			}
 		} else {
 			logger.info("{}| cancel: identifier= {}, resourceKey= {}, resourceXid= {}.",
-					ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(this.archive.getIdentifier().getGlobalTransactionId()),
+					CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+					CompensableXid.toGlobalTransactionKey(this.archive.getIdentifier()),
 					this.archive.getCompensableResourceKey(), this.archive.getCompensableXid());
 
 			this.archive.setCancelled(true);
+			if (compensableStatistic != null) {
+				compensableStatistic.fireCancelCompensableSuccess(this.transactionContext.getXid(), this.archive);
+			}
 		}
 
 		this.beanFactory.getCompensableLogger().updateCompensableCompletionStatus(this.archive);
@@ -1034,6 +1243,11 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	}
 
 	public synchronized void recover() throws SystemException {
+		CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+		if (compensableStatistic != null) {
+			compensableStatistic.fireRecoverTransaction(this.transactionContext.getXid());
+		}
+
 		if (this.transactionStatus == Status.STATUS_PREPARED //
 				|| this.transactionStatus == Status.STATUS_COMMITTING) {
 			this.recoverNativeResource(true);
@@ -1062,8 +1276,8 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 				continue;
 			} else if (current.isTried() == false) {
 				logger.info("{}| the try operation is rolled back, so the cancel may be ignored, service: {}.",
-						ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()));
+						CompensableXid.toGlobalTransactionKey(transactionContext.getXid()),
+						CompensableXid.toGlobalTransactionKey(current.getIdentifier()));
 				continue;
 			}
 
@@ -1090,8 +1304,8 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 					case XAException.XAER_RMFAIL:
 						errorExists = true;
 						logger.error("{}| error occurred while recovering the branch transaction service: {}",
-								ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()),
-								ByteUtils.byteArrayToString(current.getIdentifier().getGlobalTransactionId()), xaex);
+								CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()),
+								CompensableXid.toGlobalTransactionKey(current.getIdentifier()), xaex);
 						break;
 					default:
 						logger.error("Illegal state, the status of the current branch transaction is unknown!", xaex);
@@ -1104,7 +1318,7 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 
 				TransactionXid transactionXid = this.transactionContext.getXid();
 				logger.error("{}| error occurred while recovering the branch transaction service: {}",
-						ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId()), current, rex);
+						CompensableXid.toGlobalTransactionKey(transactionXid), current, rex);
 			}
 		} // end-for
 
@@ -1142,8 +1356,8 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 	// } catch (Exception ex) {
 	// TransactionXid globalXid = this.transactionContext.getXid();
 	// logger.error("[{}] recover-resource failed. branch= {}",
-	// ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()),
-	// ByteUtils.byteArrayToString(globalXid.getBranchQualifier()), ex);
+	// CompensableXid.toGlobalTransactionKey(globalXid),
+	// CompensableXid.toBranchQualifierKey(globalXid), ex);
 	// throw new SystemException();
 	// }
 	//
@@ -1233,8 +1447,13 @@ public class CompensableTransactionImpl extends TransactionListenerAdapter
 			compensableRepository.removeErrorTransaction(this.transactionContext.getXid());
 			compensableRepository.removeTransaction(this.transactionContext.getXid());
 
+			CompensableStatistic compensableStatistic = this.beanFactory.getCompensableStatistic();
+			if (compensableStatistic != null) {
+				compensableStatistic.fireCleanupTransaction(this.transactionContext.getXid());
+			}
+
 			logger.info("{}| forget transaction.",
-					ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()));
+					CompensableXid.toGlobalTransactionKey(this.transactionContext.getXid()));
 		} else {
 			throw new SystemException(XAException.XAER_RMERR);
 		}
@@ -18,9 +18,11 @@ package org.bytesoft.bytetcc;
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
+import org.bytesoft.bytetcc.work.CompensableParticipantExecutor;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableContext;
 import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableStatistic;
 import org.bytesoft.compensable.ContainerContext;
 import org.bytesoft.compensable.logging.CompensableLogger;
 import org.bytesoft.transaction.TransactionLock;
@@ -57,6 +59,8 @@ public final class TransactionBeanFactoryImpl implements CompensableBeanFactory
 	private CompensableSynchronization compensableSynchronization;
 	private TransactionLock compensableLock;
 	private CompensableRolledbackMarker compensableRolledbackMarker;
+	private CompensableParticipantExecutor compensableParticipantExecutor;
+	private CompensableStatistic compensableStatistic;
 
 	private TransactionBeanFactoryImpl() {
 		if (instance != null) {
@@ -228,4 +232,20 @@ public final class TransactionBeanFactoryImpl implements CompensableBeanFactory
 		this.compensableRolledbackMarker = compensableRolledbackMarker;
 	}
 
+	public CompensableParticipantExecutor getCompensableParticipantExecutor() {
+		return compensableParticipantExecutor;
+	}
+
+	public void setCompensableParticipantExecutor(CompensableParticipantExecutor compensableParticipantExecutor) {
+		this.compensableParticipantExecutor = compensableParticipantExecutor;
+	}
+
+	public CompensableStatistic getCompensableStatistic() {
+		return compensableStatistic;
+	}
+
+	public void setCompensableStatistic(CompensableStatistic compensableStatistic) {
+		this.compensableStatistic = compensableStatistic;
+	}
+
 }
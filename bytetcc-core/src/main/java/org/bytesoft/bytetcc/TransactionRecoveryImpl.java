@@ -16,12 +16,19 @@
 package org.bytesoft.bytetcc;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.transaction.Status;
 import javax.transaction.SystemException;
@@ -33,10 +40,17 @@ import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.jdbc.RecoveredResource;
 import org.bytesoft.bytejta.supports.resource.LocalXAResourceDescriptor;
 import org.bytesoft.bytejta.supports.resource.RemoteResourceDescriptor;
+import org.bytesoft.bytetcc.supports.LocalTransactionLock;
+import org.bytesoft.bytetcc.supports.TransactionFilter;
+import org.bytesoft.bytetcc.work.CompensableRecoveryExecutor;
+import org.bytesoft.bytetcc.work.CompensableRecoveryExecutor.RecoveryTask;
+import org.bytesoft.bytetcc.work.TimingWheel;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
+import org.bytesoft.compensable.CompensableReconciler;
 import org.bytesoft.compensable.TransactionContext;
 import org.bytesoft.compensable.archive.CompensableArchive;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
@@ -45,6 +59,7 @@ import org.bytesoft.compensable.logging.CompensableLogger;
 import org.bytesoft.transaction.CommitRequiredException;
 import org.bytesoft.transaction.RollbackRequiredException;
 import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionException;
 import org.bytesoft.transaction.TransactionLock;
 import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.TransactionRepository;
@@ -75,6 +90,19 @@ public class TransactionRecoveryImpl
 
 	protected final Map<TransactionXid, Transaction> recovered = new HashMap<TransactionXid, Transaction>();
 
+	private double recoveryJitterRatio = 0.2D;
+	private transient TimingWheel<TransactionXid> recoveryWheel;
+	private final Random random = new Random();
+	private boolean reconcileEnabled = true;
+	private int reconcileListThreshold = TransactionFilter.DEFAULT_LIST_THRESHOLD;
+	private double reconcileFalsePositiveRate = TransactionFilter.DEFAULT_FALSE_POSITIVE_RATE;
+	private CompensableRecoveryExecutor recoveryExecutor = new CompensableRecoveryExecutor();
+	/* the results of the recovery tasks, which may complete after the round which dispatched them. */
+	private final Queue<Transaction> recoveryFailures = new ConcurrentLinkedQueue<Transaction>();
+	private final Queue<Transaction> recoveryRejections = new ConcurrentLinkedQueue<Transaction>();
+	private final Set<TransactionXid> recoveringXids = //
+			Collections.newSetFromMap(new ConcurrentHashMap<TransactionXid, Boolean>());
+
 	public void onRecovery(Transaction transaction) {
 		org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
 		TransactionXid xid = transactionContext.getXid();
@@ -290,7 +318,7 @@ public class TransactionRecoveryImpl
 				break;
 			case XAException.XAER_RMFAIL:
 				logger.error("Error occurred while recovering the branch transaction service: {}",
-						ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId()), xaex);
+						CompensableXid.toGlobalTransactionKey(transactionXid), xaex);
 				break;
 			default:
 				logger.error("Illegal state, the status of the trying branch transaction is unknown!");
@@ -302,39 +330,183 @@ public class TransactionRecoveryImpl
 		return null;
 	}
 
+	/**
+	 * The error transactions are loaded and scheduled on a timing wheel at their next recovery time (created-time +
+	 * 60s * 2^n, plus a random jitter); only the transactions which are due are reloaded and recovered, and the failed
+	 * ones are rescheduled with their attempt counter persisted. A transaction which is no longer due when
+	 * reloaded(recovered by another instance meanwhile) is rescheduled instead.
+	 */
 	public synchronized void timingRecover() {
+		long current = System.currentTimeMillis();
+		this.scheduleErrorTransactions(current);
+		this.recoverDueTransactions(current);
+	}
+
+	/**
+	 * Only advances the timing wheel, the transactions which are due are reloaded and recovered without scanning the
+	 * error transactions; invoked every tick between the scans of timingRecover.
+	 */
+	public synchronized void recoverDueTransactions() {
+		this.recoverDueTransactions(System.currentTimeMillis());
+	}
+
+	private void recoverDueTransactions(long current) {
+		List<TransactionXid> xidList = this.getRecoveryWheel(current).advance(current);
+		AtomicInteger success = new AtomicInteger();
+
+		// 按远程实例分区, 由recoveryExecutor并发执行, 单个实例不可达不影响其他实例的事务恢复
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		for (int i = 0; i < xidList.size(); i++) {
+			TransactionXid xid = xidList.get(i);
+			if (this.recoveringXids.contains(xid)) {
+				continue; // still being recovered by a previous round
+			}
+
+			Transaction transaction = this.getDueTransaction(xid);
+			if (transaction == null) {
+				continue; // completed
+			} else if (this.getRecoveryTime(transaction) >= current) {
+				this.recoveryWheel.schedule(xid, this.getNextRecoveryTime(transaction));
+				continue; // changed
+			}
+
+			String partition = this.getRecoveryPartition(transaction);
+			List<RecoveryTask> taskList = partitions.get(partition);
+			if (taskList == null) {
+				taskList = new ArrayList<RecoveryTask>();
+				partitions.put(partition, taskList);
+			}
+			this.recoveringXids.add(xid);
+			taskList.add(new TransactionRecoveryTask(xid, transaction, success));
+		}
+
+		// 等待超时未完成的实例在后台继续执行, 其结果在下一轮处理; 该实例新到期的事务顺延到下一轮
+		List<RecoveryTask> carriedList = this.recoveryExecutor.executeAll(partitions);
+		long tickTime = System.currentTimeMillis() + SECOND_MILLIS;
+		for (int i = 0; i < carriedList.size(); i++) {
+			TransactionXid xid = ((TransactionRecoveryTask) carriedList.get(i)).xid;
+			this.recoveringXids.remove(xid);
+			this.recoveryWheel.schedule(xid, tickTime);
+		}
+
+		for (Transaction transaction = this.recoveryFailures.poll(); transaction != null; //
+				transaction = this.recoveryFailures.poll()) {
+			this.rescheduleTransaction(transaction);
+		}
+
+		int rejected = 0;
+		long retryTime = System.currentTimeMillis() + this.recoveryExecutor.getCircuitOpenMillis();
+		for (Transaction transaction = this.recoveryRejections.poll(); transaction != null; //
+				transaction = this.recoveryRejections.poll(), rejected++) {
+			this.recoveryWheel.schedule(transaction.getTransactionContext().getXid(), retryTime);
+		}
+
+		logger.debug("transaction-recovery: total= {}, success= {}, rejected= {}, carried= {}, scheduled= {}",
+				xidList.size(), success.get(), rejected, carriedList.size(), this.recoveryWheel.size());
+	}
+
+	/**
+	 * The participant transactions are partitioned by the instance which propagated them, and the coordinator
+	 * transactions by their first remote participant, which is the instance the recovery mostly waits on.
+	 */
+	protected String getRecoveryPartition(Transaction transaction) {
+		Object txContext = transaction.getTransactionContext();
+		if (TransactionContext.class.isInstance(txContext) == false) {
+			return String.valueOf(this.endpoint);
+		}
+
+		TransactionContext transactionContext = (TransactionContext) txContext;
+		if (transactionContext.isCoordinator() == false) {
+			return String.valueOf(transactionContext.getPropagatedBy());
+		}
+
+		if (CompensableTransactionImpl.class.isInstance(transaction)) {
+			List<XAResourceArchive> participants = ((CompensableTransactionImpl) transaction).getParticipantArchiveList();
+			for (int i = 0; participants != null && i < participants.size(); i++) {
+				XAResourceArchive participant = participants.get(i);
+				XAResourceDescriptor descriptor = participant.getDescriptor();
+				if (descriptor != null && descriptor.getIdentifier() != null) {
+					return descriptor.getIdentifier();
+				}
+			}
+		}
+
+		return String.valueOf(this.endpoint);
+	}
+
+	private void scheduleErrorTransactions(long current) {
 		TransactionRepository transactionRepository = beanFactory.getCompensableRepository();
+		TimingWheel<TransactionXid> wheel = this.getRecoveryWheel(current);
+
 		// 获取所有异常的事务
 		List<Transaction> transactions = transactionRepository.getErrorTransactionList();
-		int total = transactions == null ? 0 : transactions.size(), value = 0;
 		for (int i = 0; transactions != null && i < transactions.size(); i++) {
 			Transaction transaction = transactions.get(i);
-			org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
-			TransactionXid xid = transactionContext.getXid();
-			try {
-				// 对每个事务进行恢复
-				this.recoverTransactionIfNecessary(transaction);
-			} catch (CommitRequiredException ex) {
-				logger.debug("{}| recover: branch={}, message= commit-required",
-						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()));
-				continue;
-			} catch (RollbackRequiredException ex) {
-				logger.debug("{}| recover: branch={}, message= rollback-required",
-						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()));
-				continue;
-			} catch (SystemException ex) {
-				logger.debug("{}| recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
-				continue;
-			} catch (RuntimeException ex) {
-				logger.debug("{}| recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
-				continue;
+			TransactionXid xid = transaction.getTransactionContext().getXid();
+			if (wheel.contains(xid) == false && this.recoveringXids.contains(xid) == false) {
+				wheel.schedule(xid, this.getNextRecoveryTime(transaction));
 			}
 		}
-		logger.debug("transaction-recovery: total= {}, success= {}", total, value);
+	}
+
+	/**
+	 * The transaction is reloaded from the error transactions of the repository only, a transaction which is still
+	 * active on this instance belongs to the business thread and is left to the next scan.
+	 */
+	private Transaction getDueTransaction(TransactionXid xid) {
+		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
+		TransactionRepository transactionRepository = beanFactory.getCompensableRepository();
+		if (CompensableManagerImpl.class.isInstance(compensableManager)
+				&& ((CompensableManagerImpl) compensableManager).getTransaction(xid) != null) {
+			return null; // active
+		}
+
+		try {
+			return transactionRepository.getErrorTransaction(xid);
+		} catch (TransactionException ex) {
+			logger.warn("{}| Error occurred while loading the transaction to be recovered.",
+					CompensableXid.toGlobalTransactionKey(xid), ex);
+			this.recoveryWheel.schedule(xid, System.currentTimeMillis() + SECOND_MILLIS * 60L);
+			return null;
+		}
+	}
+
+	private void rescheduleTransaction(Transaction transaction) {
+		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
+		TransactionXid xid = transaction.getTransactionContext().getXid();
+		try {
+			compensableLogger.updateTransactionRecoveryStatus(
+					(org.bytesoft.compensable.archive.TransactionArchive) transaction.getTransactionArchive());
+		} catch (RuntimeException ex) {
+			logger.warn("{}| Error occurred while updating the recovery status.",
+					CompensableXid.toGlobalTransactionKey(xid), ex);
+		}
+		this.recoveryWheel.schedule(xid, this.getNextRecoveryTime(transaction));
+	}
+
+	protected long getNextRecoveryTime(Transaction transaction) {
+		org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
+		long backoffMillis = this.getRecoveryBackoff(transaction);
+		long jitterMillis = this.recoveryJitterRatio <= 0 ? 0
+				: (long) (backoffMillis * this.recoveryJitterRatio * this.random.nextDouble());
+		return transactionContext.getCreatedTime() + backoffMillis + jitterMillis;
+	}
+
+	private long getRecoveryTime(Transaction transaction) {
+		return transaction.getTransactionContext().getCreatedTime() + this.getRecoveryBackoff(transaction);
+	}
+
+	private long getRecoveryBackoff(Transaction transaction) {
+		org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
+		int recoveredTimes = transactionContext.getRecoveredTimes() > 10 ? 10 : transactionContext.getRecoveredTimes();
+		return SECOND_MILLIS * 60L * (long) Math.pow(2, recoveredTimes);
+	}
+
+	private TimingWheel<TransactionXid> getRecoveryWheel(long current) {
+		if (this.recoveryWheel == null) {
+			this.recoveryWheel = new TimingWheel<TransactionXid>(SECOND_MILLIS, 60, current);
+		}
+		return this.recoveryWheel;
 	}
 
 	public void recoverTransactionIfNecessary(Transaction transaction)
@@ -384,7 +556,7 @@ public class TransactionRecoveryImpl
 			case Status.STATUS_PREPARING:
 			case Status.STATUS_UNKNOWN: /* TODO */ {
 				if (transactionContext.isPropagated() == false) {
-					if ((locked = compensableLock.lockTransaction(xid, this.endpoint)) == false) {
+					if ((locked = this.lockTransactionForRecovery(compensableLock, xid)) == false) {
 						throw new SystemException(XAException.XAER_PROTO);
 					}
 
@@ -394,7 +566,7 @@ public class TransactionRecoveryImpl
 				break;
 			}
 			case Status.STATUS_ROLLING_BACK: {
-				if ((locked = compensableLock.lockTransaction(xid, this.endpoint)) == false) {
+				if ((locked = this.lockTransactionForRecovery(compensableLock, xid)) == false) {
 					throw new SystemException(XAException.XAER_PROTO);
 				}
 
@@ -404,7 +576,7 @@ public class TransactionRecoveryImpl
 			}
 			case Status.STATUS_PREPARED:
 			case Status.STATUS_COMMITTING: {
-				if ((locked = compensableLock.lockTransaction(xid, this.endpoint)) == false) {
+				if ((locked = this.lockTransactionForRecovery(compensableLock, xid)) == false) {
 					throw new SystemException(XAException.XAER_PROTO);
 				}
 
@@ -430,6 +602,16 @@ public class TransactionRecoveryImpl
 
 	}
 
+	/**
+	 * The recovery holds the local lock exclusively, so that it does not race with the business threads.
+	 */
+	private boolean lockTransactionForRecovery(TransactionLock compensableLock, TransactionXid xid) {
+		if (LocalTransactionLock.class.isInstance(compensableLock)) {
+			return ((LocalTransactionLock) compensableLock).lockTransactionExclusively(xid, this.endpoint, 0);
+		}
+		return compensableLock.lockTransaction(xid, this.endpoint);
+	}
+
 	protected void recoverParticipant(Transaction transaction)
 			throws CommitRequiredException, RollbackRequiredException, SystemException {
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
@@ -481,42 +663,43 @@ public class TransactionRecoveryImpl
 			transactionList.add(transaction);
 		}
 
-		Map<String, List<Transaction>> closedMap = new HashMap<String, List<Transaction>>();
+		final Map<String, List<Transaction>> closedMap = new ConcurrentHashMap<String, List<Transaction>>();
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
 		for (Iterator<Map.Entry<String, List<Transaction>>> itr = instanceMap.entrySet().iterator(); itr.hasNext();) {
 			Map.Entry<String, List<Transaction>> entry = itr.next();
-			String identifier = entry.getKey();
-			List<Transaction> transactionList = entry.getValue();
-			XAResourceDescriptor resource = resourceDeserializer.deserialize(identifier);
-			Xid[] xidArray = null;
-			try {
-				xidArray = resource.recover(XAResource.TMSTARTRSCAN | XAResource.TMENDRSCAN);
-			} catch (XAException ex) {
+			final String identifier = entry.getKey();
+			final List<Transaction> transactionList = entry.getValue();
+			final XAResourceDescriptor resource = resourceDeserializer.deserialize(identifier);
+			if (resource == null) {
 				continue; // ignore
 			}
 
-			Set<String> globals = new HashSet<String>();
-			for (int i = 0; xidArray != null && i < xidArray.length; i++) {
-				Xid xid = xidArray[i];
-				byte[] globalTransactionId = xid.getGlobalTransactionId();
-				String global = ByteUtils.byteArrayToString(globalTransactionId);
-				globals.add(global);
-			}
+			RecoveryTask task = new RecoveryTask() {
+				public int execute() {
+					Xid[] xidArray = null;
+					try {
+						xidArray = recoverBranches(resource, transactionList);
+					} catch (XAException ex) {
+						return ex.errorCode == XAException.XAER_RMFAIL ? RESULT_REMOTE_FAILURE : RESULT_LOCAL_FAILURE;
+					}
 
-			List<Transaction> errorTxList = new ArrayList<Transaction>();
-			for (int i = 0; transactionList != null && i < transactionList.size(); i++) {
-				Transaction transaction = transactionList.get(i);
-				org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
-				TransactionXid transactionXid = transactionContext.getXid();
-				byte[] globalTransactionId = transactionXid.getGlobalTransactionId();
-				String global = ByteUtils.byteArrayToString(globalTransactionId);
-				if (globals.contains(global) == false) {
-					errorTxList.add(transaction);
+					closedMap.put(identifier, getClosedTransactions(transactionList, xidArray));
+					return RESULT_SUCCESS;
 				}
-			}
 
-			closedMap.put(identifier, errorTxList);
+				public void reject() {
+					logger.debug("The instance {} is unreachable, its branches will be recovered later.", identifier);
+				}
+			};
+
+			List<RecoveryTask> taskList = new ArrayList<RecoveryTask>();
+			taskList.add(task);
+			partitions.put(identifier, taskList);
 		}
 
+		// 未在等待时间内完成的实例, 其分支在下一次branchRecover时重新检查
+		this.recoveryExecutor.executeAll(partitions);
+
 		for (Iterator<Map.Entry<String, List<Transaction>>> itr = closedMap.entrySet().iterator(); itr.hasNext();) {
 			Map.Entry<String, List<Transaction>> entry = itr.next();
 			List<Transaction> transactionList = entry.getValue();
@@ -528,19 +711,74 @@ public class TransactionRecoveryImpl
 					this.rollbackParticipant(transaction);
 				} catch (SystemException ex) {
 					logger.debug("{}| recover(rollback): branch={}, message= {}",
-							ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
+							CompensableXid.toGlobalTransactionKey(xid),
+							CompensableXid.toBranchQualifierKey(xid), ex.getMessage(), ex);
 					continue;
 				} catch (RuntimeException ex) {
 					logger.debug("{}| recover(rollback): branch={}, message= {}",
-							ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-							ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
+							CompensableXid.toGlobalTransactionKey(xid),
+							CompensableXid.toBranchQualifierKey(xid), ex.getMessage(), ex);
 					continue;
 				}
 			}
 		}
 	}
 
+	private List<Transaction> getClosedTransactions(List<Transaction> transactionList, Xid[] xidArray) {
+		Set<String> globals = new HashSet<String>();
+		for (int i = 0; xidArray != null && i < xidArray.length; i++) {
+			Xid xid = xidArray[i];
+			byte[] globalTransactionId = xid.getGlobalTransactionId();
+			String global = ByteUtils.byteArrayToString(globalTransactionId);
+			globals.add(global);
+		}
+
+		List<Transaction> errorTxList = new ArrayList<Transaction>();
+		for (int i = 0; transactionList != null && i < transactionList.size(); i++) {
+			Transaction transaction = transactionList.get(i);
+			org.bytesoft.transaction.TransactionContext transactionContext = transaction.getTransactionContext();
+			TransactionXid transactionXid = transactionContext.getXid();
+			byte[] globalTransactionId = transactionXid.getGlobalTransactionId();
+			String global = ByteUtils.byteArrayToString(globalTransactionId);
+			if (globals.contains(global) == false) {
+				errorTxList.add(transaction);
+			}
+		}
+		return errorTxList;
+	}
+
+	/**
+	 * Asks the coordinator only about the specified transactions if it supports reconciliation, otherwise (or if the
+	 * reconciliation fails) falls back to the full recovery scan.
+	 */
+	private Xid[] recoverBranches(XAResourceDescriptor resource, List<Transaction> transactionList)
+			throws XAException {
+		Object delegate = RemoteResourceDescriptor.class.isInstance(resource)
+				? ((RemoteResourceDescriptor) resource).getDelegate() : resource;
+		if (this.reconcileEnabled && CompensableReconciler.class.isInstance(delegate)) {
+			List<byte[]> globals = new ArrayList<byte[]>();
+			for (int i = 0; i < transactionList.size(); i++) {
+				Transaction transaction = transactionList.get(i);
+				TransactionXid transactionXid = transaction.getTransactionContext().getXid();
+				globals.add(transactionXid.getGlobalTransactionId());
+			}
+
+			byte[] filter = TransactionFilter.encode(globals, this.reconcileListThreshold,
+					this.reconcileFalsePositiveRate);
+			try {
+				return ((CompensableReconciler) delegate).reconcile(filter);
+			} catch (XAException ex) {
+				logger.debug("Error occurred while reconciling branches with {}, fall back to recovery scan.",
+						resource.getIdentifier(), ex);
+			} catch (RuntimeException ex) {
+				logger.debug("Error occurred while reconciling branches with {}, fall back to recovery scan.",
+						resource.getIdentifier(), ex);
+			}
+		}
+
+		return resource.recover(XAResource.TMSTARTRSCAN | XAResource.TMENDRSCAN);
+	}
+
 	protected void rollbackParticipant(Transaction transaction) throws SystemException {
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
 		try {
@@ -551,6 +789,46 @@ public class TransactionRecoveryImpl
 		}
 	}
 
+	public double getRecoveryJitterRatio() {
+		return recoveryJitterRatio;
+	}
+
+	public void setRecoveryJitterRatio(double recoveryJitterRatio) {
+		this.recoveryJitterRatio = recoveryJitterRatio;
+	}
+
+	public boolean isReconcileEnabled() {
+		return reconcileEnabled;
+	}
+
+	public void setReconcileEnabled(boolean reconcileEnabled) {
+		this.reconcileEnabled = reconcileEnabled;
+	}
+
+	public int getReconcileListThreshold() {
+		return reconcileListThreshold;
+	}
+
+	public void setReconcileListThreshold(int reconcileListThreshold) {
+		this.reconcileListThreshold = reconcileListThreshold;
+	}
+
+	public double getReconcileFalsePositiveRate() {
+		return reconcileFalsePositiveRate;
+	}
+
+	public void setReconcileFalsePositiveRate(double reconcileFalsePositiveRate) {
+		this.reconcileFalsePositiveRate = reconcileFalsePositiveRate;
+	}
+
+	public CompensableRecoveryExecutor getRecoveryExecutor() {
+		return recoveryExecutor;
+	}
+
+	public void setRecoveryExecutor(CompensableRecoveryExecutor recoveryExecutor) {
+		this.recoveryExecutor = recoveryExecutor;
+	}
+
 	public boolean isInitialized() {
 		return initialized;
 	}
@@ -579,6 +857,61 @@ public class TransactionRecoveryImpl
 		this.beanFactory = tbf;
 	}
 
+	/**
+	 * Only the failures caused by an unreachable remote instance(the branches remain unfinished, or XAER_RMFAIL) are
+	 * counted by the circuit breaker of the instance; a lock contention or a local error is not.
+	 */
+	private class TransactionRecoveryTask implements RecoveryTask {
+		private final TransactionXid xid;
+		private final Transaction transaction;
+		private final AtomicInteger success;
+
+		public TransactionRecoveryTask(TransactionXid xid, Transaction transaction, AtomicInteger success) {
+			this.xid = xid;
+			this.transaction = transaction;
+			this.success = success;
+		}
+
+		public int execute() {
+			TransactionXid xid = this.transaction.getTransactionContext().getXid();
+			int result = RESULT_LOCAL_FAILURE;
+			try {
+				// 对每个事务进行恢复
+				recoverTransactionIfNecessary(this.transaction);
+				this.success.incrementAndGet();
+				result = RESULT_SUCCESS;
+			} catch (CommitRequiredException ex) {
+				logger.debug("{}| recover: branch={}, message= commit-required",
+						CompensableXid.toGlobalTransactionKey(xid),
+						CompensableXid.toBranchQualifierKey(xid));
+				result = RESULT_REMOTE_FAILURE;
+			} catch (RollbackRequiredException ex) {
+				logger.debug("{}| recover: branch={}, message= rollback-required",
+						CompensableXid.toGlobalTransactionKey(xid),
+						CompensableXid.toBranchQualifierKey(xid));
+				result = RESULT_REMOTE_FAILURE;
+			} catch (SystemException ex) {
+				logger.debug("{}| recover: branch={}, message= {}", CompensableXid.toGlobalTransactionKey(xid),
+						CompensableXid.toBranchQualifierKey(xid), ex.getMessage(), ex);
+				result = ex.errorCode == XAException.XAER_RMFAIL ? RESULT_REMOTE_FAILURE : RESULT_LOCAL_FAILURE;
+			} catch (RuntimeException ex) {
+				logger.debug("{}| recover: branch={}, message= {}", CompensableXid.toGlobalTransactionKey(xid),
+						CompensableXid.toBranchQualifierKey(xid), ex.getMessage(), ex);
+			} finally {
+				if (result != RESULT_SUCCESS) {
+					recoveryFailures.offer(this.transaction);
+				}
+				recoveringXids.remove(this.xid);
+			}
+			return result;
+		}
+
+		public void reject() {
+			recoveryRejections.offer(this.transaction);
+			recoveringXids.remove(this.xid);
+		}
+	}
+
 	private static class TransactionBranchKey {
 		public Xid xid;
 		public String resource;
@@ -15,6 +15,7 @@
  */
 package org.bytesoft.bytetcc.logging;
 
+import org.bytesoft.bytetcc.logging.deserializer.DeltaArchiveDeserializer;
 import org.bytesoft.compensable.archive.CompensableArchive;
 import org.bytesoft.compensable.archive.TransactionArchive;
 import org.bytesoft.transaction.archive.XAResourceArchive;
@@ -29,10 +30,12 @@ public class ArchiveDeserializerImpl implements ArchiveDeserializer {
 	static final byte TYPE_TRANSACTION = 0x0;
 	static final byte TYPE_XA_RESOURCE = 0x1;
 	static final byte TYPE_COMPENSABLE = 0x2;
+	static final byte TYPE_DELTA = 0x3;
 
 	private ArchiveDeserializer compensableArchiveDeserializer;
 	private ArchiveDeserializer xaResourceArchiveDeserializer;
 	private ArchiveDeserializer transactionArchiveDeserializer;
+	private ArchiveDeserializer deltaArchiveDeserializer = new DeltaArchiveDeserializer();
 
 	public byte[] serialize(TransactionXid xid, Object archive) {
 
@@ -54,6 +57,12 @@ public class ArchiveDeserializerImpl implements ArchiveDeserializer {
 			byteArray[0] = TYPE_COMPENSABLE;
 			System.arraycopy(array, 0, byteArray, 1, array.length);
 			return byteArray;
+		} else if (DeltaArchive.class.isInstance(archive)) {
+			byte[] array = this.deltaArchiveDeserializer.serialize(xid, archive);
+			byte[] byteArray = new byte[array.length + 1];
+			byteArray[0] = TYPE_DELTA;
+			System.arraycopy(array, 0, byteArray, 1, array.length);
+			return byteArray;
 		} else {
 			throw new IllegalArgumentException();
 		}
@@ -78,6 +87,10 @@ public class ArchiveDeserializerImpl implements ArchiveDeserializer {
 			byte[] byteArray = new byte[array.length - 1];
 			System.arraycopy(array, 1, byteArray, 0, byteArray.length);
 			return this.compensableArchiveDeserializer.deserialize(xid, byteArray);
+		} else if (type == TYPE_DELTA) {
+			byte[] byteArray = new byte[array.length - 1];
+			System.arraycopy(array, 1, byteArray, 0, byteArray.length);
+			return this.deltaArchiveDeserializer.deserialize(xid, byteArray);
 		} else {
 			throw new IllegalArgumentException();
 		}
@@ -108,4 +121,12 @@ public class ArchiveDeserializerImpl implements ArchiveDeserializer {
 		this.transactionArchiveDeserializer = transactionArchiveDeserializer;
 	}
 
+	public ArchiveDeserializer getDeltaArchiveDeserializer() {
+		return deltaArchiveDeserializer;
+	}
+
+	public void setDeltaArchiveDeserializer(ArchiveDeserializer deltaArchiveDeserializer) {
+		this.deltaArchiveDeserializer = deltaArchiveDeserializer;
+	}
+
 }
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.bytesoft.common.utils.ByteUtils;
+
+/**
+ * A status change of a transaction/participant/compensable, which is appended to the log instead of the whole archive,
+ * and is folded into the transaction archive while recovering or compressing the log.
+ */
+public class DeltaArchive {
+	public static final int KIND_TRANSACTION_STATUS = 0x1;
+	public static final int KIND_TRANSACTION_RECOVERY = 0x2;
+	public static final int KIND_TRANSACTION_VARIABLES = 0x3;
+	public static final int KIND_PARTICIPANT_STATUS = 0x4;
+	public static final int KIND_PARTICIPANT_DELETE = 0x5;
+	public static final int KIND_COMPENSABLE_STATUS = 0x6;
+	public static final int KIND_COMPENSABLE_INVOCATION_RESOURCE = 0x7;
+	public static final int KIND_COMPENSABLE_COMPLETION_RESOURCE = 0x8;
+
+	/* flags of participant. */
+	public static final int FLAG_READONLY = 0x1;
+	public static final int FLAG_COMMITTED = 0x2;
+	public static final int FLAG_ROLLEDBACK = 0x4;
+	public static final int FLAG_COMPLETED = 0x8;
+	public static final int FLAG_HEURISTIC = 0x10;
+
+	/* flags of compensable. */
+	public static final int FLAG_TRIED = 0x1;
+	public static final int FLAG_CONFIRMED = 0x2;
+	public static final int FLAG_CANCELLED = 0x4;
+
+	private int kind;
+	/* branch qualifier of the participant/compensable, null for transaction. */
+	private byte[] branchQualifier;
+	/* compensable-status of transaction, or flags of participant/compensable. */
+	private int status;
+	private int vote;
+	private int recoveredTimes;
+	private long recoveredAt;
+	private Map<String, Serializable> variables;
+	/* transaction-xid/compensable-xid of compensable. */
+	private byte[] resourceGlobalTransactionId;
+	private byte[] resourceBranchQualifier;
+	private String resourceKey;
+
+	public String toString() {
+		String branch = this.branchQualifier == null ? null : ByteUtils.byteArrayToString(this.branchQualifier);
+		return String.format("[delta-archive| kind= %s, branch= %s, status= %s]", this.kind, branch, this.status);
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	public byte[] getBranchQualifier() {
+		return branchQualifier;
+	}
+
+	public void setBranchQualifier(byte[] branchQualifier) {
+		this.branchQualifier = branchQualifier;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public int getVote() {
+		return vote;
+	}
+
+	public void setVote(int vote) {
+		this.vote = vote;
+	}
+
+	public int getRecoveredTimes() {
+		return recoveredTimes;
+	}
+
+	public void setRecoveredTimes(int recoveredTimes) {
+		this.recoveredTimes = recoveredTimes;
+	}
+
+	public long getRecoveredAt() {
+		return recoveredAt;
+	}
+
+	public void setRecoveredAt(long recoveredAt) {
+		this.recoveredAt = recoveredAt;
+	}
+
+	public Map<String, Serializable> getVariables() {
+		return variables;
+	}
+
+	public void setVariables(Map<String, Serializable> variables) {
+		this.variables = variables;
+	}
+
+	public byte[] getResourceGlobalTransactionId() {
+		return resourceGlobalTransactionId;
+	}
+
+	public void setResourceGlobalTransactionId(byte[] resourceGlobalTransactionId) {
+		this.resourceGlobalTransactionId = resourceGlobalTransactionId;
+	}
+
+	public byte[] getResourceBranchQualifier() {
+		return resourceBranchQualifier;
+	}
+
+	public void setResourceBranchQualifier(byte[] resourceBranchQualifier) {
+		this.resourceBranchQualifier = resourceBranchQualifier;
+	}
+
+	public String getResourceKey() {
+		return resourceKey;
+	}
+
+	public void setResourceKey(String resourceKey) {
+		this.resourceKey = resourceKey;
+	}
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.transaction.xa.Xid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group-commit engine of the SampleCompensableLogger: the business threads publish their records into a lock-free
+ * ring buffer, and a single flusher thread appends them to the logging system and forces them to disk once per batch.
+ * A call to {@link #append(int, Xid, byte[])} returns only after the batch containing its record has been forced.
+ * The flusher is only woken up by the first record of a batch or by a full batch, so that the records arriving within
+ * groupCommitMaxWait are coalesced into one force.
+ */
+public class GroupCommitEngine implements Runnable {
+	static final Logger logger = LoggerFactory.getLogger(GroupCommitEngine.class);
+	static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final SampleCompensableLogger compensableLogger;
+	private final AtomicReferenceArray<GroupCommitRecord> ringBuffer;
+	private final int mask;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+
+	/* next sequence to be claimed by producers. */
+	private final AtomicLong claimed = new AtomicLong();
+	/* next sequence to be consumed by the flusher, updated under the lock. */
+	private volatile long consumed;
+	/* all the records before this sequence are durable, updated under the lock. */
+	private volatile long flushed;
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition batchReady = this.lock.newCondition();
+	private final Condition batchFlushed = this.lock.newCondition();
+	private volatile Thread flusher;
+	private volatile boolean released;
+
+	public GroupCommitEngine(SampleCompensableLogger compensableLogger, int capacity, int maxBatchSize,
+			long maxWaitMillis) {
+		int size = 1;
+		while (size < capacity) {
+			size = size << 1;
+		}
+		this.compensableLogger = compensableLogger;
+		this.ringBuffer = new AtomicReferenceArray<GroupCommitRecord>(size);
+		this.mask = size - 1;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+	}
+
+	public synchronized void start() {
+		if (this.flusher == null) {
+			Thread thread = new Thread(this, "bytetcc-group-commit");
+			thread.setDaemon(true);
+			this.flusher = thread;
+			thread.start();
+		}
+	}
+
+	public void release() {
+		this.released = true;
+		this.signalFlusher();
+	}
+
+	public boolean isActive() {
+		return this.flusher != null && this.released == false;
+	}
+
+	public void append(int operator, Xid xid, byte[] byteArray) {
+		GroupCommitRecord record = new GroupCommitRecord(operator, xid, byteArray);
+		long sequence = this.publish(record);
+
+		long pending = sequence - this.consumed;
+		if (pending == 0 || pending + 1 >= this.maxBatchSize) {
+			this.signalFlusher(); // first record of a batch, or the batch is full.
+		}
+
+		this.awaitDurable(record, sequence);
+	}
+
+	private void signalFlusher() {
+		this.lock.lock();
+		try {
+			this.batchReady.signal();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private long publish(GroupCommitRecord record) {
+		int capacity = this.mask + 1;
+		while (true) {
+			long current = this.claimed.get();
+			if (current - this.consumed >= capacity) {
+				this.signalFlusher(); // buffer is full, wait for the flusher to catch up.
+				Thread.yield();
+			} else if (this.claimed.compareAndSet(current, current + 1)) {
+				this.ringBuffer.set((int) (current & this.mask), record);
+				return current;
+			}
+		}
+	}
+
+	private void awaitDurable(GroupCommitRecord record, long sequence) {
+		boolean interrupted = false;
+		this.lock.lock();
+		try {
+			while (this.flushed <= sequence) {
+				if (this.flusher == null) {
+					record.failure = new IllegalStateException("The group-commit engine has been released!");
+					break;
+				}
+				try {
+					this.batchFlushed.await(1000L, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (record.failure != null) {
+			throw record.failure;
+		}
+	}
+
+	public void run() {
+		try {
+			GroupCommitRecord[] batch = new GroupCommitRecord[this.maxBatchSize];
+			while (true) {
+				long sequence = this.consumed;
+				int length = this.takeBatch(batch, sequence);
+				if (length < 0) {
+					break;
+				} else if (length > 0) {
+					this.flushBatch(batch, length, sequence);
+				}
+			}
+		} finally {
+			this.lock.lock();
+			try {
+				this.flusher = null;
+				this.batchFlushed.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Waits for the next batch, and hands it over from the ring buffer under the lock.
+	 *
+	 * @return the length of the batch, or -1 if the engine has been released and drained.
+	 */
+	private int takeBatch(GroupCommitRecord[] batch, long sequence) {
+		this.lock.lock();
+		try {
+			while (this.ringBuffer.get((int) (sequence & this.mask)) == null) {
+				if (this.released && sequence == this.claimed.get()) {
+					return -1;
+				}
+				this.awaitQuietly(IDLE_WAIT_NANOS);
+			}
+
+			long deadline = System.nanoTime() + this.maxWaitNanos;
+			while (this.maxWaitNanos > 0 && this.released == false
+					&& this.claimed.get() - sequence < this.maxBatchSize) {
+				long remains = deadline - System.nanoTime();
+				if (remains <= 0) {
+					break;
+				}
+				this.awaitQuietly(remains); // coalesce more records before forcing.
+			}
+
+			int length = 0;
+			for (; length < this.maxBatchSize; length++) {
+				int index = (int) ((sequence + length) & this.mask);
+				GroupCommitRecord record = this.ringBuffer.get(index);
+				if (record == null) {
+					break; // the slot has been claimed but not yet published.
+				}
+				this.ringBuffer.set(index, null);
+				batch[length] = record;
+			}
+			this.consumed = sequence + length;
+			return length;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void awaitQuietly(long nanos) {
+		try {
+			this.batchReady.awaitNanos(nanos);
+		} catch (InterruptedException ex) {
+			logger.debug(ex.getMessage(), ex);
+		}
+	}
+
+	private void flushBatch(GroupCommitRecord[] batch, int length, long sequence) {
+		RuntimeException failure = null;
+		for (int i = 0; i < length; i++) {
+			GroupCommitRecord record = batch[i];
+			try {
+				this.compensableLogger.writeImmediately(record.operator, record.xid, record.byteArray);
+			} catch (RuntimeException rex) {
+				record.failure = rex;
+			}
+		}
+
+		try {
+			this.compensableLogger.flushImmediately();
+		} catch (RuntimeException rex) {
+			failure = rex;
+			logger.error("Error occurred while forcing the compensable log!", rex);
+		}
+
+		for (int i = 0; i < length; i++) {
+			GroupCommitRecord record = batch[i];
+			record.failure = record.failure == null ? failure : record.failure;
+			batch[i] = null;
+		}
+
+		this.lock.lock();
+		try {
+			this.flushed = sequence + length;
+			this.batchFlushed.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	static class GroupCommitRecord {
+		final int operator;
+		final Xid xid;
+		final byte[] byteArray;
+		volatile RuntimeException failure;
+
+		public GroupCommitRecord(int operator, Xid xid, byte[] byteArray) {
+			this.operator = operator;
+			this.xid = xid;
+			this.byteArray = byteArray;
+		}
+	}
+
+}
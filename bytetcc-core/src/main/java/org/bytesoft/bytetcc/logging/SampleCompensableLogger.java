@@ -17,8 +17,7 @@ package org.bytesoft.bytetcc.logging;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -53,24 +52,53 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 	private CompensableBeanFactory beanFactory;
 	private String endpoint;
 
+	/* group-commit mode: records are forced to disk in batches by a single flusher thread. */
+	private boolean groupCommit = false;
+	private int groupCommitCapacity = 4096;
+	private int groupCommitMaxBatch = 256;
+	private long groupCommitMaxWait = 0L;
+	private volatile GroupCommitEngine groupCommitEngine;
+
+	private int recoverProgressInterval = 10000;
+	/* parallel mode of compressing/recovering: records are assembled by a fork-join pool, sharded by global xid. */
+	private int recoverParallelism = 1;
+	private int recoverShardSize = 64;
+	private volatile TransactionArchiveAssembler archiveAssembler;
+
 	public void createTransaction(TransactionArchive archive) {
 		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 
 		try {
 			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
-			this.create(archive.getXid(), byteArray);
+			this.append(OPERATOR_CREATE, archive.getXid(), byteArray);
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while creating transaction-archive.", rex);
 		}
 	}
 
+	public void flushTransaction(TransactionArchive archive) {
+	}
+
 	public void updateTransactionVariables(TransactionArchive archive) {
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_TRANSACTION_VARIABLES);
+		delta.setVariables(archive.getVariables());
+		this.appendDelta(archive.getXid(), delta);
 	}
 
 	public void updateTransactionStatus(TransactionArchive archive) {
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_TRANSACTION_STATUS);
+		delta.setStatus(archive.getCompensableStatus());
+		this.appendDelta(archive.getXid(), delta);
 	}
 
 	public void updateTransactionRecoveryStatus(TransactionArchive archive) {
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_TRANSACTION_RECOVERY);
+		delta.setRecoveredTimes(archive.getRecoveredTimes());
+		delta.setRecoveredAt(archive.getRecoveredAt());
+		this.appendDelta(archive.getXid(), delta);
 	}
 
 //	public void updateTransaction(TransactionArchive archive) {
@@ -86,7 +114,7 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 
 	public void deleteTransaction(TransactionArchive archive) {
 		try {
-			this.delete(archive.getXid());
+			this.append(OPERATOR_DELETE, archive.getXid(), null);
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while deleting transaction-archive.", rex);
 		}
@@ -97,13 +125,25 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 
 		try {
 			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
-			this.create(archive.getXid(), byteArray);
+			this.append(OPERATOR_CREATE, archive.getXid(), byteArray);
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while modifying resource-archive.", rex);
 		}
 	}
 
 	public void updateParticipantStatus(XAResourceArchive archive) {
+		int flags = archive.isReadonly() ? DeltaArchive.FLAG_READONLY : 0;
+		flags |= archive.isCommitted() ? DeltaArchive.FLAG_COMMITTED : 0;
+		flags |= archive.isRolledback() ? DeltaArchive.FLAG_ROLLEDBACK : 0;
+		flags |= archive.isCompleted() ? DeltaArchive.FLAG_COMPLETED : 0;
+		flags |= archive.isHeuristic() ? DeltaArchive.FLAG_HEURISTIC : 0;
+
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_PARTICIPANT_STATUS);
+		delta.setBranchQualifier(archive.getXid().getBranchQualifier());
+		delta.setStatus(flags);
+		delta.setVote(archive.getVote());
+		this.appendDelta(archive.getXid(), delta);
 	}
 
 //	public void updateParticipant(XAResourceArchive archive) {
@@ -118,6 +158,14 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 //	}
 
 	public void deleteParticipant(XAResourceArchive archive) {
+		if (archive == null) {
+			return;
+		}
+
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_PARTICIPANT_DELETE);
+		delta.setBranchQualifier(archive.getXid().getBranchQualifier());
+		this.appendDelta(archive.getXid(), delta);
 	}
 
 	public void createCompensable(CompensableArchive archive) {
@@ -126,22 +174,67 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 		try {
 			TransactionXid xid = (TransactionXid) archive.getIdentifier();
 			byte[] byteArray = deserializer.serialize(xid, archive);
-			this.create(xid, byteArray);
+			this.append(OPERATOR_CREATE, xid, byteArray);
 		} catch (RuntimeException rex) {
 			logger.error("Error occurred while creating compensable-archive.", rex);
 		}
 	}
 
 	public void updateCompensableInvocationResource(CompensableArchive archive) {
+		Xid transactionXid = archive.getTransactionXid();
+
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_COMPENSABLE_INVOCATION_RESOURCE);
+		delta.setBranchQualifier(archive.getIdentifier().getBranchQualifier());
+		delta.setResourceGlobalTransactionId(transactionXid == null ? null : transactionXid.getGlobalTransactionId());
+		delta.setResourceBranchQualifier(transactionXid == null ? null : transactionXid.getBranchQualifier());
+		delta.setResourceKey(archive.getTransactionResourceKey());
+		this.appendDelta(archive.getIdentifier(), delta);
 	}
 
 	public void updateCompensableInvocationStatus(CompensableArchive archive) {
+		this.updateCompensableStatus(archive);
 	}
 
 	public void updateCompensableCompletionResource(CompensableArchive archive) {
+		Xid compensableXid = archive.getCompensableXid();
+
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_COMPENSABLE_COMPLETION_RESOURCE);
+		delta.setBranchQualifier(archive.getIdentifier().getBranchQualifier());
+		delta.setResourceGlobalTransactionId(compensableXid == null ? null : compensableXid.getGlobalTransactionId());
+		delta.setResourceBranchQualifier(compensableXid == null ? null : compensableXid.getBranchQualifier());
+		delta.setResourceKey(archive.getCompensableResourceKey());
+		this.appendDelta(archive.getIdentifier(), delta);
 	}
 
 	public void updateCompensableCompletionStatus(CompensableArchive archive) {
+		this.updateCompensableStatus(archive);
+	}
+
+	private void updateCompensableStatus(CompensableArchive archive) {
+		int flags = archive.isTried() ? DeltaArchive.FLAG_TRIED : 0;
+		flags |= archive.isConfirmed() ? DeltaArchive.FLAG_CONFIRMED : 0;
+		flags |= archive.isCancelled() ? DeltaArchive.FLAG_CANCELLED : 0;
+
+		DeltaArchive delta = new DeltaArchive();
+		delta.setKind(DeltaArchive.KIND_COMPENSABLE_STATUS);
+		delta.setBranchQualifier(archive.getIdentifier().getBranchQualifier());
+		delta.setStatus(flags);
+		this.appendDelta(archive.getIdentifier(), delta);
+	}
+
+	private void appendDelta(Xid xid, DeltaArchive delta) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+
+		try {
+			TransactionXid globalXid = xidFactory.createGlobalXid(xid.getGlobalTransactionId());
+			byte[] byteArray = deserializer.serialize(globalXid, delta);
+			this.append(OPERATOR_MODIFY, xid, byteArray);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while appending delta-archive: {}.", delta, rex);
+		}
 	}
 
 //	public void updateCompensable(CompensableArchive archive) {
@@ -156,82 +249,99 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 //		}
 //	}
 
+	private void append(int operator, Xid xid, byte[] byteArray) {
+		GroupCommitEngine engine = this.getGroupCommitEngineIfNecessary();
+		if (engine == null) {
+			this.writeImmediately(operator, xid, byteArray);
+		} else {
+			engine.append(operator, xid, byteArray);
+		}
+	}
+
+	void writeImmediately(int operator, Xid xid, byte[] byteArray) {
+		if (OPERATOR_DELETE == operator) {
+			this.delete(xid);
+		} else if (OPERATOR_CREATE == operator) {
+			this.create(xid, byteArray);
+		} else {
+			this.modify(xid, byteArray);
+		}
+	}
+
+	private GroupCommitEngine getGroupCommitEngineIfNecessary() {
+		if (this.groupCommit == false) {
+			return null;
+		} else if (this.groupCommitEngine == null) {
+			synchronized (this) {
+				if (this.groupCommitEngine == null) {
+					GroupCommitEngine engine = new GroupCommitEngine(this, this.groupCommitCapacity,
+							this.groupCommitMaxBatch, this.groupCommitMaxWait);
+					engine.start();
+					this.groupCommitEngine = engine;
+				}
+			}
+		}
+
+		GroupCommitEngine engine = this.groupCommitEngine;
+		return engine.isActive() ? engine : null;
+	}
+
+	private TransactionArchiveAssembler getArchiveAssembler() {
+		if (this.archiveAssembler == null) {
+			synchronized (this) {
+				if (this.archiveAssembler == null) {
+					this.archiveAssembler = new TransactionArchiveAssembler(this.recoverParallelism,
+							this.recoverShardSize);
+				}
+			}
+		}
+		return this.archiveAssembler;
+	}
+
+	public void release() {
+		GroupCommitEngine engine = this.groupCommitEngine;
+		if (engine != null) {
+			engine.release();
+		}
+		TransactionArchiveAssembler assembler = this.archiveAssembler;
+		if (assembler != null) {
+			assembler.release();
+		}
+		super.release();
+	}
+
 	public List<VirtualLoggingRecord> compressIfNecessary(List<VirtualLoggingRecord> recordList) {
 		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		XidFactory transactionXidFactory = this.beanFactory.getTransactionXidFactory();
 
 		List<VirtualLoggingRecord> resultList = new ArrayList<VirtualLoggingRecord>();
 
-		Map<TransactionXid, TransactionArchive> xidMap = new HashMap<TransactionXid, TransactionArchive>();
+		Map<TransactionXid, TransactionRecordIndex> indexMap =
+				new LinkedHashMap<TransactionXid, TransactionRecordIndex>();
 		for (int index = 0; recordList != null && index < recordList.size(); index++) {
 			VirtualLoggingRecord record = recordList.get(index);
 			byte[] byteArray = record.getContent();
 			byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
 			System.arraycopy(byteArray, 0, keyByteArray, 0, keyByteArray.length);
+			int operator = byteArray[keyByteArray.length];
 			byte[] valueByteArray = new byte[byteArray.length - XidFactory.GLOBAL_TRANSACTION_LENGTH - 1 - 4];
 			System.arraycopy(byteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4, valueByteArray, 0,
 					valueByteArray.length);
 
 			TransactionXid xid = xidFactory.createGlobalXid(keyByteArray);
-
-			Object obj = deserializer.deserialize(xid, valueByteArray);
-			if (TransactionArchive.class.isInstance(obj)) {
-				xidMap.put(xid, (TransactionArchive) obj);
-			} else if (XAResourceArchive.class.isInstance(obj)) {
-				TransactionArchive archive = xidMap.get(xid);
-				if (archive == null) {
-					logger.error("Error occurred while compressing resource archive: {}", obj);
-					continue;
-				}
-
-				XAResourceArchive resourceArchive = (XAResourceArchive) obj;
-				boolean matched = false;
-
-				List<XAResourceArchive> remoteResources = archive.getRemoteResources();
-				for (int i = 0; matched == false && remoteResources != null && i < remoteResources.size(); i++) {
-					XAResourceArchive element = remoteResources.get(i);
-					if (resourceArchive.getXid().equals(element.getXid())) {
-						matched = true;
-						remoteResources.set(i, resourceArchive);
-					}
-				}
-
-				if (matched == false) {
-					remoteResources.add(resourceArchive);
-				}
-			} else if (CompensableArchive.class.isInstance(obj)) {
-				TransactionArchive archive = xidMap.get(xid);
-				if (archive == null) {
-					logger.error("Error occurred while compressing compensable archive: {}", obj);
-					continue;
-				}
-
-				List<CompensableArchive> compensables = archive.getCompensableResourceList();
-				CompensableArchive resourceArchive = (CompensableArchive) obj;
-
-				boolean matched = false;
-				for (int i = 0; matched == false && compensables != null && i < compensables.size(); i++) {
-					CompensableArchive element = compensables.get(i);
-					if (resourceArchive.getIdentifier().equals(element.getIdentifier())) {
-						matched = true;
-						compensables.set(i, resourceArchive);
-					}
-				}
-
-				if (matched == false) {
-					compensables.add(resourceArchive);
-				}
-
-			} else {
-				logger.error("unkown resource: {}!", obj);
-			}
+			this.indexRecord(indexMap, xid, operator, valueByteArray);
 		} // end-for (int index = 0; recordList != null && index < recordList.size(); index++)
 
-		for (Iterator<Map.Entry<TransactionXid, TransactionArchive>> itr = xidMap.entrySet().iterator(); itr
-				.hasNext();) {
-			Map.Entry<TransactionXid, TransactionArchive> entry = itr.next();
-			TransactionXid xid = entry.getKey();
-			TransactionArchive value = entry.getValue();
+		List<TransactionRecordIndex> indexList = new ArrayList<TransactionRecordIndex>(indexMap.values());
+		TransactionArchive[] archives = this.getArchiveAssembler().assemble(indexList, deserializer,
+				transactionXidFactory);
+		for (int index = 0; index < archives.length; index++) {
+			TransactionXid xid = indexList.get(index).getXid();
+			TransactionArchive value = archives[index];
+			if (value == null) {
+				continue;
+			}
 
 			byte[] globalByteArray = xid.getGlobalTransactionId();
 
@@ -263,110 +373,70 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 	}
 
 	public void recover(TransactionRecoveryCallback callback) {
-
-		final Map<Xid, TransactionArchive> xidMap = new HashMap<Xid, TransactionArchive>();
+		final Map<TransactionXid, TransactionRecordIndex> indexMap =
+				new LinkedHashMap<TransactionXid, TransactionRecordIndex>();
 		final ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 		final XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		final XidFactory transactionXidFactory = this.beanFactory.getTransactionXidFactory();
+		final long[] counter = new long[1];
 
-		this.traversal(new VirtualLoggingListener() {
-			public void recvOperation(VirtualLoggingRecord action) {
-				Xid xid = action.getIdentifier();
-				int operator = action.getOperator();
-				if (VirtualLoggingSystem.OPERATOR_DELETE == operator) {
-					xidMap.remove(xid);
-				} else if (xidMap.containsKey(xid) == false) {
-					xidMap.put(xid, null);
-				}
-			}
-		});
+		long begin = System.currentTimeMillis();
 
+		// 单次遍历日志, 仅索引各事务/分支最新的记录, 待遍历结束后再反序列化并组装事务.
 		this.traversal(new VirtualLoggingListener() {
 			public void recvOperation(VirtualLoggingRecord action) {
-				Xid xid = action.getIdentifier();
-				if (xidMap.containsKey(xid)) {
-					this.execOperation(action);
-				}
-			}
-
-			public void execOperation(VirtualLoggingRecord action) {
 				Xid identifier = action.getIdentifier();
-
 				TransactionXid xid = xidFactory.createGlobalXid(identifier.getGlobalTransactionId());
+				indexRecord(indexMap, xid, action.getOperator(), action.getValue());
 
-				Object obj = deserializer.deserialize(xid, action.getValue());
-				if (TransactionArchive.class.isInstance(obj)) {
-					TransactionArchive archive = (TransactionArchive) obj;
-					xidMap.put(identifier, archive);
-				} else if (XAResourceArchive.class.isInstance(obj)) {
-					TransactionArchive archive = xidMap.get(identifier);
-					if (archive == null) {
-						logger.error("Error occurred while recovering resource archive: {}", obj);
-						return;
-					}
-
-					XAResourceArchive resourceArchive = (XAResourceArchive) obj;
-					boolean matched = false;
-
-					List<XAResourceArchive> remoteResources = archive.getRemoteResources();
-					for (int i = 0; matched == false && remoteResources != null && i < remoteResources.size(); i++) {
-						XAResourceArchive element = remoteResources.get(i);
-						if (resourceArchive.getXid().equals(element.getXid())) {
-							matched = true;
-							remoteResources.set(i, resourceArchive);
-						}
-					}
-
-					if (matched == false) {
-						remoteResources.add(resourceArchive);
-					}
-
-				} else if (CompensableArchive.class.isInstance(obj)) {
-					TransactionArchive archive = xidMap.get(identifier);
-					if (archive == null) {
-						logger.error("Error occurred while recovering compensable archive: {}", obj);
-						return;
-					}
-
-					List<CompensableArchive> compensables = archive.getCompensableResourceList();
-					CompensableArchive resourceArchive = (CompensableArchive) obj;
-
-					// if (VirtualLoggingSystem.OPERATOR_CREATE == action.getOperator()) {
-					// compensables.add(resourceArchive);
-					// } else {
-					boolean matched = false;
-					for (int i = 0; matched == false && compensables != null && i < compensables.size(); i++) {
-						CompensableArchive element = compensables.get(i);
-						if (resourceArchive.getIdentifier().equals(element.getIdentifier())) {
-							matched = true;
-							compensables.set(i, resourceArchive);
-						}
-					}
-
-					if (matched == false) {
-						compensables.add(resourceArchive);
-					}
-
-					// }
-
+				if (++counter[0] % recoverProgressInterval == 0) {
+					logger.info("[{}] recovering compensable log: {} records indexed, {} transactions active.",
+							endpoint, counter[0], indexMap.size());
 				}
-
 			}
 		});
 
-		for (Iterator<Map.Entry<Xid, TransactionArchive>> itr = xidMap.entrySet().iterator(); itr.hasNext();) {
-			Map.Entry<Xid, TransactionArchive> entry = itr.next();
-			TransactionArchive archive = entry.getValue();
+		List<TransactionRecordIndex> indexList = new ArrayList<TransactionRecordIndex>(indexMap.values());
+		TransactionArchive[] archives = this.getArchiveAssembler().assemble(indexList, deserializer,
+				transactionXidFactory);
+
+		int recovered = 0;
+		for (int index = 0; index < archives.length; index++) {
+			TransactionArchive archive = archives[index];
 			if (archive == null) {
 				continue;
-			} else {
-				try {
-					callback.recover(archive);
-				} catch (RuntimeException rex) {
-					logger.error("Error occurred while recovering transaction(xid= {}).", archive.getXid(), rex);
-				}
 			}
+
+			try {
+				callback.recover(archive);
+				recovered++;
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while recovering transaction(xid= {}).", archive.getXid(), rex);
+			}
+		}
+
+		logger.info("[{}] recovered {} transactions from {} records in {} ms.", this.endpoint, recovered, counter[0],
+				System.currentTimeMillis() - begin);
+	}
+
+	private void indexRecord(Map<TransactionXid, TransactionRecordIndex> indexMap, TransactionXid xid, int operator,
+			byte[] value) {
+		if (VirtualLoggingSystem.OPERATOR_DELETE == operator) {
+			indexMap.remove(xid);
+			return;
+		}
+
+		TransactionRecordIndex recordIndex = indexMap.get(xid);
+		if (recordIndex == null) {
+			recordIndex = new TransactionRecordIndex(xid);
+			indexMap.put(xid, recordIndex);
 		}
 
+		try {
+			recordIndex.index(value);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while indexing record of transaction(xid= {}).", xid, rex);
+		}
 	}
 
 	public File getDefaultDirectory() {
@@ -414,4 +484,60 @@ public class SampleCompensableLogger extends VirtualLoggingSystemImpl
 		this.endpoint = endpoint;
 	}
 
+	public boolean isGroupCommit() {
+		return groupCommit;
+	}
+
+	public void setGroupCommit(boolean groupCommit) {
+		this.groupCommit = groupCommit;
+	}
+
+	public int getGroupCommitCapacity() {
+		return groupCommitCapacity;
+	}
+
+	public void setGroupCommitCapacity(int groupCommitCapacity) {
+		this.groupCommitCapacity = groupCommitCapacity;
+	}
+
+	public int getGroupCommitMaxBatch() {
+		return groupCommitMaxBatch;
+	}
+
+	public void setGroupCommitMaxBatch(int groupCommitMaxBatch) {
+		this.groupCommitMaxBatch = groupCommitMaxBatch;
+	}
+
+	public long getGroupCommitMaxWait() {
+		return groupCommitMaxWait;
+	}
+
+	public void setGroupCommitMaxWait(long groupCommitMaxWait) {
+		this.groupCommitMaxWait = groupCommitMaxWait;
+	}
+
+	public int getRecoverProgressInterval() {
+		return recoverProgressInterval;
+	}
+
+	public void setRecoverProgressInterval(int recoverProgressInterval) {
+		this.recoverProgressInterval = recoverProgressInterval;
+	}
+
+	public int getRecoverParallelism() {
+		return recoverParallelism;
+	}
+
+	public void setRecoverParallelism(int recoverParallelism) {
+		this.recoverParallelism = recoverParallelism;
+	}
+
+	public int getRecoverShardSize() {
+		return recoverShardSize;
+	}
+
+	public void setRecoverShardSize(int recoverShardSize) {
+		this.recoverShardSize = recoverShardSize;
+	}
+
 }
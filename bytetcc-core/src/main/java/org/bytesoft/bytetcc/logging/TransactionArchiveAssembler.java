@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.bytesoft.compensable.archive.TransactionArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deserializes and folds the indexed records of the transactions, sharded by global xid across a fork-join pool. Each
+ * transaction is assembled independently, the results keep the order of the index list, and the sequential path is
+ * used when the parallelism is not greater than one or the pool fails.
+ */
+public class TransactionArchiveAssembler {
+	static final Logger logger = LoggerFactory.getLogger(TransactionArchiveAssembler.class);
+
+	private final int parallelism;
+	private final int shardSize;
+	private volatile ForkJoinPool forkJoinPool;
+
+	public TransactionArchiveAssembler(int parallelism, int shardSize) {
+		this.parallelism = parallelism;
+		this.shardSize = Math.max(1, shardSize);
+	}
+
+	public TransactionArchive[] assemble(List<TransactionRecordIndex> indexList, ArchiveDeserializer deserializer,
+			XidFactory transactionXidFactory) {
+		TransactionArchive[] archives = new TransactionArchive[indexList.size()];
+		if (this.parallelism <= 1 || indexList.size() <= this.shardSize) {
+			this.assemble(indexList, 0, indexList.size(), archives, deserializer, transactionXidFactory);
+			return archives;
+		}
+
+		try {
+			ForkJoinPool pool = this.getForkJoinPool();
+			pool.invoke(new AssembleAction(indexList, 0, indexList.size(), archives, deserializer,
+					transactionXidFactory));
+		} catch (RuntimeException rex) {
+			logger.warn("Error occurred while assembling transactions in parallel, fall back to sequential mode.", rex);
+			archives = new TransactionArchive[indexList.size()];
+			this.assemble(indexList, 0, indexList.size(), archives, deserializer, transactionXidFactory);
+		}
+
+		return archives;
+	}
+
+	private void assemble(List<TransactionRecordIndex> indexList, int from, int to, TransactionArchive[] archives,
+			ArchiveDeserializer deserializer, XidFactory transactionXidFactory) {
+		for (int i = from; i < to; i++) {
+			TransactionRecordIndex recordIndex = indexList.get(i);
+			try {
+				archives[i] = recordIndex.assemble(deserializer, transactionXidFactory);
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while assembling transaction(xid= {}).", recordIndex.getXid(), rex);
+			}
+		}
+	}
+
+	private ForkJoinPool getForkJoinPool() {
+		if (this.forkJoinPool == null) {
+			synchronized (this) {
+				if (this.forkJoinPool == null) {
+					this.forkJoinPool = new ForkJoinPool(this.parallelism);
+				}
+			}
+		}
+		return this.forkJoinPool;
+	}
+
+	public void release() {
+		ForkJoinPool pool = this.forkJoinPool;
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	class AssembleAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<TransactionRecordIndex> indexList;
+		private final int from;
+		private final int to;
+		private final TransactionArchive[] archives;
+		private final ArchiveDeserializer deserializer;
+		private final XidFactory transactionXidFactory;
+
+		public AssembleAction(List<TransactionRecordIndex> indexList, int from, int to, TransactionArchive[] archives,
+				ArchiveDeserializer deserializer, XidFactory transactionXidFactory) {
+			this.indexList = indexList;
+			this.from = from;
+			this.to = to;
+			this.archives = archives;
+			this.deserializer = deserializer;
+			this.transactionXidFactory = transactionXidFactory;
+		}
+
+		protected void compute() {
+			if (this.to - this.from <= shardSize) {
+				assemble(this.indexList, this.from, this.to, this.archives, this.deserializer,
+						this.transactionXidFactory);
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(
+						new AssembleAction(this.indexList, this.from, middle, this.archives, this.deserializer,
+								this.transactionXidFactory),
+						new AssembleAction(this.indexList, middle, this.to, this.archives, this.deserializer,
+								this.transactionXidFactory));
+			}
+		}
+	}
+
+}
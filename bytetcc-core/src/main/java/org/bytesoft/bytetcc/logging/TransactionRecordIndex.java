@@ -0,0 +1,257 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.compensable.archive.CompensableArchive;
+import org.bytesoft.compensable.archive.TransactionArchive;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the latest serialized record of a transaction and of each of its branches, so that only the surviving records
+ * are deserialized when the transaction archive is assembled.
+ */
+public class TransactionRecordIndex {
+	static final Logger logger = LoggerFactory.getLogger(TransactionRecordIndex.class);
+
+	private final TransactionXid xid;
+	private byte[] transaction;
+	private final Map<String, byte[]> participants = new LinkedHashMap<String, byte[]>();
+	private final Map<String, byte[]> compensables = new LinkedHashMap<String, byte[]>();
+	private final Map<String, byte[]> deltas = new LinkedHashMap<String, byte[]>();
+
+	public TransactionRecordIndex(TransactionXid xid) {
+		this.xid = xid;
+	}
+
+	/**
+	 * @param value the archive serialized by ArchiveDeserializerImpl, which starts with the archive type.
+	 */
+	public void index(byte[] value) {
+		byte type = value[0];
+		if (type == ArchiveDeserializerImpl.TYPE_TRANSACTION) {
+			this.transaction = value;
+			this.participants.clear();
+			this.compensables.clear();
+			this.deltas.clear();
+		} else if (type == ArchiveDeserializerImpl.TYPE_XA_RESOURCE) {
+			String branch = this.getBranchKey(value, 1);
+			this.removeDeltas(branch);
+			this.participants.put(branch, value);
+		} else if (type == ArchiveDeserializerImpl.TYPE_COMPENSABLE) {
+			String branch = this.getBranchKey(value, 1 + XidFactory.GLOBAL_TRANSACTION_LENGTH);
+			this.removeDeltas(branch);
+			this.compensables.put(branch, value);
+		} else if (type == ArchiveDeserializerImpl.TYPE_DELTA) {
+			int kind = value[1];
+			String branch = "";
+			if (kind == DeltaArchive.KIND_PARTICIPANT_DELETE) {
+				branch = this.getBranchKey(value, 2);
+				this.removeDeltas(branch);
+				this.participants.remove(branch);
+			} else if (kind != DeltaArchive.KIND_TRANSACTION_STATUS && kind != DeltaArchive.KIND_TRANSACTION_RECOVERY
+					&& kind != DeltaArchive.KIND_TRANSACTION_VARIABLES) {
+				branch = this.getBranchKey(value, 2);
+			}
+			this.deltas.put(String.format("%s:%s", kind, branch), value);
+		} else {
+			logger.error("unkown record type: {}!", type);
+		}
+	}
+
+	private String getBranchKey(byte[] value, int offset) {
+		byte[] branchQualifier = new byte[XidFactory.BRANCH_QUALIFIER_LENGTH];
+		System.arraycopy(value, offset, branchQualifier, 0, branchQualifier.length);
+		return ByteUtils.byteArrayToString(branchQualifier);
+	}
+
+	private void removeDeltas(String branch) {
+		String suffix = ":" + branch;
+		for (Iterator<String> itr = this.deltas.keySet().iterator(); itr.hasNext();) {
+			String key = itr.next();
+			if (key.endsWith(suffix)) {
+				itr.remove();
+			}
+		}
+	}
+
+	public TransactionArchive assemble(ArchiveDeserializer deserializer, XidFactory transactionXidFactory) {
+		if (this.transaction == null) {
+			logger.error("Error occurred while assembling transaction: the transaction record of {} is missing.", this.xid);
+			return null;
+		}
+
+		TransactionArchive archive = (TransactionArchive) deserializer.deserialize(this.xid, this.transaction);
+
+		if (this.participants.isEmpty() == false) {
+			Map<Xid, XAResourceArchive> participantMap = new LinkedHashMap<Xid, XAResourceArchive>();
+			List<XAResourceArchive> remoteResources = archive.getRemoteResources();
+			for (int i = 0; i < remoteResources.size(); i++) {
+				XAResourceArchive element = remoteResources.get(i);
+				participantMap.put(element.getXid(), element);
+			}
+			for (Iterator<byte[]> itr = this.participants.values().iterator(); itr.hasNext();) {
+				XAResourceArchive element = (XAResourceArchive) deserializer.deserialize(this.xid, itr.next());
+				participantMap.put(element.getXid(), element);
+			}
+			remoteResources.clear();
+			remoteResources.addAll(participantMap.values());
+		}
+
+		if (this.compensables.isEmpty() == false) {
+			Map<Xid, CompensableArchive> compensableMap = new LinkedHashMap<Xid, CompensableArchive>();
+			List<CompensableArchive> compensableList = archive.getCompensableResourceList();
+			for (int i = 0; i < compensableList.size(); i++) {
+				CompensableArchive element = compensableList.get(i);
+				compensableMap.put(element.getIdentifier(), element);
+			}
+			for (Iterator<byte[]> itr = this.compensables.values().iterator(); itr.hasNext();) {
+				CompensableArchive element = (CompensableArchive) deserializer.deserialize(this.xid, itr.next());
+				compensableMap.put(element.getIdentifier(), element);
+			}
+			compensableList.clear();
+			compensableList.addAll(compensableMap.values());
+		}
+
+		for (Iterator<byte[]> itr = this.deltas.values().iterator(); itr.hasNext();) {
+			DeltaArchive delta = (DeltaArchive) deserializer.deserialize(this.xid, itr.next());
+			this.applyDelta(archive, delta, transactionXidFactory);
+		}
+
+		return archive;
+	}
+
+	private void applyDelta(TransactionArchive archive, DeltaArchive delta, XidFactory transactionXidFactory) {
+		switch (delta.getKind()) {
+		case DeltaArchive.KIND_TRANSACTION_STATUS:
+			archive.setCompensableStatus(delta.getStatus());
+			break;
+		case DeltaArchive.KIND_TRANSACTION_RECOVERY:
+			archive.setRecoveredTimes(delta.getRecoveredTimes());
+			archive.setRecoveredAt(delta.getRecoveredAt());
+			break;
+		case DeltaArchive.KIND_TRANSACTION_VARIABLES:
+			archive.setVariables(delta.getVariables());
+			break;
+		case DeltaArchive.KIND_PARTICIPANT_STATUS: {
+			XAResourceArchive resourceArchive = this.getParticipant(archive, delta.getBranchQualifier());
+			if (resourceArchive == null) {
+				logger.warn("The resource archive of delta-archive {} is not found!", delta);
+				break;
+			}
+			int flags = delta.getStatus();
+			resourceArchive.setVote(delta.getVote());
+			resourceArchive.setReadonly((flags & DeltaArchive.FLAG_READONLY) != 0);
+			resourceArchive.setCommitted((flags & DeltaArchive.FLAG_COMMITTED) != 0);
+			resourceArchive.setRolledback((flags & DeltaArchive.FLAG_ROLLEDBACK) != 0);
+			resourceArchive.setCompleted((flags & DeltaArchive.FLAG_COMPLETED) != 0);
+			resourceArchive.setHeuristic((flags & DeltaArchive.FLAG_HEURISTIC) != 0);
+			break;
+		}
+		case DeltaArchive.KIND_PARTICIPANT_DELETE: {
+			XAResourceArchive resourceArchive = this.getParticipant(archive, delta.getBranchQualifier());
+			if (resourceArchive != null) {
+				archive.getRemoteResources().remove(resourceArchive);
+			}
+			break;
+		}
+		case DeltaArchive.KIND_COMPENSABLE_STATUS: {
+			CompensableArchive compensableArchive = this.getCompensable(archive, delta.getBranchQualifier());
+			if (compensableArchive == null) {
+				logger.warn("The compensable archive of delta-archive {} is not found!", delta);
+				break;
+			}
+			int flags = delta.getStatus();
+			compensableArchive.setTried((flags & DeltaArchive.FLAG_TRIED) != 0);
+			compensableArchive.setConfirmed((flags & DeltaArchive.FLAG_CONFIRMED) != 0);
+			compensableArchive.setCancelled((flags & DeltaArchive.FLAG_CANCELLED) != 0);
+			break;
+		}
+		case DeltaArchive.KIND_COMPENSABLE_INVOCATION_RESOURCE:
+		case DeltaArchive.KIND_COMPENSABLE_COMPLETION_RESOURCE: {
+			CompensableArchive compensableArchive = this.getCompensable(archive, delta.getBranchQualifier());
+			if (compensableArchive == null) {
+				logger.warn("The compensable archive of delta-archive {} is not found!", delta);
+				break;
+			}
+			Xid resourceXid = this.createResourceXid(delta, transactionXidFactory);
+			if (delta.getKind() == DeltaArchive.KIND_COMPENSABLE_INVOCATION_RESOURCE) {
+				compensableArchive.setTransactionXid(resourceXid);
+				compensableArchive.setTransactionResourceKey(delta.getResourceKey());
+			} else {
+				if (resourceXid != null) {
+					compensableArchive.setCompensableXid(resourceXid);
+				}
+				compensableArchive.setCompensableResourceKey(delta.getResourceKey());
+			}
+			break;
+		}
+		default:
+			logger.error("unkown delta-archive: {}!", delta);
+		}
+	}
+
+	private XAResourceArchive getParticipant(TransactionArchive archive, byte[] branchQualifier) {
+		List<XAResourceArchive> remoteResources = archive.getRemoteResources();
+		for (int i = 0; remoteResources != null && i < remoteResources.size(); i++) {
+			XAResourceArchive element = remoteResources.get(i);
+			if (Arrays.equals(branchQualifier, element.getXid().getBranchQualifier())) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private CompensableArchive getCompensable(TransactionArchive archive, byte[] branchQualifier) {
+		List<CompensableArchive> compensables = archive.getCompensableResourceList();
+		for (int i = 0; compensables != null && i < compensables.size(); i++) {
+			CompensableArchive element = compensables.get(i);
+			if (Arrays.equals(branchQualifier, element.getIdentifier().getBranchQualifier())) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private Xid createResourceXid(DeltaArchive delta, XidFactory transactionXidFactory) {
+		byte[] globalByteArray = delta.getResourceGlobalTransactionId();
+		if (globalByteArray == null
+				|| Arrays.equals(globalByteArray, new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH])) {
+			return null;
+		}
+
+		TransactionXid globalXid = transactionXidFactory.createGlobalXid(globalByteArray);
+		return transactionXidFactory.createBranchXid(globalXid, delta.getResourceBranchQualifier());
+	}
+
+	public TransactionXid getXid() {
+		return xid;
+	}
+
+}
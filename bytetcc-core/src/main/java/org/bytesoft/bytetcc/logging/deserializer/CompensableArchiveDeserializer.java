@@ -25,6 +25,7 @@ import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableInvocation;
 import org.bytesoft.compensable.archive.CompensableArchive;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
+import org.bytesoft.compensable.logging.InvocationCodec;
 import org.bytesoft.transaction.logging.ArchiveDeserializer;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
@@ -37,6 +38,7 @@ public class CompensableArchiveDeserializer implements ArchiveDeserializer, Comp
 
 	@javax.inject.Inject
 	private CompensableBeanFactory beanFactory;
+	private InvocationCodec invocationCodec;
 
 	public byte[] serialize(TransactionXid xid, Object obj) {
 		CompensableArchive archive = (CompensableArchive) obj;
@@ -44,7 +46,8 @@ public class CompensableArchiveDeserializer implements ArchiveDeserializer, Comp
 		CompensableInvocation compensable = archive.getCompensable();
 		byte[] byteArray = new byte[0];
 		try {
-			byteArray = SerializeUtils.serializeObject(compensable);
+			byteArray = this.invocationCodec == null ? SerializeUtils.serializeObject(compensable)
+					: this.invocationCodec.encodeInvocation(compensable);
 		} catch (Exception ex) {
 			if (compensable == null) {
 				logger.error("Error occurred while serializing compensable: {}", compensable, ex);
@@ -191,7 +194,9 @@ public class CompensableArchiveDeserializer implements ArchiveDeserializer, Comp
 
 		CompensableInvocation compensable = null;
 		try {
-			compensable = (CompensableInvocation) SerializeUtils.deserializeObject(byteArray);
+			compensable = this.invocationCodec == null
+					? (CompensableInvocation) SerializeUtils.deserializeObject(byteArray)
+					: this.invocationCodec.decodeInvocation(byteArray);
 		} catch (Exception ex) {
 			logger.error("Error occurred while deserializing object: {}", byteArray, ex);
 		}
@@ -236,4 +241,12 @@ public class CompensableArchiveDeserializer implements ArchiveDeserializer, Comp
 		this.beanFactory = tbf;
 	}
 
+	public InvocationCodec getInvocationCodec() {
+		return invocationCodec;
+	}
+
+	public void setInvocationCodec(InvocationCodec invocationCodec) {
+		this.invocationCodec = invocationCodec;
+	}
+
 }
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging.deserializer;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bytesoft.bytetcc.logging.DeltaArchive;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DeltaArchiveDeserializer implements ArchiveDeserializer {
+	static final Logger logger = LoggerFactory.getLogger(DeltaArchiveDeserializer.class);
+	static final int LENGTH_OF_XID = XidFactory.GLOBAL_TRANSACTION_LENGTH + XidFactory.BRANCH_QUALIFIER_LENGTH;
+
+	public byte[] serialize(TransactionXid xid, Object obj) {
+		DeltaArchive archive = (DeltaArchive) obj;
+
+		int kind = archive.getKind();
+		switch (kind) {
+		case DeltaArchive.KIND_TRANSACTION_STATUS: {
+			ByteBuffer buffer = ByteBuffer.allocate(2);
+			buffer.put((byte) kind);
+			buffer.put((byte) archive.getStatus());
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_TRANSACTION_RECOVERY: {
+			ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8);
+			buffer.put((byte) kind);
+			buffer.putInt(archive.getRecoveredTimes());
+			buffer.putLong(archive.getRecoveredAt());
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_TRANSACTION_VARIABLES: {
+			byte[] textByteArray = new byte[0];
+			if (archive.getVariables() != null) {
+				try {
+					textByteArray = SerializeUtils.serializeObject((Serializable) archive.getVariables());
+				} catch (Exception ex) {
+					logger.error("Error occurred while serializing variable: {}", archive.getVariables(), ex);
+				}
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + textByteArray.length);
+			buffer.put((byte) kind);
+			buffer.putInt(textByteArray.length);
+			buffer.put(textByteArray);
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_PARTICIPANT_STATUS: {
+			ByteBuffer buffer = ByteBuffer.allocate(1 + XidFactory.BRANCH_QUALIFIER_LENGTH + 2);
+			buffer.put((byte) kind);
+			buffer.put(archive.getBranchQualifier(), 0, XidFactory.BRANCH_QUALIFIER_LENGTH);
+			buffer.put((byte) archive.getStatus());
+			buffer.put((byte) archive.getVote());
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_PARTICIPANT_DELETE: {
+			ByteBuffer buffer = ByteBuffer.allocate(1 + XidFactory.BRANCH_QUALIFIER_LENGTH);
+			buffer.put((byte) kind);
+			buffer.put(archive.getBranchQualifier(), 0, XidFactory.BRANCH_QUALIFIER_LENGTH);
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_COMPENSABLE_STATUS: {
+			ByteBuffer buffer = ByteBuffer.allocate(1 + XidFactory.BRANCH_QUALIFIER_LENGTH + 1);
+			buffer.put((byte) kind);
+			buffer.put(archive.getBranchQualifier(), 0, XidFactory.BRANCH_QUALIFIER_LENGTH);
+			buffer.put((byte) archive.getStatus());
+			return buffer.array();
+		}
+		case DeltaArchive.KIND_COMPENSABLE_INVOCATION_RESOURCE:
+		case DeltaArchive.KIND_COMPENSABLE_COMPLETION_RESOURCE: {
+			String resourceKey = archive.getResourceKey();
+			byte[] keyByteArray = resourceKey == null ? new byte[0] : resourceKey.getBytes();
+			ByteBuffer buffer = ByteBuffer
+					.allocate(1 + XidFactory.BRANCH_QUALIFIER_LENGTH + LENGTH_OF_XID + 2 + keyByteArray.length);
+			buffer.put((byte) kind);
+			buffer.put(archive.getBranchQualifier(), 0, XidFactory.BRANCH_QUALIFIER_LENGTH);
+			byte[] globalByteArray = archive.getResourceGlobalTransactionId();
+			byte[] branchByteArray = archive.getResourceBranchQualifier();
+			buffer.put(globalByteArray == null ? new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH] : globalByteArray, 0,
+					XidFactory.GLOBAL_TRANSACTION_LENGTH);
+			buffer.put(branchByteArray == null ? new byte[XidFactory.BRANCH_QUALIFIER_LENGTH] : branchByteArray, 0,
+					XidFactory.BRANCH_QUALIFIER_LENGTH);
+			buffer.putShort((short) keyByteArray.length);
+			buffer.put(keyByteArray);
+			return buffer.array();
+		}
+		default:
+			throw new IllegalArgumentException();
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object deserialize(TransactionXid xid, byte[] array) {
+		ByteBuffer buffer = ByteBuffer.wrap(array);
+
+		DeltaArchive archive = new DeltaArchive();
+		int kind = buffer.get();
+		archive.setKind(kind);
+
+		switch (kind) {
+		case DeltaArchive.KIND_TRANSACTION_STATUS:
+			archive.setStatus(buffer.get());
+			break;
+		case DeltaArchive.KIND_TRANSACTION_RECOVERY:
+			archive.setRecoveredTimes(buffer.getInt());
+			archive.setRecoveredAt(buffer.getLong());
+			break;
+		case DeltaArchive.KIND_TRANSACTION_VARIABLES: {
+			int length = buffer.getInt();
+			Map<String, Serializable> variables = new HashMap<String, Serializable>();
+			if (length > 0) {
+				byte[] textByteArray = new byte[length];
+				buffer.get(textByteArray);
+				try {
+					variables = (Map<String, Serializable>) SerializeUtils.deserializeObject(textByteArray);
+				} catch (Exception ex) {
+					logger.error("Error occurred while deserializing object: {}", textByteArray, ex);
+				}
+			}
+			archive.setVariables(variables);
+			break;
+		}
+		case DeltaArchive.KIND_PARTICIPANT_STATUS:
+			archive.setBranchQualifier(this.readByteArray(buffer, XidFactory.BRANCH_QUALIFIER_LENGTH));
+			archive.setStatus(buffer.get());
+			archive.setVote(buffer.get());
+			break;
+		case DeltaArchive.KIND_PARTICIPANT_DELETE:
+			archive.setBranchQualifier(this.readByteArray(buffer, XidFactory.BRANCH_QUALIFIER_LENGTH));
+			break;
+		case DeltaArchive.KIND_COMPENSABLE_STATUS:
+			archive.setBranchQualifier(this.readByteArray(buffer, XidFactory.BRANCH_QUALIFIER_LENGTH));
+			archive.setStatus(buffer.get());
+			break;
+		case DeltaArchive.KIND_COMPENSABLE_INVOCATION_RESOURCE:
+		case DeltaArchive.KIND_COMPENSABLE_COMPLETION_RESOURCE: {
+			archive.setBranchQualifier(this.readByteArray(buffer, XidFactory.BRANCH_QUALIFIER_LENGTH));
+			archive.setResourceGlobalTransactionId(this.readByteArray(buffer, XidFactory.GLOBAL_TRANSACTION_LENGTH));
+			archive.setResourceBranchQualifier(this.readByteArray(buffer, XidFactory.BRANCH_QUALIFIER_LENGTH));
+			int length = buffer.getShort();
+			byte[] keyByteArray = this.readByteArray(buffer, length);
+			archive.setResourceKey(keyByteArray.length == 0 ? null : new String(keyByteArray));
+			break;
+		}
+		default:
+			throw new IllegalArgumentException();
+		}
+
+		return archive;
+	}
+
+	private byte[] readByteArray(ByteBuffer buffer, int length) {
+		byte[] byteArray = new byte[length];
+		buffer.get(byteArray);
+		return byteArray;
+	}
+
+}
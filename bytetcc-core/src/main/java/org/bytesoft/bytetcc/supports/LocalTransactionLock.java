@@ -0,0 +1,188 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytesoft.bytetcc.xa.CompensableXid;
+import org.bytesoft.transaction.TransactionLock;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory transaction lock keyed by the global xid, for the deployments without a shared lock service. Every
+ * acquisition of this instance carries the same identifier(the endpoint), so the lock is owned by the acquiring thread
+ * instead: it's re-entrant by the owner thread only, and the other threads wait up to lockWaitingMillis for it. The
+ * recovery acquires the lock exclusively, so that a transaction is never recovered while it's being accessed by the
+ * business threads, and a business thread does not wait for a recovery in progress. The entries are guarded by a fixed
+ * number of stripes instead of a global monitor.
+ */
+public class LocalTransactionLock implements TransactionLock {
+	static final Logger logger = LoggerFactory.getLogger(LocalTransactionLock.class);
+	static final int LOCK_STRIPE_SIZE = 64;
+
+	private final Object[] stripes = new Object[LOCK_STRIPE_SIZE];
+	private final Map<String, LockEntry> entries = new ConcurrentHashMap<String, LockEntry>();
+
+	/* the time to wait for a lock held by another thread, zero means fail immediately. */
+	private long lockWaitingMillis = 0;
+
+	private final AtomicLong acquiredCount = new AtomicLong();
+	private final AtomicLong contendedCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong waitingMillis = new AtomicLong();
+
+	public LocalTransactionLock() {
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Object();
+		}
+	}
+
+	public boolean lockTransaction(TransactionXid transactionXid, String identifier) {
+		return this.lockTransaction(transactionXid, identifier, false, this.lockWaitingMillis);
+	}
+
+	public boolean lockTransaction(TransactionXid transactionXid, String identifier, long timeoutMillis) {
+		return this.lockTransaction(transactionXid, identifier, false, timeoutMillis);
+	}
+
+	/**
+	 * Acquires the lock for the recovery: the other threads fail immediately instead of waiting while it's held.
+	 */
+	public boolean lockTransactionExclusively(TransactionXid transactionXid, String identifier, long timeoutMillis) {
+		return this.lockTransaction(transactionXid, identifier, true, timeoutMillis);
+	}
+
+	private boolean lockTransaction(TransactionXid transactionXid, String identifier, boolean exclusive,
+			long timeoutMillis) {
+		String global = CompensableXid.toGlobalTransactionKey(transactionXid);
+		Thread current = Thread.currentThread();
+		Object stripe = this.getStripe(global);
+
+		long startMillis = 0;
+		synchronized (stripe) {
+			while (true) {
+				LockEntry entry = this.entries.get(global);
+				if (entry == null) {
+					entry = new LockEntry();
+					entry.identifier = identifier;
+					entry.owner = current;
+					entry.exclusive = exclusive;
+					entry.times = 1;
+					this.entries.put(global, entry);
+					break;
+				} else if (entry.owner == current) {
+					entry.times++;
+					break;
+				}
+
+				long now = System.currentTimeMillis();
+				if (startMillis == 0) {
+					startMillis = now;
+					this.contendedCount.incrementAndGet();
+				}
+
+				long remainMillis = entry.exclusive ? 0 : startMillis + timeoutMillis - now;
+				if (remainMillis <= 0) {
+					this.timeoutCount.incrementAndGet();
+					this.waitingMillis.addAndGet(now - startMillis);
+					logger.debug("Failed to lock transaction(gxid= {}): held by {}.", global, entry);
+					return false;
+				}
+
+				try {
+					stripe.wait(remainMillis);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					this.waitingMillis.addAndGet(System.currentTimeMillis() - startMillis);
+					return false;
+				}
+			}
+		}
+
+		if (startMillis > 0) {
+			this.waitingMillis.addAndGet(System.currentTimeMillis() - startMillis);
+		}
+		this.acquiredCount.incrementAndGet();
+		return true;
+	}
+
+	public void unlockTransaction(TransactionXid transactionXid, String identifier) {
+		String global = CompensableXid.toGlobalTransactionKey(transactionXid);
+		Object stripe = this.getStripe(global);
+		synchronized (stripe) {
+			LockEntry entry = this.entries.get(global);
+			if (entry == null || entry.owner != Thread.currentThread()) {
+				logger.warn("Error occurred while unlocking transaction(gxid= {}): not held by {}({}).", global,
+						identifier, Thread.currentThread().getName());
+				return;
+			} else if (--entry.times > 0) {
+				return;
+			}
+
+			this.entries.remove(global);
+			stripe.notifyAll();
+		}
+	}
+
+	private Object getStripe(String global) {
+		return this.stripes[(global.hashCode() & 0x7FFFFFFF) % this.stripes.length];
+	}
+
+	public int getLockedCount() {
+		return this.entries.size();
+	}
+
+	public long getAcquiredCount() {
+		return this.acquiredCount.get();
+	}
+
+	public long getContendedCount() {
+		return this.contendedCount.get();
+	}
+
+	public long getTimeoutCount() {
+		return this.timeoutCount.get();
+	}
+
+	public long getWaitingMillis() {
+		return this.waitingMillis.get();
+	}
+
+	public long getLockWaitingMillis() {
+		return lockWaitingMillis;
+	}
+
+	public void setLockWaitingMillis(long lockWaitingMillis) {
+		this.lockWaitingMillis = lockWaitingMillis;
+	}
+
+	static class LockEntry {
+		String identifier;
+		Thread owner;
+		boolean exclusive;
+		int times;
+
+		public String toString() {
+			return String.format("[lock-entry| identifier= %s, owner= %s, exclusive= %s, times= %s]", this.identifier,
+					this.owner.getName(), this.exclusive, this.times);
+		}
+	}
+
+}
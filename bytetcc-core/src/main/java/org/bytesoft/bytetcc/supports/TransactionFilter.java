@@ -0,0 +1,199 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.transaction.xa.XidFactory;
+
+/**
+ * A set of global transaction ids exchanged during branch reconciliation. Small sets are sent as a plain list, larger
+ * ones as a bloom filter, which never misses a member but may report a few false positives.
+ */
+public abstract class TransactionFilter {
+	public static final byte TYPE_LIST = 0x1;
+	public static final byte TYPE_BLOOM = 0x2;
+
+	public static final int DEFAULT_LIST_THRESHOLD = 256;
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01D;
+
+	public abstract boolean mightContain(byte[] globalTransactionId);
+
+	public static byte[] encode(Collection<byte[]> globals) {
+		return encode(globals, DEFAULT_LIST_THRESHOLD, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	public static byte[] encode(Collection<byte[]> globals, int listThreshold, double falsePositiveRate) {
+		return globals.size() <= listThreshold ? encodeList(globals) : encodeBloom(globals, falsePositiveRate);
+	}
+
+	public static byte[] encodeList(Collection<byte[]> globals) {
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + globals.size() * XidFactory.GLOBAL_TRANSACTION_LENGTH);
+		buffer.put(TYPE_LIST);
+		buffer.putInt(globals.size());
+		for (Iterator<byte[]> itr = globals.iterator(); itr.hasNext();) {
+			buffer.put(itr.next(), 0, XidFactory.GLOBAL_TRANSACTION_LENGTH);
+		}
+		return buffer.array();
+	}
+
+	public static byte[] encodeBloom(Collection<byte[]> globals, double falsePositiveRate) {
+		int expected = Math.max(1, globals.size());
+		double rate = falsePositiveRate <= 0 || falsePositiveRate >= 1 ? DEFAULT_FALSE_POSITIVE_RATE : falsePositiveRate;
+		long numberOfBits = (long) Math.ceil(-expected * Math.log(rate) / (Math.log(2) * Math.log(2)));
+		int numberOfWords = (int) Math.min(Integer.MAX_VALUE / 64, (numberOfBits + 63) / 64);
+		int numberOfHashes = Math.max(1, Math.min(16, (int) Math.round(Math.log(2) * numberOfWords * 64 / expected)));
+
+		BloomFilter filter = new BloomFilter(new long[numberOfWords], numberOfHashes);
+		for (Iterator<byte[]> itr = globals.iterator(); itr.hasNext();) {
+			filter.put(itr.next());
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 4 + numberOfWords * 8);
+		buffer.put(TYPE_BLOOM);
+		buffer.put((byte) numberOfHashes);
+		buffer.putInt(numberOfWords);
+		for (int i = 0; i < numberOfWords; i++) {
+			buffer.putLong(filter.words[i]);
+		}
+		return buffer.array();
+	}
+
+	public static TransactionFilter decode(byte[] byteArray) throws IllegalArgumentException {
+		if (byteArray == null || byteArray.length < 1 + 4) {
+			throw new IllegalArgumentException("Invalid transaction filter!");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+		byte type = buffer.get();
+		if (type == TYPE_LIST) {
+			List<byte[]> globals = decodeList(buffer);
+			Set<String> globalSet = new HashSet<String>();
+			for (int i = 0; i < globals.size(); i++) {
+				globalSet.add(ByteUtils.byteArrayToString(globals.get(i)));
+			}
+			return new ListFilter(globalSet);
+		} else if (type == TYPE_BLOOM) {
+			int numberOfHashes = buffer.get();
+			int numberOfWords = buffer.getInt();
+			if (numberOfHashes <= 0 || numberOfWords <= 0 || buffer.remaining() != numberOfWords * 8) {
+				throw new IllegalArgumentException("Invalid transaction filter!");
+			}
+			long[] words = new long[numberOfWords];
+			for (int i = 0; i < numberOfWords; i++) {
+				words[i] = buffer.getLong();
+			}
+			return new BloomFilter(words, numberOfHashes);
+		} else {
+			throw new IllegalArgumentException(String.format("Unknown transaction filter: type= %s.", type));
+		}
+	}
+
+	public static List<byte[]> decodeList(byte[] byteArray) throws IllegalArgumentException {
+		if (byteArray == null || byteArray.length < 1 + 4 || byteArray[0] != TYPE_LIST) {
+			throw new IllegalArgumentException("Invalid transaction list!");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+		buffer.get();
+		return decodeList(buffer);
+	}
+
+	private static List<byte[]> decodeList(ByteBuffer buffer) throws IllegalArgumentException {
+		int size = buffer.getInt();
+		if (size < 0 || buffer.remaining() != size * XidFactory.GLOBAL_TRANSACTION_LENGTH) {
+			throw new IllegalArgumentException("Invalid transaction list!");
+		}
+
+		List<byte[]> globals = new ArrayList<byte[]>(size);
+		for (int i = 0; i < size; i++) {
+			byte[] globalTransactionId = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+			buffer.get(globalTransactionId);
+			globals.add(globalTransactionId);
+		}
+		return globals;
+	}
+
+	static class ListFilter extends TransactionFilter {
+		private final Set<String> globals;
+
+		public ListFilter(Set<String> globals) {
+			this.globals = globals;
+		}
+
+		public boolean mightContain(byte[] globalTransactionId) {
+			return this.globals.contains(ByteUtils.byteArrayToString(globalTransactionId));
+		}
+	}
+
+	static class BloomFilter extends TransactionFilter {
+		private final long[] words;
+		private final int numberOfHashes;
+
+		public BloomFilter(long[] words, int numberOfHashes) {
+			this.words = words;
+			this.numberOfHashes = numberOfHashes;
+		}
+
+		public void put(byte[] globalTransactionId) {
+			long hash = this.hash(globalTransactionId);
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			long numberOfBits = this.words.length * 64L;
+			for (int i = 1; i <= this.numberOfHashes; i++) {
+				long index = ((hash1 + i * hash2) & 0x7FFFFFFFL) % numberOfBits;
+				this.words[(int) (index >>> 6)] |= 1L << index;
+			}
+		}
+
+		public boolean mightContain(byte[] globalTransactionId) {
+			long hash = this.hash(globalTransactionId);
+			int hash1 = (int) hash;
+			int hash2 = (int) (hash >>> 32);
+			long numberOfBits = this.words.length * 64L;
+			for (int i = 1; i <= this.numberOfHashes; i++) {
+				long index = ((hash1 + i * hash2) & 0x7FFFFFFFL) % numberOfBits;
+				if ((this.words[(int) (index >>> 6)] & (1L << index)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/* FNV-1a over the whole global transaction id, finished with the murmur3 mix. */
+		private long hash(byte[] globalTransactionId) {
+			long hash = 0xCBF29CE484222325L;
+			for (int i = 0; i < globalTransactionId.length; i++) {
+				hash ^= globalTransactionId[i] & 0xFF;
+				hash *= 0x100000001B3L;
+			}
+			hash ^= hash >>> 33;
+			hash *= 0xFF51AFD7ED558CCDL;
+			hash ^= hash >>> 33;
+			hash *= 0xC4CEB9FE1A85EC53L;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+	}
+
+}
@@ -0,0 +1,544 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytesoft.bytetcc.xa.CompensableXid;
+import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.CompensableStatistic;
+import org.bytesoft.compensable.archive.CompensableArchive;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the lifecycle events of the compensable transactions and records the latencies of each transaction, phase
+ * and compensable service. The transaction events are fired by the coordinator(end-to-end, from begin to
+ * commit/rollback), the phase and compensable events are fired by each node for its own branches. A snapshot is
+ * passed to the reporters every reportInterval milliseconds. The timing of a transaction is released once it completes
+ * (commit/rollback on the coordinator, confirm/cancel on a participant), the ones never completed are evicted after
+ * timerExpireMillis; a timing which can not be tracked is counted as dropped.
+ */
+public class CompensableStatisticImpl implements CompensableStatistic {
+	static final Logger logger = LoggerFactory.getLogger(CompensableStatisticImpl.class);
+
+	static final String UNKNOWN_SERVICE = "unknown";
+	static final String OTHER_SERVICE = "other";
+
+	private long reportInterval = 60 * 1000L;
+	/* the timing of a transaction is dropped if it is not cleaned up in time. */
+	private long timerExpireMillis = 60 * 60 * 1000L;
+	private int maxTrackedTransactions = 65536;
+	private int maxServices = 1024;
+	private List<CompensableStatisticReporter> reporters = new ArrayList<CompensableStatisticReporter>();
+
+	private final ConcurrentMap<String, TransactionTimer> timers = new ConcurrentHashMap<String, TransactionTimer>();
+	private final ConcurrentMap<String, ConcurrentMap<String, ServiceStatistic>> services = new ConcurrentHashMap<String, ConcurrentMap<String, ServiceStatistic>>();
+	private final AtomicLong serviceCount = new AtomicLong();
+	private final ServiceStatistic otherService = new ServiceStatistic();
+
+	private final AtomicLong beginCounter = new AtomicLong();
+	private final AtomicLong commitStartCounter = new AtomicLong();
+	private final AtomicLong commitSuccessCounter = new AtomicLong();
+	private final AtomicLong commitFailureCounter = new AtomicLong();
+	private final AtomicLong rollbackStartCounter = new AtomicLong();
+	private final AtomicLong rollbackSuccessCounter = new AtomicLong();
+	private final AtomicLong rollbackFailureCounter = new AtomicLong();
+	private final AtomicLong cleanupCounter = new AtomicLong();
+	private final AtomicLong recoverCounter = new AtomicLong();
+	private final AtomicLong droppedTimerCounter = new AtomicLong();
+	private final AtomicLong tryPhaseSuccessCounter = new AtomicLong();
+	private final AtomicLong tryPhaseFailureCounter = new AtomicLong();
+	private final AtomicLong confirmPhaseSuccessCounter = new AtomicLong();
+	private final AtomicLong confirmPhaseFailureCounter = new AtomicLong();
+	private final AtomicLong cancelPhaseSuccessCounter = new AtomicLong();
+	private final AtomicLong cancelPhaseFailureCounter = new AtomicLong();
+
+	private final LatencyHistogram commitHistogram = new LatencyHistogram();
+	private final LatencyHistogram rollbackHistogram = new LatencyHistogram();
+	private final LatencyHistogram tryPhaseHistogram = new LatencyHistogram();
+	private final LatencyHistogram confirmPhaseHistogram = new LatencyHistogram();
+	private final LatencyHistogram cancelPhaseHistogram = new LatencyHistogram();
+
+	private volatile ScheduledExecutorService scheduler;
+	private volatile long lastReportTime = System.currentTimeMillis();
+	private final AtomicLong nextExpireTime = new AtomicLong(System.currentTimeMillis());
+
+	/* transaction */
+	public void fireBeginTransaction(TransactionXid xid) {
+		this.beginCounter.incrementAndGet();
+		TransactionTimer timer = this.getOrCreateTimer(xid);
+		if (timer != null) {
+			timer.beginAt = System.nanoTime();
+		}
+	}
+
+	public void fireCommitTransactionStart(TransactionXid xid) {
+		this.commitStartCounter.incrementAndGet();
+	}
+
+	public void fireCommitTransactionSuccess(TransactionXid xid) {
+		this.commitSuccessCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.commitHistogram);
+		this.releaseTimer(xid);
+	}
+
+	public void fireCommitTransactionFailure(TransactionXid xid) {
+		this.commitFailureCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.commitHistogram);
+		this.releaseTimer(xid);
+	}
+
+	public void fireRollbackTransactionStart(TransactionXid xid) {
+		this.rollbackStartCounter.incrementAndGet();
+	}
+
+	public void fireRollbackTransactionSuccess(TransactionXid xid) {
+		this.rollbackSuccessCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.rollbackHistogram);
+		this.releaseTimer(xid);
+	}
+
+	public void fireRollbackTransactionFailure(TransactionXid xid) {
+		this.rollbackFailureCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.rollbackHistogram);
+		this.releaseTimer(xid);
+	}
+
+	public void fireCleanupTransaction(TransactionXid xid) {
+		this.cleanupCounter.incrementAndGet();
+		this.releaseTimer(xid);
+	}
+
+	public void fireRecoverTransaction(TransactionXid xid) {
+		this.recoverCounter.incrementAndGet();
+	}
+
+	/* phase */
+	public void fireTryPhaseSuccess(TransactionXid xid) {
+		this.tryPhaseSuccessCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.tryPhaseHistogram);
+	}
+
+	public void fireTryPhaseFailure(TransactionXid xid) {
+		this.tryPhaseFailureCounter.incrementAndGet();
+		this.recordSinceBegin(xid, this.tryPhaseHistogram);
+	}
+
+	public void fireConfirmPhaseStart(TransactionXid xid) {
+		TransactionTimer timer = this.getOrCreateTimer(xid);
+		if (timer != null) {
+			timer.phaseAt = System.nanoTime();
+		}
+	}
+
+	public void fireConfirmPhaseSuccess(TransactionXid xid) {
+		this.confirmPhaseSuccessCounter.incrementAndGet();
+		this.recordSincePhase(xid, this.confirmPhaseHistogram);
+		this.releaseTimerIfParticipant(xid);
+	}
+
+	public void fireConfirmPhaseFailure(TransactionXid xid) {
+		this.confirmPhaseFailureCounter.incrementAndGet();
+		this.recordSincePhase(xid, this.confirmPhaseHistogram);
+		this.releaseTimerIfParticipant(xid);
+	}
+
+	public void fireCancelPhaseStart(TransactionXid xid) {
+		TransactionTimer timer = this.getOrCreateTimer(xid);
+		if (timer != null) {
+			timer.phaseAt = System.nanoTime();
+		}
+	}
+
+	public void fireCancelPhaseSuccess(TransactionXid xid) {
+		this.cancelPhaseSuccessCounter.incrementAndGet();
+		this.recordSincePhase(xid, this.cancelPhaseHistogram);
+		this.releaseTimerIfParticipant(xid);
+	}
+
+	public void fireCancelPhaseFailure(TransactionXid xid) {
+		this.cancelPhaseFailureCounter.incrementAndGet();
+		this.recordSincePhase(xid, this.cancelPhaseHistogram);
+		this.releaseTimerIfParticipant(xid);
+	}
+
+	/* compensable */
+	public void fireTryCompensableStart(TransactionXid xid, CompensableArchive compensable) {
+		this.markCompensable(xid, compensable);
+	}
+
+	public void fireTryCompensableSuccess(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.trySuccessCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.tryHistogram);
+	}
+
+	public void fireTryCompensableFailure(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.tryFailureCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.tryHistogram);
+	}
+
+	public void fireCancelCompensableStart(TransactionXid xid, CompensableArchive compensable) {
+		this.markCompensable(xid, compensable);
+	}
+
+	public void fireCancelCompensableSuccess(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.cancelSuccessCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.cancelHistogram);
+	}
+
+	public void fireCancelCompensableFailure(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.cancelFailureCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.cancelHistogram);
+	}
+
+	public void fireConfirmCompensableStart(TransactionXid xid, CompensableArchive compensable) {
+		this.markCompensable(xid, compensable);
+	}
+
+	public void fireConfirmCompensableSuccess(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.confirmSuccessCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.confirmHistogram);
+	}
+
+	public void fireConfirmCompensableFailure(TransactionXid xid, CompensableArchive compensable) {
+		ServiceStatistic statistic = this.getServiceStatistic(compensable);
+		statistic.confirmFailureCounter.incrementAndGet();
+		this.recordCompensable(xid, compensable, statistic.confirmHistogram);
+	}
+
+	private TransactionTimer getOrCreateTimer(TransactionXid xid) {
+		if (xid == null) {
+			return null;
+		}
+
+		String key = CompensableXid.toGlobalTransactionKey(xid);
+		TransactionTimer timer = this.timers.get(key);
+		if (timer == null) {
+			if (this.timers.size() >= this.maxTrackedTransactions && this.expireTimersIfNecessary() == false) {
+				this.droppedTimerCounter.incrementAndGet();
+				return null; // count only
+			}
+			TransactionTimer created = new TransactionTimer();
+			TransactionTimer existed = this.timers.putIfAbsent(key, created);
+			timer = existed == null ? created : existed;
+		}
+		return timer;
+	}
+
+	private void releaseTimer(TransactionXid xid) {
+		if (xid != null) {
+			this.timers.remove(CompensableXid.toGlobalTransactionKey(xid));
+		}
+	}
+
+	/**
+	 * The timing of a transaction which is not begun on this node is not needed once its branches are completed.
+	 */
+	private void releaseTimerIfParticipant(TransactionXid xid) {
+		TransactionTimer timer = this.getTimer(xid);
+		if (timer != null && timer.beginAt == 0) {
+			this.timers.remove(CompensableXid.toGlobalTransactionKey(xid), timer);
+		}
+	}
+
+	private TransactionTimer getTimer(TransactionXid xid) {
+		return xid == null ? null : this.timers.get(CompensableXid.toGlobalTransactionKey(xid));
+	}
+
+	private void recordSinceBegin(TransactionXid xid, LatencyHistogram histogram) {
+		TransactionTimer timer = this.getTimer(xid);
+		long beginAt = timer == null ? 0 : timer.beginAt;
+		if (beginAt != 0) {
+			histogram.record((System.nanoTime() - beginAt) / 1000L);
+		}
+	}
+
+	private void recordSincePhase(TransactionXid xid, LatencyHistogram histogram) {
+		TransactionTimer timer = this.getTimer(xid);
+		long phaseAt = timer == null ? 0 : timer.phaseAt;
+		if (phaseAt != 0) {
+			histogram.record((System.nanoTime() - phaseAt) / 1000L);
+		}
+	}
+
+	private void markCompensable(TransactionXid xid, CompensableArchive compensable) {
+		TransactionTimer timer = this.getOrCreateTimer(xid);
+		if (timer != null && compensable != null && compensable.getIdentifier() != null) {
+			timer.compensables.put(CompensableXid.toBranchQualifierKey(compensable.getIdentifier()), System.nanoTime());
+		}
+	}
+
+	private void recordCompensable(TransactionXid xid, CompensableArchive compensable, LatencyHistogram histogram) {
+		TransactionTimer timer = this.getTimer(xid);
+		if (timer == null || compensable == null || compensable.getIdentifier() == null) {
+			return;
+		}
+
+		Long startAt = timer.compensables.remove(CompensableXid.toBranchQualifierKey(compensable.getIdentifier()));
+		if (startAt != null) {
+			histogram.record((System.nanoTime() - startAt) / 1000L);
+		}
+	}
+
+	private ServiceStatistic getServiceStatistic(CompensableArchive compensable) {
+		CompensableInvocation invocation = compensable == null ? null : compensable.getCompensable();
+		String clazz = invocation == null ? null : invocation.getDeclaringClass();
+		String method = invocation == null ? null : invocation.getMethodName();
+		clazz = clazz == null ? UNKNOWN_SERVICE : clazz;
+		method = method == null ? UNKNOWN_SERVICE : method;
+
+		ConcurrentMap<String, ServiceStatistic> methods = this.services.get(clazz);
+		ServiceStatistic statistic = methods == null ? null : methods.get(method);
+		if (statistic != null) {
+			return statistic;
+		} else if (this.serviceCount.get() >= this.maxServices) {
+			return this.otherService;
+		}
+
+		if (methods == null) {
+			ConcurrentMap<String, ServiceStatistic> created = new ConcurrentHashMap<String, ServiceStatistic>();
+			ConcurrentMap<String, ServiceStatistic> existed = this.services.putIfAbsent(clazz, created);
+			methods = existed == null ? created : existed;
+		}
+
+		ServiceStatistic created = new ServiceStatistic();
+		ServiceStatistic existed = methods.putIfAbsent(method, created);
+		if (existed == null) {
+			this.serviceCount.incrementAndGet();
+		}
+		return existed == null ? created : existed;
+	}
+
+	public CompensableStatisticSnapshot snapshot() {
+		long current = System.currentTimeMillis();
+		CompensableStatisticSnapshot snapshot = new CompensableStatisticSnapshot();
+		snapshot.setTimestamp(current);
+		snapshot.setInterval(current - this.lastReportTime);
+		this.lastReportTime = current;
+
+		Map<String, Long> counters = snapshot.getCounters();
+		counters.put("transaction.begin", this.beginCounter.get());
+		counters.put("transaction.commit.start", this.commitStartCounter.get());
+		counters.put("transaction.commit.success", this.commitSuccessCounter.get());
+		counters.put("transaction.commit.failure", this.commitFailureCounter.get());
+		counters.put("transaction.rollback.start", this.rollbackStartCounter.get());
+		counters.put("transaction.rollback.success", this.rollbackSuccessCounter.get());
+		counters.put("transaction.rollback.failure", this.rollbackFailureCounter.get());
+		counters.put("transaction.cleanup", this.cleanupCounter.get());
+		counters.put("transaction.recover", this.recoverCounter.get());
+		counters.put("transaction.timer.dropped", this.droppedTimerCounter.get());
+		counters.put("phase.try.success", this.tryPhaseSuccessCounter.get());
+		counters.put("phase.try.failure", this.tryPhaseFailureCounter.get());
+		counters.put("phase.confirm.success", this.confirmPhaseSuccessCounter.get());
+		counters.put("phase.confirm.failure", this.confirmPhaseFailureCounter.get());
+		counters.put("phase.cancel.success", this.cancelPhaseSuccessCounter.get());
+		counters.put("phase.cancel.failure", this.cancelPhaseFailureCounter.get());
+
+		Map<String, LatencySnapshot> latencies = snapshot.getLatencies();
+		latencies.put("transaction.commit", this.commitHistogram.snapshot(true));
+		latencies.put("transaction.rollback", this.rollbackHistogram.snapshot(true));
+		latencies.put("phase.try", this.tryPhaseHistogram.snapshot(true));
+		latencies.put("phase.confirm", this.confirmPhaseHistogram.snapshot(true));
+		latencies.put("phase.cancel", this.cancelPhaseHistogram.snapshot(true));
+
+		for (Iterator<Map.Entry<String, ConcurrentMap<String, ServiceStatistic>>> itr = this.services.entrySet()
+				.iterator(); itr.hasNext();) {
+			Map.Entry<String, ConcurrentMap<String, ServiceStatistic>> entry = itr.next();
+			String clazz = entry.getKey();
+			for (Iterator<Map.Entry<String, ServiceStatistic>> it = entry.getValue().entrySet().iterator(); it
+					.hasNext();) {
+				Map.Entry<String, ServiceStatistic> element = it.next();
+				String service = String.format("compensable.%s.%s", clazz, element.getKey());
+				element.getValue().snapshot(service, snapshot);
+			}
+		}
+		if (this.serviceCount.get() >= this.maxServices) {
+			this.otherService.snapshot(String.format("compensable.%s", OTHER_SERVICE), snapshot);
+		}
+
+		return snapshot;
+	}
+
+	public void report() {
+		this.expireTimers();
+
+		CompensableStatisticSnapshot snapshot = this.snapshot();
+		for (int i = 0; this.reporters != null && i < this.reporters.size(); i++) {
+			CompensableStatisticReporter reporter = this.reporters.get(i);
+			try {
+				reporter.report(snapshot);
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while reporting compensable statistic: {}", reporter, rex);
+			}
+		}
+	}
+
+	/**
+	 * Evicts the expired timers when the table is full, at most once a second.
+	 *
+	 * @return true if the table is no longer full.
+	 */
+	private boolean expireTimersIfNecessary() {
+		long current = System.currentTimeMillis();
+		long expireTime = this.nextExpireTime.get();
+		if (current >= expireTime && this.nextExpireTime.compareAndSet(expireTime, current + 1000L)) {
+			this.expireTimers();
+		}
+		return this.timers.size() < this.maxTrackedTransactions;
+	}
+
+	private void expireTimers() {
+		long expiredAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(this.timerExpireMillis);
+		for (Iterator<TransactionTimer> itr = this.timers.values().iterator(); itr.hasNext();) {
+			TransactionTimer timer = itr.next();
+			if (timer.createdAt - expiredAt < 0) {
+				itr.remove();
+				this.droppedTimerCounter.incrementAndGet();
+			}
+		}
+	}
+
+	public void initialize() {
+		if (this.reportInterval <= 0 || this.reporters == null || this.reporters.isEmpty()) {
+			return;
+		}
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "bytetcc-statistic");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					report();
+				} catch (RuntimeException rex) {
+					logger.error("Error occurred while reporting compensable statistic.", rex);
+				}
+			}
+		}, this.reportInterval, this.reportInterval, TimeUnit.MILLISECONDS);
+		this.scheduler = executor;
+	}
+
+	public void destroy() {
+		ScheduledExecutorService executor = this.scheduler;
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	static class TransactionTimer {
+		final long createdAt = System.nanoTime();
+		volatile long beginAt;
+		volatile long phaseAt;
+		final Map<String, Long> compensables = new ConcurrentHashMap<String, Long>();
+	}
+
+	static class ServiceStatistic {
+		final AtomicLong trySuccessCounter = new AtomicLong();
+		final AtomicLong tryFailureCounter = new AtomicLong();
+		final AtomicLong confirmSuccessCounter = new AtomicLong();
+		final AtomicLong confirmFailureCounter = new AtomicLong();
+		final AtomicLong cancelSuccessCounter = new AtomicLong();
+		final AtomicLong cancelFailureCounter = new AtomicLong();
+		final LatencyHistogram tryHistogram = new LatencyHistogram();
+		final LatencyHistogram confirmHistogram = new LatencyHistogram();
+		final LatencyHistogram cancelHistogram = new LatencyHistogram();
+
+		void snapshot(String service, CompensableStatisticSnapshot snapshot) {
+			Map<String, Long> counters = snapshot.getCounters();
+			counters.put(service + ".try.success", this.trySuccessCounter.get());
+			counters.put(service + ".try.failure", this.tryFailureCounter.get());
+			counters.put(service + ".confirm.success", this.confirmSuccessCounter.get());
+			counters.put(service + ".confirm.failure", this.confirmFailureCounter.get());
+			counters.put(service + ".cancel.success", this.cancelSuccessCounter.get());
+			counters.put(service + ".cancel.failure", this.cancelFailureCounter.get());
+
+			Map<String, LatencySnapshot> latencies = snapshot.getLatencies();
+			latencies.put(service + ".try", this.tryHistogram.snapshot(true));
+			latencies.put(service + ".confirm", this.confirmHistogram.snapshot(true));
+			latencies.put(service + ".cancel", this.cancelHistogram.snapshot(true));
+		}
+	}
+
+	public long getReportInterval() {
+		return reportInterval;
+	}
+
+	public void setReportInterval(long reportInterval) {
+		this.reportInterval = reportInterval;
+	}
+
+	public long getDroppedTimerCount() {
+		return this.droppedTimerCounter.get();
+	}
+
+	public int getTrackedTransactionCount() {
+		return this.timers.size();
+	}
+
+	public long getTimerExpireMillis() {
+		return timerExpireMillis;
+	}
+
+	public void setTimerExpireMillis(long timerExpireMillis) {
+		this.timerExpireMillis = timerExpireMillis;
+	}
+
+	public int getMaxTrackedTransactions() {
+		return maxTrackedTransactions;
+	}
+
+	public void setMaxTrackedTransactions(int maxTrackedTransactions) {
+		this.maxTrackedTransactions = maxTrackedTransactions;
+	}
+
+	public int getMaxServices() {
+		return maxServices;
+	}
+
+	public void setMaxServices(int maxServices) {
+		this.maxServices = maxServices;
+	}
+
+	public List<CompensableStatisticReporter> getReporters() {
+		return reporters;
+	}
+
+	public void setReporters(List<CompensableStatisticReporter> reporters) {
+		this.reporters = reporters;
+	}
+
+}
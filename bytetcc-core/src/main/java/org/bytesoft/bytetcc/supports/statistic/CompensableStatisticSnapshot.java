@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The counters(accumulated since startup) and the latencies(of the last report interval) of the compensable
+ * transactions, keyed by metric name, such as "transaction.commit.success" or "compensable.{service}.confirm".
+ */
+public class CompensableStatisticSnapshot implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long timestamp;
+	private long interval;
+	private final Map<String, Long> counters = new TreeMap<String, Long>();
+	private final Map<String, LatencySnapshot> latencies = new TreeMap<String, LatencySnapshot>();
+
+	public String toString() {
+		return String.format("[compensable-statistic| interval= %s, counters= %s, latencies= %s]", this.interval,
+				this.counters, this.latencies);
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+
+	public Map<String, LatencySnapshot> getLatencies() {
+		return latencies;
+	}
+
+}
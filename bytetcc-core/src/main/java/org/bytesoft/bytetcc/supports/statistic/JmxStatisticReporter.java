@@ -0,0 +1,109 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes the latest snapshot as an MXBean(named "org.bytesoft.bytetcc:type=CompensableStatistic" by default) on the
+ * platform MBean server, so that it can be read by jconsole or collected by a JMX exporter.
+ */
+public class JmxStatisticReporter implements CompensableStatisticReporter, CompensableStatisticMXBean {
+	static final Logger logger = LoggerFactory.getLogger(JmxStatisticReporter.class);
+
+	private String objectName = "org.bytesoft.bytetcc:type=CompensableStatistic";
+	private volatile CompensableStatisticSnapshot snapshot;
+	private volatile ObjectName registeredName;
+
+	public void report(CompensableStatisticSnapshot snapshot) {
+		this.snapshot = snapshot;
+		this.registerIfNecessary();
+	}
+
+	private void registerIfNecessary() {
+		if (this.registeredName != null) {
+			return;
+		}
+
+		synchronized (this) {
+			if (this.registeredName != null) {
+				return;
+			}
+			try {
+				ObjectName name = new ObjectName(this.objectName);
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				if (server.isRegistered(name) == false) {
+					server.registerMBean(this, name);
+				}
+				this.registeredName = name;
+			} catch (JMException ex) {
+				logger.error("Error occurred while registering compensable statistic mbean: {}", this.objectName, ex);
+				this.registeredName = ObjectName.WILDCARD; // do not retry
+			}
+		}
+	}
+
+	public void destroy() {
+		ObjectName name = this.registeredName;
+		if (name == null || ObjectName.WILDCARD.equals(name)) {
+			return;
+		}
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException ex) {
+			logger.debug("Error occurred while unregistering compensable statistic mbean: {}", name, ex);
+		}
+	}
+
+	public long getTimestamp() {
+		CompensableStatisticSnapshot current = this.snapshot;
+		return current == null ? 0 : current.getTimestamp();
+	}
+
+	public long getInterval() {
+		CompensableStatisticSnapshot current = this.snapshot;
+		return current == null ? 0 : current.getInterval();
+	}
+
+	public Map<String, Long> getCounters() {
+		CompensableStatisticSnapshot current = this.snapshot;
+		return current == null ? Collections.<String, Long> emptyMap() : current.getCounters();
+	}
+
+	public Map<String, LatencySnapshot> getLatencies() {
+		CompensableStatisticSnapshot current = this.snapshot;
+		return current == null ? Collections.<String, LatencySnapshot> emptyMap() : current.getLatencies();
+	}
+
+	public String getObjectName() {
+		return objectName;
+	}
+
+	public void setObjectName(String objectName) {
+		this.objectName = objectName;
+	}
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram(in microseconds) with log-linear buckets: values below 32 are counted exactly, larger
+ * values fall into 16 sub-buckets per power of two, which keeps the relative error of the percentiles under 6.25%.
+ */
+public class LatencyHistogram {
+	static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >>> 1;
+	static final int MAX_EXPONENT = 40; // about 12.7 days
+	static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong maximum = new AtomicLong();
+
+	public void record(long micros) {
+		long value = Math.min(Math.max(0, micros), MAX_VALUE);
+		this.buckets.incrementAndGet(indexOf(value));
+		this.count.incrementAndGet();
+		this.total.addAndGet(value);
+
+		long current = this.maximum.get();
+		while (value > current && this.maximum.compareAndSet(current, value) == false) {
+			current = this.maximum.get();
+		}
+	}
+
+	/**
+	 * @param reset whether to clear the recorded values, so that the next snapshot only covers the next interval.
+	 */
+	public LatencySnapshot snapshot(boolean reset) {
+		long[] values = new long[BUCKET_COUNT];
+		long number = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			values[i] = reset ? this.buckets.getAndSet(i, 0) : this.buckets.get(i);
+			number += values[i];
+		}
+		long sum = reset ? this.total.getAndSet(0) : this.total.get();
+		long max = reset ? this.maximum.getAndSet(0) : this.maximum.get();
+		if (reset) {
+			this.count.addAndGet(-number);
+		}
+
+		LatencySnapshot snapshot = new LatencySnapshot();
+		snapshot.setCount(number);
+		snapshot.setMean(number == 0 ? 0 : sum / number);
+		snapshot.setMax(max);
+		snapshot.setP50(this.percentile(values, number, 0.50));
+		snapshot.setP90(this.percentile(values, number, 0.90));
+		snapshot.setP99(this.percentile(values, number, 0.99));
+		snapshot.setP999(this.percentile(values, number, 0.999));
+		return snapshot;
+	}
+
+	private long percentile(long[] values, long number, double percent) {
+		if (number == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(number * percent));
+		long accumulated = 0;
+		for (int i = 0; i < values.length; i++) {
+			accumulated += values[i];
+			if (accumulated >= rank) {
+				return highestValueOf(i);
+			}
+		}
+		return highestValueOf(values.length - 1);
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_HALF;
+		return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + subBucket;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int offset = index - SUB_BUCKET_COUNT;
+		int exponent = offset / SUB_BUCKET_HALF + SUB_BUCKET_BITS;
+		int shift = exponent - SUB_BUCKET_BITS + 1;
+		long lowest = ((long) (offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF)) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+}
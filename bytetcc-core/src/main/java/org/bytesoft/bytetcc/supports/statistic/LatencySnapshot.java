@@ -0,0 +1,95 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.io.Serializable;
+
+/**
+ * The latencies(in microseconds) recorded by a LatencyHistogram within a report interval.
+ */
+public class LatencySnapshot implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long count;
+	private long mean;
+	private long max;
+	private long p50;
+	private long p90;
+	private long p99;
+	private long p999;
+
+	public String toString() {
+		return String.format("[count= %s, mean= %s, p50= %s, p90= %s, p99= %s, p999= %s, max= %s]", this.count,
+				this.mean, this.p50, this.p90, this.p99, this.p999, this.max);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getMean() {
+		return mean;
+	}
+
+	public void setMean(long mean) {
+		this.mean = mean;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public void setMax(long max) {
+		this.max = max;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public void setP50(long p50) {
+		this.p50 = p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public void setP90(long p90) {
+		this.p90 = p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public void setP99(long p99) {
+		this.p99 = p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public void setP999(long p999) {
+		this.p999 = p999;
+	}
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the counters and the non-empty latencies of each snapshot to the log.
+ */
+public class LoggingStatisticReporter implements CompensableStatisticReporter {
+	static final Logger logger = LoggerFactory.getLogger(LoggingStatisticReporter.class);
+
+	public void report(CompensableStatisticSnapshot snapshot) {
+		if (logger.isInfoEnabled() == false) {
+			return;
+		}
+
+		StringBuilder ber = new StringBuilder();
+		ber.append("compensable-statistic: interval= ").append(snapshot.getInterval()).append("ms");
+		for (Iterator<Map.Entry<String, Long>> itr = snapshot.getCounters().entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, Long> entry = itr.next();
+			if (entry.getValue() > 0) {
+				ber.append("\n\t").append(entry.getKey()).append("= ").append(entry.getValue());
+			}
+		}
+		for (Iterator<Map.Entry<String, LatencySnapshot>> itr = snapshot.getLatencies().entrySet().iterator(); itr
+				.hasNext();) {
+			Map.Entry<String, LatencySnapshot> entry = itr.next();
+			if (entry.getValue().getCount() > 0) {
+				ber.append("\n\t").append(entry.getKey()).append("(us)= ").append(entry.getValue());
+			}
+		}
+		logger.info(ber.toString());
+	}
+
+}
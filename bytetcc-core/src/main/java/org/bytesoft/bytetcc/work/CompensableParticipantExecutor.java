@@ -0,0 +1,215 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches the second-phase(confirm/cancel) calls of the remote participants of one compensable transaction. When
+ * parallel mode is disabled, or there is only one branch to complete, the tasks are executed on the caller thread one
+ * after another, just as before.
+ */
+public class CompensableParticipantExecutor {
+	static final Logger logger = LoggerFactory.getLogger(CompensableParticipantExecutor.class);
+
+	private boolean parallel = false;
+	private int poolSize = Runtime.getRuntime().availableProcessors() * 4;
+	private int queueSize = 1024;
+	/* max in-flight branches per transaction. */
+	private int maxInFlight = 4;
+	private long keepAliveMillis = 60 * 1000L;
+
+	private volatile ThreadPoolExecutor executor;
+	private volatile boolean destroyed = false;
+
+	public <T> List<T> invokeAll(List<Callable<T>> tasks) throws ExecutionException {
+		if (this.parallel == false || this.destroyed || tasks.size() <= 1) {
+			return this.invokeAllSequentially(tasks);
+		}
+
+		ThreadPoolExecutor currentExecutor = this.getExecutorIfNecessary();
+		Semaphore semaphore = new Semaphore(Math.max(1, this.maxInFlight));
+
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			final Callable<T> task = tasks.get(i);
+			semaphore.acquireUninterruptibly();
+			FutureTask<T> future = new FutureTask<T>(new ReleasableCallable<T>(task, semaphore));
+			futures.add(future);
+			currentExecutor.execute(future); // CallerRunsPolicy: never rejected.
+		}
+
+		List<T> resultList = new ArrayList<T>(futures.size());
+		ExecutionException error = null;
+		for (int i = 0; i < futures.size(); i++) {
+			Future<T> future = futures.get(i);
+			try {
+				resultList.add(this.getUninterruptibly(future));
+			} catch (ExecutionException ex) {
+				resultList.add(null);
+				error = error == null ? ex : error;
+			}
+		}
+
+		if (error != null) {
+			throw error;
+		}
+
+		return resultList;
+	}
+
+	private <T> List<T> invokeAllSequentially(List<Callable<T>> tasks) throws ExecutionException {
+		List<T> resultList = new ArrayList<T>(tasks.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			Callable<T> task = tasks.get(i);
+			try {
+				resultList.add(task.call());
+			} catch (Exception ex) {
+				throw new ExecutionException(ex);
+			}
+		}
+		return resultList;
+	}
+
+	private <T> T getUninterruptibly(Future<T> future) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private ThreadPoolExecutor getExecutorIfNecessary() {
+		if (this.executor == null) {
+			synchronized (this) {
+				if (this.executor == null) {
+					ThreadPoolExecutor threadPool = new ThreadPoolExecutor(this.poolSize, this.poolSize, //
+							this.keepAliveMillis, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(this.queueSize),
+							new ParticipantThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+					threadPool.allowCoreThreadTimeOut(true);
+					this.executor = threadPool;
+				}
+			}
+		}
+		return this.executor;
+	}
+
+	public void destroy() {
+		this.destroyed = true;
+		ThreadPoolExecutor threadPool = this.executor;
+		if (threadPool != null) {
+			threadPool.shutdown();
+			try {
+				threadPool.awaitTermination(this.keepAliveMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				logger.debug(ex.getMessage(), ex);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static class ReleasableCallable<T> implements Callable<T> {
+		private final Callable<T> delegate;
+		private final Semaphore semaphore;
+
+		public ReleasableCallable(Callable<T> delegate, Semaphore semaphore) {
+			this.delegate = delegate;
+			this.semaphore = semaphore;
+		}
+
+		public T call() throws Exception {
+			try {
+				return this.delegate.call();
+			} finally {
+				this.semaphore.release();
+			}
+		}
+	}
+
+	private static class ParticipantThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "bytetcc-participant-" + this.counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+}
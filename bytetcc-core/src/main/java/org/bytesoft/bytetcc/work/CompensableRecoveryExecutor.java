@@ -0,0 +1,442 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the recovery tasks partitioned by the remote instance they depend on. Each partition runs at most
+ * maxInstanceConcurrency tasks at a time and gives up its worker after fairnessQuantum tasks, so that a large backlog
+ * of one instance can not starve the others. A partition whose tasks keep failing is skipped until its circuit breaker
+ * allows a retry, only the failures caused by the remote instance are counted. Parallel mode is enabled by default, the
+ * caller waits at most executeTimeoutMillis and the unfinished partitions keep running in the background; when
+ * disabled the partitions are processed on the caller thread, still in turns, so that one slow instance delays the
+ * whole recovery round.
+ */
+public class CompensableRecoveryExecutor {
+	static final Logger logger = LoggerFactory.getLogger(CompensableRecoveryExecutor.class);
+
+	private boolean parallel = true;
+	private int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+	/* max in-flight recovery tasks per remote instance. */
+	private int maxInstanceConcurrency = 2;
+	/* max tasks executed for one instance before yielding the worker to the other instances. */
+	private int fairnessQuantum = 32;
+	/* consecutive failures of an instance which open its circuit breaker. */
+	private int failureThreshold = 5;
+	private long circuitOpenMillis = 60 * 1000L;
+	private long keepAliveMillis = 60 * 1000L;
+	/* max time the caller waits for the partitions in parallel mode. */
+	private long executeTimeoutMillis = 1000L;
+
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+	private final ConcurrentMap<String, Partition> runnings = new ConcurrentHashMap<String, Partition>();
+	private volatile ThreadPoolExecutor executor;
+	private volatile boolean destroyed = false;
+
+	public interface RecoveryTask {
+		public static final int RESULT_SUCCESS = 0;
+		/* failed because the remote instance is unreachable, counted by the circuit breaker of the instance. */
+		public static final int RESULT_REMOTE_FAILURE = 1;
+		/* failed locally(lock contention, illegal state, etc.), not counted by the circuit breaker. */
+		public static final int RESULT_LOCAL_FAILURE = 2;
+
+		/**
+		 * @return RESULT_SUCCESS, RESULT_REMOTE_FAILURE or RESULT_LOCAL_FAILURE.
+		 */
+		public int execute();
+
+		/**
+		 * Called instead of execute() when the circuit breaker of the instance is open.
+		 */
+		public void reject();
+
+	}
+
+	/**
+	 * Executes the tasks and waits until each of them is either executed or rejected, at most executeTimeoutMillis in
+	 * parallel mode. The tasks of an instance whose partition of a previous round is still running are not executed.
+	 *
+	 * @return the tasks which are not executed, to be carried over to the next round.
+	 */
+	public List<RecoveryTask> executeAll(Map<String, List<RecoveryTask>> partitions) {
+		List<RecoveryTask> carriedList = new ArrayList<RecoveryTask>();
+		int total = 0;
+		for (Iterator<List<RecoveryTask>> itr = partitions.values().iterator(); itr.hasNext();) {
+			total += itr.next().size();
+		}
+
+		if (total == 0) {
+			return carriedList;
+		} else if (this.parallel == false || this.destroyed || total <= 1) {
+			this.executeSequentially(partitions, carriedList);
+			return carriedList;
+		}
+
+		ThreadPoolExecutor currentExecutor = this.getExecutorIfNecessary();
+		CountDownLatch latch = new CountDownLatch(partitions.size());
+		for (Iterator<Map.Entry<String, List<RecoveryTask>>> itr = partitions.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, List<RecoveryTask>> entry = itr.next();
+			Partition partition = new Partition(entry.getKey(), entry.getValue(), latch);
+			if (partition.size() == 0 || this.runnings.putIfAbsent(partition.identifier, partition) != null) {
+				carriedList.addAll(entry.getValue());
+				latch.countDown();
+				continue;
+			}
+
+			int runners = Math.min(Math.max(1, this.maxInstanceConcurrency), partition.size());
+			for (int i = 0; i < runners; i++) {
+				this.submit(currentExecutor, new PartitionRunner(partition));
+			}
+		}
+
+		long deadline = System.currentTimeMillis() + this.executeTimeoutMillis;
+		boolean interrupted = false;
+		try {
+			for (long waitMillis = this.executeTimeoutMillis; waitMillis > 0; //
+					waitMillis = deadline - System.currentTimeMillis()) {
+				try {
+					if (latch.await(waitMillis, TimeUnit.MILLISECONDS)) {
+						break;
+					}
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return carriedList;
+	}
+
+	private void executeSequentially(Map<String, List<RecoveryTask>> partitions, List<RecoveryTask> carriedList) {
+		Queue<Partition> queue = new ArrayDeque<Partition>();
+		for (Iterator<Map.Entry<String, List<RecoveryTask>>> itr = partitions.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, List<RecoveryTask>> entry = itr.next();
+			if (this.runnings.containsKey(entry.getKey())) {
+				carriedList.addAll(entry.getValue()); // still running in the background since a previous round
+			} else {
+				queue.offer(new Partition(entry.getKey(), entry.getValue(), null));
+			}
+		}
+
+		while (queue.isEmpty() == false) {
+			Partition partition = queue.poll();
+			if (this.executeQuantum(partition)) {
+				queue.offer(partition);
+			}
+		}
+	}
+
+	private void submit(ThreadPoolExecutor currentExecutor, PartitionRunner runner) {
+		try {
+			currentExecutor.execute(runner);
+		} catch (RejectedExecutionException ex) {
+			runner.run(); // destroyed
+		}
+	}
+
+	/**
+	 * @return true if the partition still has tasks to be executed.
+	 */
+	private boolean executeQuantum(Partition partition) {
+		for (int i = 0; i < Math.max(1, this.fairnessQuantum); i++) {
+			RecoveryTask task = partition.poll();
+			if (task == null) {
+				return false;
+			}
+
+			CircuitBreaker breaker = this.getCircuitBreaker(partition.identifier);
+			if (breaker.allowRequest() == false) {
+				this.rejectQuietly(task);
+				partition.countDown();
+				continue;
+			}
+
+			int result = RecoveryTask.RESULT_LOCAL_FAILURE;
+			try {
+				result = task.execute();
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while executing recovery task of instance {}.", partition.identifier, rex);
+			} finally {
+				partition.countDown();
+			}
+
+			if (result == RecoveryTask.RESULT_SUCCESS) {
+				breaker.onSuccess();
+			} else if (result != RecoveryTask.RESULT_REMOTE_FAILURE) {
+				breaker.onIgnored();
+			} else if (breaker.onFailure()) {
+				logger.warn("Recovery of instance {} failed {} times in a row, it will be skipped for {} ms.",
+						partition.identifier, this.failureThreshold, this.circuitOpenMillis);
+			}
+		}
+		return partition.isEmpty() == false;
+	}
+
+	private void rejectQuietly(RecoveryTask task) {
+		try {
+			task.reject();
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while rejecting recovery task.", rex);
+		}
+	}
+
+	private CircuitBreaker getCircuitBreaker(String identifier) {
+		CircuitBreaker breaker = this.breakers.get(identifier);
+		if (breaker == null) {
+			CircuitBreaker created = new CircuitBreaker();
+			CircuitBreaker existed = this.breakers.putIfAbsent(identifier, created);
+			breaker = existed == null ? created : existed;
+		}
+		return breaker;
+	}
+
+	public boolean isCircuitOpen(String identifier) {
+		CircuitBreaker breaker = this.breakers.get(identifier);
+		return breaker != null && breaker.isOpen();
+	}
+
+	private ThreadPoolExecutor getExecutorIfNecessary() {
+		if (this.executor == null) {
+			synchronized (this) {
+				if (this.executor == null) {
+					ThreadPoolExecutor threadPool = new ThreadPoolExecutor(this.poolSize, this.poolSize, //
+							this.keepAliveMillis, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+							new RecoveryThreadFactory());
+					threadPool.allowCoreThreadTimeOut(true);
+					this.executor = threadPool;
+				}
+			}
+		}
+		return this.executor;
+	}
+
+	public void destroy() {
+		this.destroyed = true;
+		ThreadPoolExecutor threadPool = this.executor;
+		if (threadPool != null) {
+			threadPool.shutdown();
+		}
+	}
+
+	private class PartitionRunner implements Runnable {
+		private final Partition partition;
+
+		public PartitionRunner(Partition partition) {
+			this.partition = partition;
+		}
+
+		public void run() {
+			if (executeQuantum(this.partition) == false) {
+				return;
+			}
+
+			ThreadPoolExecutor currentExecutor = executor;
+			if (currentExecutor == null || destroyed) {
+				while (executeQuantum(this.partition)) {
+					// run to completion on the current thread
+				}
+			} else {
+				submit(currentExecutor, this); // back to the end of the queue
+			}
+		}
+	}
+
+	private class Partition {
+		private final String identifier;
+		private final Queue<RecoveryTask> tasks;
+		private final CountDownLatch latch;
+		private final AtomicInteger remaining;
+
+		public Partition(String identifier, List<RecoveryTask> tasks, CountDownLatch latch) {
+			this.identifier = identifier;
+			this.tasks = new ArrayDeque<RecoveryTask>(tasks);
+			this.latch = latch;
+			this.remaining = new AtomicInteger(tasks.size());
+		}
+
+		public synchronized RecoveryTask poll() {
+			return this.tasks.poll();
+		}
+
+		public synchronized int size() {
+			return this.tasks.size();
+		}
+
+		public synchronized boolean isEmpty() {
+			return this.tasks.isEmpty();
+		}
+
+		/**
+		 * Called once for each task, the partition is finished when all of its tasks are executed or rejected.
+		 */
+		public void countDown() {
+			if (this.remaining.decrementAndGet() > 0) {
+				return;
+			} else if (this.latch != null) {
+				runnings.remove(this.identifier, this);
+				this.latch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Opens after failureThreshold consecutive failures, and lets a single probe through once circuitOpenMillis has
+	 * elapsed: the circuit closes if the probe succeeds and opens again otherwise.
+	 */
+	private class CircuitBreaker {
+		private int failures;
+		private long openUntil;
+		private boolean probing;
+
+		public synchronized boolean allowRequest() {
+			if (this.failures < failureThreshold) {
+				return true;
+			} else if (this.probing || System.currentTimeMillis() < this.openUntil) {
+				return false;
+			}
+			this.probing = true;
+			return true;
+		}
+
+		public synchronized boolean isOpen() {
+			return this.failures >= failureThreshold && System.currentTimeMillis() < this.openUntil;
+		}
+
+		public synchronized void onSuccess() {
+			this.failures = 0;
+			this.probing = false;
+		}
+
+		/**
+		 * The task failed locally, which tells nothing about the instance; a probe is let through again.
+		 */
+		public synchronized void onIgnored() {
+			this.probing = false;
+		}
+
+		/**
+		 * @return true if the circuit has just been opened.
+		 */
+		public synchronized boolean onFailure() {
+			if (this.probing) {
+				this.probing = false;
+				this.openUntil = System.currentTimeMillis() + circuitOpenMillis;
+				return true;
+			} else if (++this.failures == failureThreshold) {
+				this.openUntil = System.currentTimeMillis() + circuitOpenMillis;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class RecoveryThreadFactory implements ThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "bytetcc-recovery-" + this.counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getMaxInstanceConcurrency() {
+		return maxInstanceConcurrency;
+	}
+
+	public void setMaxInstanceConcurrency(int maxInstanceConcurrency) {
+		this.maxInstanceConcurrency = maxInstanceConcurrency;
+	}
+
+	public int getFairnessQuantum() {
+		return fairnessQuantum;
+	}
+
+	public void setFairnessQuantum(int fairnessQuantum) {
+		this.fairnessQuantum = fairnessQuantum;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public long getCircuitOpenMillis() {
+		return circuitOpenMillis;
+	}
+
+	public void setCircuitOpenMillis(long circuitOpenMillis) {
+		this.circuitOpenMillis = circuitOpenMillis;
+	}
+
+	public long getExecuteTimeoutMillis() {
+		return executeTimeoutMillis;
+	}
+
+	public void setExecuteTimeoutMillis(long executeTimeoutMillis) {
+		this.executeTimeoutMillis = executeTimeoutMillis;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+}
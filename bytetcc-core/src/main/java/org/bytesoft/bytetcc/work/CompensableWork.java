@@ -17,6 +17,7 @@ package org.bytesoft.bytetcc.work;
 
 import javax.resource.spi.work.Work;
 
+import org.bytesoft.bytetcc.TransactionRecoveryImpl;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.transaction.TransactionRecovery;
@@ -31,6 +32,7 @@ public class CompensableWork implements Work, CompensableBeanFactoryAware {
 	private long stopTimeMillis = -1;
 	private long delayOfStoping = SECOND_MILLIS * 15;
 	private long recoveryInterval = SECOND_MILLIS * 60;
+	private long recoveryTickInterval = SECOND_MILLIS;
 
 	private volatile boolean initialized = false;
 
@@ -59,6 +61,7 @@ public class CompensableWork implements Work, CompensableBeanFactoryAware {
 		this.initializeIfNecessary();
 
 		long nextRecoveryTime = 0;
+		long nextTickTime = 0;
 		while (this.currentActive()) {
 			this.initializeIfNecessary();
 
@@ -66,9 +69,15 @@ public class CompensableWork implements Work, CompensableBeanFactoryAware {
 			// 每60秒执行一次
 			if (current >= nextRecoveryTime) {
 				nextRecoveryTime = current + this.recoveryInterval;
+				nextTickTime = current + this.recoveryTickInterval;
 
 				this.fireGlobalRecovery();
 				this.fireBranchRecovery();
+			} else if (current >= nextTickTime) {
+				// 每秒推进一次时间轮, 只恢复到期的事务, 不扫描异常事务
+				nextTickTime = current + this.recoveryTickInterval;
+
+				this.fireDueRecovery();
 			}
 
 			// 每100毫秒执行一次循环
@@ -89,6 +98,21 @@ public class CompensableWork implements Work, CompensableBeanFactoryAware {
 		}
 	}
 
+	private void fireDueRecovery() {
+		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
+		if (TransactionRecoveryImpl.class.isInstance(compensableRecovery) == false) {
+			return;
+		}
+
+		try {
+			((TransactionRecoveryImpl) compensableRecovery).recoverDueTransactions();
+		} catch (SecurityException rex) {
+			logger.debug("Only the master node can perform the global recovery operation!");
+		} catch (RuntimeException rex) {
+			logger.error(rex.getMessage(), rex);
+		}
+	}
+
 	private void fireBranchRecovery() {
 		// 实现类是org.bytesoft.bytetcc.TransactionRecoveryImpl
 		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
@@ -129,6 +153,14 @@ public class CompensableWork implements Work, CompensableBeanFactoryAware {
 		this.recoveryInterval = recoveryInterval;
 	}
 
+	public long getRecoveryTickInterval() {
+		return recoveryTickInterval;
+	}
+
+	public void setRecoveryTickInterval(long recoveryTickInterval) {
+		this.recoveryTickInterval = recoveryTickInterval;
+	}
+
 	public void setDelayOfStoping(long delayOfStoping) {
 		this.delayOfStoping = delayOfStoping;
 	}
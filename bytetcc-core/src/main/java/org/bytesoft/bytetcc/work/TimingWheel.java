@@ -0,0 +1,171 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel keyed by an identifier. Each level has wheelSize buckets of tickMillis, an entry beyond the
+ * span of a level is kept by the overflow level (whose tick is the span of the lower one) and is cascaded down as the
+ * time advances, so that advancing only touches the buckets passed and the entries which become due. Not thread-safe.
+ */
+public class TimingWheel<K> {
+
+	private final Map<K, Entry<K>> entries = new HashMap<K, Entry<K>>();
+	private final Level<K> level;
+
+	public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+		this.level = new Level<K>(Math.max(1L, tickMillis), Math.max(2, wheelSize), startTime);
+	}
+
+	/**
+	 * Schedules (or reschedules) the key at the deadline, a deadline in the past will be returned by the next advance.
+	 */
+	public void schedule(K key, long deadline) {
+		Entry<K> previous = this.entries.remove(key);
+		if (previous != null) {
+			previous.cancelled = true;
+		}
+
+		Entry<K> entry = new Entry<K>(key, deadline);
+		this.entries.put(key, entry);
+		if (this.level.add(entry) == false) {
+			this.level.expired.add(entry);
+		}
+	}
+
+	public boolean cancel(K key) {
+		Entry<K> entry = this.entries.remove(key);
+		if (entry != null) {
+			entry.cancelled = true;
+		}
+		return entry != null;
+	}
+
+	public boolean contains(K key) {
+		return this.entries.containsKey(key);
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Advances the wheel to the specified time and removes the keys whose deadline has been reached.
+	 */
+	public List<K> advance(long time) {
+		List<Entry<K>> expired = new ArrayList<Entry<K>>(this.level.expired);
+		this.level.expired.clear();
+		this.level.advance(time, expired);
+
+		List<K> keyList = new ArrayList<K>(expired.size());
+		for (int i = 0; i < expired.size(); i++) {
+			Entry<K> entry = expired.get(i);
+			if (entry.cancelled == false && this.entries.get(entry.key) == entry) {
+				this.entries.remove(entry.key);
+				keyList.add(entry.key);
+			}
+		}
+		return keyList;
+	}
+
+	static class Level<K> {
+		private final long tickMillis;
+		private final int wheelSize;
+		private final long interval;
+		private final List<List<Entry<K>>> buckets;
+		private final List<Entry<K>> expired = new ArrayList<Entry<K>>();
+		private long currentTime;
+		private Level<K> overflow;
+
+		public Level(long tickMillis, int wheelSize, long startTime) {
+			this.tickMillis = tickMillis;
+			this.wheelSize = wheelSize;
+			this.interval = tickMillis * wheelSize;
+			this.currentTime = startTime - (startTime % tickMillis);
+			this.buckets = new ArrayList<List<Entry<K>>>(wheelSize);
+			for (int i = 0; i < wheelSize; i++) {
+				this.buckets.add(new ArrayList<Entry<K>>());
+			}
+		}
+
+		/**
+		 * @return false if the entry is already due at the current tick.
+		 */
+		public boolean add(Entry<K> entry) {
+			if (entry.deadline < this.currentTime + this.tickMillis) {
+				return false;
+			} else if (entry.deadline < this.currentTime + this.interval) {
+				this.getBucket(entry.deadline).add(entry);
+				return true;
+			}
+
+			if (this.overflow == null) {
+				this.overflow = new Level<K>(this.interval, this.wheelSize, this.currentTime);
+			}
+			return this.overflow.add(entry);
+		}
+
+		/**
+		 * Moves to the tick containing the specified time; the entries of each bucket reached are handed to the output,
+		 * which is the due list for the lowest level, and the entries to be redistributed for an overflow level.
+		 */
+		public void advance(long time, List<Entry<K>> output) {
+			while (this.currentTime + this.tickMillis <= time) {
+				this.currentTime += this.tickMillis;
+
+				if (this.overflow != null) {
+					List<Entry<K>> cascaded = new ArrayList<Entry<K>>();
+					this.overflow.advance(this.currentTime, cascaded);
+					for (int i = 0; i < cascaded.size(); i++) {
+						Entry<K> entry = cascaded.get(i);
+						if (entry.cancelled == false && this.add(entry) == false) {
+							output.add(entry);
+						}
+					}
+				}
+
+				List<Entry<K>> bucket = this.getBucket(this.currentTime);
+				for (int i = 0; i < bucket.size(); i++) {
+					Entry<K> entry = bucket.get(i);
+					if (entry.cancelled == false) {
+						output.add(entry);
+					}
+				}
+				bucket.clear();
+			}
+		}
+
+		private List<Entry<K>> getBucket(long time) {
+			return this.buckets.get((int) ((time / this.tickMillis) % this.wheelSize));
+		}
+	}
+
+	static class Entry<K> {
+		final K key;
+		final long deadline;
+		boolean cancelled;
+
+		public Entry(K key, long deadline) {
+			this.key = key;
+			this.deadline = deadline;
+		}
+	}
+
+}
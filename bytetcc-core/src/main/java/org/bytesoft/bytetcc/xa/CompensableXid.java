@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.xa;
+
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.transaction.xa.TransactionXid;
+
+/**
+ * The xid created by XidFactoryImpl, which caches the hex string form of its global transaction id and branch
+ * qualifier, so that logging and querying by xid do not encode the byte arrays again and again. It is serialized as a
+ * plain TransactionXid, the remote peers do not need to know this class.
+ */
+public class CompensableXid extends TransactionXid {
+	private static final long serialVersionUID = 1L;
+
+	private transient volatile String globalTransactionKey;
+	private transient volatile String branchQualifierKey;
+
+	public CompensableXid(int formatId, byte[] globalTransactionId) {
+		super(formatId, globalTransactionId);
+	}
+
+	public CompensableXid(int formatId, byte[] globalTransactionId, byte[] branchQualifier) {
+		super(formatId, globalTransactionId, branchQualifier);
+	}
+
+	public static String toGlobalTransactionKey(Xid xid) {
+		if (CompensableXid.class.isInstance(xid)) {
+			return ((CompensableXid) xid).getGlobalTransactionKey();
+		}
+		return xid == null ? null : ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+	}
+
+	public static String toBranchQualifierKey(Xid xid) {
+		if (CompensableXid.class.isInstance(xid)) {
+			return ((CompensableXid) xid).getBranchQualifierKey();
+		}
+		return xid == null ? null : ByteUtils.byteArrayToString(xid.getBranchQualifier());
+	}
+
+	public String getGlobalTransactionKey() {
+		String key = this.globalTransactionKey;
+		if (key == null) {
+			key = ByteUtils.byteArrayToString(this.getGlobalTransactionId());
+			this.globalTransactionKey = key;
+		}
+		return key;
+	}
+
+	public String getBranchQualifierKey() {
+		String key = this.branchQualifierKey;
+		if (key == null) {
+			key = ByteUtils.byteArrayToString(this.getBranchQualifier());
+			this.branchQualifierKey = key;
+		}
+		return key;
+	}
+
+	public CompensableXid clone() {
+		TransactionXid xid = super.clone();
+		CompensableXid that = new CompensableXid(xid.getFormatId(), xid.getGlobalTransactionId(),
+				xid.getBranchQualifier());
+		that.inheritKeys(this, true);
+		return that;
+	}
+
+	public TransactionXid getGlobalXid() {
+		TransactionXid xid = super.getGlobalXid();
+		if (CompensableXid.class.isInstance(xid)) {
+			return xid;
+		}
+
+		CompensableXid that = new CompensableXid(xid.getFormatId(), xid.getGlobalTransactionId());
+		that.inheritKeys(this, false);
+		return that;
+	}
+
+	/**
+	 * Takes over the keys already computed by the given xid of the same global transaction, the branch qualifier key is
+	 * taken only when the branch qualifier is the same.
+	 */
+	void inheritKeys(TransactionXid xid, boolean branchRequired) {
+		if (CompensableXid.class.isInstance(xid) == false) {
+			return;
+		}
+
+		CompensableXid that = (CompensableXid) xid;
+		this.globalTransactionKey = that.globalTransactionKey;
+		if (branchRequired) {
+			this.branchQualifierKey = that.branchQualifierKey;
+		}
+	}
+
+	protected Object writeReplace() {
+		byte[] branchQualifier = this.getBranchQualifier();
+		return branchQualifier == null || branchQualifier.length == 0
+				? new TransactionXid(this.getFormatId(), this.getGlobalTransactionId())
+				: new TransactionXid(this.getFormatId(), this.getGlobalTransactionId(), branchQualifier);
+	}
+
+}
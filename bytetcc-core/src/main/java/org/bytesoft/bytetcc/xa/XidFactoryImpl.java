@@ -22,26 +22,28 @@ public class XidFactoryImpl extends org.bytesoft.bytejta.xa.XidFactoryImpl imple
 
 	public TransactionXid createGlobalXid() {
 		TransactionXid xid = super.createGlobalXid();
-		xid.setFormatId(XidFactory.TCC_FORMAT_ID);
-		return xid;
+		return new CompensableXid(XidFactory.TCC_FORMAT_ID, xid.getGlobalTransactionId());
 	}
 
 	public TransactionXid createGlobalXid(byte[] globalTransactionId) {
 		TransactionXid xid = super.createGlobalXid(globalTransactionId);
-		xid.setFormatId(XidFactory.TCC_FORMAT_ID);
-		return xid;
+		return new CompensableXid(XidFactory.TCC_FORMAT_ID, xid.getGlobalTransactionId());
 	}
 
 	public TransactionXid createBranchXid(TransactionXid globalXid) {
 		TransactionXid xid = super.createBranchXid(globalXid);
-		xid.setFormatId(XidFactory.TCC_FORMAT_ID);
-		return xid;
+		CompensableXid branchXid = new CompensableXid(XidFactory.TCC_FORMAT_ID, xid.getGlobalTransactionId(),
+				xid.getBranchQualifier());
+		branchXid.inheritKeys(globalXid, false);
+		return branchXid;
 	}
 
 	public TransactionXid createBranchXid(TransactionXid globalXid, byte[] branchQualifier) {
 		TransactionXid xid = super.createBranchXid(globalXid, branchQualifier);
-		xid.setFormatId(XidFactory.TCC_FORMAT_ID);
-		return xid;
+		CompensableXid branchXid = new CompensableXid(XidFactory.TCC_FORMAT_ID, xid.getGlobalTransactionId(),
+				xid.getBranchQualifier());
+		branchXid.inheritKeys(globalXid, false);
+		return branchXid;
 	}
 
 }
@@ -18,6 +18,7 @@ package org.bytesoft.compensable;
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
 import org.bytesoft.bytetcc.supports.CompensableSynchronization;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
+import org.bytesoft.bytetcc.work.CompensableParticipantExecutor;
 import org.bytesoft.compensable.logging.CompensableLogger;
 import org.bytesoft.transaction.TransactionLock;
 import org.bytesoft.transaction.TransactionManager;
@@ -71,4 +72,8 @@ public interface CompensableBeanFactory {
 
 	public CompensableRolledbackMarker getCompensableRolledbackMarker();
 
+	public CompensableParticipantExecutor getCompensableParticipantExecutor();
+
+	public CompensableStatistic getCompensableStatistic();
+
 }
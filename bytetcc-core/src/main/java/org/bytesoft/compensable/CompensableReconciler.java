@@ -0,0 +1,34 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.compensable;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+/**
+ * A coordinator which answers the recovery scan of its participants for the specified transactions only, instead of
+ * returning all of its active transactions as XAResource.recover(int) does.
+ */
+public interface CompensableReconciler {
+
+	/**
+	 * @param filter the global transaction ids the participant is in doubt about, encoded by TransactionFilter.
+	 * @return the xids of the active transactions which match the filter, which may contain a few more transactions
+	 *         than requested when the filter is a bloom filter.
+	 */
+	public Xid[] reconcile(byte[] filter) throws XAException;
+
+}
@@ -44,23 +44,33 @@ public interface CompensableStatistic {
 
 	public void fireTryPhaseFailure(TransactionXid xid);
 
+	public void fireCancelPhaseStart(TransactionXid xid);
+
 	public void fireCancelPhaseSuccess(TransactionXid xid);
 
 	public void fireCancelPhaseFailure(TransactionXid xid);
 
+	public void fireConfirmPhaseStart(TransactionXid xid);
+
 	public void fireConfirmPhaseSuccess(TransactionXid xid);
 
 	public void fireConfirmPhaseFailure(TransactionXid xid);
 
 	/* compensable */
+	public void fireTryCompensableStart(TransactionXid xid, CompensableArchive compensable);
+
 	public void fireTryCompensableSuccess(TransactionXid xid, CompensableArchive compensable);
 
 	public void fireTryCompensableFailure(TransactionXid xid, CompensableArchive compensable);
 
+	public void fireCancelCompensableStart(TransactionXid xid, CompensableArchive compensable);
+
 	public void fireCancelCompensableSuccess(TransactionXid xid, CompensableArchive compensable);
 
 	public void fireCancelCompensableFailure(TransactionXid xid, CompensableArchive compensable);
 
+	public void fireConfirmCompensableStart(TransactionXid xid, CompensableArchive compensable);
+
 	public void fireConfirmCompensableSuccess(TransactionXid xid, CompensableArchive compensable);
 
 	public void fireConfirmCompensableFailure(TransactionXid xid, CompensableArchive compensable);
@@ -17,7 +17,7 @@ package org.bytesoft.compensable.archive;
 
 import javax.transaction.xa.Xid;
 
-import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableInvocation;
 
@@ -41,7 +41,7 @@ public class CompensableArchive {
 
 	public String toString() {
 		String key = (this.identifier == null || this.identifier.getGlobalTransactionId() == null) ? null
-				: ByteUtils.byteArrayToString(this.identifier.getGlobalTransactionId());
+				: CompensableXid.toGlobalTransactionKey(this.identifier);
 		return String.format(
 				"[compensable-archive| identifier= %s, transactionKey= %s, transactionXid= %s, compensableKey= %s, compensableXid= %s, confirmed= %s, cancelled= %s]",
 				key, this.transactionResourceKey, this.transactionXid, this.compensableResourceKey, this.compensableXid,
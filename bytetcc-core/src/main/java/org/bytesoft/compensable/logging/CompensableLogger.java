@@ -29,6 +29,8 @@ public interface CompensableLogger {
 
 	public void updateTransactionStatus(TransactionArchive archive);
 
+	public void flushTransaction(TransactionArchive archive);
+
 	public void updateTransactionRecoveryStatus(TransactionArchive archive);
 
 	public void deleteTransaction(TransactionArchive archive);
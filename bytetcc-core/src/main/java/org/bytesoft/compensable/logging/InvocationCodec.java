@@ -0,0 +1,37 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.compensable.logging;
+
+import java.io.IOException;
+
+import org.bytesoft.compensable.CompensableInvocation;
+
+/**
+ * Codec of the compensable invocation (and its args) persisted by the compensable logger. The encoded bytes should
+ * start with a versioned header, and a codec should still be able to decode the archives written by the java
+ * serialization (which start with the stream magic 0xACED).
+ */
+public interface InvocationCodec {
+
+	public byte[] encodeInvocation(CompensableInvocation invocation) throws IOException;
+
+	public CompensableInvocation decodeInvocation(byte[] byteArray) throws IOException;
+
+	public byte[] encodeArgs(Object[] args) throws IOException;
+
+	public Object[] decodeArgs(byte[] byteArray) throws IOException;
+
+}
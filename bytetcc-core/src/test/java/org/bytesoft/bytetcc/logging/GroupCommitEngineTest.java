@@ -0,0 +1,161 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.logging;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.transaction.xa.Xid;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupCommitEngineTest {
+
+	private GroupCommitEngine engine;
+
+	@After
+	public void release() {
+		if (this.engine != null) {
+			this.engine.release();
+		}
+	}
+
+	@Test
+	public void testAppendReturnsAfterForce() {
+		RecordingCompensableLogger compensableLogger = new RecordingCompensableLogger();
+		this.engine = new GroupCommitEngine(compensableLogger, 16, 4, 0);
+		this.engine.start();
+
+		this.engine.append(OPERATOR_CREATE, null, new byte[] { 0x1 });
+
+		Assert.assertEquals(1, compensableLogger.getWrittenCount());
+		Assert.assertTrue(compensableLogger.isDurable((byte) 0x1));
+	}
+
+	@Test
+	public void testConcurrentAppendsAreDurableOnReturn() throws InterruptedException {
+		final RecordingCompensableLogger compensableLogger = new RecordingCompensableLogger();
+		this.engine = new GroupCommitEngine(compensableLogger, 8, 4, 1);
+		this.engine.start();
+
+		final int threads = 8;
+		final int appends = 50;
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final AtomicInteger failures = new AtomicInteger();
+		List<Thread> threadList = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			final int index = i;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						startLatch.await();
+						for (int j = 0; j < appends; j++) {
+							byte[] byteArray = new byte[] { (byte) index, (byte) j };
+							engine.append(OPERATOR_CREATE, null, byteArray);
+							if (compensableLogger.isDurable(byteArray) == false) {
+								failures.incrementAndGet();
+							}
+						}
+					} catch (InterruptedException ex) {
+						failures.incrementAndGet();
+					} catch (RuntimeException ex) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			thread.start();
+			threadList.add(thread);
+		}
+
+		startLatch.countDown();
+		for (int i = 0; i < threadList.size(); i++) {
+			threadList.get(i).join(30000L);
+		}
+
+		Assert.assertEquals(0, failures.get());
+		Assert.assertEquals(threads * appends, compensableLogger.getWrittenCount());
+	}
+
+	@Test
+	public void testForceFailureIsThrownToAppender() {
+		RecordingCompensableLogger compensableLogger = new RecordingCompensableLogger();
+		compensableLogger.failure = new IllegalStateException("disk failure");
+		this.engine = new GroupCommitEngine(compensableLogger, 16, 4, 0);
+		this.engine.start();
+
+		try {
+			this.engine.append(OPERATOR_CREATE, null, new byte[] { 0x1 });
+			Assert.fail();
+		} catch (IllegalStateException ex) {
+			Assert.assertSame(compensableLogger.failure, ex);
+		}
+	}
+
+	@Test
+	public void testReleaseDeactivatesEngine() {
+		RecordingCompensableLogger compensableLogger = new RecordingCompensableLogger();
+		this.engine = new GroupCommitEngine(compensableLogger, 16, 4, 0);
+		this.engine.start();
+		Assert.assertTrue(this.engine.isActive());
+
+		this.engine.release();
+		Assert.assertFalse(this.engine.isActive());
+	}
+
+	static final int OPERATOR_CREATE = 1;
+
+	static class RecordingCompensableLogger extends SampleCompensableLogger {
+		private final List<byte[]> written = new ArrayList<byte[]>();
+		private final Set<String> durable = new HashSet<String>();
+		volatile RuntimeException failure;
+
+		synchronized void writeImmediately(int operator, Xid xid, byte[] byteArray) {
+			this.written.add(byteArray);
+		}
+
+		public synchronized void flushImmediately() {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			for (int i = 0; i < this.written.size(); i++) {
+				this.durable.add(this.toKey(this.written.get(i)));
+			}
+		}
+
+		public synchronized boolean isDurable(byte... byteArray) {
+			return this.durable.contains(this.toKey(byteArray));
+		}
+
+		public synchronized int getWrittenCount() {
+			return this.written.size();
+		}
+
+		private String toKey(byte[] byteArray) {
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < byteArray.length; i++) {
+				builder.append(byteArray[i]).append(',');
+			}
+			return builder.toString();
+		}
+	}
+
+}
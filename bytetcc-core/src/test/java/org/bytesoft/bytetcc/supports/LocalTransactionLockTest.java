@@ -0,0 +1,166 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytetcc.xa.XidFixtures;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalTransactionLockTest {
+	static final String ENDPOINT = "192.168.1.1:order-service:8080";
+
+	private LocalTransactionLock lock;
+
+	@Before
+	public void setUp() {
+		this.lock = new LocalTransactionLock();
+	}
+
+	@Test
+	public void testReentrantByOwnerThread() throws Exception {
+		TransactionXid xid = XidFixtures.createGlobalXid(1);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(1, this.lock.getLockedCount());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertFalse(this.lockInThread(xid, false, 0));
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(0, this.lock.getLockedCount());
+		Assert.assertTrue(this.lockInThread(xid, false, 0));
+	}
+
+	@Test
+	public void testSameIdentifierOnAnotherThreadIsRejected() throws Exception {
+		TransactionXid xid = XidFixtures.createGlobalXid(2);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+
+		Assert.assertFalse(this.lockInThread(xid, false, 0));
+		Assert.assertEquals(1, this.lock.getContendedCount());
+		Assert.assertEquals(1, this.lock.getTimeoutCount());
+	}
+
+	@Test
+	public void testContenderTimesOut() throws Exception {
+		TransactionXid xid = XidFixtures.createGlobalXid(3);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+
+		long startMillis = System.currentTimeMillis();
+		Assert.assertFalse(this.lockInThread(xid, false, 100));
+		Assert.assertTrue(System.currentTimeMillis() - startMillis >= 100);
+		Assert.assertEquals(1, this.lock.getTimeoutCount());
+	}
+
+	@Test
+	public void testContenderBlocksUntilUnlock() throws Exception {
+		final TransactionXid xid = XidFixtures.createGlobalXid(4);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+			public Boolean call() {
+				boolean locked = lock.lockTransaction(xid, ENDPOINT, 10000);
+				acquired.countDown();
+				return locked;
+			}
+		});
+		Thread thread = new Thread(task);
+		thread.start();
+		for (int i = 0; i < 500 && thread.getState() != Thread.State.TIMED_WAITING; i++) {
+			Thread.sleep(10);
+		}
+
+		Assert.assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+		Assert.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, this.lock.getContendedCount());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertTrue(task.get(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, this.lock.getLockedCount());
+		Assert.assertEquals(0, this.lock.getTimeoutCount());
+	}
+
+	@Test
+	public void testBusinessDoesNotWaitForRecovery() throws Exception {
+		TransactionXid xid = XidFixtures.createGlobalXid(5);
+		Assert.assertTrue(this.lock.lockTransactionExclusively(xid, ENDPOINT, 0));
+
+		long startMillis = System.currentTimeMillis();
+		Assert.assertFalse(this.lockInThread(xid, false, 10000));
+		Assert.assertTrue(System.currentTimeMillis() - startMillis < 5000);
+
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertTrue(this.lockInThread(xid, false, 0));
+	}
+
+	@Test
+	public void testRecoveryIsRejectedWhileBusinessHoldsLock() throws Exception {
+		TransactionXid xid = XidFixtures.createGlobalXid(6);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertFalse(this.lockInThread(xid, true, 0));
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertTrue(this.lockInThread(xid, true, 0));
+	}
+
+	@Test
+	public void testUnlockByAnotherThreadIsIgnored() throws Exception {
+		final TransactionXid xid = XidFixtures.createGlobalXid(7);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				lock.unlockTransaction(xid, ENDPOINT);
+			}
+		});
+		thread.start();
+		thread.join(5000);
+		Assert.assertEquals(1, this.lock.getLockedCount());
+		Assert.assertFalse(this.lockInThread(xid, false, 0));
+	}
+
+	@Test
+	public void testTransactionsAreIndependent() throws Exception {
+		Assert.assertTrue(this.lock.lockTransaction(XidFixtures.createGlobalXid(8), ENDPOINT));
+		Assert.assertTrue(this.lockInThread(XidFixtures.createGlobalXid(9), false, 0));
+		Assert.assertEquals(2, this.lock.getLockedCount());
+		Assert.assertEquals(0, this.lock.getContendedCount());
+	}
+
+	private boolean lockInThread(final TransactionXid xid, final boolean exclusive, final long timeoutMillis)
+			throws Exception {
+		FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+			public Boolean call() {
+				return exclusive ? lock.lockTransactionExclusively(xid, ENDPOINT, timeoutMillis)
+						: lock.lockTransaction(xid, ENDPOINT, timeoutMillis);
+			}
+		});
+		Thread thread = new Thread(task);
+		thread.start();
+		return task.get(30, TimeUnit.SECONDS);
+	}
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.bytesoft.transaction.xa.XidFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TransactionFilterTest {
+
+	private final Random random = new Random(20161018L);
+
+	@Test
+	public void testListRoundTrip() {
+		List<byte[]> globals = this.createGlobals(100);
+		byte[] byteArray = TransactionFilter.encodeList(globals);
+		Assert.assertEquals(TransactionFilter.TYPE_LIST, byteArray[0]);
+
+		List<byte[]> decoded = TransactionFilter.decodeList(byteArray);
+		Assert.assertEquals(globals.size(), decoded.size());
+		for (int i = 0; i < globals.size(); i++) {
+			Assert.assertArrayEquals(globals.get(i), decoded.get(i));
+		}
+	}
+
+	@Test
+	public void testListFilterIsExact() {
+		List<byte[]> globals = this.createGlobals(100);
+		TransactionFilter filter = TransactionFilter.decode(TransactionFilter.encodeList(globals));
+		Assert.assertTrue(filter instanceof TransactionFilter.ListFilter);
+		for (int i = 0; i < globals.size(); i++) {
+			Assert.assertTrue(filter.mightContain(globals.get(i)));
+		}
+
+		List<byte[]> others = this.createGlobals(1000);
+		for (int i = 0; i < others.size(); i++) {
+			Assert.assertFalse(filter.mightContain(others.get(i)));
+		}
+	}
+
+	@Test
+	public void testEmptyList() {
+		byte[] byteArray = TransactionFilter.encodeList(new ArrayList<byte[]>());
+		Assert.assertTrue(TransactionFilter.decodeList(byteArray).isEmpty());
+		Assert.assertFalse(TransactionFilter.decode(byteArray).mightContain(this.createGlobals(1).get(0)));
+	}
+
+	@Test
+	public void testBloomFilterHasNoFalseNegative() {
+		List<byte[]> globals = this.createGlobals(5000);
+		TransactionFilter filter = TransactionFilter.decode(TransactionFilter.encodeBloom(globals, 0.01D));
+		Assert.assertTrue(filter instanceof TransactionFilter.BloomFilter);
+		for (int i = 0; i < globals.size(); i++) {
+			Assert.assertTrue(filter.mightContain(globals.get(i)));
+		}
+	}
+
+	@Test
+	public void testBloomFilterFalsePositiveRate() {
+		List<byte[]> globals = this.createGlobals(5000);
+		TransactionFilter filter = TransactionFilter.decode(TransactionFilter.encodeBloom(globals, 0.01D));
+
+		List<byte[]> others = this.createGlobals(20000);
+		int falsePositives = 0;
+		for (int i = 0; i < others.size(); i++) {
+			falsePositives += filter.mightContain(others.get(i)) ? 1 : 0;
+		}
+		Assert.assertTrue("false positives: " + falsePositives, falsePositives < others.size() * 0.02D);
+	}
+
+	@Test
+	public void testBloomFilterIsSmallerThanList() {
+		List<byte[]> globals = this.createGlobals(5000);
+		byte[] listByteArray = TransactionFilter.encodeList(globals);
+		byte[] bloomByteArray = TransactionFilter.encodeBloom(globals, 0.01D);
+		Assert.assertTrue(bloomByteArray.length < listByteArray.length);
+	}
+
+	@Test
+	public void testEncodeChoosesByThreshold() {
+		List<byte[]> globals = this.createGlobals(10);
+		Assert.assertEquals(TransactionFilter.TYPE_LIST, TransactionFilter.encode(globals, 10, 0.01D)[0]);
+		Assert.assertEquals(TransactionFilter.TYPE_BLOOM, TransactionFilter.encode(globals, 9, 0.01D)[0]);
+	}
+
+	@Test
+	public void testInvalidFalsePositiveRateFallsBackToDefault() {
+		List<byte[]> globals = this.createGlobals(100);
+		byte[] byteArray = TransactionFilter.encodeBloom(globals, 0);
+		Assert.assertArrayEquals(TransactionFilter.encodeBloom(globals, TransactionFilter.DEFAULT_FALSE_POSITIVE_RATE),
+				byteArray);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullInput() {
+		TransactionFilter.decode(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownType() {
+		byte[] byteArray = TransactionFilter.encodeList(this.createGlobals(1));
+		byteArray[0] = 0x7F;
+		TransactionFilter.decode(byteArray);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedList() {
+		byte[] byteArray = TransactionFilter.encodeList(this.createGlobals(2));
+		TransactionFilter.decodeList(Arrays.copyOf(byteArray, byteArray.length - 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTruncatedBloom() {
+		byte[] byteArray = TransactionFilter.encodeBloom(this.createGlobals(100), 0.01D);
+		TransactionFilter.decode(Arrays.copyOf(byteArray, byteArray.length - 8));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBloomIsNotList() {
+		TransactionFilter.decodeList(TransactionFilter.encodeBloom(this.createGlobals(100), 0.01D));
+	}
+
+	private List<byte[]> createGlobals(int size) {
+		List<byte[]> globals = new ArrayList<byte[]>(size);
+		for (int i = 0; i < size; i++) {
+			byte[] globalTransactionId = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+			this.random.nextBytes(globalTransactionId);
+			globals.add(globalTransactionId);
+		}
+		return globals;
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import org.bytesoft.bytetcc.xa.XidFixtures;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompensableStatisticImplTest {
+
+	private CompensableStatisticImpl statistic;
+
+	@Before
+	public void setUp() {
+		this.statistic = new CompensableStatisticImpl();
+	}
+
+	@Test
+	public void testTimerIsReleasedOnCompletion() {
+		TransactionXid committed = XidFixtures.createGlobalXid(1);
+		this.statistic.fireBeginTransaction(committed);
+		this.statistic.fireConfirmPhaseStart(committed);
+		this.statistic.fireConfirmPhaseSuccess(committed);
+		Assert.assertEquals(1, this.statistic.getTrackedTransactionCount());
+		this.statistic.fireCommitTransactionSuccess(committed);
+		Assert.assertEquals(0, this.statistic.getTrackedTransactionCount());
+
+		TransactionXid rolledback = XidFixtures.createGlobalXid(2);
+		this.statistic.fireBeginTransaction(rolledback);
+		this.statistic.fireRollbackTransactionFailure(rolledback);
+		Assert.assertEquals(0, this.statistic.getTrackedTransactionCount());
+
+		CompensableStatisticSnapshot snapshot = this.statistic.snapshot();
+		Assert.assertEquals(1, snapshot.getLatencies().get("transaction.commit").getCount());
+		Assert.assertEquals(1, snapshot.getLatencies().get("transaction.rollback").getCount());
+		Assert.assertEquals(1, snapshot.getLatencies().get("phase.confirm").getCount());
+	}
+
+	@Test
+	public void testParticipantTimerIsReleasedAfterPhase() {
+		TransactionXid xid = XidFixtures.createGlobalXid(3);
+		this.statistic.fireCancelPhaseStart(xid);
+		Assert.assertEquals(1, this.statistic.getTrackedTransactionCount());
+		this.statistic.fireCancelPhaseFailure(xid);
+		Assert.assertEquals(0, this.statistic.getTrackedTransactionCount());
+	}
+
+	@Test
+	public void testTimerIsDroppedWhenFull() {
+		this.statistic.setMaxTrackedTransactions(2);
+		for (int i = 0; i < 3; i++) {
+			this.statistic.fireBeginTransaction(XidFixtures.createGlobalXid(10 + i));
+		}
+		Assert.assertEquals(2, this.statistic.getTrackedTransactionCount());
+		Assert.assertEquals(1, this.statistic.getDroppedTimerCount());
+		Assert.assertEquals(Long.valueOf(1), this.statistic.snapshot().getCounters().get("transaction.timer.dropped"));
+
+		this.statistic.fireCommitTransactionSuccess(XidFixtures.createGlobalXid(10));
+		this.statistic.fireBeginTransaction(XidFixtures.createGlobalXid(13));
+		Assert.assertEquals(2, this.statistic.getTrackedTransactionCount());
+		Assert.assertEquals(1, this.statistic.getDroppedTimerCount());
+	}
+
+	@Test
+	public void testExpiredTimerIsEvictedWhenFull() throws InterruptedException {
+		this.statistic.setMaxTrackedTransactions(1);
+		this.statistic.setTimerExpireMillis(50);
+		this.statistic.fireBeginTransaction(XidFixtures.createGlobalXid(20));
+
+		Thread.sleep(100);
+		TransactionXid xid = XidFixtures.createGlobalXid(21);
+		this.statistic.fireBeginTransaction(xid);
+		Assert.assertEquals(1, this.statistic.getTrackedTransactionCount());
+		Assert.assertEquals(1, this.statistic.getDroppedTimerCount()); // the expired one
+
+		this.statistic.fireCommitTransactionSuccess(xid);
+		Assert.assertEquals(1, this.statistic.snapshot().getLatencies().get("transaction.commit").getCount());
+	}
+
+}
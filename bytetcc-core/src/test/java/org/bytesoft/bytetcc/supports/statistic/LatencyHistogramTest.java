@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.statistic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	static final double MAX_RELATIVE_ERROR = 1.0D / 16;
+
+	@Test
+	public void testEmptySnapshot() {
+		LatencySnapshot snapshot = new LatencyHistogram().snapshot(false);
+		Assert.assertEquals(0, snapshot.getCount());
+		Assert.assertEquals(0, snapshot.getMean());
+		Assert.assertEquals(0, snapshot.getMax());
+		Assert.assertEquals(0, snapshot.getP50());
+		Assert.assertEquals(0, snapshot.getP999());
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 20; i++) {
+			histogram.record(i);
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot(false);
+		Assert.assertEquals(20, snapshot.getCount());
+		Assert.assertEquals(10, snapshot.getMean());
+		Assert.assertEquals(20, snapshot.getMax());
+		Assert.assertEquals(10, snapshot.getP50());
+		Assert.assertEquals(18, snapshot.getP90());
+		Assert.assertEquals(20, snapshot.getP99());
+	}
+
+	@Test
+	public void testBucketBoundaries() {
+		int previous = -1;
+		for (long value = 0; value <= LatencyHistogram.MAX_VALUE; value += value < 1024 ? 1 : value / 7) {
+			int index = LatencyHistogram.indexOf(value);
+			Assert.assertTrue(index >= previous);
+			Assert.assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+
+			long highest = LatencyHistogram.highestValueOf(index);
+			Assert.assertTrue(highest >= value);
+			Assert.assertTrue("value= " + value, highest - value <= value * MAX_RELATIVE_ERROR);
+			Assert.assertEquals(index, LatencyHistogram.indexOf(highest));
+			previous = index;
+		}
+		Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+		Assert.assertEquals(LatencyHistogram.MAX_VALUE,
+				LatencyHistogram.highestValueOf(LatencyHistogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void testPercentilesOfUniformValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot(false);
+		Assert.assertEquals(100000, snapshot.getCount());
+		Assert.assertEquals(50000, snapshot.getMean());
+		Assert.assertEquals(100000, snapshot.getMax());
+		this.assertPercentile(50000, snapshot.getP50());
+		this.assertPercentile(90000, snapshot.getP90());
+		this.assertPercentile(99000, snapshot.getP99());
+		this.assertPercentile(99900, snapshot.getP999());
+	}
+
+	@Test
+	public void testPercentilesOfSkewedValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(20161018L);
+		for (int i = 0; i < 10000; i++) {
+			long value = i < 9900 ? 1000 + random.nextInt(1000) : 1000000 + random.nextInt(1000000);
+			histogram.record(value);
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot(false);
+		Assert.assertTrue(snapshot.getP90() < 2000 * (1 + MAX_RELATIVE_ERROR));
+		Assert.assertTrue(snapshot.getP99() < 2000 * (1 + MAX_RELATIVE_ERROR));
+		Assert.assertTrue(snapshot.getP999() >= 1000000);
+	}
+
+	@Test
+	public void testOutOfRangeValuesAreClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-1);
+		histogram.record(Long.MAX_VALUE);
+
+		LatencySnapshot snapshot = histogram.snapshot(false);
+		Assert.assertEquals(2, snapshot.getCount());
+		Assert.assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+		Assert.assertEquals(0, snapshot.getP50());
+		Assert.assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getP999());
+	}
+
+	@Test
+	public void testSnapshotReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		histogram.record(200);
+
+		Assert.assertEquals(2, histogram.snapshot(false).getCount());
+		Assert.assertEquals(2, histogram.getCount());
+
+		LatencySnapshot snapshot = histogram.snapshot(true);
+		Assert.assertEquals(2, snapshot.getCount());
+		Assert.assertEquals(150, snapshot.getMean());
+		Assert.assertEquals(0, histogram.getCount());
+
+		histogram.record(10);
+		snapshot = histogram.snapshot(true);
+		Assert.assertEquals(1, snapshot.getCount());
+		Assert.assertEquals(10, snapshot.getMean());
+		Assert.assertEquals(10, snapshot.getMax());
+	}
+
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final int threads = 4;
+		final int recordsPerThread = 50000;
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threadList = new ArrayList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			final long value = (i + 1) * 1000L;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					for (int j = 0; j < recordsPerThread; j++) {
+						histogram.record(value);
+					}
+				}
+			});
+			thread.start();
+			threadList.add(thread);
+		}
+
+		start.countDown();
+		for (int i = 0; i < threadList.size(); i++) {
+			threadList.get(i).join();
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot(false);
+		Assert.assertEquals(threads * recordsPerThread, snapshot.getCount());
+		Assert.assertEquals(2500, snapshot.getMean());
+		Assert.assertEquals(4000, snapshot.getMax());
+	}
+
+	private void assertPercentile(long expected, long actual) {
+		Assert.assertTrue(String.format("expected= %s, actual= %s", expected, actual),
+				actual >= expected && actual - expected <= expected * MAX_RELATIVE_ERROR);
+	}
+
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytetcc.work.CompensableRecoveryExecutor.RecoveryTask;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompensableRecoveryExecutorTest {
+	static final String INSTANCE_A = "192.168.1.1:order-service:8080";
+	static final String INSTANCE_B = "192.168.1.2:order-service:8080";
+
+	private CompensableRecoveryExecutor executor;
+	private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+	private final List<String> rejected = Collections.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void setUp() {
+		this.executor = new CompensableRecoveryExecutor();
+		this.executor.setParallel(false);
+		this.executor.setFailureThreshold(3);
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.destroy();
+	}
+
+	@Test
+	public void testCircuitOpensAfterConsecutiveFailures() {
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, false, false, false));
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(this.asList("a0", "a1", "a2"), this.executed);
+		Assert.assertEquals(this.asList("a3", "a4"), this.rejected);
+		Assert.assertTrue(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testSuccessResetsFailures() {
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, true, false, false));
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(5, this.executed.size());
+		Assert.assertTrue(this.rejected.isEmpty());
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testLocalFailureIsNotCounted() {
+		List<RecoveryTask> tasks = new ArrayList<RecoveryTask>();
+		for (int i = 0; i < 4; i++) {
+			tasks.add(new RecordingTask("a" + i, RecoveryTask.RESULT_LOCAL_FAILURE, false));
+		}
+		for (int i = 4; i < 8; i++) {
+			tasks.add(new RecordingTask("a" + i, RecoveryTask.RESULT_REMOTE_FAILURE, true));
+		}
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, tasks);
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(8, this.executed.size());
+		Assert.assertTrue(this.rejected.isEmpty());
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testLocalFailureDoesNotResetFailures() {
+		List<RecoveryTask> tasks = new ArrayList<RecoveryTask>();
+		tasks.add(new RecordingTask("a0", RecoveryTask.RESULT_REMOTE_FAILURE, false));
+		tasks.add(new RecordingTask("a1", RecoveryTask.RESULT_REMOTE_FAILURE, false));
+		tasks.add(new RecordingTask("a2", RecoveryTask.RESULT_LOCAL_FAILURE, false));
+		tasks.add(new RecordingTask("a3", RecoveryTask.RESULT_REMOTE_FAILURE, false));
+		tasks.add(new RecordingTask("a4", RecoveryTask.RESULT_SUCCESS, false));
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, tasks);
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(this.asList("a0", "a1", "a2", "a3"), this.executed);
+		Assert.assertEquals(this.asList("a4"), this.rejected);
+		Assert.assertTrue(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testOpenCircuitDoesNotAffectOtherInstances() {
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, false, false));
+		partitions.put(INSTANCE_B, this.createTasks("b", true, true, true, true));
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(this.asList("a3"), this.rejected);
+		Assert.assertTrue(this.executed.containsAll(this.asList("b0", "b1", "b2", "b3")));
+		Assert.assertTrue(this.executor.isCircuitOpen(INSTANCE_A));
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_B));
+	}
+
+	@Test
+	public void testCircuitStaysOpenAcrossRounds() {
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, false));
+		this.executor.executeAll(partitions);
+
+		partitions.put(INSTANCE_A, this.createTasks("c", true, true));
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(this.asList("a0", "a1", "a2"), this.executed);
+		Assert.assertEquals(this.asList("c0", "c1"), this.rejected);
+	}
+
+	@Test
+	public void testProbeAfterOpenPeriod() throws InterruptedException {
+		this.executor.setCircuitOpenMillis(200);
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, false));
+		this.executor.executeAll(partitions);
+		Assert.assertTrue(this.executor.isCircuitOpen(INSTANCE_A));
+
+		Thread.sleep(300);
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_A));
+
+		// the failed probe opens the circuit again, the following task is rejected
+		partitions.put(INSTANCE_A, this.createTasks("p", false, true));
+		this.executor.executeAll(partitions);
+		Assert.assertTrue(this.executed.contains("p0"));
+		Assert.assertEquals(this.asList("p1"), this.rejected);
+		Assert.assertTrue(this.executor.isCircuitOpen(INSTANCE_A));
+
+		Thread.sleep(300);
+
+		// the succeeded probe closes the circuit
+		partitions.put(INSTANCE_A, this.createTasks("q", true, false, false));
+		this.executor.executeAll(partitions);
+		Assert.assertTrue(this.executed.containsAll(this.asList("q0", "q1", "q2")));
+		Assert.assertEquals(this.asList("p1"), this.rejected);
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testLocalFailureOfProbeLetsNextProbeThrough() throws InterruptedException {
+		this.executor.setCircuitOpenMillis(200);
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", false, false, false));
+		this.executor.executeAll(partitions);
+
+		Thread.sleep(300);
+		List<RecoveryTask> tasks = new ArrayList<RecoveryTask>();
+		tasks.add(new RecordingTask("p0", RecoveryTask.RESULT_LOCAL_FAILURE, false));
+		tasks.add(new RecordingTask("p1", RecoveryTask.RESULT_SUCCESS, false));
+		tasks.add(new RecordingTask("p2", RecoveryTask.RESULT_SUCCESS, false));
+		partitions.put(INSTANCE_A, tasks);
+		this.executor.executeAll(partitions);
+		Assert.assertTrue(this.executed.containsAll(this.asList("p0", "p1", "p2")));
+		Assert.assertTrue(this.rejected.isEmpty());
+		Assert.assertFalse(this.executor.isCircuitOpen(INSTANCE_A));
+	}
+
+	@Test
+	public void testSlowPartitionIsCarriedOver() throws InterruptedException {
+		this.executor.setParallel(true);
+		this.executor.setPoolSize(4);
+		this.executor.setExecuteTimeoutMillis(200);
+
+		final CountDownLatch proceed = new CountDownLatch(1);
+		List<RecoveryTask> slowList = new ArrayList<RecoveryTask>();
+		slowList.add(new RecordingTask("a0", RecoveryTask.RESULT_SUCCESS, false) {
+			public int execute() {
+				try {
+					proceed.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return super.execute();
+			}
+		});
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, slowList);
+		partitions.put(INSTANCE_B, this.createTasks("b", true, true));
+
+		long startMillis = System.currentTimeMillis();
+		List<RecoveryTask> carriedList = this.executor.executeAll(partitions);
+		Assert.assertTrue(System.currentTimeMillis() - startMillis < 5000);
+		Assert.assertTrue(carriedList.isEmpty());
+		Assert.assertEquals(this.asList("b0", "b1"), this.sorted(this.executed));
+
+		// the instance a is still busy, its new tasks are carried over instead of being executed
+		partitions.clear();
+		partitions.put(INSTANCE_A, this.createTasks("c", true, true));
+		partitions.put(INSTANCE_B, this.createTasks("d", true, true));
+		carriedList = this.executor.executeAll(partitions);
+		Assert.assertEquals(2, carriedList.size());
+		Assert.assertEquals(this.asList("b0", "b1", "d0", "d1"), this.sorted(this.executed));
+
+		// the carried tasks are executed once the previous partition of the instance is finished
+		proceed.countDown();
+		partitions.clear();
+		partitions.put(INSTANCE_A, carriedList);
+		for (int i = 0; i < 500 && this.executor.executeAll(partitions).isEmpty() == false; i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(this.asList("a0", "b0", "b1", "c0", "c1", "d0", "d1"), this.sorted(this.executed));
+	}
+
+	@Test
+	public void testPartitionsTakeTurns() {
+		this.executor.setFairnessQuantum(1);
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		partitions.put(INSTANCE_A, this.createTasks("a", true, true, true));
+		partitions.put(INSTANCE_B, this.createTasks("b", true));
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(this.asList("a0", "b0", "a1", "a2"), this.executed);
+	}
+
+	@Test
+	public void testParallelExecutesEveryTaskOnce() {
+		this.executor.setParallel(true);
+		this.executor.setPoolSize(4);
+		this.executor.setFairnessQuantum(2);
+		Map<String, List<RecoveryTask>> partitions = new LinkedHashMap<String, List<RecoveryTask>>();
+		for (int i = 0; i < 8; i++) {
+			Boolean[] results = new Boolean[25];
+			for (int j = 0; j < results.length; j++) {
+				results[j] = true;
+			}
+			partitions.put(String.valueOf(i), this.createTasks("p" + i + "-", results));
+		}
+
+		this.executor.executeAll(partitions);
+		Assert.assertEquals(8 * 25, this.executed.size());
+		Assert.assertEquals(8 * 25, new HashSet<String>(this.executed).size());
+		Assert.assertTrue(this.rejected.isEmpty());
+	}
+
+	/**
+	 * true for a success, false for a failure caused by the remote instance.
+	 */
+	private List<RecoveryTask> createTasks(String prefix, Boolean... results) {
+		List<RecoveryTask> tasks = new ArrayList<RecoveryTask>();
+		for (int i = 0; i < results.length; i++) {
+			int result = results[i] ? RecoveryTask.RESULT_SUCCESS : RecoveryTask.RESULT_REMOTE_FAILURE;
+			tasks.add(new RecordingTask(prefix + i, result, false));
+		}
+		return tasks;
+	}
+
+	private List<String> sorted(List<String> names) {
+		List<String> list = new ArrayList<String>(names);
+		Collections.sort(list);
+		return list;
+	}
+
+	private List<String> asList(String... names) {
+		List<String> list = new ArrayList<String>();
+		Collections.addAll(list, names);
+		return list;
+	}
+
+	class RecordingTask implements RecoveryTask {
+		private final String name;
+		private final int result;
+		private final boolean failure;
+
+		public RecordingTask(String name, int result, boolean failure) {
+			this.name = name;
+			this.result = result;
+			this.failure = failure;
+		}
+
+		public int execute() {
+			executed.add(this.name);
+			if (this.failure) {
+				throw new IllegalStateException("Recovery failed: " + this.name);
+			}
+			return this.result;
+		}
+
+		public void reject() {
+			rejected.add(this.name);
+		}
+	}
+
+}
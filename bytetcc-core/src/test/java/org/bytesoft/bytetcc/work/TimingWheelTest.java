@@ -0,0 +1,93 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.work;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimingWheelTest {
+	static final long TICK_MILLIS = 1000L;
+
+	@Test
+	public void testEntryIsReturnedAtItsTick() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 0);
+		wheel.schedule("a", 3500);
+
+		Assert.assertTrue(wheel.advance(2999).isEmpty());
+		Assert.assertEquals(Arrays.asList("a"), wheel.advance(3000));
+		Assert.assertFalse(wheel.contains("a"));
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testPastDeadlineIsReturnedByNextAdvance() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 5000);
+		wheel.schedule("a", 1000);
+
+		Assert.assertEquals(Arrays.asList("a"), wheel.advance(5000));
+	}
+
+	@Test
+	public void testOverflowEntriesAreCascaded() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 0);
+		wheel.schedule("a", 25000);
+		wheel.schedule("b", 150000);
+
+		Assert.assertTrue(wheel.advance(24999).isEmpty());
+		Assert.assertEquals(Arrays.asList("a"), wheel.advance(25000));
+		Assert.assertTrue(wheel.advance(149999).isEmpty());
+		Assert.assertEquals(Arrays.asList("b"), wheel.advance(150000));
+	}
+
+	@Test
+	public void testRescheduleReplacesDeadline() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 0);
+		wheel.schedule("a", 2000);
+		wheel.schedule("a", 5000);
+		Assert.assertEquals(1, wheel.size());
+
+		Assert.assertTrue(wheel.advance(4999).isEmpty());
+		Assert.assertEquals(Arrays.asList("a"), wheel.advance(5000));
+	}
+
+	@Test
+	public void testCancel() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 0);
+		wheel.schedule("a", 2000);
+
+		Assert.assertTrue(wheel.cancel("a"));
+		Assert.assertFalse(wheel.cancel("a"));
+		Assert.assertFalse(wheel.contains("a"));
+		Assert.assertTrue(wheel.advance(10000).isEmpty());
+	}
+
+	@Test
+	public void testEntriesOfSameTick() {
+		TimingWheel<String> wheel = new TimingWheel<String>(TICK_MILLIS, 10, 0);
+		wheel.schedule("a", 3100);
+		wheel.schedule("b", 3900);
+		wheel.schedule("c", 4000);
+
+		List<String> keyList = wheel.advance(3000);
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("a", "b")), new HashSet<String>(keyList));
+		Assert.assertTrue(wheel.contains("c"));
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.xa;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares reading the hex keys of a CompensableXid, which are encoded once and cached, with encoding them from a
+ * plain TransactionXid on every call. The keyed methods emulate a transaction step, which reads the global key for the
+ * lock, the log and the mongodb filter. Run the main method from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompensableXidBenchmark {
+	static final int KEY_READS_PER_STEP = 3;
+
+	private TransactionXid cachedXid;
+	private TransactionXid plainXid;
+	private byte[] globalTransactionId;
+	private byte[] branchQualifier;
+
+	@Setup
+	public void setUp() {
+		XidFactory xidFactory = new XidFactoryImpl();
+		TransactionXid globalXid = xidFactory.createGlobalXid();
+		TransactionXid branchXid = xidFactory.createBranchXid(globalXid);
+		this.globalTransactionId = branchXid.getGlobalTransactionId();
+		this.branchQualifier = branchXid.getBranchQualifier();
+
+		this.cachedXid = branchXid;
+		this.plainXid = new TransactionXid(branchXid.getFormatId(), this.globalTransactionId, this.branchQualifier);
+	}
+
+	@Benchmark
+	public String cachedGlobalKey() {
+		return CompensableXid.toGlobalTransactionKey(this.cachedXid);
+	}
+
+	@Benchmark
+	public String plainGlobalKey() {
+		return CompensableXid.toGlobalTransactionKey(this.plainXid);
+	}
+
+	@Benchmark
+	public String cachedBranchKey() {
+		return CompensableXid.toBranchQualifierKey(this.cachedXid);
+	}
+
+	@Benchmark
+	public String plainBranchKey() {
+		return CompensableXid.toBranchQualifierKey(this.plainXid);
+	}
+
+	@Benchmark
+	public int cachedKeysPerStep() {
+		TransactionXid xid = new CompensableXid(XidFactory.TCC_FORMAT_ID, this.globalTransactionId,
+				this.branchQualifier);
+		int length = 0;
+		for (int i = 0; i < KEY_READS_PER_STEP; i++) {
+			length += CompensableXid.toGlobalTransactionKey(xid).length();
+		}
+		return length + CompensableXid.toBranchQualifierKey(xid).length();
+	}
+
+	@Benchmark
+	public int plainKeysPerStep() {
+		TransactionXid xid = new TransactionXid(XidFactory.TCC_FORMAT_ID, this.globalTransactionId,
+				this.branchQualifier);
+		int length = 0;
+		for (int i = 0; i < KEY_READS_PER_STEP; i++) {
+			length += CompensableXid.toGlobalTransactionKey(xid).length();
+		}
+		return length + CompensableXid.toBranchQualifierKey(xid).length();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CompensableXidBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.xa;
+
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompensableXidTest {
+
+	private final XidFactoryImpl xidFactory = new XidFactoryImpl();
+
+	@Test
+	public void testCloneKeepsKeys() {
+		TransactionXid globalXid = this.xidFactory.createGlobalXid();
+		CompensableXid branchXid = (CompensableXid) this.xidFactory.createBranchXid(globalXid);
+		String globalTransactionKey = branchXid.getGlobalTransactionKey();
+		String branchQualifierKey = branchXid.getBranchQualifierKey();
+
+		CompensableXid that = branchXid.clone();
+		Assert.assertEquals(branchXid, that);
+		Assert.assertSame(globalTransactionKey, that.getGlobalTransactionKey());
+		Assert.assertSame(branchQualifierKey, that.getBranchQualifierKey());
+	}
+
+	@Test
+	public void testGlobalXidKeepsGlobalTransactionKey() {
+		TransactionXid globalXid = this.xidFactory.createGlobalXid();
+		CompensableXid branchXid = (CompensableXid) this.xidFactory.createBranchXid(globalXid);
+		String globalTransactionKey = branchXid.getGlobalTransactionKey();
+
+		TransactionXid xid = branchXid.getGlobalXid();
+		Assert.assertTrue(CompensableXid.class.isInstance(xid));
+
+		CompensableXid that = (CompensableXid) xid;
+		Assert.assertEquals(globalXid, that);
+		Assert.assertSame(globalTransactionKey, that.getGlobalTransactionKey());
+		Assert.assertEquals(CompensableXid.toBranchQualifierKey(globalXid), that.getBranchQualifierKey());
+	}
+
+	@Test
+	public void testBranchXidKeepsGlobalTransactionKey() {
+		CompensableXid globalXid = (CompensableXid) this.xidFactory.createGlobalXid();
+		String globalTransactionKey = globalXid.getGlobalTransactionKey();
+
+		CompensableXid branchXid = (CompensableXid) this.xidFactory.createBranchXid(globalXid);
+		Assert.assertSame(globalTransactionKey, branchXid.getGlobalTransactionKey());
+		Assert.assertFalse(branchXid.getBranchQualifierKey().equals(globalXid.getBranchQualifierKey()));
+	}
+
+}
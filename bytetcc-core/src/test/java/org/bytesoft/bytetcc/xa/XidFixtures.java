@@ -0,0 +1,34 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.xa;
+
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+
+/**
+ * Xids of the tests, derived from a seed so that the tests are repeatable and different seeds never collide.
+ */
+public class XidFixtures {
+
+	public static TransactionXid createGlobalXid(int seed) {
+		byte[] globalTransactionId = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+		for (int i = 0; i < globalTransactionId.length; i++) {
+			globalTransactionId[i] = (byte) (seed * 31 + i);
+		}
+		return new CompensableXid(XidFactory.TCC_FORMAT_ID, globalTransactionId);
+	}
+
+}
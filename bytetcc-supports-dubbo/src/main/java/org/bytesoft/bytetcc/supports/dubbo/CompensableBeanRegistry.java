@@ -15,6 +15,7 @@
  */
 package org.bytesoft.bytetcc.supports.dubbo;
 
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.slf4j.Logger;
@@ -53,6 +54,15 @@ public final class CompensableBeanRegistry implements CompensableBeanFactoryAwar
 		}
 	}
 
+	/**
+	 * @return true if the transaction context should be propagated in the compact binary form, which should be enabled
+	 *         only after all of the services have been upgraded.
+	 */
+	public boolean isCompactContextEnabled() {
+		return this.environment != null && this.environment
+				.getProperty(TransactionContextCodec.PROPERTY_COMPACT_ENABLED, Boolean.class, false).booleanValue();
+	}
+
 	public Environment getEnvironment() {
 		return environment;
 	}
@@ -19,7 +19,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -32,6 +35,7 @@ import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry.Invocati
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
 import org.bytesoft.bytetcc.supports.dubbo.CompensableBeanRegistry;
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
@@ -54,6 +58,7 @@ import org.springframework.transaction.annotation.Propagation;
 
 import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.io.Bytes;
 import com.alibaba.dubbo.config.ApplicationConfig;
 import com.alibaba.dubbo.config.ProtocolConfig;
 import com.alibaba.dubbo.config.ReferenceConfig;
@@ -75,9 +80,20 @@ public class CompensablePrimaryFilter implements Filter {
 	static final String KEY_XA_GET_REMOTEADDR = "getRemoteAddr";
 	static final String KEY_XA_GET_REMOTENODE = "getRemoteNode";
 	static final String KEY_REMOTE_CIRCULARLY = "circularly";
+	/* the attachment marks the format of the transaction context, the older versions don't send it(hessian & hex). */
+	static final String KEY_TRANSACTION_CONTEXT_FORMAT = "org.bytesoft.bytetcc.context.format";
+	static final String TRANSACTION_CONTEXT_FORMAT_COMPACT = "compact";
 
 	static final Logger logger = LoggerFactory.getLogger(CompensablePrimaryFilter.class);
 
+	/*
+	 * participant proxies keyed by the invoker of the remote instance. The invokers are rebuilt/destroyed by the
+	 * RegistryDirectory when the registry notifies that the providers have changed: a destroyed invoker is evicted as
+	 * soon as it is looked up again, and the weak keys let the discarded ones be collected without any lookup.
+	 */
+	private final Map<Invoker<?>, RemoteCoordinator> participants = //
+			Collections.synchronizedMap(new WeakHashMap<Invoker<?>, RemoteCoordinator>());
+
 	public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
 		if (RpcContext.getContext().isProviderSide()) {
 			return this.providerInvoke(invoker, invocation);
@@ -319,13 +335,12 @@ public class CompensablePrimaryFilter implements Filter {
 
 		RemotingException rpcError = null;
 		String transactionContextContent = invocation.getAttachment(TransactionContext.class.getName());
+		String transactionContextFormat = invocation.getAttachment(KEY_TRANSACTION_CONTEXT_FORMAT);
 		String propagatedBy = invocation.getAttachment(RemoteCoordinator.class.getName());
 		if (StringUtils.isNotBlank(transactionContextContent)) {
-			byte[] requestByteArray = ByteUtils.stringToByteArray(transactionContextContent);
-			ByteArrayInputStream bais = new ByteArrayInputStream(requestByteArray);
-			HessianInput input = new HessianInput(bais);
 			try {
-				TransactionContext remoteTransactionContext = (TransactionContext) input.readObject();
+				TransactionContext remoteTransactionContext = decodeTransactionContext(transactionContextContent,
+						transactionContextFormat, beanFactory);
 				remoteTransactionContext.setPropagatedBy(propagatedBy);
 				request.setTransactionContext(remoteTransactionContext);
 			} catch (IOException ex) {
@@ -572,6 +587,35 @@ public class CompensablePrimaryFilter implements Filter {
 	}
 
 	private RemoteCoordinator getParticipantByRemoteAddr(Invoker<?> invoker, InvocationDef invocationDef) {
+		if (invoker.isAvailable() == false) {
+			this.participants.remove(invoker);
+			return this.createParticipantByRemoteAddr(invoker);
+		} // end-if (invoker.isAvailable() == false)
+
+		RemoteCoordinator participant = this.participants.get(invoker);
+		if (participant != null) {
+			return participant;
+		}
+
+		participant = this.createParticipantByRemoteAddr(invoker);
+		this.purgeUnavailableParticipants();
+		this.participants.put(invoker, participant);
+
+		return participant;
+	}
+
+	private void purgeUnavailableParticipants() {
+		synchronized (this.participants) {
+			for (Iterator<Invoker<?>> itr = this.participants.keySet().iterator(); itr.hasNext();) {
+				Invoker<?> invoker = itr.next();
+				if (invoker != null && invoker.isAvailable() == false) {
+					itr.remove();
+				}
+			}
+		}
+	}
+
+	private RemoteCoordinator createParticipantByRemoteAddr(Invoker<?> invoker) {
 		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 
 		URL targetUrl = invoker.getUrl();
@@ -670,18 +714,46 @@ public class CompensablePrimaryFilter implements Filter {
 
 		transactionInterceptor.beforeSendRequest(request);
 		if (request.getTransactionContext() != null) {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			HessianOutput output = new HessianOutput(baos);
 			try {
-				output.writeObject(request.getTransactionContext());
+				boolean compact = beanRegistry.isCompactContextEnabled();
+				String transactionContextContent = encodeTransactionContext(request.getTransactionContext(), compact);
+				attachments.put(TransactionContext.class.getName(), transactionContextContent);
+				if (compact) {
+					attachments.put(KEY_TRANSACTION_CONTEXT_FORMAT, TRANSACTION_CONTEXT_FORMAT_COMPACT);
+				} // end-if (compact)
 			} catch (IOException ex) {
 				logger.error("Error occurred in remote call!", ex);
 				throw new RemotingException(ex.getMessage());
 			}
+		}
+	}
 
-			String transactionContextContent = ByteUtils.byteArrayToString(baos.toByteArray());
-			attachments.put(TransactionContext.class.getName(), transactionContextContent);
+	static String encodeTransactionContext(TransactionContext transactionContext, boolean compact) throws IOException {
+		if (compact) {
+			return Bytes.bytes2base64(TransactionContextCodec.encode(transactionContext));
 		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		HessianOutput output = new HessianOutput(baos);
+		output.writeObject(transactionContext);
+		return ByteUtils.byteArrayToString(baos.toByteArray());
+	}
+
+	/**
+	 * The compact form (base64 encoded) is always sent along with the format attachment, a context without it is the
+	 * hessian form (hex encoded) sent by the older versions.
+	 */
+	static TransactionContext decodeTransactionContext(String transactionContextContent,
+			String transactionContextFormat, CompensableBeanFactory beanFactory) throws IOException {
+		if (StringUtils.equals(TRANSACTION_CONTEXT_FORMAT_COMPACT, transactionContextFormat)) {
+			byte[] byteArray = Bytes.base642bytes(transactionContextContent);
+			return TransactionContextCodec.decode(byteArray, beanFactory);
+		}
+
+		byte[] requestByteArray = ByteUtils.stringToByteArray(transactionContextContent);
+		ByteArrayInputStream bais = new ByteArrayInputStream(requestByteArray);
+		HessianInput input = new HessianInput(bais);
+		return (TransactionContext) input.readObject();
 	}
 
 	private void afterConsumerInvokeForSVC(Invocation invocation, TransactionRequestImpl request,
@@ -690,20 +762,8 @@ public class CompensablePrimaryFilter implements Filter {
 		CompensableBeanFactory beanFactory = beanRegistry.getBeanFactory();
 		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
 
-		RemotingException rpcError = null;
-		try {
-			if (request.getTransactionContext() != null) {
-				String transactionContextContent = invocation.getAttachment(TransactionContext.class.getName());
-				byte[] byteArray = ByteUtils.stringToByteArray(transactionContextContent);
-				ByteArrayInputStream bais = new ByteArrayInputStream(byteArray);
-				HessianInput input = new HessianInput(bais);
-				TransactionContext remoteTransactionContext = (TransactionContext) input.readObject();
-				response.setTransactionContext(remoteTransactionContext);
-			}
-		} catch (IOException ex) {
-			logger.error("Error occurred in remote call!", ex);
-			rpcError = new RemotingException(ex.getMessage());
-		}
+		// the attachment is the one sent by beforeConsumerInvokeForSVC, it's unnecessary to decode it again.
+		response.setTransactionContext(request.getTransactionContext());
 
 		try {
 			transactionInterceptor.afterReceiveResponse(response);
@@ -712,10 +772,6 @@ public class CompensablePrimaryFilter implements Filter {
 			throw new RemotingException(rex.getMessage());
 		}
 
-		if (rpcError != null) {
-			throw rpcError;
-		}
-
 	}
 
 	private void registerRemoteParticipantIfNecessary(String instanceId) {
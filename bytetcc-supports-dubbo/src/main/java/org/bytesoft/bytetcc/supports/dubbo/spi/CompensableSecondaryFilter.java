@@ -19,7 +19,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -78,6 +81,14 @@ public class CompensableSecondaryFilter implements Filter {
 
 	static final Logger logger = LoggerFactory.getLogger(CompensableSecondaryFilter.class);
 
+	/*
+	 * participant proxies keyed by the invoker of the remote instance, evicted the same way as the ones of the
+	 * CompensablePrimaryFilter: on the lookup of a destroyed invoker, or by the collector once the invoker is
+	 * discarded.
+	 */
+	private final Map<Invoker<?>, RemoteCoordinator> participants = //
+			Collections.synchronizedMap(new WeakHashMap<Invoker<?>, RemoteCoordinator>());
+
 	public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException, RemotingException {
 		if (RpcContext.getContext().isProviderSide()) {
 			return this.providerInvoke(invoker, invocation);
@@ -568,6 +579,35 @@ public class CompensableSecondaryFilter implements Filter {
 	}
 
 	private RemoteCoordinator getParticipantByRemoteAddr(Invoker<?> invoker, InvocationDef invocationDef) {
+		if (invoker.isAvailable() == false) {
+			this.participants.remove(invoker);
+			return this.createParticipantByRemoteAddr(invoker);
+		} // end-if (invoker.isAvailable() == false)
+
+		RemoteCoordinator participant = this.participants.get(invoker);
+		if (participant != null) {
+			return participant;
+		}
+
+		participant = this.createParticipantByRemoteAddr(invoker);
+		this.purgeUnavailableParticipants();
+		this.participants.put(invoker, participant);
+
+		return participant;
+	}
+
+	private void purgeUnavailableParticipants() {
+		synchronized (this.participants) {
+			for (Iterator<Invoker<?>> itr = this.participants.keySet().iterator(); itr.hasNext();) {
+				Invoker<?> invoker = itr.next();
+				if (invoker != null && invoker.isAvailable() == false) {
+					itr.remove();
+				}
+			}
+		}
+	}
+
+	private RemoteCoordinator createParticipantByRemoteAddr(Invoker<?> invoker) {
 		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 
 		URL targetUrl = invoker.getUrl();
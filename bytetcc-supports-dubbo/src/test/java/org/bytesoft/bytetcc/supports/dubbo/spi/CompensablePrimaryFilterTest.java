@@ -0,0 +1,108 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.dubbo.spi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.bytesoft.bytetcc.TransactionBeanFactoryImpl;
+import org.bytesoft.bytetcc.xa.XidFactoryImpl;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.dubbo.common.io.Bytes;
+import com.caucho.hessian.io.HessianOutput;
+
+public class CompensablePrimaryFilterTest {
+
+	private final XidFactory compensableXidFactory = new XidFactoryImpl();
+	private final XidFactory transactionXidFactory = new org.bytesoft.bytejta.xa.XidFactoryImpl();
+	private final TransactionBeanFactoryImpl beanFactory = TransactionBeanFactoryImpl.getInstance();
+
+	@Before
+	public void setUp() {
+		this.beanFactory.setCompensableXidFactory(this.compensableXidFactory);
+		this.beanFactory.setTransactionXidFactory(this.transactionXidFactory);
+	}
+
+	@Test
+	public void testHexContextSentByOlderVersion() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+
+		// the older versions send the hessian form hex encoded, without the format attachment.
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		HessianOutput output = new HessianOutput(baos);
+		output.writeObject(transactionContext);
+		String transactionContextContent = ByteUtils.byteArrayToString(baos.toByteArray());
+
+		TransactionContext actual = CompensablePrimaryFilter.decodeTransactionContext(transactionContextContent, null,
+				this.beanFactory);
+		this.assertTransactionContext(transactionContext, actual);
+	}
+
+	@Test
+	public void testHexContextIsNotTakenAsBase64() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+
+		String transactionContextContent = CompensablePrimaryFilter.encodeTransactionContext(transactionContext, false);
+
+		// the hex text is well-formed base64 as well, only the format attachment tells them apart.
+		Assert.assertTrue(transactionContextContent.matches("[0-9a-fA-F]+"));
+		Assert.assertTrue(Bytes.base642bytes(transactionContextContent).length > 0);
+
+		TransactionContext actual = CompensablePrimaryFilter.decodeTransactionContext(transactionContextContent, null,
+				this.beanFactory);
+		this.assertTransactionContext(transactionContext, actual);
+	}
+
+	@Test
+	public void testCompactContextRoundTrip() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionXid branchXid = this.compensableXidFactory.createBranchXid(globalXid);
+		TransactionContext transactionContext = this.createTransactionContext(branchXid);
+		transactionContext.setCompensable(true);
+
+		String transactionContextContent = CompensablePrimaryFilter.encodeTransactionContext(transactionContext, true);
+		TransactionContext actual = CompensablePrimaryFilter.decodeTransactionContext(transactionContextContent,
+				CompensablePrimaryFilter.TRANSACTION_CONTEXT_FORMAT_COMPACT, this.beanFactory);
+		this.assertTransactionContext(transactionContext, actual);
+	}
+
+	private TransactionContext createTransactionContext(TransactionXid xid) {
+		TransactionContext transactionContext = new TransactionContext();
+		transactionContext.setXid(xid);
+		transactionContext.setCreatedTime(System.currentTimeMillis());
+		transactionContext.setExpiredTime(transactionContext.getCreatedTime() + 1000L * 60 * 5);
+		return transactionContext;
+	}
+
+	private void assertTransactionContext(TransactionContext expected, TransactionContext actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertEquals(expected.getXid().getFormatId(), actual.getXid().getFormatId());
+		Assert.assertArrayEquals(expected.getXid().getGlobalTransactionId(), actual.getXid().getGlobalTransactionId());
+		Assert.assertEquals(expected.getCreatedTime(), actual.getCreatedTime());
+		Assert.assertEquals(expected.getExpiredTime(), actual.getExpiredTime());
+		Assert.assertEquals(expected.isCompensable(), actual.isCompensable());
+	}
+
+}
@@ -19,6 +19,7 @@ import java.lang.reflect.Proxy;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
@@ -90,6 +91,15 @@ public final class SpringBootBeanRegistry implements CompensableBeanFactoryAware
 		return beanFactory;
 	}
 
+	/**
+	 * @return true if the transaction context should be propagated in the compact binary form, which should be enabled
+	 *         only after all of the services have been upgraded.
+	 */
+	public boolean isCompactContextEnabled() {
+		return this.environment != null && this.environment
+				.getProperty(TransactionContextCodec.PROPERTY_COMPACT_ENABLED, Boolean.class, false).booleanValue();
+	}
+
 	public Environment getEnvironment() {
 		return environment;
 	}
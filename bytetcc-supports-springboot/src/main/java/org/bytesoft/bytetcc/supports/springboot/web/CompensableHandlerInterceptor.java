@@ -24,9 +24,9 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springboot.SpringBootBeanRegistry;
 import org.bytesoft.bytetcc.supports.springboot.controller.CompensableCoordinatorController;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.Compensable;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
@@ -96,7 +96,7 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 
 		TransactionContext transactionContext = null;
 		if (byteArray != null && byteArray.length > 0) {
-			transactionContext = (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+			transactionContext = TransactionContextCodec.decode(byteArray, beanFactory);
 			transactionContext.setPropagated(true);
 			transactionContext.setPropagatedBy(propagationText);
 		}
@@ -111,8 +111,8 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
 		String propagatedBy = (String) compensable.getTransactionContext().getPropagatedBy();
 
-		byte[] responseByteArray = SerializeUtils.serializeObject(compensable.getTransactionContext());
-		String compensableStr = Base64.getEncoder().encodeToString(responseByteArray);
+		String compensableStr = TransactionContextCodec.encodeText(compensable.getTransactionContext(),
+				TransactionContextCodec.isCompact(byteArray));
 		response.setHeader(HEADER_TRANCACTION_KEY, compensableStr);
 		response.setHeader(HEADER_PROPAGATION_KEY, this.identifier);
 		response.setHeader(HEADER_RECURSIVELY_KEY,
@@ -161,8 +161,8 @@ public class CompensableHandlerInterceptor implements HandlerInterceptor, Compen
 		CompensableTransaction compensable = compensableManager.getCompensableTransactionQuietly();
 		TransactionContext transactionContext = compensable.getTransactionContext();
 
-		byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
-		String compensableStr = Base64.getEncoder().encodeToString(byteArray);
+		String compensableStr = TransactionContextCodec.encodeText(transactionContext,
+				TransactionContextCodec.isCompactText(StringUtils.trimToNull(transactionStr)));
 		response.setHeader(HEADER_TRANCACTION_KEY, compensableStr);
 		response.setHeader(HEADER_PROPAGATION_KEY, this.identifier);
 
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary body of the batch coordinator endpoint(/org/bytesoft/bytetcc/batch).<br />
+ * request : version(1) count(4) [operation(1) one-phase(1) length(1) global-transaction-id]... <br />
+ * response: version(1) count(4) [result(1) error-code(4)]..., in the same order as the request.
+ */
+public class SpringCloudBatchCodec {
+	public static final byte VERSION = 0x1;
+
+	public static final byte OPERATION_COMMIT = 0x1;
+	public static final byte OPERATION_ROLLBACK = 0x2;
+	public static final byte OPERATION_FORGET = 0x3;
+
+	public static final byte RESULT_SUCCESS = 0x0;
+	public static final byte RESULT_XAER = 0x1; // failed with the xa error code
+	public static final byte RESULT_FAILURE = 0x2; // failed without xa error code
+
+	public static byte[] encodeRequest(List<BatchEntry> entries) {
+		int length = 1 + 4;
+		for (int i = 0; i < entries.size(); i++) {
+			length += 3 + entries.get(i).getGlobalTransactionId().length;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.put(VERSION);
+		buffer.putInt(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			BatchEntry entry = entries.get(i);
+			byte[] globalTransactionId = entry.getGlobalTransactionId();
+			buffer.put(entry.getOperation());
+			buffer.put(entry.isOnePhase() ? (byte) 1 : (byte) 0);
+			buffer.put((byte) globalTransactionId.length);
+			buffer.put(globalTransactionId);
+		}
+		return buffer.array();
+	}
+
+	public static List<BatchEntry> decodeRequest(byte[] byteArray) {
+		ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+		checkVersion(buffer.get());
+
+		int count = buffer.getInt();
+		List<BatchEntry> entries = new ArrayList<BatchEntry>(count);
+		for (int i = 0; i < count; i++) {
+			BatchEntry entry = new BatchEntry();
+			entry.setOperation(buffer.get());
+			entry.setOnePhase(buffer.get() != 0);
+			byte[] globalTransactionId = new byte[buffer.get() & 0xFF];
+			buffer.get(globalTransactionId);
+			entry.setGlobalTransactionId(globalTransactionId);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	public static byte[] encodeResponse(List<BatchEntry> entries) {
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + entries.size() * 5);
+		buffer.put(VERSION);
+		buffer.putInt(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			BatchEntry entry = entries.get(i);
+			buffer.put(entry.getResult());
+			buffer.putInt(entry.getErrorCode());
+		}
+		return buffer.array();
+	}
+
+	public static void decodeResponse(byte[] byteArray, List<BatchEntry> entries) {
+		ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+		checkVersion(buffer.get());
+
+		int count = buffer.getInt();
+		if (count != entries.size()) {
+			throw new IllegalStateException(
+					String.format("The number of results(%s) does not match the requests(%s)!", count, entries.size()));
+		}
+		for (int i = 0; i < count; i++) {
+			BatchEntry entry = entries.get(i);
+			entry.setResult(buffer.get());
+			entry.setErrorCode(buffer.getInt());
+		}
+	}
+
+	private static void checkVersion(byte version) {
+		if (version != VERSION) {
+			throw new IllegalStateException(String.format("Unsupported batch version: %s!", version));
+		}
+	}
+
+	public static class BatchEntry {
+		private byte operation;
+		private boolean onePhase;
+		private byte[] globalTransactionId;
+		private byte result;
+		private int errorCode;
+
+		public byte getOperation() {
+			return operation;
+		}
+
+		public void setOperation(byte operation) {
+			this.operation = operation;
+		}
+
+		public boolean isOnePhase() {
+			return onePhase;
+		}
+
+		public void setOnePhase(boolean onePhase) {
+			this.onePhase = onePhase;
+		}
+
+		public byte[] getGlobalTransactionId() {
+			return globalTransactionId;
+		}
+
+		public void setGlobalTransactionId(byte[] globalTransactionId) {
+			this.globalTransactionId = globalTransactionId;
+		}
+
+		public byte getResult() {
+			return result;
+		}
+
+		public void setResult(byte result) {
+			this.result = result;
+		}
+
+		public int getErrorCode() {
+			return errorCode;
+		}
+
+		public void setErrorCode(int errorCode) {
+			this.errorCode = errorCode;
+		}
+	}
+
+}
@@ -16,12 +16,20 @@
 package org.bytesoft.bytetcc.supports.springcloud;
 
 import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.loadbalancer.CompensableLoadBalancerInterceptor;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.CompensableReconciler;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
@@ -35,6 +43,7 @@ import org.springframework.web.client.RestTemplate;
 public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAware, EnvironmentAware {
 	static final Logger logger = LoggerFactory.getLogger(SpringCloudBeanRegistry.class);
 	private static final SpringCloudBeanRegistry instance = new SpringCloudBeanRegistry();
+	static final int CONSTANT_COORDINATOR_CACHE_SIZE = 1024;
 
 	@javax.inject.Inject
 	private CompensableBeanFactory beanFactory;
@@ -42,6 +51,8 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 	private ThreadLocal<CompensableLoadBalancerInterceptor> interceptors = new ThreadLocal<CompensableLoadBalancerInterceptor>();
 	private Environment environment;
 	private transient boolean statefully;
+	/* access ordered, the least recently used coordinator is evicted; guarded by itself. */
+	private final Map<String, RemoteCoordinator> coordinators = new CoordinatorCache();
 
 	private SpringCloudBeanRegistry() {
 		if (instance != null) {
@@ -67,6 +78,14 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 			return null;
 		}
 
+		RemoteCoordinator participant = null;
+		synchronized (this.coordinators) {
+			participant = this.coordinators.get(identifier);
+		}
+		if (participant != null) {
+			return participant;
+		}
+
 		RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 		RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
 
@@ -75,14 +94,42 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 		handler.setIdentifier(identifier);
 		handler.setEnvironment(this.environment);
 
-		RemoteCoordinator participant = (RemoteCoordinator) Proxy.newProxyInstance(
-				SpringCloudCoordinator.class.getClassLoader(), new Class[] { RemoteCoordinator.class }, handler);
+		participant = (RemoteCoordinator) Proxy.newProxyInstance(SpringCloudCoordinator.class.getClassLoader(),
+				new Class[] { RemoteCoordinator.class, CompensableReconciler.class }, handler);
 
 		registry.putRemoteNode(remoteAddr, remoteNode);
 
+		synchronized (this.coordinators) {
+			RemoteCoordinator existed = this.coordinators.get(identifier);
+			if (existed != null) {
+				return existed;
+			}
+			this.coordinators.put(identifier, participant); // the least recently used one is evicted when full
+		}
 		return participant;
 	}
 
+	/**
+	 * Removes the cached coordinators of the instances which have been removed from the server list.
+	 */
+	public void invalidateConsumeCoordinators(Collection<String> identifiers) {
+		Set<String> instances = new HashSet<String>();
+		for (Iterator<String> itr = identifiers.iterator(); itr.hasNext();) {
+			String identifier = itr.next();
+			instances.add(StringUtils.lowerCase(identifier));
+		}
+
+		synchronized (this.coordinators) {
+			for (Iterator<String> itr = this.coordinators.keySet().iterator(); itr.hasNext();) {
+				String identifier = itr.next();
+				if (instances.contains(StringUtils.lowerCase(identifier))) {
+					itr.remove();
+					logger.debug("The cached coordinator of instance {} is removed.", identifier);
+				}
+			}
+		}
+	}
+
 	public RemoteCoordinator getConsumeCoordinatorStateless(String identifier) {
 		RemoteCoordinatorRegistry registry = RemoteCoordinatorRegistry.getInstance();
 		if (StringUtils.isBlank(identifier)) {
@@ -104,7 +151,7 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 		handler.setEnvironment(this.environment);
 
 		participant = (RemoteCoordinator) Proxy.newProxyInstance(SpringCloudCoordinator.class.getClassLoader(),
-				new Class[] { RemoteCoordinator.class }, handler);
+				new Class[] { RemoteCoordinator.class, CompensableReconciler.class }, handler);
 
 		registry.putRemoteNode(remoteAddr, remoteNode);
 		registry.putParticipant(application, participant);
@@ -146,6 +193,22 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 
 	public void setStatefully(boolean statefully) {
 		this.statefully = statefully;
+		this.clearConsumeCoordinators();
+	}
+
+	/**
+	 * @return true if the transaction context should be propagated in the compact binary form, which should be enabled
+	 *         only after all of the services have been upgraded.
+	 */
+	public boolean isCompactContextEnabled() {
+		return this.environment != null && this.environment
+				.getProperty(TransactionContextCodec.PROPERTY_COMPACT_ENABLED, Boolean.class, false).booleanValue();
+	}
+
+	private void clearConsumeCoordinators() {
+		synchronized (this.coordinators) {
+			this.coordinators.clear();
+		}
 	}
 
 	public Environment getEnvironment() {
@@ -154,6 +217,19 @@ public final class SpringCloudBeanRegistry implements CompensableBeanFactoryAwar
 
 	public void setEnvironment(Environment environment) {
 		this.environment = environment;
+		this.clearConsumeCoordinators();
+	}
+
+	private static class CoordinatorCache extends LinkedHashMap<String, RemoteCoordinator> {
+		private static final long serialVersionUID = 1L;
+
+		public CoordinatorCache() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry<String, RemoteCoordinator> eldest) {
+			return this.size() > CONSTANT_COORDINATOR_CACHE_SIZE;
+		}
 	}
 
 }
@@ -19,23 +19,30 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.List;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytetcc.supports.TransactionFilter;
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBatchCodec.BatchEntry;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.CompensableReconciler;
 import org.bytesoft.transaction.TransactionParticipant;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
+import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
@@ -44,10 +51,14 @@ import org.springframework.web.client.RestTemplate;
 public class SpringCloudCoordinator implements InvocationHandler {
 	static final Logger logger = LoggerFactory.getLogger(SpringCloudCoordinator.class);
 	static final String CONSTANT_CONTENT_PATH = "org.bytesoft.bytetcc.contextpath";
+	static final String CONSTANT_BATCH_ENABLED = "org.bytesoft.bytetcc.batch.enabled";
+	static final String CONSTANT_BATCH_WINDOW = "org.bytesoft.bytetcc.batch.window";
+	static final String CONSTANT_BATCH_SIZE = "org.bytesoft.bytetcc.batch.size";
 
 	private String identifier;
 	private Environment environment;
 	private boolean statefully;
+	private transient volatile String coordinatorPrefix;
 
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 		Class<?> clazz = method.getDeclaringClass();
@@ -78,47 +89,83 @@ public class SpringCloudCoordinator implements InvocationHandler {
 			} else if ("prepare".equals(methodName)) {
 				return this.invokePostCoordinator(proxy, method, args);
 			} else if ("commit".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
+				return this.invokeBatchCoordinator(proxy, method, args, SpringCloudBatchCodec.OPERATION_COMMIT);
 			} else if ("rollback".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
+				return this.invokeBatchCoordinator(proxy, method, args, SpringCloudBatchCodec.OPERATION_ROLLBACK);
 			} else if ("recover".equals(methodName)) {
 				return this.invokeGetCoordinator(proxy, method, args);
 			} else if ("forget".equals(methodName)) {
-				return this.invokePostCoordinator(proxy, method, args);
+				return this.invokeBatchCoordinator(proxy, method, args, SpringCloudBatchCodec.OPERATION_FORGET);
 			} else {
 				throw new XAException(XAException.XAER_RMFAIL);
 			}
+		} else if (CompensableReconciler.class.equals(clazz)) {
+			return this.invokeReconcileCoordinator((byte[]) args[0]);
 		} else {
 			throw new IllegalAccessException();
 		}
 	}
 
-	public Object invokePostCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
-
-		Class<?> returnType = method.getReturnType();
+	public Xid[] invokeReconcileCoordinator(byte[] filter) throws XAException {
 		try {
 			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
 			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
 
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+			HttpHeaders headers = new HttpHeaders();
+			headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+			HttpEntity<byte[]> request = new HttpEntity<byte[]>(filter, headers);
 
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
+			String url = this.getCoordinatorPrefix() + "reconcile";
+			ResponseEntity<byte[]> response = restTemplate.postForEntity(url, request, byte[].class);
 
-			if (this.statefully) {
-				ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
-			} else {
-				ber.append(remoteNode.getServiceKey());
+			XidFactory xidFactory = SpringCloudBeanRegistry.getInstance().getBeanFactory().getCompensableXidFactory();
+			List<byte[]> globals = TransactionFilter.decodeList(response.getBody());
+			Xid[] xidArray = new Xid[globals.size()];
+			for (int i = 0; i < globals.size(); i++) {
+				xidArray[i] = xidFactory.createGlobalXid(globals.get(i));
 			}
+			return xidArray;
+		} catch (HttpClientErrorException ex) {
+			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
+			xaEx.initCause(ex);
+			throw xaEx;
+		} catch (Exception ex) {
+			XAException xaEx = new XAException(XAException.XAER_RMERR);
+			xaEx.initCause(ex);
+			throw xaEx;
+		}
+	}
+
+	public Object invokeBatchCoordinator(Object proxy, Method method, Object[] args, byte operation) throws Throwable {
+		boolean batchEnabled = this.environment.getProperty(CONSTANT_BATCH_ENABLED, Boolean.class, false);
+		if (batchEnabled == false) {
+			return this.invokePostCoordinator(proxy, method, args);
+		}
+
+		long windowMillis = this.environment.getProperty(CONSTANT_BATCH_WINDOW, Long.class, 5L);
+		int batchSize = this.environment.getProperty(CONSTANT_BATCH_SIZE, Integer.class, 64);
+
+		BatchEntry entry = new BatchEntry();
+		entry.setOperation(operation);
+		entry.setGlobalTransactionId(((Xid) args[0]).getGlobalTransactionId());
+		entry.setOnePhase(args.length > 1 && Boolean.TRUE.equals(args[1]));
 
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+		String url = this.getCoordinatorPrefix() + "batch";
+		if (SpringCloudCoordinatorBatcher.getInstance(url).execute(entry, windowMillis, batchSize)) {
+			return null;
+		} // end-if (SpringCloudCoordinatorBatcher.getInstance(url).execute(entry, windowMillis, batchSize))
 
-			ber.append("/org/bytesoft/bytetcc/");
+		return this.invokePostCoordinator(proxy, method, args);
+	}
+
+	public Object invokePostCoordinator(Object proxy, Method method, Object[] args) throws Throwable {
+
+		Class<?> returnType = method.getReturnType();
+		try {
+			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
+			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
+
+			StringBuilder ber = new StringBuilder(this.getCoordinatorPrefix());
 			ber.append(method.getName());
 			for (int i = 0; i < args.length; i++) {
 				Serializable arg = (Serializable) args[i];
@@ -170,25 +217,7 @@ public class SpringCloudCoordinator implements InvocationHandler {
 			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
 			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
 
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
-
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://");
-
-			if (this.statefully) {
-				ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
-			} else {
-				ber.append(remoteNode.getServiceKey());
-			}
-
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
-
-			ber.append("/org/bytesoft/bytetcc/");
+			StringBuilder ber = new StringBuilder(this.getCoordinatorPrefix());
 			ber.append(method.getName());
 			for (int i = 0; i < args.length; i++) {
 				Serializable arg = (Serializable) args[i];
@@ -233,6 +262,35 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	}
 
+	private String getCoordinatorPrefix() {
+		if (this.coordinatorPrefix != null) {
+			return this.coordinatorPrefix;
+		}
+
+		RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
+		String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
+		String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
+				? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+
+		StringBuilder ber = new StringBuilder();
+		ber.append("http://");
+
+		if (this.statefully) {
+			ber.append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
+		} else {
+			ber.append(remoteNode.getServiceKey());
+		}
+
+		if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
+			ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
+		} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+
+		ber.append("/org/bytesoft/bytetcc/");
+
+		this.coordinatorPrefix = ber.toString();
+		return this.coordinatorPrefix;
+	}
+
 	private String serialize(Serializable arg) throws IOException {
 		if (Xid.class.isInstance(arg)) {
 			Xid xid = (Xid) arg;
@@ -258,6 +316,7 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	public void setIdentifier(String identifier) {
 		this.identifier = identifier;
+		this.coordinatorPrefix = null;
 	}
 
 	public Environment getEnvironment() {
@@ -266,6 +325,7 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	public void setEnvironment(Environment environment) {
 		this.environment = environment;
+		this.coordinatorPrefix = null;
 	}
 
 	public boolean isStatefully() {
@@ -274,6 +334,7 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	public void setStatefully(boolean statefully) {
 		this.statefully = statefully;
+		this.coordinatorPrefix = null;
 	}
 
 }
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.transaction.xa.XAException;
+
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBatchCodec.BatchEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Coalesces the second-phase requests bound for the same participant: the first request of a batch waits for the
+ * batch window (or until the batch is full) and then posts the whole batch, the others wait for its result.
+ */
+public class SpringCloudCoordinatorBatcher {
+	static final Logger logger = LoggerFactory.getLogger(SpringCloudCoordinatorBatcher.class);
+	static final long UNSUPPORTED_RETRY_MILLIS = 1000L * 60 * 5;
+
+	static final ConcurrentMap<String, SpringCloudCoordinatorBatcher> batchers = //
+			new ConcurrentHashMap<String, SpringCloudCoordinatorBatcher>();
+
+	private final String url;
+	private volatile long unsupportedUntil;
+	private Batch current;
+
+	private SpringCloudCoordinatorBatcher(String url) {
+		this.url = url;
+	}
+
+	public static SpringCloudCoordinatorBatcher getInstance(String url) {
+		SpringCloudCoordinatorBatcher batcher = batchers.get(url);
+		if (batcher == null) {
+			SpringCloudCoordinatorBatcher created = new SpringCloudCoordinatorBatcher(url);
+			SpringCloudCoordinatorBatcher existed = batchers.putIfAbsent(url, created);
+			batcher = existed == null ? created : existed;
+		}
+		return batcher;
+	}
+
+	/**
+	 * @return false if the remote node does not support the batch endpoint, the request should be sent directly.
+	 */
+	public boolean execute(BatchEntry entry, long windowMillis, int batchSize) throws XAException {
+		if (System.currentTimeMillis() < this.unsupportedUntil) {
+			return false;
+		}
+
+		Batch batch = null;
+		boolean leader = false;
+		synchronized (this) {
+			if (this.current == null) {
+				this.current = new Batch();
+				leader = true;
+			}
+			batch = this.current;
+			batch.entries.add(entry);
+			if (batch.entries.size() >= batchSize) {
+				this.current = null;
+				this.notifyAll();
+			}
+		}
+
+		if (leader) {
+			this.waitForBatchWindow(batch, windowMillis);
+			this.send(batch);
+		} else {
+			try {
+				batch.latch.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				XAException xaEx = new XAException(XAException.XAER_RMFAIL);
+				xaEx.initCause(ex);
+				throw xaEx;
+			}
+		}
+
+		if (batch.unsupported) {
+			return false;
+		} else if (batch.error != null) {
+			XAException xaEx = new XAException(batch.errorCode);
+			xaEx.initCause(batch.error);
+			throw xaEx;
+		}
+
+		switch (entry.getResult()) {
+		case SpringCloudBatchCodec.RESULT_SUCCESS:
+			return true;
+		case SpringCloudBatchCodec.RESULT_XAER:
+			throw new XAException(entry.getErrorCode());
+		default:
+			throw new XAException(XAException.XAER_RMERR);
+		}
+	}
+
+	private synchronized void waitForBatchWindow(Batch batch, long windowMillis) {
+		long deadline = System.currentTimeMillis() + windowMillis;
+		long waitingMillis = windowMillis;
+		try {
+			while (this.current == batch && waitingMillis > 0) {
+				this.wait(waitingMillis);
+				waitingMillis = deadline - System.currentTimeMillis();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt(); // send the batch immediately
+		} finally {
+			if (this.current == batch) {
+				this.current = null;
+			}
+		}
+	}
+
+	private void send(Batch batch) {
+		try {
+			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
+			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
+
+			HttpHeaders headers = new HttpHeaders();
+			headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+			HttpEntity<byte[]> request = new HttpEntity<byte[]>(SpringCloudBatchCodec.encodeRequest(batch.entries), headers);
+
+			ResponseEntity<byte[]> response = restTemplate.postForEntity(this.url, request, byte[].class);
+			SpringCloudBatchCodec.decodeResponse(response.getBody(), batch.entries);
+		} catch (HttpClientErrorException ex) {
+			if (HttpStatus.NOT_FOUND.equals(ex.getStatusCode())) {
+				logger.warn("The batch endpoint is not supported by {}, the requests will be sent one by one.", this.url);
+				this.unsupportedUntil = System.currentTimeMillis() + UNSUPPORTED_RETRY_MILLIS;
+				batch.unsupported = true;
+			} else {
+				batch.errorCode = XAException.XAER_RMFAIL;
+				batch.error = ex;
+			}
+		} catch (Exception ex) {
+			batch.errorCode = XAException.XAER_RMERR;
+			batch.error = ex;
+		} finally {
+			batch.latch.countDown();
+		}
+	}
+
+	static class Batch {
+		final List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		final CountDownLatch latch = new CountDownLatch(1);
+		volatile boolean unsupported;
+		volatile int errorCode;
+		volatile Exception error;
+	}
+
+}
@@ -16,12 +16,17 @@
 package org.bytesoft.bytetcc.supports.springcloud.controller;
 
 import java.beans.PropertyEditorSupport;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.Xid;
 
 import org.bytesoft.bytetcc.CompensableCoordinator;
+import org.bytesoft.bytetcc.supports.TransactionFilter;
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBatchCodec;
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBatchCodec.BatchEntry;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
@@ -31,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -137,6 +143,32 @@ public class CompensableCoordinatorController extends PropertyEditorSupport impl
 		}
 	}
 
+	@RequestMapping(value = "/org/bytesoft/bytetcc/reconcile", method = RequestMethod.POST)
+	@ResponseBody
+	public byte[] reconcile(@RequestBody byte[] body, HttpServletResponse response) {
+		try {
+			Xid[] xidArray = this.compensableCoordinator.reconcile(body);
+			List<byte[]> globals = new ArrayList<byte[]>(xidArray.length);
+			for (int i = 0; i < xidArray.length; i++) {
+				globals.add(xidArray[i].getGlobalTransactionId());
+			}
+			return TransactionFilter.encodeList(globals);
+		} catch (XAException ex) {
+			logger.error("Error occurred while reconciling transactions.", ex);
+
+			response.addHeader("failure", "true");
+			response.addHeader("XA_XAER", String.valueOf(ex.errorCode));
+			response.setStatus(500);
+			return new byte[0];
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while reconciling transactions.", ex);
+
+			response.addHeader("failure", "true");
+			response.setStatus(500);
+			return new byte[0];
+		}
+	}
+
 	@RequestMapping(value = "/org/bytesoft/bytetcc/forget/{xid}", method = RequestMethod.POST)
 	@ResponseBody
 	public void forget(@PathVariable("xid") String identifier, HttpServletResponse response) {
@@ -160,6 +192,56 @@ public class CompensableCoordinatorController extends PropertyEditorSupport impl
 		}
 	}
 
+	@RequestMapping(value = "/org/bytesoft/bytetcc/batch", method = RequestMethod.POST)
+	@ResponseBody
+	public byte[] batch(@RequestBody byte[] body, HttpServletResponse response) {
+		List<BatchEntry> entries = null;
+		try {
+			entries = SpringCloudBatchCodec.decodeRequest(body);
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while decoding batch request.", ex);
+
+			response.addHeader("failure", "true");
+			response.addHeader("XA_XAER", String.valueOf(XAException.XAER_INVAL));
+			response.setStatus(500);
+			return new byte[0];
+		}
+
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		for (int i = 0; i < entries.size(); i++) {
+			BatchEntry entry = entries.get(i);
+			String identifier = ByteUtils.byteArrayToString(entry.getGlobalTransactionId());
+			try {
+				Xid xid = xidFactory.createGlobalXid(entry.getGlobalTransactionId());
+				switch (entry.getOperation()) {
+				case SpringCloudBatchCodec.OPERATION_COMMIT:
+					this.compensableCoordinator.commit(xid, entry.isOnePhase());
+					break;
+				case SpringCloudBatchCodec.OPERATION_ROLLBACK:
+					this.compensableCoordinator.rollback(xid);
+					break;
+				case SpringCloudBatchCodec.OPERATION_FORGET:
+					this.compensableCoordinator.forget(xid);
+					break;
+				default:
+					throw new XAException(XAException.XAER_INVAL);
+				}
+				entry.setResult(SpringCloudBatchCodec.RESULT_SUCCESS);
+			} catch (XAException ex) {
+				logger.error("Error occurred while completing transaction(operation= {}): {}.", entry.getOperation(),
+						identifier, ex);
+				entry.setResult(SpringCloudBatchCodec.RESULT_XAER);
+				entry.setErrorCode(ex.errorCode);
+			} catch (RuntimeException ex) {
+				logger.error("Error occurred while completing transaction(operation= {}): {}.", entry.getOperation(),
+						identifier, ex);
+				entry.setResult(SpringCloudBatchCodec.RESULT_FAILURE);
+			}
+		}
+
+		return SpringCloudBatchCodec.encodeResponse(entries);
+	}
+
 	public CompensableBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
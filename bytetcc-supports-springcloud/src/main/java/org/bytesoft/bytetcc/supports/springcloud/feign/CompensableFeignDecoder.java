@@ -17,13 +17,12 @@ package org.bytesoft.bytetcc.supports.springcloud.feign;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.TransactionContext;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.slf4j.Logger;
@@ -113,10 +112,10 @@ public class CompensableFeignDecoder implements feign.codec.Decoder, Initializin
 			String transactionStr = StringUtils.isBlank(respTransactionStr) ? reqTransactionStr : respTransactionStr;
 			String propagationStr = StringUtils.isBlank(respPropagationStr) ? reqPropagationStr : respPropagationStr;
 
-			byte[] byteArray = Base64.getDecoder().decode(transactionStr); // ByteUtils.stringToByteArray(transactionStr);
-			TransactionContext transactionContext = (TransactionContext) SerializeUtils.deserializeObject(byteArray);
-
 			SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+			TransactionContext transactionContext = TransactionContextCodec.decodeText(transactionStr,
+					beanRegistry.getBeanFactory());
+
 			RemoteCoordinator remoteCoordinator = beanRegistry.getConsumeCoordinator(propagationStr);
 
 			result.setTransactionContext(transactionContext);
@@ -16,12 +16,11 @@
 package org.bytesoft.bytetcc.supports.springcloud.feign;
 
 import java.io.IOException;
-import java.util.Base64;
 import java.util.Collection;
 import java.util.Map;
 
+import org.bytesoft.bytetcc.supports.serialize.TransactionContextCodec;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableManager;
 import org.bytesoft.compensable.CompensableTransaction;
@@ -53,9 +52,8 @@ public class CompensableFeignInterceptor
 		try {
 			// 将TCC分布式事务上下文序列化, 转为base64编码
 			TransactionContext transactionContext = compensable.getTransactionContext();
-			byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
-
-			String transactionText = Base64.getEncoder().encodeToString(byteArray);
+			String transactionText = TransactionContextCodec.encodeText(transactionContext,
+					beanRegistry.isCompactContextEnabled());
 
 			// 放到请求头里
 			Map<String, Collection<String>> headers = template.headers();
@@ -118,6 +118,10 @@ public abstract class CompensableLoadBalancerInterceptor {
 	public abstract void afterCompletion(Server server);
 
 	public String getInstanceId(Server server) {
+		return resolveInstanceId(server);
+	}
+
+	static String resolveInstanceId(Server server) {
 		String instanceId = null;
 
 		if (DiscoveryEnabledServer.class.isInstance(server)) {
@@ -15,7 +15,10 @@
  */
 package org.bytesoft.bytetcc.supports.springcloud.loadbalancer;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
@@ -27,6 +30,7 @@ import org.springframework.core.env.Environment;
 
 import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.BaseLoadBalancer;
 import com.netflix.loadbalancer.ILoadBalancer;
 import com.netflix.loadbalancer.IRule;
 import com.netflix.loadbalancer.Server;
@@ -37,6 +41,9 @@ public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule im
 	static Logger logger = LoggerFactory.getLogger(CompensableLoadBalancerRuleImpl.class);
 
 	static Class<?> compensableRuleClass;
+	/* the load balancers which the server-list listener has been registered to, compared by identity. */
+	static final Set<ILoadBalancer> listenedLoadBalancers = //
+			Collections.newSetFromMap(new WeakHashMap<ILoadBalancer, Boolean>());
 
 	private IClientConfig clientConfig;
 
@@ -104,6 +111,22 @@ public class CompensableLoadBalancerRuleImpl extends AbstractLoadBalancerRule im
 		return server;
 	}
 
+	public void setLoadBalancer(ILoadBalancer loadBalancer) {
+		super.setLoadBalancer(loadBalancer);
+		if (BaseLoadBalancer.class.isInstance(loadBalancer) == false) {
+			return;
+		}
+
+		// setLoadBalancer会被多次调用, 每个负载均衡器只注册一次监听
+		boolean registerRequired = false;
+		synchronized (listenedLoadBalancers) {
+			registerRequired = listenedLoadBalancers.add(loadBalancer);
+		}
+		if (registerRequired) {
+			((BaseLoadBalancer) loadBalancer).addServerListChangeListener(new CompensableServerListChangeListener());
+		}
+	}
+
 	public void initWithNiwsConfig(IClientConfig clientConfig) {
 		this.clientConfig = clientConfig;
 	}
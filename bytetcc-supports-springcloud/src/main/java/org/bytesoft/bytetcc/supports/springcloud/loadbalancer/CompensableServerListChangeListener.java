@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud.loadbalancer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBeanRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerListChangeListener;
+
+// 服务实例下线后, 清除其对应的RemoteCoordinator缓存
+public class CompensableServerListChangeListener implements ServerListChangeListener {
+	static final Logger logger = LoggerFactory.getLogger(CompensableServerListChangeListener.class);
+
+	public void serverListChanged(List<Server> oldList, List<Server> newList) {
+		Set<Server> currentServers = new HashSet<Server>();
+		if (newList != null) {
+			currentServers.addAll(newList);
+		}
+
+		Set<String> removedInstances = new HashSet<String>();
+		for (int i = 0; oldList != null && i < oldList.size(); i++) {
+			Server server = oldList.get(i);
+			if (currentServers.contains(server)) {
+				continue;
+			}
+
+			try {
+				removedInstances.add(CompensableLoadBalancerInterceptor.resolveInstanceId(server));
+			} catch (RuntimeException ex) {
+				logger.warn("Error occurred while resolving the instance id of server {}.", server, ex);
+			}
+		}
+
+		if (removedInstances.isEmpty() == false) {
+			SpringCloudBeanRegistry.getInstance().invalidateConsumeCoordinators(removedInstances);
+		}
+	}
+
+}
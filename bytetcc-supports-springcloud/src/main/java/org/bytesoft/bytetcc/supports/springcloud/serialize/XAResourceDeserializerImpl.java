@@ -23,6 +23,7 @@ import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.bytejta.supports.resource.RemoteResourceDescriptor;
 import org.bytesoft.bytetcc.supports.springcloud.SpringCloudCoordinator;
 import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.compensable.CompensableReconciler;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
@@ -65,8 +66,8 @@ public class XAResourceDeserializerImpl implements XAResourceDeserializer, Appli
 			springCloudCoordinator.setEnvironment(this.environment);
 			springCloudCoordinator.setStatefully(this.statefully);
 			RemoteCoordinator participant = (RemoteCoordinator) Proxy.newProxyInstance(
-					SpringCloudCoordinator.class.getClassLoader(), new Class[] { RemoteCoordinator.class },
-					springCloudCoordinator);
+					SpringCloudCoordinator.class.getClassLoader(),
+					new Class[] { RemoteCoordinator.class, CompensableReconciler.class }, springCloudCoordinator);
 
 			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
 			RemoteNode remoteNode = CommonUtils.getRemoteNode(identifier);
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.springcloud;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.transaction.xa.XAException;
+
+import org.bytesoft.bytetcc.supports.springcloud.SpringCloudBatchCodec.BatchEntry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpringCloudBatchCodecTest {
+
+	@Test
+	public void testRequestRoundTrip() {
+		List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		entries.add(this.createEntry(SpringCloudBatchCodec.OPERATION_COMMIT, true, 1));
+		entries.add(this.createEntry(SpringCloudBatchCodec.OPERATION_ROLLBACK, false, 2));
+		entries.add(this.createEntry(SpringCloudBatchCodec.OPERATION_FORGET, false, 3));
+
+		List<BatchEntry> decoded = SpringCloudBatchCodec.decodeRequest(SpringCloudBatchCodec.encodeRequest(entries));
+		Assert.assertEquals(entries.size(), decoded.size());
+		for (int i = 0; i < entries.size(); i++) {
+			BatchEntry expected = entries.get(i);
+			BatchEntry actual = decoded.get(i);
+			Assert.assertEquals(expected.getOperation(), actual.getOperation());
+			Assert.assertEquals(expected.isOnePhase(), actual.isOnePhase());
+			Assert.assertArrayEquals(expected.getGlobalTransactionId(), actual.getGlobalTransactionId());
+		}
+	}
+
+	@Test
+	public void testEmptyRequestRoundTrip() {
+		byte[] byteArray = SpringCloudBatchCodec.encodeRequest(new ArrayList<BatchEntry>());
+		Assert.assertEquals(5, byteArray.length);
+		Assert.assertTrue(SpringCloudBatchCodec.decodeRequest(byteArray).isEmpty());
+	}
+
+	@Test
+	public void testLongGlobalTransactionId() {
+		List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		BatchEntry entry = this.createEntry(SpringCloudBatchCodec.OPERATION_COMMIT, false, 0);
+		byte[] globalTransactionId = new byte[255];
+		for (int i = 0; i < globalTransactionId.length; i++) {
+			globalTransactionId[i] = (byte) (0x80 + i);
+		}
+		entry.setGlobalTransactionId(globalTransactionId);
+		entries.add(entry);
+
+		List<BatchEntry> decoded = SpringCloudBatchCodec.decodeRequest(SpringCloudBatchCodec.encodeRequest(entries));
+		Assert.assertArrayEquals(globalTransactionId, decoded.get(0).getGlobalTransactionId());
+	}
+
+	@Test
+	public void testResponseRoundTrip() {
+		List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		BatchEntry success = this.createEntry(SpringCloudBatchCodec.OPERATION_COMMIT, false, 1);
+		success.setResult(SpringCloudBatchCodec.RESULT_SUCCESS);
+		entries.add(success);
+		BatchEntry xaer = this.createEntry(SpringCloudBatchCodec.OPERATION_ROLLBACK, false, 2);
+		xaer.setResult(SpringCloudBatchCodec.RESULT_XAER);
+		xaer.setErrorCode(XAException.XAER_NOTA);
+		entries.add(xaer);
+		BatchEntry failure = this.createEntry(SpringCloudBatchCodec.OPERATION_FORGET, false, 3);
+		failure.setResult(SpringCloudBatchCodec.RESULT_FAILURE);
+		failure.setErrorCode(Integer.MIN_VALUE);
+		entries.add(failure);
+
+		byte[] byteArray = SpringCloudBatchCodec.encodeResponse(entries);
+
+		List<BatchEntry> requests = SpringCloudBatchCodec.decodeRequest(SpringCloudBatchCodec.encodeRequest(entries));
+		SpringCloudBatchCodec.decodeResponse(byteArray, requests);
+		for (int i = 0; i < entries.size(); i++) {
+			Assert.assertEquals(entries.get(i).getResult(), requests.get(i).getResult());
+			Assert.assertEquals(entries.get(i).getErrorCode(), requests.get(i).getErrorCode());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testResponseCountMismatch() {
+		List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		entries.add(this.createEntry(SpringCloudBatchCodec.OPERATION_COMMIT, false, 1));
+		byte[] byteArray = SpringCloudBatchCodec.encodeResponse(entries);
+
+		entries.add(this.createEntry(SpringCloudBatchCodec.OPERATION_COMMIT, false, 2));
+		SpringCloudBatchCodec.decodeResponse(byteArray, entries);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnsupportedVersion() {
+		byte[] byteArray = SpringCloudBatchCodec.encodeRequest(new ArrayList<BatchEntry>());
+		byteArray[0] = (byte) (SpringCloudBatchCodec.VERSION + 1);
+		SpringCloudBatchCodec.decodeRequest(byteArray);
+	}
+
+	private BatchEntry createEntry(byte operation, boolean onePhase, int seed) {
+		BatchEntry entry = new BatchEntry();
+		entry.setOperation(operation);
+		entry.setOnePhase(onePhase);
+		byte[] globalTransactionId = new byte[16];
+		for (int i = 0; i < globalTransactionId.length; i++) {
+			globalTransactionId[i] = (byte) (seed * 31 + i);
+		}
+		entry.setGlobalTransactionId(globalTransactionId);
+		return entry;
+	}
+
+}
@@ -59,6 +59,18 @@ public class HttpServletResponseImpl extends HttpServletResponseWrapper {
 		return this.output.getByteArray();
 	}
 
+	/**
+	 * Once the body exceeds the threshold, it is written through the stream returned by the handler instead of being
+	 * buffered, see ServletOutputStreamImpl.StreamingHandler.
+	 */
+	public void setStreamingHandler(int streamThreshold, ServletOutputStreamImpl.StreamingHandler handler) {
+		this.output.setStreamingHandler(streamThreshold, handler);
+	}
+
+	public boolean isStreaming() {
+		return this.output.isStreaming();
+	}
+
 	public void setCharacterEncoding(String charset) {
 		this.charset = charset;
 	}
@@ -118,6 +130,10 @@ public class HttpServletResponseImpl extends HttpServletResponseWrapper {
 	}
 
 	public void flushBuffer() throws IOException {
+		if (this.writer != null) {
+			this.writer.flush();
+		}
+		this.output.flush();
 	}
 
 	public boolean isCommitted() {
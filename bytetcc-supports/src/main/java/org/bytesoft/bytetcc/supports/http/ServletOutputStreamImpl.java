@@ -18,6 +18,7 @@ package org.bytesoft.bytetcc.supports.http;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
@@ -26,10 +27,36 @@ import org.apache.commons.io.IOUtils;
 
 public class ServletOutputStreamImpl extends ServletOutputStream {
 	private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	private final DataOutputStream output = new DataOutputStream(baos);
+	private final DataOutputStream output = new DataOutputStream(new BodyOutputStream());
 
 	private byte[] byteArray = null;
 
+	/* the body is buffered until it exceeds streamThreshold, then handed over to the streamingHandler. */
+	private int streamThreshold;
+	private StreamingHandler streamingHandler;
+	private OutputStream stream;
+	private boolean streamRejected;
+	private int firstByte = -1;
+
+	public interface StreamingHandler {
+
+		/**
+		 * @param firstByte the first non-whitespace byte of the body.
+		 * @return the stream which the body should be written to, or null to keep buffering the whole body.
+		 */
+		public OutputStream startStreaming(int firstByte) throws IOException;
+
+	}
+
+	public void setStreamingHandler(int streamThreshold, StreamingHandler streamingHandler) {
+		this.streamThreshold = streamThreshold;
+		this.streamingHandler = streamingHandler;
+	}
+
+	public boolean isStreaming() {
+		return this.stream != null;
+	}
+
 	public byte[] getByteArray() {
 		if (this.byteArray != null) {
 			return byteArray;
@@ -134,8 +161,65 @@ public class ServletOutputStreamImpl extends ServletOutputStream {
 	}
 
 	public void close() throws IOException {
-		IOUtils.closeQuietly(this.output);
-		IOUtils.closeQuietly(this.baos);
+		if (this.stream != null) {
+			this.output.flush(); // the underlying response stream is closed by the container
+		} else {
+			IOUtils.closeQuietly(this.output);
+			IOUtils.closeQuietly(this.baos);
+		}
+	}
+
+	private class BodyOutputStream extends OutputStream {
+
+		public void write(int b) throws IOException {
+			if (firstByte < 0) {
+				firstByte = Character.isWhitespace((byte) b) ? -1 : (b & 0xFF);
+			}
+
+			this.startStreamingIfNecessary(1);
+
+			if (stream == null) {
+				baos.write(b);
+			} else {
+				stream.write(b);
+			}
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (firstByte < 0) {
+				for (int i = off; firstByte < 0 && i < off + len; i++) {
+					firstByte = Character.isWhitespace(b[i]) ? -1 : (b[i] & 0xFF);
+				}
+			}
+
+			this.startStreamingIfNecessary(len);
+
+			if (stream == null) {
+				baos.write(b, off, len);
+			} else {
+				stream.write(b, off, len);
+			}
+		}
+
+		private void startStreamingIfNecessary(int len) throws IOException {
+			if (stream == null && streamingHandler != null && streamRejected == false && streamThreshold > 0
+					&& baos.size() + len > streamThreshold) {
+				OutputStream target = streamingHandler.startStreaming(firstByte);
+				if (target == null) {
+					streamRejected = true;
+				} else {
+					baos.writeTo(target);
+					baos.reset();
+					stream = target;
+				}
+			}
+		}
+
+		public void flush() throws IOException {
+			if (stream != null) {
+				stream.flush();
+			}
+		}
 	}
 
 }
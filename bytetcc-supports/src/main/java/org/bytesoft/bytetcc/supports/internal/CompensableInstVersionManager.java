@@ -15,8 +15,15 @@
  */
 package org.bytesoft.bytetcc.supports.internal;
 
+import java.util.Map;
+
 public interface CompensableInstVersionManager {
 
 	public long getInstanceVersion(String instanceId);
 
+	/**
+	 * @return a snapshot of the versions of the live instances, keyed by instance id.
+	 */
+	public Map<String, Long> getInstanceVersions();
+
 }
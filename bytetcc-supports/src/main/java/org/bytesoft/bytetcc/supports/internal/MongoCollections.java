@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bytesoft.common.utils.CommonUtils;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+/**
+ * Shared holder of the mongodb handles of an endpoint: the application/database name and the collections are resolved
+ * once, so that the logger/lock/repository/cleanup-work only do field reads on each operation.
+ */
+public class MongoCollections {
+	static final String CONSTANTS_TB_TRANSACTIONS = "compensables";
+	static final String CONSTANTS_TB_LOCKS = "locks";
+	static final String CONSTANTS_TB_INSTS = "instances";
+	static final String CONSTANTS_TB_REMOVEDRESES = "removedreses";
+	static final String CONSTANTS_FD_GLOBAL = "gxid";
+	static final String CONSTANTS_FD_BRANCH = "bxid";
+
+	static final ConcurrentMap<String, MongoCollections> instances = new ConcurrentHashMap<String, MongoCollections>();
+
+	private final MongoClient mongoClient;
+	private final String endpoint;
+	private final String application;
+	private final String databaseName;
+	private final MongoDatabase database;
+	private final MongoCollection<Document> transactions;
+	private final MongoCollection<Document> locks;
+	private final MongoCollection<Document> instanceCollection;
+	private final MongoCollection<Document> removedReses;
+
+	private MongoCollections(MongoClient mongoClient, String endpoint) {
+		this.mongoClient = mongoClient;
+		this.endpoint = endpoint;
+		this.application = CommonUtils.getApplication(endpoint);
+		this.databaseName = this.application.replaceAll("\\W", "_");
+		this.database = mongoClient.getDatabase(this.databaseName);
+		this.transactions = this.database.getCollection(CONSTANTS_TB_TRANSACTIONS);
+		this.locks = this.database.getCollection(CONSTANTS_TB_LOCKS);
+		this.instanceCollection = this.database.getCollection(CONSTANTS_TB_INSTS);
+		this.removedReses = this.database.getCollection(CONSTANTS_TB_REMOVEDRESES);
+	}
+
+	public static MongoCollections getInstance(MongoClient mongoClient, String endpoint) {
+		MongoCollections collections = instances.get(endpoint);
+		if (collections != null && collections.mongoClient == mongoClient) {
+			return collections;
+		}
+
+		MongoCollections created = new MongoCollections(mongoClient, endpoint);
+		if (collections == null) {
+			MongoCollections existed = instances.putIfAbsent(endpoint, created);
+			return existed != null && existed.mongoClient == mongoClient ? existed : created;
+		} else {
+			instances.replace(endpoint, collections, created); // the mongo client has been replaced.
+			return created;
+		}
+	}
+
+	public Bson globalFilter(String globalKey) {
+		return Filters.eq(CONSTANTS_FD_GLOBAL, globalKey);
+	}
+
+	public Bson branchFilter(String globalKey, String branchKey) {
+		return Filters.and(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), Filters.eq(CONSTANTS_FD_BRANCH, branchKey));
+	}
+
+	public MongoCollection<Document> getCollection(String collectionName) {
+		return this.database.getCollection(collectionName);
+	}
+
+	public MongoClient getMongoClient() {
+		return mongoClient;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public String getApplication() {
+		return application;
+	}
+
+	public String getDatabaseName() {
+		return databaseName;
+	}
+
+	public MongoDatabase getDatabase() {
+		return database;
+	}
+
+	public MongoCollection<Document> getTransactions() {
+		return transactions;
+	}
+
+	public MongoCollection<Document> getLocks() {
+		return locks;
+	}
+
+	public MongoCollection<Document> getInstances() {
+		return instanceCollection;
+	}
+
+	public MongoCollection<Document> getRemovedReses() {
+		return removedReses;
+	}
+
+}
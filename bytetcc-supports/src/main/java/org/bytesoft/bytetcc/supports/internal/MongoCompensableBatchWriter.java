@@ -0,0 +1,300 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Write-behind pipeline of the MongoCompensableLogger: the $set/$unset/delete operations of a transaction are
+ * coalesced per global xid and written by a single flusher thread through one bulkWrite per batch window. Callers may
+ * wait for the outstanding operations of a transaction via {@link #await(String, long)} before the second phase.
+ */
+public class MongoCompensableBatchWriter implements Runnable {
+	static final Logger logger = LoggerFactory.getLogger(MongoCompensableBatchWriter.class);
+
+	private final MongoCollection<Document> collection;
+	private final String globalField;
+	private final long batchWindowMillis;
+	private final int batchSize;
+
+	private final Object lock = new Object();
+	/* operations not yet picked up by the flusher, keyed by global xid. */
+	private Map<String, PendingWrite> pendingMap = new LinkedHashMap<String, PendingWrite>();
+	/* operations being written by the flusher, keyed by global xid. */
+	private Map<String, PendingWrite> flushingMap = new LinkedHashMap<String, PendingWrite>();
+	private boolean flushRequested;
+	private volatile boolean released;
+	private volatile Thread flusher;
+
+	public MongoCompensableBatchWriter(MongoCollection<Document> collection, String globalField, WriteConcern concern,
+			long batchWindowMillis, int batchSize) {
+		this.collection = concern == null ? collection : collection.withWriteConcern(concern);
+		this.globalField = globalField;
+		this.batchWindowMillis = Math.max(0, batchWindowMillis);
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public synchronized void start() {
+		if (this.flusher == null) {
+			Thread thread = new Thread(this, "bytetcc-mongo-writer");
+			thread.setDaemon(true);
+			this.flusher = thread;
+			thread.start();
+		}
+	}
+
+	public void release() {
+		synchronized (this.lock) {
+			this.released = true;
+			this.lock.notifyAll();
+		}
+	}
+
+	public WriteFuture set(String globalKey, String field, Object value) {
+		synchronized (this.lock) {
+			PendingWrite pending = this.getPendingWrite(globalKey);
+			pending.unsetDocument.remove(field);
+			pending.setDocument.put(field, value);
+			this.wakeupIfNecessary();
+			return pending.future;
+		}
+	}
+
+	public WriteFuture unset(String globalKey, String field) {
+		synchronized (this.lock) {
+			PendingWrite pending = this.getPendingWrite(globalKey);
+			pending.setDocument.remove(field);
+			pending.unsetDocument.put(field, "");
+			this.wakeupIfNecessary();
+			return pending.future;
+		}
+	}
+
+	public WriteFuture delete(String globalKey) {
+		synchronized (this.lock) {
+			PendingWrite pending = this.getPendingWrite(globalKey);
+			pending.setDocument.clear();
+			pending.unsetDocument.clear();
+			pending.deleted = true;
+			this.wakeupIfNecessary();
+			return pending.future;
+		}
+	}
+
+	/**
+	 * Waits until all the operations of the specified transaction, submitted before this call, are written.
+	 */
+	public void await(String globalKey, long timeoutMillis) throws IllegalStateException {
+		WriteFuture future = null;
+		synchronized (this.lock) {
+			PendingWrite pending = this.pendingMap.get(globalKey);
+			pending = pending == null ? this.flushingMap.get(globalKey) : pending;
+			if (pending == null) {
+				return;
+			}
+			future = pending.future;
+			this.flushRequested = true;
+			this.lock.notifyAll();
+		}
+
+		future.await(timeoutMillis);
+	}
+
+	private PendingWrite getPendingWrite(String globalKey) {
+		if (this.released || this.flusher == null) {
+			throw new IllegalStateException("The mongo batch writer is not active!");
+		}
+
+		PendingWrite pending = this.pendingMap.get(globalKey);
+		if (pending == null) {
+			pending = new PendingWrite(globalKey);
+			this.pendingMap.put(globalKey, pending);
+			this.lock.notifyAll(); // start the batch window.
+		}
+		return pending;
+	}
+
+	private void wakeupIfNecessary() {
+		if (this.pendingMap.size() >= this.batchSize) {
+			this.flushRequested = true;
+			this.lock.notifyAll();
+		}
+	}
+
+	public void run() {
+		while (true) {
+			Map<String, PendingWrite> batch = null;
+			synchronized (this.lock) {
+				while (this.pendingMap.isEmpty() && this.released == false) {
+					this.waitQuietly(1000L);
+				}
+
+				long deadline = System.currentTimeMillis() + this.batchWindowMillis;
+				long waitMillis = this.batchWindowMillis;
+				while (this.flushRequested == false && this.released == false && waitMillis > 0) {
+					this.waitQuietly(waitMillis); // coalesce more operations in the batch window.
+					waitMillis = deadline - System.currentTimeMillis();
+				}
+
+				if (this.released && this.pendingMap.isEmpty()) {
+					this.flusher = null;
+					return;
+				}
+
+				this.flushRequested = false;
+				batch = this.pendingMap;
+				this.flushingMap = batch;
+				this.pendingMap = new LinkedHashMap<String, PendingWrite>();
+			}
+
+			try {
+				this.flushBatch(new ArrayList<PendingWrite>(batch.values()));
+			} finally {
+				synchronized (this.lock) {
+					this.flushingMap = new LinkedHashMap<String, PendingWrite>();
+				}
+			}
+		}
+	}
+
+	private void waitQuietly(long millis) {
+		try {
+			this.lock.wait(millis);
+		} catch (InterruptedException ex) {
+			logger.debug("The mongo batch writer has been interrupted.", ex);
+		}
+	}
+
+	private void flushBatch(List<PendingWrite> batch) {
+		List<WriteModel<Document>> models = new ArrayList<WriteModel<Document>>();
+		List<PendingWrite> writes = new ArrayList<PendingWrite>();
+		for (Iterator<PendingWrite> itr = batch.iterator(); itr.hasNext();) {
+			PendingWrite pending = itr.next();
+			if (pending.deleted) {
+				models.add(new DeleteOneModel<Document>(Filters.eq(this.globalField, pending.globalKey)));
+				writes.add(pending);
+			} else if (pending.setDocument.isEmpty() && pending.unsetDocument.isEmpty()) {
+				pending.future.complete(null);
+			} else {
+				Document document = new Document();
+				if (pending.setDocument.isEmpty() == false) {
+					document.append("$set", pending.setDocument);
+				}
+				if (pending.unsetDocument.isEmpty() == false) {
+					document.append("$unset", pending.unsetDocument);
+				}
+				models.add(new UpdateOneModel<Document>(Filters.eq(this.globalField, pending.globalKey), document));
+				writes.add(pending);
+			}
+		}
+
+		if (models.isEmpty()) {
+			return;
+		}
+
+		RuntimeException[] failures = new RuntimeException[writes.size()];
+		try {
+			BulkWriteResult result = this.collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+			if (result.wasAcknowledged() && result.getMatchedCount() + result.getDeletedCount() < models.size()) {
+				logger.warn("Some transactions are not found while writing in batch(expect= {}, matched= {}, deleted= {}).",
+						models.size(), result.getMatchedCount(), result.getDeletedCount());
+			}
+		} catch (MongoBulkWriteException error) {
+			List<BulkWriteError> errors = error.getWriteErrors();
+			for (int i = 0; i < errors.size(); i++) {
+				BulkWriteError element = errors.get(i);
+				failures[element.getIndex()] = new IllegalStateException(element.getMessage(), error);
+			}
+			logger.error("Error occurred while writing transactions in batch.", error);
+		} catch (RuntimeException error) {
+			for (int i = 0; i < failures.length; i++) {
+				failures[i] = error;
+			}
+			logger.error("Error occurred while writing transactions in batch.", error);
+		}
+
+		for (int i = 0; i < writes.size(); i++) {
+			writes.get(i).future.complete(failures[i]);
+		}
+	}
+
+	public boolean isActive() {
+		return this.flusher != null && this.released == false;
+	}
+
+	static class PendingWrite {
+		final String globalKey;
+		final Document setDocument = new Document();
+		final Document unsetDocument = new Document();
+		final WriteFuture future = new WriteFuture();
+		boolean deleted;
+
+		public PendingWrite(String globalKey) {
+			this.globalKey = globalKey;
+		}
+	}
+
+	public static class WriteFuture {
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private volatile RuntimeException failure;
+
+		void complete(RuntimeException error) {
+			this.failure = error;
+			this.latch.countDown();
+		}
+
+		public boolean isDone() {
+			return this.latch.getCount() == 0;
+		}
+
+		public void await(long timeoutMillis) throws IllegalStateException {
+			try {
+				if (this.latch.await(timeoutMillis, TimeUnit.MILLISECONDS) == false) {
+					throw new IllegalStateException("Timed out waiting for the mongo batch writer!");
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the mongo batch writer!", ex);
+			}
+
+			if (this.failure != null) {
+				throw this.failure;
+			}
+		}
+	}
+
+}
@@ -15,17 +15,21 @@
  */
 package org.bytesoft.bytetcc.supports.internal;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.resource.spi.work.Work;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.CuratorFramework;
@@ -41,8 +45,9 @@ import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher.Event.EventType;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.bytesoft.bytetcc.CompensableCoordinator;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
-import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.compensable.aware.CompensableEndpointAware;
@@ -57,7 +62,6 @@ import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
@@ -65,7 +69,8 @@ import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
 public class MongoCompensableLock implements TransactionLock, CompensableInstVersionManager, CompensableEndpointAware,
-		CompensableBeanFactoryAware, CuratorWatcher, ConnectionStateListener, BackgroundCallback, SmartInitializingSingleton {
+		CompensableBeanFactoryAware, CuratorWatcher, ConnectionStateListener, BackgroundCallback, SmartInitializingSingleton,
+		Work {
 	static Logger logger = LoggerFactory.getLogger(MongoCompensableLock.class);
 	static final String CONSTANTS_ROOT_PATH = "/org/bytesoft/bytetcc";
 	static final String CONSTANTS_TB_LOCKS = "locks";
@@ -75,8 +80,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 
 	static final int MONGODB_ERROR_DUPLICATE_KEY = 11000;
 
+	static final int LOCK_STRIPE_SIZE = 64;
+	static final long LOCK_LEASE_SWEEP_INTERVAL = 1000L;
+
 	@javax.annotation.Resource
 	private MongoClient mongoClient;
+	private volatile MongoCollections collections;
 	@javax.annotation.Resource
 	private CuratorFramework curatorFramework;
 	private String endpoint;
@@ -94,6 +103,18 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 
 	private volatile int initializeWaitingSeconds = 15;
 
+	/* idle time for which this instance keeps owning the lock after exiting it, zero means release immediately. */
+	private long lockLeaseMillis = 1000L * 5;
+	private transient volatile boolean released;
+	private transient final Object[] lockStripes = new Object[LOCK_STRIPE_SIZE];
+	private transient final Map<String, LockEntry> lockEntries = new ConcurrentHashMap<String, LockEntry>();
+
+	{
+		for (int i = 0; i < this.lockStripes.length; i++) {
+			this.lockStripes[i] = new Object();
+		}
+	}
+
 	public void afterSingletonsInstantiated() {
 		try {
 			this.afterPropertiesSet();
@@ -117,7 +138,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void initializeClusterInstancesDirectory() throws Exception {
-		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		try {
 			this.curatorFramework.create() //
 					.creatingParentContainersIfNeeded().withMode(CreateMode.PERSISTENT).forPath(parent);
@@ -140,7 +161,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void createInstanceNodeForInitialization() throws Exception {
-		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		String path = String.format("%s/%s", parent, this.endpoint);
 		byte[] versionByteArray = ByteUtils.longToByteArray(this.instanceVersion);
 		try {
@@ -164,7 +185,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void createInstanceNodeForStateReConnect() throws Exception {
-		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		String path = String.format("%s/%s", parent, this.endpoint);
 		byte[] versionByteArray = ByteUtils.longToByteArray(this.instanceVersion);
 		try {
@@ -183,9 +204,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void createLocksIndexIfNecessary() {
-		String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-		MongoDatabase database = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> locks = database.getCollection(CONSTANTS_TB_LOCKS);
+		MongoCollection<Document> locks = this.getCollections().getLocks();
 		ListIndexesIterable<Document> lockIndexList = locks.listIndexes();
 		boolean transactionIndexExists = false;
 		MongoCursor<Document> lockCursor = null;
@@ -215,9 +234,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void initializeClusterInstanceVersion() {
-		String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-		MongoDatabase database = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> instances = database.getCollection(CONSTANTS_TB_INSTS);
+		MongoCollection<Document> instances = this.getCollections().getInstances();
 
 		Bson condition = Filters.eq("_id", this.endpoint);
 
@@ -232,6 +249,83 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	public boolean lockTransaction(TransactionXid transactionXid, String identifier) {
+		if (StringUtils.equals(identifier, this.endpoint) == false) {
+			return this.acquireTransactionInMongoDB(transactionXid, identifier);
+		}
+
+		String global = CompensableXid.toGlobalTransactionKey(transactionXid);
+		Object stripe = this.getLockStripe(global);
+		while (true) {
+			LockEntry entry = null;
+			boolean acquiring = false;
+			synchronized (stripe) {
+				entry = this.lockEntries.get(global);
+				if (entry == null) {
+					entry = new LockEntry();
+					entry.busy = true;
+					this.lockEntries.put(global, entry);
+					acquiring = true;
+				} else if (entry.busy) {
+					// the lock of the same transaction is being acquired/released in mongodb
+				} else if (entry.times > 0 || entry.leaseExpireTime > System.currentTimeMillis()) {
+					entry.times++;
+					return true;
+				} else {
+					entry.busy = true; // the lease has expired, the lock is acquired from mongodb again
+					acquiring = true;
+				}
+			}
+
+			if (acquiring) {
+				return this.acquireLockEntry(transactionXid, identifier, global, entry);
+			} else if (this.awaitLockEntry(entry) == false) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Acquires the lock in mongodb without holding the stripe, only the transactions of the same gxid wait for it.
+	 */
+	private boolean acquireLockEntry(TransactionXid transactionXid, String identifier, String global, LockEntry entry) {
+		boolean acquired = false;
+		try {
+			acquired = this.acquireTransactionInMongoDB(transactionXid, identifier);
+		} finally {
+			synchronized (this.getLockStripe(global)) {
+				if (acquired) {
+					entry.times = 1;
+				} else {
+					this.lockEntries.remove(global);
+				}
+			}
+			this.completeLockEntry(entry);
+		}
+		return acquired;
+	}
+
+	private void completeLockEntry(LockEntry entry) {
+		synchronized (entry) {
+			entry.busy = false;
+			entry.notifyAll();
+		}
+	}
+
+	private boolean awaitLockEntry(LockEntry entry) {
+		synchronized (entry) {
+			while (entry.busy) {
+				try {
+					entry.wait(1000L);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	boolean acquireTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
 		if (this.lockTransactionInMongoDB(transactionXid, identifier)) {
 			return true;
 		}
@@ -257,14 +351,10 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private boolean lockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
 			Document document = new Document();
 			document.append(CONSTANTS_FD_GLOBAL, instanceId);
@@ -286,16 +376,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private boolean relockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
-			Bson condition = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
+			Bson condition = this.getCollections().globalFilter(instanceId);
 
 			Document increases = new Document();
 			increases.append("times", 1);
@@ -316,16 +402,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private boolean takeOverTransactionInMongoDB(TransactionXid transactionXid, String source, String target) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
-			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
+			Bson globalFilter = this.getCollections().globalFilter(instanceId);
 			Bson instIdFilter = Filters.eq("identifier", source);
 
 			Document document = new Document("$set", new Document("identifier", target));
@@ -339,16 +421,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private String getTransactionOwnerInMongoDB(TransactionXid transactionXid) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
-			FindIterable<Document> findIterable = collection.find(Filters.eq(CONSTANTS_FD_GLOBAL, instanceId));
+			FindIterable<Document> findIterable = collection.find(this.getCollections().globalFilter(instanceId));
 			MongoCursor<Document> cursor = findIterable.iterator();
 			if (cursor.hasNext()) {
 				Document document = cursor.next();
@@ -363,22 +441,174 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	public void unlockTransaction(TransactionXid transactionXid, String identifier) {
+		String global = CompensableXid.toGlobalTransactionKey(transactionXid);
+		if (StringUtils.equals(identifier, this.endpoint)) {
+			LockEntry released = null;
+			synchronized (this.getLockStripe(global)) {
+				LockEntry entry = this.lockEntries.get(global);
+				if (entry != null && entry.times > 0) {
+					entry.times--;
+					if (entry.times > 0) {
+						return;
+					} else if (this.isLockLeaseEnabled()) {
+						entry.leaseExpireTime = System.currentTimeMillis() + this.lockLeaseMillis;
+						return;
+					}
+
+					entry.busy = true;
+					released = entry;
+				}
+			}
+
+			if (released != null) {
+				try {
+					this.unlockTransactionInMongoDB(transactionXid, identifier);
+				} finally {
+					synchronized (this.getLockStripe(global)) {
+						this.lockEntries.remove(global);
+					}
+					this.completeLockEntry(released);
+				}
+				return;
+			}
+		}
+
 		if (this.reExitTransactionInMongoDB(transactionXid, identifier)) {
 			this.unlockTransactionInMongoDB(transactionXid, identifier);
 		}
 	}
 
+	/**
+	 * The lease is only retained when the coordinator is statefully, since the requests of a transaction are always
+	 * routed to the instance which owns it; otherwise the lock is released as soon as it's exited.
+	 */
+	boolean isLockLeaseEnabled() {
+		if (this.lockLeaseMillis <= 0) {
+			return false;
+		}
+		CompensableCoordinator compensableCoordinator = //
+				(CompensableCoordinator) this.beanFactory.getCompensableNativeParticipant();
+		return compensableCoordinator != null && compensableCoordinator.isStatefully();
+	}
+
+	private Object getLockStripe(String global) {
+		return this.lockStripes[this.getLockStripeIndex(global)];
+	}
+
+	private int getLockStripeIndex(String global) {
+		return (global.hashCode() & 0x7FFFFFFF) % this.lockStripes.length;
+	}
+
+	public void run() {
+		while (this.released == false) {
+			this.waitForMillis(LOCK_LEASE_SWEEP_INTERVAL);
+			try {
+				this.expireLockLeases();
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while expiring the lock-leases.", rex);
+			}
+		}
+	}
+
+	/**
+	 * Removes the expired leases from mongodb. The expired entries are marked busy under their stripes and released
+	 * afterwards, so that the re-acquisition of the same transaction waits for the removal instead of interleaving with
+	 * it, while the other transactions of the stripes are not blocked by the mongodb round-trip.
+	 */
+	void expireLockLeases() {
+		long current = System.currentTimeMillis();
+		List<String> expiredList = new ArrayList<String>();
+		List<LockEntry> entryList = new ArrayList<LockEntry>();
+		for (Iterator<Map.Entry<String, LockEntry>> itr = this.lockEntries.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, LockEntry> element = itr.next();
+			String global = element.getKey();
+			LockEntry entry = element.getValue();
+			if (entry.busy || entry.times > 0 || entry.leaseExpireTime > current) {
+				continue;
+			}
+
+			synchronized (this.getLockStripe(global)) {
+				if (this.lockEntries.get(global) == entry && entry.busy == false && entry.times == 0
+						&& entry.leaseExpireTime <= current) {
+					entry.busy = true;
+					expiredList.add(global);
+					entryList.add(entry);
+				}
+			}
+		}
+
+		if (expiredList.isEmpty()) {
+			return;
+		}
+
+		boolean success = false;
+		try {
+			success = this.releaseLockLeasesInMongoDB(expiredList);
+		} finally {
+			for (int i = 0; i < expiredList.size(); i++) {
+				String global = expiredList.get(i);
+				if (success) {
+					synchronized (this.getLockStripe(global)) {
+						this.lockEntries.remove(global);
+					}
+				} // otherwise the entry is kept and expired by the next sweep
+				this.completeLockEntry(entryList.get(i));
+			}
+		}
+	}
+
+	boolean releaseLockLeasesInMongoDB(List<String> expiredList) {
+		try {
+			MongoCollection<Document> collection = this.getCollections().getLocks();
+
+			Bson globalFilter = Filters.in(CONSTANTS_FD_GLOBAL, expiredList);
+			Bson instIdFilter = Filters.eq("identifier", this.endpoint);
+
+			collection.deleteMany(Filters.and(globalFilter, instIdFilter));
+			return true;
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while releasing the lock-leases of transactions({}).", expiredList, rex);
+			return false;
+		}
+	}
+
+	/**
+	 * The ownership of the leased locks is unreliable once the zookeeper session is suspended, since the other instances
+	 * may take them over. The idle leases are expired immediately: they are not reused by this instance any more, and
+	 * their lock documents(which are still owned by this instance) are deleted by the next sweep.
+	 */
+	void discardIdleLockLeases() {
+		for (Iterator<Map.Entry<String, LockEntry>> itr = this.lockEntries.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, LockEntry> element = itr.next();
+			String global = element.getKey();
+			synchronized (this.getLockStripe(global)) {
+				LockEntry entry = this.lockEntries.get(global);
+				if (entry != null && entry.busy == false && entry.times == 0) {
+					entry.leaseExpireTime = 0;
+				}
+			}
+		}
+	}
+
+	private void waitForMillis(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (Exception ex) {
+			logger.debug(ex.getMessage());
+		}
+	}
+
+	public void release() {
+		this.released = true;
+	}
+
 	public boolean reExitTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
-			Bson condition = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
+			Bson condition = this.getCollections().globalFilter(instanceId);
 
 			Document increases = new Document();
 			increases.append("times", -1);
@@ -400,16 +630,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	public void unlockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
-		byte[] global = transactionXid.getGlobalTransactionId();
-		String instanceId = ByteUtils.byteArrayToString(global);
+		String instanceId = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_LOCKS);
+			MongoCollection<Document> collection = this.getCollections().getLocks();
 
-			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, instanceId);
+			Bson globalFilter = this.getCollections().globalFilter(instanceId);
 			Bson instIdFilter = Filters.eq("identifier", identifier);
 
 			DeleteResult result = collection.deleteOne(Filters.and(globalFilter, instIdFilter));
@@ -422,7 +648,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	public synchronized void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
-		String application = CommonUtils.getApplication(this.endpoint);
+		String application = this.getCollections().getApplication();
 		String prefix = String.format("%s/%s/instances/", CONSTANTS_ROOT_PATH, application);
 		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, application);
 		String current = event.getPath();
@@ -476,6 +702,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 			}
 			break;
 		default /* SUSPENDED, LOST, READ_ONLY */:
+			this.discardIdleLockLeases();
 			break;
 		}
 	}
@@ -484,7 +711,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		if (EventType.NodeChildrenChanged.equals(event.getType())) {
 			this.processNodeChildrenChanged(event);
 		} else if (EventType.NodeDeleted.equals(event.getType())) {
-			String application = CommonUtils.getApplication(this.endpoint);
+			String application = this.getCollections().getApplication();
 			String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, application);
 			String current = event.getPath();
 			String path = String.format("%s/%s", parent, this.endpoint);
@@ -499,7 +726,7 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 	}
 
 	private void getInstancesDirectorysChildrenAndRegisterWatcher() throws Exception {
-		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/instances", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent);
 	}
 
@@ -508,6 +735,18 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		return version == null ? -1 : version;
 	}
 
+	public Map<String, Long> getInstanceVersions() {
+		return new HashMap<String, Long>(this.instances);
+	}
+
+	public long getLockLeaseMillis() {
+		return lockLeaseMillis;
+	}
+
+	public void setLockLeaseMillis(long lockLeaseMillis) {
+		this.lockLeaseMillis = lockLeaseMillis;
+	}
+
 	public int getInitializeWaitingSeconds() {
 		return initializeWaitingSeconds;
 	}
@@ -520,6 +759,15 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		this.endpoint = identifier;
 	}
 
+	private MongoCollections getCollections() {
+		MongoCollections collections = this.collections;
+		if (collections == null) {
+			collections = MongoCollections.getInstance(this.mongoClient, this.endpoint);
+			this.collections = collections;
+		}
+		return collections;
+	}
+
 	public String getEndpoint() {
 		return endpoint;
 	}
@@ -532,4 +780,12 @@ public class MongoCompensableLock implements TransactionLock, CompensableInstVer
 		this.beanFactory = tbf;
 	}
 
+	/* local state of a lock owned by this instance, guarded by the stripe of the transaction. */
+	static class LockEntry {
+		int times;
+		long leaseExpireTime;
+		/* the lock of the transaction is being acquired/released in mongodb, changed under the entry's monitor. */
+		volatile boolean busy;
+	}
+
 }
@@ -30,9 +30,10 @@ import javax.transaction.xa.Xid;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
+import org.bson.types.Binary;
 import org.bytesoft.bytetcc.supports.CompensableInvocationImpl;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
-import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableInvocation;
@@ -41,6 +42,7 @@ import org.bytesoft.compensable.archive.TransactionArchive;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.compensable.aware.CompensableEndpointAware;
 import org.bytesoft.compensable.logging.CompensableLogger;
+import org.bytesoft.compensable.logging.InvocationCodec;
 import org.bytesoft.transaction.archive.XAResourceArchive;
 import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
@@ -51,12 +53,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 
+import com.mongodb.WriteConcern;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.result.DeleteResult;
@@ -73,13 +75,24 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 
 	@javax.annotation.Resource
 	private MongoClient mongoClient;
+	private volatile MongoCollections collections;
 	private String endpoint;
 	@javax.inject.Inject
 	private CompensableInstVersionManager versionManager;
 	@javax.inject.Inject
 	private CompensableBeanFactory beanFactory;
+	private InvocationCodec invocationCodec;
 	private volatile boolean initializeEnabled = true;
 
+	/* write-behind mode: operations are coalesced per global xid and written by bulkWrite in batches. */
+	private boolean writeBehind = false;
+	private long writeBatchWindow = 5L;
+	private int writeBatchSize = 256;
+	private long writeBarrierTimeout = 30000L;
+	private String writeConcern;
+	private boolean argsBinaryEnabled = false;
+	private volatile MongoCompensableBatchWriter batchWriter;
+
 	public void createTransaction(TransactionArchive archive) {
 		try {
 			long version = this.versionManager.getInstanceVersion(this.endpoint);
@@ -87,9 +100,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 				throw new IllegalStateException(String.format("Invalid version(%s)!", this.endpoint));
 			}
 
-			String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 			TransactionXid globalXid = (TransactionXid) archive.getXid();
 			boolean compensable = archive.isCompensable();
@@ -97,9 +108,8 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			Object propagatedBy = archive.getPropagatedBy();
 			boolean propagated = archive.isPropagated();
 
-			byte[] globalByteArray = globalXid.getGlobalTransactionId();
-			String identifier = ByteUtils.byteArrayToString(globalByteArray);
-			String application = CommonUtils.getApplication(this.endpoint);
+			String identifier = CompensableXid.toGlobalTransactionKey(globalXid);
+			String application = this.getCollections().getApplication();
 
 			Map<String, Serializable> variables = archive.getVariables();
 			byte[] variablesByteArray = variables == null || variables.isEmpty() ? null
@@ -140,21 +150,85 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	}
 
 	public void updateTransactionStatus(TransactionArchive archive) {
+		MongoCompensableBatchWriter writer = this.batchWriter;
+		if (writer == null) {
+			return;
+		}
+
+		TransactionXid globalXid = (TransactionXid) archive.getXid();
+		String identifier = CompensableXid.toGlobalTransactionKey(globalXid);
+		try {
+			writer.await(identifier, this.writeBarrierTimeout); // barrier before the next phase
+		} catch (RuntimeException error) {
+			logger.error("{}| Error occurred while writing transaction in batch.", identifier, error);
+		}
+	}
+
+	/**
+	 * Barrier before the local transaction of the try phase commits(on both coordinator and participants): the
+	 * transaction is marked rollback-only if its batched records could not be written.
+	 */
+	public void flushTransaction(TransactionArchive archive) {
+		MongoCompensableBatchWriter writer = this.batchWriter;
+		if (writer == null) {
+			return;
+		}
+
+		TransactionXid globalXid = (TransactionXid) archive.getXid();
+		String identifier = CompensableXid.toGlobalTransactionKey(globalXid);
+		try {
+			writer.await(identifier, this.writeBarrierTimeout);
+		} catch (RuntimeException error) {
+			logger.error("{}| Error occurred while flushing transaction in batch.", identifier, error);
+			this.beanFactory.getCompensableManager().setRollbackOnlyQuietly();
+		}
 	}
 
 	public void updateTransactionRecoveryStatus(TransactionArchive archive) {
+		try {
+			TransactionXid globalXid = (TransactionXid) archive.getXid();
+			String identifier = CompensableXid.toGlobalTransactionKey(globalXid);
+			Date recoveredAt = archive.getRecoveredAt() == 0 ? null : new Date(archive.getRecoveredAt());
+
+			MongoCompensableBatchWriter writer = this.getBatchWriterIfNecessary();
+			if (writer != null) {
+				writer.set(identifier, "recovered_at", recoveredAt);
+				writer.set(identifier, "recovered_times", archive.getRecoveredTimes());
+				writer.set(identifier, "recovery_due", getRecoveryDueTime(archive));
+				return;
+			}
+
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
+
+			Document target = new Document();
+			target.append("recovered_at", recoveredAt);
+			target.append("recovered_times", archive.getRecoveredTimes());
+			target.append("recovery_due", getRecoveryDueTime(archive));
+
+			Document document = new Document();
+			document.append("$set", target);
+
+			collection.updateOne(this.getCollections().globalFilter(identifier), document);
+		} catch (RuntimeException error) {
+			logger.error("Error occurred while updating transaction recovery status.", error);
+		}
+	}
+
+	/**
+	 * The time the transaction is due to be recovered next(without the jitter of the recovery scheduler), it's
+	 * persisted so that the error scan is able to skip the transactions which are not due yet.
+	 */
+	static Date getRecoveryDueTime(TransactionArchive archive) {
+		int recoveredTimes = archive.getRecoveredTimes() > 10 ? 10 : archive.getRecoveredTimes();
+		return new Date(archive.getRecoveredAt() + 1000L * 60 * (1L << recoveredTimes));
 	}
 
 	public void updateTransaction(TransactionArchive archive) {
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 			TransactionXid globalXid = (TransactionXid) archive.getXid();
-			byte[] global = globalXid.getGlobalTransactionId();
-			String identifier = ByteUtils.byteArrayToString(global);
+			String identifier = CompensableXid.toGlobalTransactionKey(globalXid);
 
 			Document document = new Document();
 
@@ -171,10 +245,11 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			target.append("compensables", this.constructCompensablesDocument(archive));
 			target.append("recovered_at", archive.getRecoveredAt() == 0 ? null : new Date(archive.getRecoveredAt()));
 			target.append("recovered_times", archive.getRecoveredTimes());
+			target.append("recovery_due", getRecoveryDueTime(archive));
 
 			document.append("$set", target);
 
-			UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, identifier), document);
+			UpdateResult result = collection.updateOne(this.getCollections().globalFilter(identifier), document);
 			if (result.getMatchedCount() != 1) {
 				throw new IllegalStateException(
 						String.format("Error occurred while updating transaction(matched= %s, modified= %s).",
@@ -190,7 +265,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	}
 
 	private Document constructParticipantsDocument(TransactionArchive archive) {
-		String application = CommonUtils.getApplication(this.endpoint);
+		String application = this.getCollections().getApplication();
 
 		List<XAResourceArchive> participantList = archive.getRemoteResources();
 		Document participants = new Document();
@@ -198,10 +273,8 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			XAResourceArchive resource = participantList.get(i);
 
 			TransactionXid resourceXid = (TransactionXid) resource.getXid();
-			byte[] globalByteArray = resourceXid.getGlobalTransactionId();
-			byte[] branchByteArray = resourceXid.getBranchQualifier();
-			String globalKey = ByteUtils.byteArrayToString(globalByteArray);
-			String branchKey = ByteUtils.byteArrayToString(branchByteArray);
+			String globalKey = CompensableXid.toGlobalTransactionKey(resourceXid);
+			String branchKey = CompensableXid.toBranchQualifierKey(resourceXid);
 
 			XAResourceDescriptor descriptor = resource.getDescriptor();
 			String descriptorType = descriptor.getClass().getName();
@@ -243,10 +316,8 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			CompensableArchive resource = compensableList.get(i);
 
 			Xid resourceXid = resource.getIdentifier();
-			byte[] globalByteArray = resourceXid.getGlobalTransactionId();
-			byte[] branchByteArray = resourceXid.getBranchQualifier();
-			String globalKey = ByteUtils.byteArrayToString(globalByteArray);
-			String branchKey = ByteUtils.byteArrayToString(branchByteArray);
+			String globalKey = CompensableXid.toGlobalTransactionKey(resourceXid);
+			String branchKey = CompensableXid.toBranchQualifierKey(resourceXid);
 
 			CompensableInvocation invocation = resource.getCompensable();
 			String beanId = (String) invocation.getIdentifier();
@@ -255,8 +326,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			Object[] args = invocation.getArgs();
 
 			String methodDesc = SerializeUtils.serializeMethod(invocation.getMethod());
-			byte[] argsByteArray = SerializeUtils.serializeObject(args);
-			String argsValue = ByteUtils.byteArrayToString(argsByteArray);
+			Object argsValue = this.encodeArgs(args);
 
 			Document service = new Document();
 			service.append(CONSTANTS_FD_GLOBAL, globalKey);
@@ -300,15 +370,17 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	public void deleteTransaction(TransactionArchive archive) {
 		try {
 			TransactionXid transactionXid = (TransactionXid) archive.getXid();
-			byte[] global = transactionXid.getGlobalTransactionId();
-			String identifier = ByteUtils.byteArrayToString(global);
+			String identifier = CompensableXid.toGlobalTransactionKey(transactionXid);
+
+			MongoCompensableBatchWriter writer = this.getBatchWriterIfNecessary();
+			if (writer != null) {
+				writer.delete(identifier);
+				return;
+			}
 
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> transactions = this.getCollections().getTransactions();
 
-			DeleteResult result = transactions.deleteOne(Filters.eq(CONSTANTS_FD_GLOBAL, identifier));
+			DeleteResult result = transactions.deleteOne(this.getCollections().globalFilter(identifier));
 			if (result.getDeletedCount() != 1) {
 				logger.error("Error occurred while deleting transaction(deleted= {}).", result.getDeletedCount());
 			}
@@ -337,10 +409,8 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 
 	private void upsertParticipant(XAResourceArchive archive) {
 		TransactionXid transactionXid = (TransactionXid) archive.getXid();
-		byte[] global = transactionXid.getGlobalTransactionId();
-		byte[] branch = transactionXid.getBranchQualifier();
-		String globalKey = ByteUtils.byteArrayToString(global);
-		String branchKey = ByteUtils.byteArrayToString(branch);
+		String globalKey = CompensableXid.toGlobalTransactionKey(transactionXid);
+		String branchKey = CompensableXid.toBranchQualifierKey(transactionXid);
 		XAResourceDescriptor descriptor = archive.getDescriptor();
 		String descriptorType = descriptor.getClass().getName();
 		String descriptorKey = descriptor.getIdentifier();
@@ -352,8 +422,6 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		boolean completed = archive.isCompleted();
 		boolean heuristic = archive.isHeuristic();
 
-		String application = CommonUtils.getApplication(this.endpoint);
-
 		Document participant = new Document();
 		participant.append(CONSTANTS_FD_GLOBAL, globalKey);
 		participant.append(CONSTANTS_FD_BRANCH, branchKey);
@@ -368,9 +436,13 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		participant.append("completed", completed);
 		participant.append("heuristic", heuristic);
 
-		String databaseName = application.replaceAll("\\W", "_");
-		MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+		MongoCompensableBatchWriter writer = this.getBatchWriterIfNecessary();
+		if (writer != null) {
+			writer.set(globalKey, String.format("participants.%s", branchKey), participant);
+			return;
+		}
+
+		MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 		Document participants = new Document();
 		participants.append(String.format("participants.%s", branchKey), participant);
@@ -378,7 +450,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		Document document = new Document();
 		document.append("$set", participants);
 
-		UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+		UpdateResult result = collection.updateOne(this.getCollections().globalFilter(globalKey), document);
 		if (result.getMatchedCount() != 1) {
 			throw new IllegalStateException(
 					String.format("Error occurred while creating/updating participant(matched= %s, modified= %s).",
@@ -389,16 +461,16 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	public void deleteParticipant(XAResourceArchive archive) {
 		try {
 			TransactionXid transactionXid = (TransactionXid) archive.getXid();
-			byte[] global = transactionXid.getGlobalTransactionId();
-			byte[] branch = transactionXid.getBranchQualifier();
-			String globalKey = ByteUtils.byteArrayToString(global);
-			String branchKey = ByteUtils.byteArrayToString(branch);
+			String globalKey = CompensableXid.toGlobalTransactionKey(transactionXid);
+			String branchKey = CompensableXid.toBranchQualifierKey(transactionXid);
 
-			String application = CommonUtils.getApplication(this.endpoint);
+			MongoCompensableBatchWriter writer = this.getBatchWriterIfNecessary();
+			if (writer != null) {
+				writer.unset(globalKey, String.format("participants.%s", branchKey));
+				return;
+			}
 
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 			Document participants = new Document();
 			participants.append(String.format("participants.%s", branchKey), null);
@@ -406,7 +478,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			Document document = new Document();
 			document.append("$unset", participants);
 
-			UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+			UpdateResult result = collection.updateOne(this.getCollections().globalFilter(globalKey), document);
 			if (result.getMatchedCount() != 1) {
 				throw new IllegalStateException(
 						String.format("Error occurred while deleting participant(matched= %s, modified= %s).",
@@ -456,10 +528,8 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 
 	private void upsertCompensable(CompensableArchive archive) throws IOException {
 		TransactionXid xid = (TransactionXid) archive.getIdentifier();
-		byte[] global = xid.getGlobalTransactionId();
-		byte[] branch = xid.getBranchQualifier();
-		String globalKey = ByteUtils.byteArrayToString(global);
-		String branchKey = ByteUtils.byteArrayToString(branch);
+		String globalKey = CompensableXid.toGlobalTransactionKey(xid);
+		String branchKey = CompensableXid.toBranchQualifierKey(xid);
 		CompensableInvocation invocation = archive.getCompensable();
 		String beanId = (String) invocation.getIdentifier();
 
@@ -467,10 +537,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		Object[] args = invocation.getArgs();
 
 		String methodDesc = SerializeUtils.serializeMethod(invocation.getMethod());
-		byte[] argsByteArray = SerializeUtils.serializeObject(args);
-		String argsValue = ByteUtils.byteArrayToString(argsByteArray);
-
-		String application = CommonUtils.getApplication(this.endpoint);
+		Object argsValue = this.encodeArgs(args);
 
 		Document compensable = new Document();
 		compensable.append(CONSTANTS_FD_GLOBAL, globalKey);
@@ -498,9 +565,13 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		compensable.append("interface", method.getDeclaringClass().getName());
 		compensable.append("method", methodDesc);
 
-		String databaseName = application.replaceAll("\\W", "_");
-		MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+		MongoCompensableBatchWriter writer = this.getBatchWriterIfNecessary();
+		if (writer != null) {
+			writer.set(globalKey, String.format("compensables.%s", branchKey), compensable);
+			return;
+		}
+
+		MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 		Document compensables = new Document();
 		compensables.append(String.format("compensables.%s", branchKey), compensable);
@@ -508,7 +579,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		Document document = new Document();
 		document.append("$set", compensables);
 
-		UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey), document);
+		UpdateResult result = collection.updateOne(this.getCollections().globalFilter(globalKey), document);
 		if (result.getMatchedCount() != 1) {
 			throw new IllegalStateException(
 					String.format("Error occurred while creating/updating compensable(matched= %s, modified= %s).",
@@ -519,10 +590,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	public void recover(TransactionRecoveryCallback callback) {
 		MongoCursor<Document> transactionCursor = null;
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> transactions = this.getCollections().getTransactions();
 
 			FindIterable<Document> transactionItr = transactions.find(Filters.eq("coordinator", true));
 			for (transactionCursor = transactionItr.iterator(); transactionCursor.hasNext();) {
@@ -672,7 +740,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			boolean simplified = element.getBoolean("simplified");
 			String confirmableKey = element.getString("confirmable_key");
 			String cancellableKey = element.getString("cancellable_key");
-			String argsValue = element.getString("args");
+			Object argsValue = element.get("args");
 			String clazzName = element.getString("interface");
 			String methodDesc = element.getString("method");
 
@@ -690,8 +758,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 			Method method = SerializeUtils.deserializeMethod(clazz, methodDesc);
 			invocation.setMethod(method);
 
-			byte[] argsByteArray = ByteUtils.stringToByteArray(argsValue);
-			Object[] args = (Object[]) SerializeUtils.deserializeObject(argsByteArray);
+			Object[] args = this.decodeArgs(argsValue);
 			invocation.setArgs(args);
 
 			invocation.setConfirmableKey(confirmableKey);
@@ -749,6 +816,58 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		return resourceList;
 	}
 
+	private MongoCompensableBatchWriter getBatchWriterIfNecessary() {
+		if (this.writeBehind == false) {
+			return null;
+		} else if (this.batchWriter == null) {
+			synchronized (this) {
+				if (this.batchWriter == null) {
+					MongoCollection<Document> collection = this.getCollections().getTransactions();
+					WriteConcern concern = StringUtils.isBlank(this.writeConcern) ? null
+							: WriteConcern.valueOf(this.writeConcern.trim());
+					MongoCompensableBatchWriter writer = new MongoCompensableBatchWriter(collection,
+							CONSTANTS_FD_GLOBAL, concern, this.writeBatchWindow, this.writeBatchSize);
+					writer.start();
+					this.batchWriter = writer;
+				}
+			}
+		}
+
+		MongoCompensableBatchWriter writer = this.batchWriter;
+		return writer.isActive() ? writer : null;
+	}
+
+	public void destroy() {
+		MongoCompensableBatchWriter writer = this.batchWriter;
+		if (writer != null) {
+			writer.release();
+		}
+	}
+
+	/**
+	 * The args are stored as hex string by default, which is the format read by the previous versions; the binary
+	 * storage is more compact but can only be enabled once every instance of the cluster is able to read it.
+	 */
+	private Object encodeArgs(Object[] args) throws IOException {
+		byte[] argsByteArray = this.invocationCodec == null ? SerializeUtils.serializeObject(args)
+				: this.invocationCodec.encodeArgs(args);
+		return this.argsBinaryEnabled ? new Binary(argsByteArray) : ByteUtils.byteArrayToString(argsByteArray);
+	}
+
+	private Object[] decodeArgs(Object argsValue) throws Exception {
+		byte[] argsByteArray = null;
+		if (Binary.class.isInstance(argsValue)) {
+			argsByteArray = ((Binary) argsValue).getData();
+		} else if (String.class.isInstance(argsValue)) {
+			argsByteArray = ByteUtils.stringToByteArray((String) argsValue); // hex string written by previous version
+		} else {
+			return null;
+		}
+
+		return this.invocationCodec == null ? (Object[]) SerializeUtils.deserializeObject(argsByteArray)
+				: this.invocationCodec.decodeArgs(argsByteArray);
+	}
+
 	public void afterSingletonsInstantiated() {
 		try {
 			this.afterPropertiesSet();
@@ -764,9 +883,7 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 	}
 
 	private void createTransactionsGlobalTxKeyIndexIfNecessary() {
-		String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-		MongoDatabase database = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> transactions = database.getCollection(CONSTANTS_TB_TRANSACTIONS);
+		MongoCollection<Document> transactions = this.getCollections().getTransactions();
 		ListIndexesIterable<Document> transactionIndexList = transactions.listIndexes();
 		boolean transactionIndexExists = false;
 		MongoCursor<Document> transactionCursor = null;
@@ -803,6 +920,62 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		this.initializeEnabled = initializeEnabled;
 	}
 
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public long getWriteBatchWindow() {
+		return writeBatchWindow;
+	}
+
+	public void setWriteBatchWindow(long writeBatchWindow) {
+		this.writeBatchWindow = writeBatchWindow;
+	}
+
+	public int getWriteBatchSize() {
+		return writeBatchSize;
+	}
+
+	public void setWriteBatchSize(int writeBatchSize) {
+		this.writeBatchSize = writeBatchSize;
+	}
+
+	public long getWriteBarrierTimeout() {
+		return writeBarrierTimeout;
+	}
+
+	public void setWriteBarrierTimeout(long writeBarrierTimeout) {
+		this.writeBarrierTimeout = writeBarrierTimeout;
+	}
+
+	public String getWriteConcern() {
+		return writeConcern;
+	}
+
+	public void setWriteConcern(String writeConcern) {
+		this.writeConcern = writeConcern;
+	}
+
+	public boolean isArgsBinaryEnabled() {
+		return argsBinaryEnabled;
+	}
+
+	public void setArgsBinaryEnabled(boolean argsBinaryEnabled) {
+		this.argsBinaryEnabled = argsBinaryEnabled;
+	}
+
+	public InvocationCodec getInvocationCodec() {
+		return invocationCodec;
+	}
+
+	public void setInvocationCodec(InvocationCodec invocationCodec) {
+		this.invocationCodec = invocationCodec;
+	}
+
 	public CompensableBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
@@ -811,6 +984,15 @@ public class MongoCompensableLogger implements CompensableLogger, CompensableEnd
 		this.beanFactory = tbf;
 	}
 
+	private MongoCollections getCollections() {
+		MongoCollections collections = this.collections;
+		if (collections == null) {
+			collections = MongoCollections.getInstance(this.mongoClient, this.endpoint);
+			this.collections = collections;
+		}
+		return collections;
+	}
+
 	public String getEndpoint() {
 		return this.endpoint;
 	}
@@ -27,12 +27,24 @@ public class MongoCompensableRecovery extends TransactionRecoveryImpl {
 	private CommandDispatcher commandDispatcher;
 
 	public void timingRecover() throws SecurityException {
+		this.dispatchRecovery(new Runnable() {
+			public void run() {
+				fireSuperTimingRecovery();
+			}
+		});
+	}
+
+	public void recoverDueTransactions() throws SecurityException {
+		this.dispatchRecovery(new Runnable() {
+			public void run() {
+				fireSuperDueRecovery();
+			}
+		});
+	}
+
+	private void dispatchRecovery(Runnable runnable) throws SecurityException {
 		try {
-			this.commandDispatcher.dispatch(new Runnable() {
-				public void run() {
-					fireSuperTimingRecovery();
-				}
-			});
+			this.commandDispatcher.dispatch(runnable);
 		} catch (SecurityException error) {
 			throw error; // Only the master node can perform the recovery operation!
 		} catch (RuntimeException error) {
@@ -46,6 +58,10 @@ public class MongoCompensableRecovery extends TransactionRecoveryImpl {
 		super.timingRecover();
 	}
 
+	private void fireSuperDueRecovery() {
+		super.recoverDueTransactions();
+	}
+
 	public CommandDispatcher getCommandDispatcher() {
 		return commandDispatcher;
 	}
@@ -17,7 +17,15 @@ package org.bytesoft.bytetcc.supports.internal;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.transaction.Status;
 import javax.transaction.SystemException;
@@ -31,6 +39,7 @@ import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.CuratorEventType;
 import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher.Event.EventType;
@@ -39,8 +48,8 @@ import org.bson.conversions.Bson;
 import org.bytesoft.bytetcc.CompensableManagerImpl;
 import org.bytesoft.bytetcc.CompensableTransactionImpl;
 import org.bytesoft.bytetcc.supports.CompensableRolledbackMarker;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
-import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.archive.TransactionArchive;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
@@ -61,8 +70,10 @@ import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.UpdateResult;
 
 public class MongoCompensableRepository implements TransactionRepository, CompensableRolledbackMarker, CompensableEndpointAware,
@@ -72,11 +83,18 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	static final String CONSTANTS_TB_TRANSACTIONS = "compensables";
 	static final String CONSTANTS_FD_GLOBAL = "gxid";
 	static final String CONSTANTS_FD_BRANCH = "bxid";
+	static final String CONSTANTS_FD_ID = "_id";
+
+	/* state of the rollback marker whose data has not been read yet. */
+	static final long MARKER_PENDING = 0L;
+	/* state of the rollback marker which is created by this instance or is being removed. */
+	static final long MARKER_IGNORED = -1L;
 
 	@javax.annotation.Resource
 	private CuratorFramework curatorFramework;
 	@javax.annotation.Resource
 	private MongoClient mongoClient;
+	private volatile MongoCollections collections;
 	private String endpoint;
 	@javax.inject.Inject
 	private CompensableInstVersionManager versionManager;
@@ -86,6 +104,19 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	private CommandDispatcher commandDispatcher;
 
 	private long rollbackEntryExpireTime = 1000L * 60 * 5;
+	private int rollbackEntryExpireBatchSize = 100;
+	/* global transaction id of the known rollback markers -> creation time(or the state) of them. */
+	private final ConcurrentMap<String, Long> rollbackMarkers = new ConcurrentHashMap<String, Long>();
+	private final AtomicInteger rollbackMarkerReadings = new AtomicInteger();
+	private boolean initializeEnabled = true;
+
+	private int errorScanPageSize = 1000;
+	/* the transactions recovered within this interval are skipped, zero means never skip. */
+	private long errorScanRecoverInterval = 0;
+	/* only the transactions due within the window are returned, the ones without recovery_due are due already. */
+	private long errorScanDueWindow = 1000L * 60;
+	private transient volatile Object errorScanPosition;
+	private transient volatile boolean errorScanFlagged = true;
 
 	public void afterSingletonsInstantiated() {
 		try {
@@ -96,13 +127,17 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	}
 
 	public void afterPropertiesSet() throws Exception {
+		if (this.initializeEnabled) {
+			this.createErrorTransactionIndexesIfNecessary();
+		}
+
 		this.curatorFramework.blockUntilConnected();
 		this.initializeSubsystemRollbackDirectory();
 		this.listenRollbackTransactionAndRegisterWatcher();
 	}
 
 	private void initializeSubsystemRollbackDirectory() throws Exception {
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		try {
 			this.curatorFramework.create() //
 					.creatingParentContainersIfNeeded().withMode(CreateMode.PERSISTENT).forPath(parent);
@@ -112,14 +147,12 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	}
 
 	private void listenRollbackTransactionAndRegisterWatcher() throws Exception {
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent);
 	}
 
 	public void processResult(CuratorFramework client, CuratorEvent event) throws Exception {
-		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
-
-		String system = CommonUtils.getApplication(this.endpoint);
+		String system = this.getCollections().getApplication();
 		String prefix = String.format("%s/%s/rollback/", CONSTANTS_ROOT_PATH, system);
 		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, system);
 		String target = event.getPath();
@@ -128,97 +161,194 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 				return;
 			}
 
-			List<String> children = event.getChildren();
-			for (int i = 0; children != null && i < children.size(); i++) {
-				String global = children.get(i);
-				String path = String.format("%s/%s", parent, global);
-				this.curatorFramework.getData().inBackground(this).forPath(path);
-			}
+			this.processRollbackChildren(parent, event.getChildren());
+			this.expireRollbackMarkersIfNecessary();
 		} else if (CuratorEventType.GET_DATA.equals(event.getType())) {
-			if (target.startsWith(prefix) == false || event.getStat() == null || event.getData() == null) {
-				return;
-			}
-
-			byte[] instanceByteArray = event.getData();
-			String instanceId = instanceByteArray == null ? StringUtils.EMPTY : new String(instanceByteArray);
-			if (StringUtils.equalsIgnoreCase(this.endpoint, instanceId)) {
+			if (target == null || target.startsWith(prefix) == false) {
 				return;
 			}
 
 			int startIdx = prefix.length();
 			int endIndex = target.indexOf("/", startIdx);
 			String global = endIndex == -1 ? target.substring(startIdx) : target.substring(startIdx, endIndex);
-			byte[] globalByteArray = ByteUtils.stringToByteArray(global);
-			final TransactionXid transactionXid = xidFactory.createGlobalXid(globalByteArray);
-
-			CompensableManagerImpl compensableManager = (CompensableManagerImpl) this.beanFactory.getCompensableManager();
-			CompensableTransactionImpl transaction = //
-					(CompensableTransactionImpl) compensableManager.getTransaction(transactionXid);
-			if (transaction != null) {
-				transaction.markBusinessStageRollbackOnly(transactionXid);
-			} // end-if (transaction != null)
-
-			long createdAt = event.getStat().getCtime();
-			long interval = System.currentTimeMillis() - createdAt;
-
-			if (interval < 0) {
-				logger.warn("The system time between servers is inconsistent.");
-			} // end-if (interval < 0)
-
-			if (interval >= this.rollbackEntryExpireTime) {
-				try {
-					this.commandDispatcher.dispatch(new Runnable() {
-						public void run() {
-							remvBusinessStageRollbackFlag(transactionXid);
-						}
-					});
-				} catch (SecurityException error) {
-					// Only the master node can perform the recovery operation!
-				} catch (RuntimeException error) {
-					logger.error("Error occurred while removing transaction rolled back status from zk!", error);
-				} catch (Exception error) {
-					logger.error("Error occurred while removing transaction rolled back status from zk!", error);
+			try {
+				this.processRollbackMarker(global, event);
+			} finally {
+				if (this.rollbackMarkerReadings.decrementAndGet() == 0) {
+					this.expireRollbackMarkersIfNecessary();
 				}
-			} else {
-				try {
-					this.commandDispatcher.dispatch(new Runnable() {
-						public void run() {
-							markTransactionRollback(transactionXid);
-						}
-					});
-				} catch (SecurityException error) {
-					// Only the master node can perform the recovery operation!
-				} catch (RuntimeException error) {
-					logger.error("Error occurred while marking transaction status as rolled back!", error);
-				} catch (Exception error) {
-					logger.error("Error occurred while marking transaction status as rolled back!", error);
+			}
+		} else if (CuratorEventType.DELETE.equals(event.getType())) {
+			if (target == null || target.startsWith(prefix) == false) {
+				return;
+			} else if (event.getResultCode() == KeeperException.Code.OK.intValue()
+					|| event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+				return;
+			}
+
+			// the marker will be read and expired again on the next children event.
+			this.rollbackMarkers.remove(target.substring(prefix.length()));
+		}
+	}
+
+	/**
+	 * Diffs the children with the known markers, only the data of the newly added markers are read.
+	 */
+	private void processRollbackChildren(String parent, List<String> children) throws Exception {
+		Set<String> childSet = children == null ? new HashSet<String>() : new HashSet<String>(children);
+		for (Iterator<String> itr = this.rollbackMarkers.keySet().iterator(); itr.hasNext();) {
+			String global = itr.next();
+			if (childSet.contains(global) == false) {
+				itr.remove();
+			}
+		}
+
+		for (Iterator<String> itr = childSet.iterator(); itr.hasNext();) {
+			String global = itr.next();
+			if (this.rollbackMarkers.putIfAbsent(global, MARKER_PENDING) != null) {
+				continue;
+			}
+
+			String path = String.format("%s/%s", parent, global);
+			this.rollbackMarkerReadings.incrementAndGet();
+			try {
+				this.curatorFramework.getData().inBackground(this).forPath(path);
+			} catch (Exception error) {
+				this.rollbackMarkerReadings.decrementAndGet();
+				this.rollbackMarkers.remove(global);
+				throw error;
+			}
+		}
+	}
+
+	private void processRollbackMarker(String global, CuratorEvent event) {
+		if (event.getStat() == null || event.getData() == null) {
+			this.rollbackMarkers.remove(global);
+			return;
+		}
+
+		byte[] instanceByteArray = event.getData();
+		String instanceId = instanceByteArray == null ? StringUtils.EMPTY : new String(instanceByteArray);
+		if (StringUtils.equalsIgnoreCase(this.endpoint, instanceId)) {
+			this.rollbackMarkers.replace(global, MARKER_PENDING, MARKER_IGNORED);
+			return;
+		}
+
+		long createdAt = event.getStat().getCtime();
+		if (this.rollbackMarkers.replace(global, MARKER_PENDING, createdAt) == false) {
+			return; // removed or expired already
+		}
+
+		XidFactory xidFactory = this.beanFactory.getCompensableXidFactory();
+		byte[] globalByteArray = ByteUtils.stringToByteArray(global);
+		final TransactionXid transactionXid = xidFactory.createGlobalXid(globalByteArray);
+
+		CompensableManagerImpl compensableManager = (CompensableManagerImpl) this.beanFactory.getCompensableManager();
+		CompensableTransactionImpl transaction = //
+				(CompensableTransactionImpl) compensableManager.getTransaction(transactionXid);
+		if (transaction != null) {
+			transaction.markBusinessStageRollbackOnly(transactionXid);
+		} // end-if (transaction != null)
+
+		long interval = System.currentTimeMillis() - createdAt;
+
+		if (interval < 0) {
+			logger.warn("The system time between servers is inconsistent.");
+		} // end-if (interval < 0)
+
+		if (interval >= this.rollbackEntryExpireTime) {
+			return; // expired in batch
+		}
+
+		try {
+			this.commandDispatcher.dispatch(new Runnable() {
+				public void run() {
+					markTransactionRollback(transactionXid);
 				}
+			});
+		} catch (SecurityException error) {
+			// Only the master node can perform the recovery operation!
+		} catch (RuntimeException error) {
+			logger.error("Error occurred while marking transaction status as rolled back!", error);
+		} catch (Exception error) {
+			logger.error("Error occurred while marking transaction status as rolled back!", error);
+		}
+	}
+
+	/**
+	 * Removes the expired markers in batches, it's triggered when the children changed or all of the newly added
+	 * markers have been read, and only the creation time cached in memory is checked.
+	 */
+	private void expireRollbackMarkersIfNecessary() {
+		long current = System.currentTimeMillis();
+		Map<String, Long> expiredMap = new HashMap<String, Long>();
+		for (Iterator<Map.Entry<String, Long>> itr = this.rollbackMarkers.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, Long> entry = itr.next();
+			long createdAt = entry.getValue();
+			if (createdAt == MARKER_PENDING || createdAt == MARKER_IGNORED) {
+				continue;
+			} else if (current - createdAt < this.rollbackEntryExpireTime) {
+				continue;
+			} else if (this.rollbackMarkers.replace(entry.getKey(), createdAt, MARKER_IGNORED)) {
+				expiredMap.put(entry.getKey(), createdAt);
 			}
+		}
 
+		List<String> expiredList = new ArrayList<String>(expiredMap.keySet());
+
+		int batchSize = Math.max(1, this.rollbackEntryExpireBatchSize);
+		for (int i = 0; i < expiredList.size(); i += batchSize) {
+			final List<String> batchList = expiredList.subList(i, Math.min(i + batchSize, expiredList.size()));
+			try {
+				this.commandDispatcher.dispatch(new Runnable() {
+					public void run() {
+						remvBusinessStageRollbackFlags(batchList);
+					}
+				});
+			} catch (SecurityException error) {
+				// Only the master node can perform the recovery operation!
+				this.resetRollbackMarkers(batchList, expiredMap);
+			} catch (RuntimeException error) {
+				logger.error("Error occurred while removing transaction rolled back status from zk!", error);
+				this.resetRollbackMarkers(batchList, expiredMap);
+			} catch (Exception error) {
+				logger.error("Error occurred while removing transaction rolled back status from zk!", error);
+				this.resetRollbackMarkers(batchList, expiredMap);
+			}
+		}
+	}
+
+	/* the markers which are not removed will be expired again by the next round. */
+	private void resetRollbackMarkers(List<String> globalList, Map<String, Long> createdMap) {
+		for (int i = 0; i < globalList.size(); i++) {
+			String global = globalList.get(i);
+			this.rollbackMarkers.replace(global, MARKER_IGNORED, createdMap.get(global));
 		}
 	}
 
 	public void process(WatchedEvent event) throws Exception {
 		if (EventType.NodeChildrenChanged.equals(event.getType())) {
-			String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+			String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 			this.curatorFramework.getChildren().usingWatcher(this).inBackground(this).forPath(parent);
 		}
 	}
 
-	private void remvBusinessStageRollbackFlag(TransactionXid transactionXid) {
-		String global = ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId());
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
-		String target = String.format("%s/%s", parent, global);
-		try {
-			this.curatorFramework.delete().inBackground(this).forPath(target);
-		} catch (Exception error) {
-			logger.warn("Error occurred while deleting zookeeper path({}).", target);
+	private void remvBusinessStageRollbackFlags(List<String> globalList) {
+		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
+		for (int i = 0; i < globalList.size(); i++) {
+			String target = String.format("%s/%s", parent, globalList.get(i));
+			try {
+				this.curatorFramework.delete().inBackground(this).forPath(target);
+			} catch (Exception error) {
+				logger.warn("Error occurred while deleting zookeeper path({}).", target);
+				this.rollbackMarkers.remove(globalList.get(i));
+			}
 		}
 	}
 
 	public void markBusinessStageRollbackOnly(TransactionXid transactionXid) throws SystemException {
-		String global = ByteUtils.byteArrayToString(transactionXid.getGlobalTransactionId());
-		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, CommonUtils.getApplication(this.endpoint));
+		String global = CompensableXid.toGlobalTransactionKey(transactionXid);
+		String parent = String.format("%s/%s/rollback", CONSTANTS_ROOT_PATH, this.getCollections().getApplication());
 		String target = String.format("%s/%s", parent, global);
 		try {
 			byte[] instanceByteArray = this.endpoint == null ? new byte[0] : this.endpoint.getBytes();
@@ -234,19 +364,14 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 
 	private void markTransactionRollback(TransactionXid transactionXid) {
 		try {
-			byte[] global = transactionXid.getGlobalTransactionId();
-			String identifier = ByteUtils.byteArrayToString(global);
-
-			String application = CommonUtils.getApplication(this.endpoint);
+			String identifier = CompensableXid.toGlobalTransactionKey(transactionXid);
 
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 			Document document = new Document();
 			document.append("$set", new Document("status", Status.STATUS_MARKED_ROLLBACK));
 
-			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, identifier);
+			Bson globalFilter = this.getCollections().globalFilter(identifier);
 			Bson statusFilter = Filters.eq("status", Status.STATUS_ACTIVE);
 
 			collection.updateOne(Filters.and(globalFilter, statusFilter), document);
@@ -275,16 +400,11 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 
 		MongoCursor<Document> transactionCursor = null;
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
+			MongoCollection<Document> transactions = this.getCollections().getTransactions();
 
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			String globalKey = CompensableXid.toGlobalTransactionKey(xid);
 
-			byte[] global = xid.getGlobalTransactionId();
-			String globalKey = ByteUtils.byteArrayToString(global);
-
-			FindIterable<Document> transactionItr = transactions.find(Filters.eq(CONSTANTS_FD_GLOBAL, globalKey));
+			FindIterable<Document> transactionItr = transactions.find(this.getCollections().globalFilter(globalKey));
 			transactionCursor = transactionItr.iterator();
 			if (transactionCursor.hasNext() == false) {
 				return null;
@@ -313,14 +433,11 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 	public void putErrorTransaction(TransactionXid transactionXid, Transaction transaction) {
 		try {
 			TransactionArchive archive = (TransactionArchive) transaction.getTransactionArchive();
-			byte[] global = transactionXid.getGlobalTransactionId();
-			String identifier = ByteUtils.byteArrayToString(global);
+			String identifier = CompensableXid.toGlobalTransactionKey(transactionXid);
 
 			int status = archive.getCompensableStatus();
 
-			String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> collection = this.getCollections().getTransactions();
 
 			Document target = new Document();
 			target.append("modified", this.endpoint);
@@ -328,12 +445,13 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 			target.append("error", true);
 			target.append("recovered_at", archive.getRecoveredAt() == 0 ? null : new Date(archive.getRecoveredAt()));
 			target.append("recovered_times", archive.getRecoveredTimes());
+			target.append("recovery_due", MongoCompensableLogger.getRecoveryDueTime(archive));
 
 			Document document = new Document();
 			document.append("$set", target);
 			// document.append("$inc", new BasicDBObject("modified_time", 1));
 
-			UpdateResult result = collection.updateOne(Filters.eq(CONSTANTS_FD_GLOBAL, identifier), document);
+			UpdateResult result = collection.updateOne(this.getCollections().globalFilter(identifier), document);
 			if (result.getMatchedCount() != 1) {
 				throw new IllegalStateException(
 						String.format("Error occurred while updating transaction(matched= %s, modified= %s).",
@@ -344,23 +462,25 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		}
 	}
 
+	/**
+	 * Reloads the transaction from mongodb if it is flagged as error or its creator is gone, the same transactions as
+	 * the ones returned by getErrorTransactionList.
+	 */
 	public Transaction getErrorTransaction(TransactionXid xid) throws TransactionException {
 		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
 
 		MongoCursor<Document> transactionCursor = null;
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
+			MongoCollection<Document> transactions = this.getCollections().getTransactions();
 
-			byte[] global = xid.getGlobalTransactionId();
 
-			Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, ByteUtils.byteArrayToString(global));
-			Bson errorFilter = Filters.eq("error", true);
+			Bson globalFilter = this.getCollections().globalFilter(CompensableXid.toGlobalTransactionKey(xid));
+			Bson orphanFilter = this.createOrphanTransactionFilter();
+			Bson condition = orphanFilter == null ? globalFilter : Filters.and(globalFilter,
+					Filters.or(Filters.eq("error", true), Filters.and(Filters.eq("error", false), orphanFilter)));
 
-			FindIterable<Document> transactionItr = transactions.find(Filters.and(globalFilter, errorFilter));
+			FindIterable<Document> transactionItr = transactions.find(condition);
 			transactionCursor = transactionItr.iterator();
 			if (transactionCursor.hasNext() == false) {
 				return null;
@@ -387,37 +507,56 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		return null;
 	}
 
+	/**
+	 * Returns the next page of the transactions to be recovered. The scan alternates between the transactions flagged as
+	 * error and the unflagged ones whose creator is gone; both queries are an equality on (coordinator, error) plus a
+	 * range on _id, so that they are served by the index created in afterPropertiesSet in _id order, and the position is
+	 * kept so that the next invocation resumes where this one stopped.
+	 */
 	public List<Transaction> getErrorTransactionList() throws TransactionException {
 		TransactionRecovery compensableRecovery = this.beanFactory.getCompensableRecovery();
 		CompensableLogger compensableLogger = this.beanFactory.getCompensableLogger();
+		MongoCompensableLogger mongoCompensableLogger = (MongoCompensableLogger) compensableLogger;
 
 		List<Transaction> transactionList = new ArrayList<Transaction>();
+		int pageSize = Math.max(1, this.errorScanPageSize);
 
 		MongoCursor<Document> transactionCursor = null;
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> transactions = mdb.getCollection(CONSTANTS_TB_TRANSACTIONS);
-
-			FindIterable<Document> transactionItr = transactions.find(Filters.eq("coordinator", true));
-			for (transactionCursor = transactionItr.iterator(); transactionCursor.hasNext();) {
-				Document document = transactionCursor.next();
-				boolean error = document.getBoolean("error");
-
-				String targetApplication = document.getString("created");
-				long expectVersion = document.getLong("version");
-				long actualVersion = this.versionManager.getInstanceVersion(targetApplication);
-
-				if (error == false && actualVersion > 0 && actualVersion <= expectVersion) {
-					continue; // ignore
+			MongoCollection<Document> transactions = this.getCollections().getTransactions();
+
+			for (int phase = 0; phase < 2 && transactionList.size() < pageSize; phase++) {
+				boolean flagged = this.errorScanFlagged;
+				Object position = null;
+				int limit = pageSize - transactionList.size();
+				int count = 0;
+
+				Bson condition = this.createErrorTransactionFilter(flagged, this.errorScanPosition);
+				FindIterable<Document> transactionItr = transactions.find(condition) //
+						.sort(Sorts.ascending(CONSTANTS_FD_ID)).limit(limit).batchSize(limit);
+				for (transactionCursor = transactionItr.iterator(); transactionCursor.hasNext();) {
+					Document document = transactionCursor.next();
+					position = document.get(CONSTANTS_FD_ID);
+					count++;
+
+					try {
+						TransactionArchive archive = mongoCompensableLogger.reconstructTransactionArchive(document);
+						Transaction transaction = compensableRecovery.reconstruct(archive);
+						transactionList.add(transaction);
+					} catch (RuntimeException error) {
+						logger.error("Error occurred while reconstructing error transaction(gxid= {}).",
+								document.getString(CONSTANTS_FD_GLOBAL), error);
+					}
+				}
+				IOUtils.closeQuietly(transactionCursor);
+				transactionCursor = null;
+
+				if (count < limit) {
+					this.errorScanFlagged = !flagged; // exhausted, continue with the other query
+					this.errorScanPosition = null;
+				} else {
+					this.errorScanPosition = position;
 				}
-
-				MongoCompensableLogger mongoCompensableLogger = (MongoCompensableLogger) compensableLogger;
-				TransactionArchive archive = mongoCompensableLogger.reconstructTransactionArchive(document);
-
-				Transaction transaction = compensableRecovery.reconstruct(archive);
-				transactionList.add(transaction);
 			}
 
 			return transactionList;
@@ -432,6 +571,60 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		}
 	}
 
+	/**
+	 * coordinator && error [&& due] [&& not recovered recently], or coordinator && !error && (the creator is not alive ||
+	 * the creator has been restarted). The conditions besides (coordinator, error, _id) are evaluated on the documents
+	 * fetched along the index.
+	 */
+	private Bson createErrorTransactionFilter(boolean error, Object lastKey) {
+		List<Bson> conditions = new ArrayList<Bson>();
+		conditions.add(Filters.eq("coordinator", true));
+		conditions.add(Filters.eq("error", error));
+		if (lastKey != null) {
+			conditions.add(Filters.gt(CONSTANTS_FD_ID, lastKey));
+		}
+
+		Bson orphanFilter = error ? null : this.createOrphanTransactionFilter();
+		if (orphanFilter != null) {
+			conditions.add(orphanFilter);
+		}
+
+		if (this.errorScanDueWindow > 0) {
+			Date dueBefore = new Date(System.currentTimeMillis() + this.errorScanDueWindow);
+			conditions.add(Filters.or(Filters.eq("recovery_due", null), Filters.lte("recovery_due", dueBefore)));
+		}
+		if (this.errorScanRecoverInterval > 0) {
+			Date recoveredBefore = new Date(System.currentTimeMillis() - this.errorScanRecoverInterval);
+			conditions.add(Filters.or(Filters.eq("recovered_at", null), Filters.lt("recovered_at", recoveredBefore)));
+		}
+
+		return Filters.and(conditions);
+	}
+
+	/**
+	 * Neither the creator is alive nor it has been restarted, returns null when no instance is known.
+	 */
+	private Bson createOrphanTransactionFilter() {
+		List<Bson> ownedList = new ArrayList<Bson>();
+		Map<String, Long> instanceVersions = this.versionManager.getInstanceVersions();
+		for (Iterator<Map.Entry<String, Long>> itr = instanceVersions.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<String, Long> entry = itr.next();
+			long actualVersion = entry.getValue() == null ? -1 : entry.getValue();
+			if (actualVersion > 0) {
+				Bson versionFilter = Filters.gte("version", actualVersion);
+				ownedList.add(Filters.and(Filters.eq("created", entry.getKey()), versionFilter));
+			}
+		}
+		return ownedList.isEmpty() ? null : Filters.nor(ownedList);
+	}
+
+	private void createErrorTransactionIndexesIfNecessary() {
+		MongoCollection<Document> transactions = this.getCollections().getTransactions();
+
+		Bson errorIndex = Indexes.ascending("coordinator", "error", CONSTANTS_FD_ID);
+		transactions.createIndex(errorIndex, new IndexOptions().name("coordinator_error_id").background(true));
+	}
+
 	public CommandDispatcher getCommandDispatcher() {
 		return commandDispatcher;
 	}
@@ -448,6 +641,46 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		this.rollbackEntryExpireTime = rollbackEntryExpireTime;
 	}
 
+	public int getRollbackEntryExpireBatchSize() {
+		return rollbackEntryExpireBatchSize;
+	}
+
+	public void setRollbackEntryExpireBatchSize(int rollbackEntryExpireBatchSize) {
+		this.rollbackEntryExpireBatchSize = rollbackEntryExpireBatchSize;
+	}
+
+	public boolean isInitializeEnabled() {
+		return initializeEnabled;
+	}
+
+	public void setInitializeEnabled(boolean initializeEnabled) {
+		this.initializeEnabled = initializeEnabled;
+	}
+
+	public int getErrorScanPageSize() {
+		return errorScanPageSize;
+	}
+
+	public void setErrorScanPageSize(int errorScanPageSize) {
+		this.errorScanPageSize = errorScanPageSize;
+	}
+
+	public long getErrorScanRecoverInterval() {
+		return errorScanRecoverInterval;
+	}
+
+	public void setErrorScanRecoverInterval(long errorScanRecoverInterval) {
+		this.errorScanRecoverInterval = errorScanRecoverInterval;
+	}
+
+	public long getErrorScanDueWindow() {
+		return errorScanDueWindow;
+	}
+
+	public void setErrorScanDueWindow(long errorScanDueWindow) {
+		this.errorScanDueWindow = errorScanDueWindow;
+	}
+
 	public List<Transaction> getActiveTransactionList() {
 		return new ArrayList<Transaction>();
 	}
@@ -456,6 +689,15 @@ public class MongoCompensableRepository implements TransactionRepository, Compen
 		this.endpoint = identifier;
 	}
 
+	private MongoCollections getCollections() {
+		MongoCollections collections = this.collections;
+		if (collections == null) {
+			collections = MongoCollections.getInstance(this.mongoClient, this.endpoint);
+			this.collections = collections;
+		}
+		return collections;
+	}
+
 	public String getEndpoint() {
 		return endpoint;
 	}
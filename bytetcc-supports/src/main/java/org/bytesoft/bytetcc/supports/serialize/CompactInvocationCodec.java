@@ -0,0 +1,415 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bytesoft.bytetcc.supports.CompensableInvocationImpl;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.logging.InvocationCodec;
+
+/**
+ * Schema-less binary codec of the compensable invocation: the common value types (primitive wrappers, string, byte
+ * array, date, big number, enum, object array, ArrayList/HashMap/LinkedHashMap) are written with a one-byte tag, any
+ * other value falls back to the java serialization. Archives written by the java serialization are still decoded.
+ */
+public class CompactInvocationCodec implements InvocationCodec {
+	static final byte MAGIC = (byte) 0xBC;
+	static final byte VERSION = 0x1;
+
+	static final byte JAVA_MAGIC_HIGH = (byte) 0xAC;
+	static final byte JAVA_MAGIC_LOW = (byte) 0xED;
+
+	static final int TAG_NULL = 0x0;
+	static final int TAG_TRUE = 0x1;
+	static final int TAG_FALSE = 0x2;
+	static final int TAG_BYTE = 0x3;
+	static final int TAG_SHORT = 0x4;
+	static final int TAG_INT = 0x5;
+	static final int TAG_LONG = 0x6;
+	static final int TAG_FLOAT = 0x7;
+	static final int TAG_DOUBLE = 0x8;
+	static final int TAG_CHAR = 0x9;
+	static final int TAG_STRING = 0xA;
+	static final int TAG_BYTES = 0xB;
+	static final int TAG_OBJECT_ARRAY = 0xC;
+	static final int TAG_ARRAY_LIST = 0xD;
+	static final int TAG_HASH_MAP = 0xE;
+	static final int TAG_LINKED_HASH_MAP = 0xF;
+	static final int TAG_BIG_DECIMAL = 0x10;
+	static final int TAG_BIG_INTEGER = 0x11;
+	static final int TAG_DATE = 0x12;
+	static final int TAG_ENUM = 0x13;
+	static final int TAG_SERIALIZED = 0x7F;
+
+	public byte[] encodeInvocation(CompensableInvocation invocation) throws IOException {
+		if (invocation == null) {
+			return new byte[0];
+		}
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+		DataOutputStream output = new DataOutputStream(baos);
+		output.writeByte(MAGIC);
+		output.writeByte(VERSION);
+
+		this.writeString(output, invocation.getDeclaringClass());
+		this.writeString(output, invocation.getMethodName());
+		String[] parameterTypeArray = invocation.getParameterTypeArray();
+		this.writeVarInt(output, parameterTypeArray == null ? -1 : parameterTypeArray.length);
+		for (int i = 0; parameterTypeArray != null && i < parameterTypeArray.length; i++) {
+			this.writeString(output, parameterTypeArray[i]);
+		}
+		this.writeString(output, invocation.getConfirmableKey());
+		this.writeString(output, invocation.getCancellableKey());
+		this.writeValue(output, invocation.getIdentifier());
+		output.writeBoolean(invocation.isSimplified());
+		this.writeValue(output, invocation.getArgs());
+
+		output.flush();
+		return baos.toByteArray();
+	}
+
+	public CompensableInvocation decodeInvocation(byte[] byteArray) throws IOException {
+		if (byteArray == null || byteArray.length == 0) {
+			return null;
+		} else if (this.isJavaSerialized(byteArray)) {
+			return (CompensableInvocation) this.deserializeObject(byteArray);
+		}
+
+		DataInputStream input = this.createInputStream(byteArray);
+
+		CompensableInvocationImpl invocation = new CompensableInvocationImpl();
+		invocation.setDeclaringClass(this.readString(input));
+		invocation.setMethodName(this.readString(input));
+		int length = this.readVarInt(input);
+		String[] parameterTypeArray = length < 0 ? null : new String[length];
+		for (int i = 0; i < length; i++) {
+			parameterTypeArray[i] = this.readString(input);
+		}
+		invocation.setParameterTypeArray(parameterTypeArray);
+		invocation.setConfirmableKey(this.readString(input));
+		invocation.setCancellableKey(this.readString(input));
+		invocation.setIdentifier(this.readValue(input));
+		invocation.setSimplified(input.readBoolean());
+		invocation.setArgs((Object[]) this.readValue(input));
+
+		return invocation;
+	}
+
+	public byte[] encodeArgs(Object[] args) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+		DataOutputStream output = new DataOutputStream(baos);
+		output.writeByte(MAGIC);
+		output.writeByte(VERSION);
+		this.writeValue(output, args);
+		output.flush();
+		return baos.toByteArray();
+	}
+
+	public Object[] decodeArgs(byte[] byteArray) throws IOException {
+		if (byteArray == null || byteArray.length == 0) {
+			return null;
+		} else if (this.isJavaSerialized(byteArray)) {
+			return (Object[]) this.deserializeObject(byteArray);
+		}
+
+		DataInputStream input = this.createInputStream(byteArray);
+		return (Object[]) this.readValue(input);
+	}
+
+	private boolean isJavaSerialized(byte[] byteArray) {
+		return byteArray.length >= 2 && byteArray[0] == JAVA_MAGIC_HIGH && byteArray[1] == JAVA_MAGIC_LOW;
+	}
+
+	private DataInputStream createInputStream(byte[] byteArray) throws IOException {
+		if (byteArray.length < 2 || byteArray[0] != MAGIC) {
+			throw new IOException("Invalid invocation header!");
+		} else if (byteArray[1] != VERSION) {
+			throw new IOException(String.format("Unsupported invocation version(%s)!", byteArray[1]));
+		}
+		return new DataInputStream(new ByteArrayInputStream(byteArray, 2, byteArray.length - 2));
+	}
+
+	private void writeValue(DataOutputStream output, Object value) throws IOException {
+		if (value == null) {
+			output.writeByte(TAG_NULL);
+		} else if (Boolean.class.equals(value.getClass())) {
+			output.writeByte(((Boolean) value).booleanValue() ? TAG_TRUE : TAG_FALSE);
+		} else if (Byte.class.equals(value.getClass())) {
+			output.writeByte(TAG_BYTE);
+			output.writeByte((Byte) value);
+		} else if (Short.class.equals(value.getClass())) {
+			output.writeByte(TAG_SHORT);
+			output.writeShort((Short) value);
+		} else if (Integer.class.equals(value.getClass())) {
+			output.writeByte(TAG_INT);
+			int intValue = (Integer) value;
+			this.writeVarInt(output, (intValue << 1) ^ (intValue >> 31));
+		} else if (Long.class.equals(value.getClass())) {
+			output.writeByte(TAG_LONG);
+			long longValue = (Long) value;
+			this.writeVarLong(output, (longValue << 1) ^ (longValue >> 63));
+		} else if (Float.class.equals(value.getClass())) {
+			output.writeByte(TAG_FLOAT);
+			output.writeFloat((Float) value);
+		} else if (Double.class.equals(value.getClass())) {
+			output.writeByte(TAG_DOUBLE);
+			output.writeDouble((Double) value);
+		} else if (Character.class.equals(value.getClass())) {
+			output.writeByte(TAG_CHAR);
+			output.writeChar((Character) value);
+		} else if (String.class.equals(value.getClass())) {
+			output.writeByte(TAG_STRING);
+			this.writeString(output, (String) value);
+		} else if (byte[].class.equals(value.getClass())) {
+			output.writeByte(TAG_BYTES);
+			byte[] byteArray = (byte[]) value;
+			this.writeVarInt(output, byteArray.length);
+			output.write(byteArray);
+		} else if (Object[].class.equals(value.getClass())) {
+			output.writeByte(TAG_OBJECT_ARRAY);
+			Object[] array = (Object[]) value;
+			this.writeVarInt(output, array.length);
+			for (int i = 0; i < array.length; i++) {
+				this.writeValue(output, array[i]);
+			}
+		} else if (ArrayList.class.equals(value.getClass())) {
+			output.writeByte(TAG_ARRAY_LIST);
+			List<?> list = (List<?>) value;
+			this.writeVarInt(output, list.size());
+			for (int i = 0; i < list.size(); i++) {
+				this.writeValue(output, list.get(i));
+			}
+		} else if (HashMap.class.equals(value.getClass()) || LinkedHashMap.class.equals(value.getClass())) {
+			output.writeByte(HashMap.class.equals(value.getClass()) ? TAG_HASH_MAP : TAG_LINKED_HASH_MAP);
+			Map<?, ?> map = (Map<?, ?>) value;
+			this.writeVarInt(output, map.size());
+			for (Iterator<? extends Map.Entry<?, ?>> itr = map.entrySet().iterator(); itr.hasNext();) {
+				Map.Entry<?, ?> entry = itr.next();
+				this.writeValue(output, entry.getKey());
+				this.writeValue(output, entry.getValue());
+			}
+		} else if (BigDecimal.class.equals(value.getClass())) {
+			output.writeByte(TAG_BIG_DECIMAL);
+			this.writeString(output, value.toString());
+		} else if (BigInteger.class.equals(value.getClass())) {
+			output.writeByte(TAG_BIG_INTEGER);
+			byte[] byteArray = ((BigInteger) value).toByteArray();
+			this.writeVarInt(output, byteArray.length);
+			output.write(byteArray);
+		} else if (Date.class.equals(value.getClass())) {
+			output.writeByte(TAG_DATE);
+			output.writeLong(((Date) value).getTime());
+		} else if (Enum.class.isInstance(value)) {
+			output.writeByte(TAG_ENUM);
+			Enum<?> enumValue = (Enum<?>) value;
+			this.writeString(output, enumValue.getDeclaringClass().getName());
+			this.writeString(output, enumValue.name());
+		} else {
+			output.writeByte(TAG_SERIALIZED);
+			byte[] byteArray = this.serializeObject(value);
+			this.writeVarInt(output, byteArray.length);
+			output.write(byteArray);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readValue(DataInputStream input) throws IOException {
+		int tag = input.readByte();
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_TRUE:
+			return Boolean.TRUE;
+		case TAG_FALSE:
+			return Boolean.FALSE;
+		case TAG_BYTE:
+			return input.readByte();
+		case TAG_SHORT:
+			return input.readShort();
+		case TAG_INT: {
+			int value = this.readVarInt(input);
+			return (value >>> 1) ^ -(value & 1);
+		}
+		case TAG_LONG: {
+			long value = this.readVarLong(input);
+			return (value >>> 1) ^ -(value & 1L);
+		}
+		case TAG_FLOAT:
+			return input.readFloat();
+		case TAG_DOUBLE:
+			return input.readDouble();
+		case TAG_CHAR:
+			return input.readChar();
+		case TAG_STRING:
+			return this.readString(input);
+		case TAG_BYTES:
+			return this.readByteArray(input);
+		case TAG_OBJECT_ARRAY: {
+			Object[] array = new Object[this.readVarInt(input)];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = this.readValue(input);
+			}
+			return array;
+		}
+		case TAG_ARRAY_LIST: {
+			int size = this.readVarInt(input);
+			List<Object> list = new ArrayList<Object>(size);
+			for (int i = 0; i < size; i++) {
+				list.add(this.readValue(input));
+			}
+			return list;
+		}
+		case TAG_HASH_MAP:
+		case TAG_LINKED_HASH_MAP: {
+			int size = this.readVarInt(input);
+			Map<Object, Object> map = tag == TAG_HASH_MAP ? new HashMap<Object, Object>()
+					: new LinkedHashMap<Object, Object>();
+			for (int i = 0; i < size; i++) {
+				Object key = this.readValue(input);
+				map.put(key, this.readValue(input));
+			}
+			return map;
+		}
+		case TAG_BIG_DECIMAL:
+			return new BigDecimal(this.readString(input));
+		case TAG_BIG_INTEGER:
+			return new BigInteger(this.readByteArray(input));
+		case TAG_DATE:
+			return new Date(input.readLong());
+		case TAG_ENUM: {
+			String className = this.readString(input);
+			String name = this.readString(input);
+			Class<? extends Enum> clazz = (Class<? extends Enum>) this.loadClass(className);
+			return Enum.valueOf(clazz, name);
+		}
+		case TAG_SERIALIZED:
+			return this.deserializeObject(this.readByteArray(input));
+		default:
+			throw new IOException(String.format("Unknown value tag(%s)!", tag));
+		}
+	}
+
+	private Class<?> loadClass(String className) throws IOException {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			return Class.forName(className, false, classLoader == null ? this.getClass().getClassLoader() : classLoader);
+		} catch (ClassNotFoundException ex) {
+			throw new IOException(String.format("Class(%s) is not found!", className), ex);
+		}
+	}
+
+	private byte[] serializeObject(Object value) throws IOException {
+		if (Serializable.class.isInstance(value) == false) {
+			throw new IOException(String.format("Class(%s) is not serializable!", value.getClass().getName()));
+		}
+		try {
+			return SerializeUtils.serializeObject((Serializable) value);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	private Object deserializeObject(byte[] byteArray) throws IOException {
+		try {
+			return SerializeUtils.deserializeObject(byteArray);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	private void writeString(DataOutputStream output, String value) throws IOException {
+		if (value == null) {
+			this.writeVarInt(output, -1);
+		} else {
+			byte[] byteArray = value.getBytes("UTF-8");
+			this.writeVarInt(output, byteArray.length);
+			output.write(byteArray);
+		}
+	}
+
+	private String readString(DataInputStream input) throws IOException {
+		int length = this.readVarInt(input);
+		if (length < 0) {
+			return null;
+		}
+		byte[] byteArray = new byte[length];
+		input.readFully(byteArray);
+		return new String(byteArray, "UTF-8");
+	}
+
+	private byte[] readByteArray(DataInputStream input) throws IOException {
+		byte[] byteArray = new byte[this.readVarInt(input)];
+		input.readFully(byteArray);
+		return byteArray;
+	}
+
+	private void writeVarInt(DataOutputStream output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+
+	private int readVarInt(DataInputStream input) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length int!");
+	}
+
+	private void writeVarLong(DataOutputStream output, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		output.writeByte((int) value);
+	}
+
+	private long readVarLong(DataInputStream input) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = input.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable-length long!");
+	}
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.io.IOException;
+
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.CompensableInvocation;
+import org.bytesoft.compensable.logging.InvocationCodec;
+
+/**
+ * Codec of the compensable invocation based on the java serialization, which is compatible with the archives written
+ * before the InvocationCodec is introduced. Archives written by the CompactInvocationCodec are still decoded.
+ */
+public class SerializedInvocationCodec implements InvocationCodec {
+	private final CompactInvocationCodec compactInvocationCodec = new CompactInvocationCodec();
+
+	public byte[] encodeInvocation(CompensableInvocation invocation) throws IOException {
+		try {
+			return SerializeUtils.serializeObject(invocation);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	public CompensableInvocation decodeInvocation(byte[] byteArray) throws IOException {
+		if (this.isCompactEncoded(byteArray)) {
+			return this.compactInvocationCodec.decodeInvocation(byteArray);
+		}
+
+		try {
+			return (CompensableInvocation) SerializeUtils.deserializeObject(byteArray);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	public byte[] encodeArgs(Object[] args) throws IOException {
+		try {
+			return SerializeUtils.serializeObject(args);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	public Object[] decodeArgs(byte[] byteArray) throws IOException {
+		if (this.isCompactEncoded(byteArray)) {
+			return this.compactInvocationCodec.decodeArgs(byteArray);
+		}
+
+		try {
+			return (Object[]) SerializeUtils.deserializeObject(byteArray);
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	private boolean isCompactEncoded(byte[] byteArray) {
+		return byteArray != null && byteArray.length > 0 && byteArray[0] == CompactInvocationCodec.MAGIC;
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Base64;
+
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.CompensableBeanFactory;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+
+/**
+ * Codec of the transaction context propagated by the X-BYTETCC-TRANSACTION header. The compact form is: magic(0xBC)
+ * version(1) flags(1) format-id(varint) global-transaction-id(length + bytes) branch-qualifier(length + bytes)
+ * created-time(varint) expired-time(varint) [propagated-by(varint length + utf-8)], and only carries what the
+ * receiver uses (the context is cloned on receipt). Decoding detects the form by the leading bytes, so that the java
+ * serialized form sent by the older versions is still accepted.
+ */
+public class TransactionContextCodec {
+	public static final String PROPERTY_COMPACT_ENABLED = "org.bytesoft.bytetcc.context.compact";
+
+	static final byte MAGIC = (byte) 0xBC;
+	static final byte VERSION = 0x1;
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	static final int FLAG_COMPENSABLE = 0x1;
+	static final int FLAG_STATEFULLY = 0x2;
+	static final int FLAG_PROPAGATED = 0x4;
+	static final int FLAG_PROPAGATED_BY = 0x8;
+
+	/* the encoded context is small, the buffer is reused by the thread to avoid growing a new one per call. */
+	static final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<ByteArrayOutputStream>() {
+		protected ByteArrayOutputStream initialValue() {
+			return new ByteArrayOutputStream(128);
+		}
+	};
+
+	public static String encodeText(TransactionContext transactionContext, boolean compact) throws IOException {
+		byte[] byteArray = compact ? encode(transactionContext) : SerializeUtils.serializeObject(transactionContext);
+		return Base64.getEncoder().encodeToString(byteArray);
+	}
+
+	public static TransactionContext decodeText(String text, CompensableBeanFactory beanFactory) throws IOException {
+		byte[] byteArray = text == null ? null : Base64.getDecoder().decode(text);
+		return decode(byteArray, beanFactory);
+	}
+
+	/**
+	 * @return true if the header text is in the compact form, the response to it can be sent in the compact form too.
+	 */
+	public static boolean isCompactText(String text) {
+		byte[] byteArray = text == null ? null : Base64.getDecoder().decode(text);
+		return isCompact(byteArray);
+	}
+
+	public static boolean isCompact(byte[] byteArray) {
+		return byteArray != null && byteArray.length > 2 && byteArray[0] == MAGIC && byteArray[1] == VERSION;
+	}
+
+	public static byte[] encode(TransactionContext transactionContext) {
+		TransactionXid xid = transactionContext.getXid();
+		Object propagatedBy = transactionContext.getPropagatedBy();
+		byte[] propagatedByteArray = propagatedBy == null ? null : String.valueOf(propagatedBy).getBytes(UTF_8);
+
+		int flags = 0;
+		flags |= transactionContext.isCompensable() ? FLAG_COMPENSABLE : 0;
+		flags |= transactionContext.isStatefully() ? FLAG_STATEFULLY : 0;
+		flags |= transactionContext.isPropagated() ? FLAG_PROPAGATED : 0;
+		flags |= propagatedByteArray != null ? FLAG_PROPAGATED_BY : 0;
+
+		ByteArrayOutputStream output = buffers.get();
+		output.reset();
+		output.write(MAGIC);
+		output.write(VERSION);
+		output.write(flags);
+		writeVarLong(output, xid.getFormatId());
+		writeBytes(output, xid.getGlobalTransactionId());
+		writeBytes(output, xid.getBranchQualifier());
+		writeVarLong(output, transactionContext.getCreatedTime());
+		writeVarLong(output, transactionContext.getExpiredTime());
+		if (propagatedByteArray != null) {
+			writeVarLong(output, propagatedByteArray.length);
+			output.write(propagatedByteArray, 0, propagatedByteArray.length);
+		}
+		return output.toByteArray();
+	}
+
+	public static TransactionContext decode(byte[] byteArray, CompensableBeanFactory beanFactory) throws IOException {
+		if (byteArray == null || byteArray.length == 0) {
+			return null;
+		} else if (isCompact(byteArray) == false) {
+			return (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+		}
+
+		int[] position = new int[] { 2 };
+		try {
+			int flags = byteArray[position[0]++];
+			int formatId = (int) readVarLong(byteArray, position);
+			byte[] globalTransactionId = readBytes(byteArray, position);
+			byte[] branchQualifier = readBytes(byteArray, position);
+			long createdTime = readVarLong(byteArray, position);
+			long expiredTime = readVarLong(byteArray, position);
+			String propagatedBy = null;
+			if ((flags & FLAG_PROPAGATED_BY) != 0) {
+				int length = (int) readVarLong(byteArray, position);
+				propagatedBy = new String(byteArray, position[0], length, UTF_8);
+				position[0] += length;
+			}
+
+			XidFactory xidFactory = formatId == XidFactory.JTA_FORMAT_ID ? beanFactory.getTransactionXidFactory()
+					: beanFactory.getCompensableXidFactory();
+			TransactionXid globalXid = xidFactory.createGlobalXid(globalTransactionId);
+			TransactionXid xid = branchQualifier.length == 0 ? globalXid
+					: xidFactory.createBranchXid(globalXid, branchQualifier);
+
+			TransactionContext transactionContext = new TransactionContext();
+			transactionContext.setXid(xid);
+			transactionContext.setCreatedTime(createdTime);
+			transactionContext.setExpiredTime(expiredTime);
+			transactionContext.setCompensable((flags & FLAG_COMPENSABLE) != 0);
+			transactionContext.setStatefully((flags & FLAG_STATEFULLY) != 0);
+			transactionContext.setPropagated((flags & FLAG_PROPAGATED) != 0);
+			transactionContext.setPropagatedBy(propagatedBy);
+			return transactionContext;
+		} catch (RuntimeException ex) {
+			throw new IOException("Invalid transaction context!", ex);
+		}
+	}
+
+	private static void writeBytes(ByteArrayOutputStream output, byte[] byteArray) {
+		int length = byteArray == null ? 0 : byteArray.length;
+		output.write(length);
+		if (length > 0) {
+			output.write(byteArray, 0, length);
+		}
+	}
+
+	private static byte[] readBytes(byte[] byteArray, int[] position) {
+		int length = byteArray[position[0]++] & 0xFF;
+		byte[] value = new byte[length];
+		System.arraycopy(byteArray, position[0], value, 0, length);
+		position[0] += length;
+		return value;
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream output, long value) {
+		long current = value;
+		while ((current & ~0x7FL) != 0) {
+			output.write((int) ((current & 0x7F) | 0x80));
+			current >>>= 7;
+		}
+		output.write((int) current);
+	}
+
+	private static long readVarLong(byte[] byteArray, int[] position) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte current = byteArray[position[0]++];
+			value |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint!");
+	}
+
+}
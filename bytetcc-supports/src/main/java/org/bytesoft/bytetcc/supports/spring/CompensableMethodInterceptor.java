@@ -17,6 +17,9 @@ package org.bytesoft.bytetcc.supports.spring;
 
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aopalliance.intercept.Joinpoint;
 import org.aopalliance.intercept.MethodInterceptor;
@@ -51,12 +54,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class CompensableMethodInterceptor
 		implements MethodInterceptor, CompensableSynchronization, ApplicationContextAware, CompensableBeanFactoryAware {
 	static final Logger logger = LoggerFactory.getLogger(CompensableMethodInterceptor.class);
+	static final int SIMPLIFIED_CONFIRM = 0x1;
+	static final int SIMPLIFIED_CANCEL = 0x2;
 
 	// 由CompensableBeanFactoryAutoInjector注入进来的CompensableBeanFactory
 	@javax.inject.Inject
 	private CompensableBeanFactory beanFactory;
 	private ApplicationContext applicationContext;
 
+	private final ConcurrentMap<Method, CompensableMethodDescriptor> descriptors = //
+			new ConcurrentHashMap<Method, CompensableMethodDescriptor>();
+	/* class of the simplified compensable service -> flags of the confirm/cancel methods declared by it. */
+	private final Map<Class<?>, Integer> simplifiedFlags = new ConcurrentHashMap<Class<?>, Integer>();
+	/* class of the bean which does not implement CompensableBeanNameAware -> the unique bean name of it. */
+	private final Map<Class<?>, String> beanNames = new ConcurrentHashMap<Class<?>, String>();
+
 	public void afterBegin(Transaction transaction, boolean createFlag) {
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
 		CompensableInvocationRegistry registry = CompensableInvocationRegistry.getInstance();
@@ -126,26 +138,17 @@ public class CompensableMethodInterceptor
 		TransactionManager transactionManager = this.beanFactory.getTransactionManager();
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
 
-		// 拿到@Compensable的interfaceClass属性, 是哪一个接口
-		Compensable annotation = method.getDeclaringClass().getAnnotation(Compensable.class);
-		Class<?> interfaceClass = annotation.interfaceClass();
-		String methodName = method.getName();
-		Class<?>[] parameterTypes = method.getParameterTypes();
-
-		Method interfaceMethod = null;
-		try {
-			// 看看当前的AOP拦截的方法是否在接口上有声明
-			interfaceMethod = interfaceClass.getMethod(methodName, parameterTypes);
-		} catch (NoSuchMethodException ex) {
+		// 注解/接口方法等元数据按Method缓存, 每次调用只需查找一次
+		CompensableMethodDescriptor descriptor = this.getMethodDescriptor(method);
+		Compensable annotation = descriptor.getAnnotation();
+		Method interfaceMethod = descriptor.getInterfaceMethod();
+		if (interfaceMethod == null) {
 			logger.warn("Current compensable-service {} is invoking a non-TCC operation!", method);
 			// 没有就跳过, 不处理了
 			return point.proceed(); // ignore
 		}
 
-		// 拿到@Transactional注解, 如果方法级注解没有, 就去类上拿
-		Transactional clazzAnnotation = method.getDeclaringClass().getAnnotation(Transactional.class);
-		Transactional methodAnnotation = method.getAnnotation(Transactional.class);
-		Transactional transactional = methodAnnotation == null ? clazzAnnotation : methodAnnotation;
+		Transactional transactional = descriptor.getTransactional();
 		if (transactional == null) {
 			throw new IllegalStateException(
 					String.format("Compensable-service(%s) does not have a Transactional annotation!", method));
@@ -222,6 +225,23 @@ public class CompensableMethodInterceptor
 
 		Class<?> currentClazz = AopUtils.getTargetClass(target);
 
+		int compensableFlags = this.getSimplifiedFlags(currentClazz);
+		if ((compensableFlags & SIMPLIFIED_CONFIRM) != 0) {
+			invocation.setConfirmableKey(identifier);
+		}
+		if ((compensableFlags & SIMPLIFIED_CANCEL) != 0) {
+			invocation.setCancellableKey(identifier);
+		}
+
+		return invocation;
+	}
+
+	private int getSimplifiedFlags(Class<?> currentClazz) {
+		Integer flags = this.simplifiedFlags.get(currentClazz);
+		if (flags != null) {
+			return flags;
+		}
+
 		Method[] methodArray = currentClazz.getDeclaredMethods();
 		boolean confirmFlag = false;
 		boolean cancelFlag = false;
@@ -230,15 +250,48 @@ public class CompensableMethodInterceptor
 			Method element = methodArray[i];
 			if (element.getAnnotation(CompensableConfirm.class) != null) {
 				confirmFlag = true;
-				invocation.setConfirmableKey(identifier);
 			}
 			if (element.getAnnotation(CompensableCancel.class) != null) {
 				cancelFlag = true;
-				invocation.setCancellableKey(identifier);
 			}
 		}
 
-		return invocation;
+		int value = (confirmFlag ? SIMPLIFIED_CONFIRM : 0) | (cancelFlag ? SIMPLIFIED_CANCEL : 0);
+		this.simplifiedFlags.put(currentClazz, value);
+		return value;
+	}
+
+	CompensableMethodDescriptor getMethodDescriptor(Method method) {
+		CompensableMethodDescriptor descriptor = this.descriptors.get(method);
+		if (descriptor != null) {
+			return descriptor;
+		}
+
+		descriptor = this.createMethodDescriptor(method);
+		CompensableMethodDescriptor existing = this.descriptors.putIfAbsent(method, descriptor);
+		return existing == null ? descriptor : existing;
+	}
+
+	CompensableMethodDescriptor createMethodDescriptor(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		// 拿到@Compensable的interfaceClass属性, 是哪一个接口
+		Compensable annotation = declaringClass.getAnnotation(Compensable.class);
+		Class<?> interfaceClass = annotation.interfaceClass();
+
+		Method interfaceMethod = null;
+		try {
+			// 看看当前的AOP拦截的方法是否在接口上有声明
+			interfaceMethod = interfaceClass.getMethod(method.getName(), method.getParameterTypes());
+		} catch (NoSuchMethodException ex) {
+			interfaceMethod = null; // non-TCC operation
+		}
+
+		// 拿到@Transactional注解, 如果方法级注解没有, 就去类上拿
+		Transactional clazzAnnotation = declaringClass.getAnnotation(Transactional.class);
+		Transactional methodAnnotation = method.getAnnotation(Transactional.class);
+		Transactional transactional = methodAnnotation == null ? clazzAnnotation : methodAnnotation;
+
+		return new CompensableMethodDescriptor(annotation, interfaceMethod, transactional);
 	}
 
 	/* default. */
@@ -259,7 +312,13 @@ public class CompensableMethodInterceptor
 
 	private String getBeanName(Object bean) throws IllegalStateException {
 		String identifier = null;
-		if (CompensableBeanNameAware.class.isInstance(bean)) {
+		if (CompensableBeanNameAware.class.isInstance(bean) == false) {
+			identifier = this.beanNames.get(bean.getClass());
+		}
+
+		if (identifier != null) {
+			return identifier;
+		} else if (CompensableBeanNameAware.class.isInstance(bean)) {
 			CompensableBeanNameAware config = (CompensableBeanNameAware) bean;
 			identifier = config.getBeanName();
 			if (StringUtils.isBlank(identifier)) {
@@ -273,6 +332,7 @@ public class CompensableMethodInterceptor
 			String[] beanNameArray = this.applicationContext.getBeanNamesForType(targetClass);
 			if (beanNameArray.length == 1) {
 				identifier = beanNameArray[0];
+				this.beanNames.put(bean.getClass(), identifier);
 			} else {
 				logger.error("Class {} does not implement interface {}, and there are multiple bean definitions!",
 						bean.getClass().getName(), CompensableBeanNameAware.class.getName());
@@ -320,4 +380,30 @@ public class CompensableMethodInterceptor
 		}
 	}
 
+	/* metadata of a method of the compensable service, which is resolved once and cached by the method. */
+	static class CompensableMethodDescriptor {
+		private final Compensable annotation;
+		/* null if the method is not declared by the interface class, which is a non-TCC operation. */
+		private final Method interfaceMethod;
+		private final Transactional transactional;
+
+		public CompensableMethodDescriptor(Compensable annotation, Method interfaceMethod, Transactional transactional) {
+			this.annotation = annotation;
+			this.interfaceMethod = interfaceMethod;
+			this.transactional = transactional;
+		}
+
+		public Compensable getAnnotation() {
+			return annotation;
+		}
+
+		public Method getInterfaceMethod() {
+			return interfaceMethod;
+		}
+
+		public Transactional getTransactional() {
+			return transactional;
+		}
+	}
+
 }
@@ -18,6 +18,8 @@ package org.bytesoft.bytetcc.supports.spring;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.CompensableCancel;
@@ -39,6 +41,14 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 	@javax.inject.Inject
 	protected CompensableBeanFactory beanFactory;
 
+	/* bean name -> singleton bean instance, prototype beans are always retrieved from the application context. */
+	private final ConcurrentMap<String, Object> singletons = new ConcurrentHashMap<String, Object>();
+	/* (class of the bean, try method) -> the confirm/cancel method of the simplified compensable service. */
+	private final ConcurrentMap<CompensableMethodKey, Method> simplifiedMethods = //
+			new ConcurrentHashMap<CompensableMethodKey, Method>();
+	/* declaring class, method name and parameter types of the invocation -> the try method. */
+	private final ConcurrentMap<String, Method> compensableMethods = new ConcurrentHashMap<String, Method>();
+
 	public void confirm(CompensableInvocation invocation) throws RuntimeException {
 		String identifier = (String) invocation.getIdentifier();
 		String confirmableKey = invocation.getConfirmableKey();
@@ -46,18 +56,26 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 		Object[] args = invocation.getArgs();
 
 		if (invocation.isSimplified()) {
-			Object instance = this.applicationContext.getBean(identifier);
+			Object instance = this.getBean(identifier);
 			this.confirmSimplified(method, instance, args);
 		} else {
-			Object instance = this.applicationContext.getBean(confirmableKey);
+			Object instance = this.getBean(confirmableKey);
 			this.confirmComplicated(method, instance, args);
 		}
 	}
 
 	private void confirmSimplified(Method method, Object instance, Object[] args) throws RuntimeException {
-		Class<?> clazz = instance.getClass();
-		Class<?> targetClazz = method.getDeclaringClass();
+		CompensableMethodKey methodKey = new CompensableMethodKey(instance.getClass(), method, true);
+		Method confirmable = this.simplifiedMethods.get(methodKey);
+		if (confirmable == null) {
+			confirmable = this.getConfirmableMethod(instance.getClass(), method.getDeclaringClass());
+			this.simplifiedMethods.put(methodKey, confirmable);
+		}
+
+		this.invokeCompensable(confirmable, instance, args);
+	}
 
+	private Method getConfirmableMethod(Class<?> clazz, Class<?> targetClazz) throws RuntimeException {
 		Method[] methodArray = clazz.getMethods();
 
 		Method confirmable = null;
@@ -79,39 +97,11 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 			throw new RuntimeException("Not supported yet!");
 		}
 
-		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
-		CompensableTransaction transaction = compensableManager.getCompensableTransactionQuietly();
-		TransactionContext transactionContext = transaction.getTransactionContext();
-		try {
-			transactionContext.setCompensator(instance);
-			confirmable.invoke(instance, args);
-		} catch (InvocationTargetException itex) {
-			throw new RuntimeException(itex.getTargetException());
-		} catch (RuntimeException rex) {
-			throw rex;
-		} catch (Throwable throwable) {
-			throw new RuntimeException(throwable);
-		} finally {
-			transactionContext.setCompensator(null);
-		}
+		return confirmable;
 	}
 
 	public void confirmComplicated(Method method, Object instance, Object[] args) throws RuntimeException {
-		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
-		CompensableTransaction transaction = compensableManager.getCompensableTransactionQuietly();
-		TransactionContext transactionContext = transaction.getTransactionContext();
-		try {
-			transactionContext.setCompensator(instance);
-			method.invoke(instance, args);
-		} catch (InvocationTargetException itex) {
-			throw new RuntimeException(itex.getTargetException());
-		} catch (RuntimeException rex) {
-			throw rex;
-		} catch (Throwable throwable) {
-			throw new RuntimeException(throwable);
-		} finally {
-			transactionContext.setCompensator(null);
-		}
+		this.invokeCompensable(method, instance, args);
 	}
 
 	public void cancel(CompensableInvocation invocation) throws RuntimeException {
@@ -122,20 +112,28 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 		Object[] args = invocation.getArgs();
 
 		if (invocation.isSimplified()) {
-			Object instance = this.applicationContext.getBean(identifier);
+			Object instance = this.getBean(identifier);
 			this.cancelSimplified(method, instance, args);
 		} else {
 			// 根据@Compensable注解标记的CancellableKey指定的cancel bean
-			Object instance = this.applicationContext.getBean(cancellableKey);
+			Object instance = this.getBean(cancellableKey);
 			// 反射执行bean里的cancel业务逻辑
 			this.cancelComplicated(method, instance, args);
 		}
 	}
 
 	private void cancelSimplified(Method method, Object instance, Object[] args) throws RuntimeException {
-		Class<?> clazz = instance.getClass();
-		Class<?> targetClazz = method.getDeclaringClass();
+		CompensableMethodKey methodKey = new CompensableMethodKey(instance.getClass(), method, false);
+		Method cancellable = this.simplifiedMethods.get(methodKey);
+		if (cancellable == null) {
+			cancellable = this.getCancellableMethod(instance.getClass(), method.getDeclaringClass());
+			this.simplifiedMethods.put(methodKey, cancellable);
+		}
+
+		this.invokeCompensable(cancellable, instance, args);
+	}
 
+	private Method getCancellableMethod(Class<?> clazz, Class<?> targetClazz) throws RuntimeException {
 		Method[] methodArray = clazz.getDeclaredMethods();
 
 		Method cancellable = null;
@@ -157,24 +155,14 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 			throw new RuntimeException("Not supported yet!");
 		}
 
-		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
-		CompensableTransaction transaction = compensableManager.getCompensableTransactionQuietly();
-		TransactionContext transactionContext = transaction.getTransactionContext();
-		try {
-			transactionContext.setCompensator(instance);
-			cancellable.invoke(instance, args);
-		} catch (InvocationTargetException itex) {
-			throw new RuntimeException(itex.getTargetException());
-		} catch (RuntimeException rex) {
-			throw rex;
-		} catch (Throwable throwable) {
-			throw new RuntimeException(throwable);
-		} finally {
-			transactionContext.setCompensator(null);
-		}
+		return cancellable;
 	}
 
 	public void cancelComplicated(Method method, Object instance, Object[] args) throws RuntimeException {
+		this.invokeCompensable(method, instance, args);
+	}
+
+	private void invokeCompensable(Method method, Object instance, Object[] args) throws RuntimeException {
 		CompensableManager compensableManager = this.beanFactory.getCompensableManager();
 		CompensableTransaction transaction = compensableManager.getCompensableTransactionQuietly();
 		TransactionContext transactionContext = transaction.getTransactionContext();
@@ -205,6 +193,13 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 		String methodName = invocation.getMethodName();
 		String[] parameterTypeArray = invocation.getParameterTypeArray();
 
+		String methodKey = String.format("%s#%s%s", declaringClass, methodName, Arrays.toString(parameterTypeArray));
+		Method compensableMethod = this.compensableMethods.get(methodKey);
+		if (compensableMethod != null) {
+			invocation.setMethod(compensableMethod);
+			return;
+		}
+
 		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
 		Class<?> clazz = null;
@@ -253,14 +248,59 @@ public class SpringContainerContextImpl implements ContainerContext, Application
 					, declaringClass, methodName, Arrays.toString(parameterTypeArray)), ex);
 		}
 
+		this.compensableMethods.put(methodKey, targetMethod);
 		invocation.setMethod(targetMethod);
 	}
 
+	private Object getBean(String beanName) {
+		Object instance = this.singletons.get(beanName);
+		if (instance != null) {
+			return instance;
+		}
+
+		instance = this.applicationContext.getBean(beanName);
+		if (this.applicationContext.isSingleton(beanName)) {
+			this.singletons.put(beanName, instance);
+		}
+		return instance;
+	}
+
 	public ApplicationContext getApplicationContext() {
 		return applicationContext;
 	}
 
 	public void setApplicationContext(ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
+		this.singletons.clear();
+	}
+
+	static class CompensableMethodKey {
+		private final Class<?> clazz;
+		private final Method method;
+		private final boolean confirm;
+
+		public CompensableMethodKey(Class<?> clazz, Method method, boolean confirm) {
+			this.clazz = clazz;
+			this.method = method;
+			this.confirm = confirm;
+		}
+
+		public int hashCode() {
+			int hash = 23;
+			hash += 29 * this.clazz.hashCode();
+			hash += 31 * this.method.hashCode();
+			hash += this.confirm ? 1 : 0;
+			return hash;
+		}
+
+		public boolean equals(Object obj) {
+			if (obj == null) {
+				return false;
+			} else if (CompensableMethodKey.class.isInstance(obj) == false) {
+				return false;
+			}
+			CompensableMethodKey that = (CompensableMethodKey) obj;
+			return this.clazz.equals(that.clazz) && this.method.equals(that.method) && this.confirm == that.confirm;
+		}
 	}
 }
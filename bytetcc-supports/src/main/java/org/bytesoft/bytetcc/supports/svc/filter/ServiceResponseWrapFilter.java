@@ -16,6 +16,7 @@
 package org.bytesoft.bytetcc.supports.svc.filter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -34,6 +35,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytetcc.supports.http.HttpServletResponseImpl;
+import org.bytesoft.bytetcc.supports.http.ServletOutputStreamImpl;
 import org.bytesoft.bytetcc.supports.svc.ServiceException;
 import org.bytesoft.bytetcc.supports.svc.client.ServiceResponse;
 import org.slf4j.Logger;
@@ -65,11 +67,25 @@ public class ServiceResponseWrapFilter implements Filter {
 	public static final String KEY_BOOLEAN_TRUE = "true";
 	public static final String KEY_BOOLEAN_FALSE = "false";
 
+	public static final String PARAM_STREAM_THRESHOLD = "streamThreshold";
+	public static final int DEFAULT_STREAM_THRESHOLD = 64 * 1024;
+
+	static final byte[] SUCCESS_PREFIX = ("{\"" + KEY_RETURN_STATUS + "\":\"" + ServiceResponse.STATUS_HANDLE_SUCCESS
+			+ "\",\"" + KEY_RETURN_VALUE + "\":").getBytes();
+
 	private final ObjectMapper mapper = //
 			new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
+	/* responses larger than it are streamed through the envelope instead of being buffered, 0 means always buffering. */
+	private int streamThreshold = DEFAULT_STREAM_THRESHOLD;
+
 	public void init(FilterConfig filterConfig) throws ServletException {
 		mapper.setSerializationInclusion(Include.ALWAYS);
+
+		String threshold = filterConfig == null ? null : filterConfig.getInitParameter(PARAM_STREAM_THRESHOLD);
+		if (StringUtils.isNotBlank(threshold)) {
+			this.streamThreshold = Integer.parseInt(threshold.trim());
+		}
 	}
 
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -85,6 +101,8 @@ public class ServiceResponseWrapFilter implements Filter {
 	public void invokeFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
 			throws IOException, ServletException {
 		HttpServletResponseImpl resp = new HttpServletResponseImpl(response);
+		ResponseStreamingHandler streamingHandler = new ResponseStreamingHandler(resp);
+		resp.setStreamingHandler(this.streamThreshold, streamingHandler);
 
 		Throwable error = null;
 		try {
@@ -96,6 +114,11 @@ public class ServiceResponseWrapFilter implements Filter {
 			error = ex;
 		}
 
+		if (resp.isStreaming()) {
+			this.handleForStreamScenario(request, resp, streamingHandler, error);
+			return;
+		}
+
 		if (this.responseIsRedirected(resp)) {
 			response.sendRedirect(resp.getLocation());
 			return; // response.setStatus(statusCode);
@@ -125,8 +148,12 @@ public class ServiceResponseWrapFilter implements Filter {
 	}
 
 	protected boolean calculateWrapRequired(HttpServletResponseImpl resp, Throwable error) {
-		String responseContentType = resp.getContentType();
 		byte[] responseByteArray = resp.getByteArray();
+		return this.calculateWrapRequired(resp, error, responseByteArray == null || responseByteArray.length == 0);
+	}
+
+	protected boolean calculateWrapRequired(HttpServletResponseImpl resp, Throwable error, boolean responseEmpty) {
+		String responseContentType = resp.getContentType();
 
 		boolean responseTextFlag = this.contentTypeMatched(responseContentType, CONTENT_TYPE_TEXT_PLAIN)
 				|| this.contentTypeMatched(responseContentType, CONTENT_TYPE_TEXT_HTML);
@@ -136,8 +163,7 @@ public class ServiceResponseWrapFilter implements Filter {
 		if (wrapDisabled) {
 			wrapRequired = false;
 		} else if (error == null) {
-			wrapRequired = StringUtils.isBlank(responseContentType)
-					? (responseByteArray == null || responseByteArray.length == 0)
+			wrapRequired = StringUtils.isBlank(responseContentType) ? responseEmpty
 					: (this.responseContentTypeIsJson(resp) || responseTextFlag);
 		} else {
 			wrapRequired = true;
@@ -201,17 +227,40 @@ public class ServiceResponseWrapFilter implements Filter {
 		}
 	}
 
+	/**
+	 * The response has exceeded the stream threshold while the chain was still running, so its headers and the head of
+	 * the envelope have already been sent; only the tail of the envelope is left to be written here.
+	 */
+	protected void handleForStreamScenario(HttpServletRequest request, HttpServletResponseImpl resp,
+			ResponseStreamingHandler streamingHandler, Throwable error) throws IOException, ServletException {
+		resp.flushBuffer();
+
+		if (error == null) {
+			OutputStream output = resp.getResponse().getOutputStream();
+			if (streamingHandler.isWrapped() && streamingHandler.isQuoted()) {
+				output.write('"');
+				output.write('}');
+			} else if (streamingHandler.isWrapped()) {
+				output.write('}');
+			}
+			return;
+		}
+
+		// the response has been committed, it is too late to write a failure response.
+		logger.error("Error occurred while streaming response: uri= {}", request.getRequestURI(), error);
+		if (IOException.class.isInstance(error)) {
+			throw (IOException) error;
+		} else if (ServletException.class.isInstance(error)) {
+			throw (ServletException) error;
+		} else if (RuntimeException.class.isInstance(error)) {
+			throw (RuntimeException) error;
+		} else {
+			throw new RuntimeException(error);
+		}
+	}
+
 	protected void writeSuccessResponse(ServletOutputStream output, byte[] byteArray) throws IOException {
-		StringBuilder ber = new StringBuilder();
-		ber.append("\"").append(KEY_RETURN_STATUS).append("\"");
-		ber.append(":");
-		ber.append("\"").append(ServiceResponse.STATUS_HANDLE_SUCCESS).append("\"");
-		output.write("{".getBytes());
-		output.write(ber.toString().getBytes());
-		output.write(",".getBytes());
-		output.write("\"".getBytes());
-		output.write(KEY_RETURN_VALUE.getBytes());
-		output.write("\":".getBytes());
+		output.write(SUCCESS_PREFIX);
 
 		Class<?> clazz = null;
 		try {
@@ -299,6 +348,61 @@ public class ServiceResponseWrapFilter implements Filter {
 	public void destroy() {
 	}
 
+	/**
+	 * Decides whether the response can be streamed at the moment its body exceeds the stream threshold: it can not when
+	 * the response is redirected or failed, in which case the body keeps being buffered. Since only the first byte of
+	 * the body is known, an object/array is embedded as it is, and anything else is embedded as a string.
+	 */
+	class ResponseStreamingHandler implements ServletOutputStreamImpl.StreamingHandler {
+		private final HttpServletResponseImpl resp;
+		private boolean wrapped;
+		private boolean quoted;
+
+		public ResponseStreamingHandler(HttpServletResponseImpl resp) {
+			this.resp = resp;
+		}
+
+		public OutputStream startStreaming(int firstByte) throws IOException {
+			if (responseIsRedirected(this.resp) || this.resp.isErrorFlag() || calculateError(this.resp) != null) {
+				return null;
+			}
+
+			HttpServletResponse response = (HttpServletResponse) this.resp.getResponse();
+			String responseContentType = this.resp.getContentType();
+
+			this.wrapped = calculateWrapRequired(this.resp, null, false);
+			if (this.wrapped) {
+				response.setContentType(StringUtils.isBlank(responseContentType) ? CONTENT_TYPE_JSON : responseContentType);
+			} else {
+				response.setContentType(responseContentType);
+				String contentLength = this.resp.getHeader(CONTENT_LEN);
+				if (StringUtils.isNotBlank(contentLength)) {
+					response.setHeader(CONTENT_LEN, contentLength);
+				}
+			}
+			copyResponseHeaders(this.resp, response);
+			copyResponseCookies(this.resp, response);
+
+			ServletOutputStream output = response.getOutputStream();
+			if (this.wrapped) {
+				this.quoted = firstByte != '{' && firstByte != '[';
+				output.write(SUCCESS_PREFIX);
+				if (this.quoted) {
+					output.write('"');
+				}
+			}
+			return output;
+		}
+
+		public boolean isWrapped() {
+			return wrapped;
+		}
+
+		public boolean isQuoted() {
+			return quoted;
+		}
+	}
+
 	protected boolean responseIsRedirected(HttpServletResponseImpl resp) {
 		int statusCode = resp.getStatusCode();
 		boolean redirected = statusCode >= HttpServletResponse.SC_MULTIPLE_CHOICES
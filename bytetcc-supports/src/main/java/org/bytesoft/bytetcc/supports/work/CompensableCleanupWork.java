@@ -14,13 +14,13 @@ import javax.transaction.xa.Xid;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.bson.Document;
-import org.bson.conversions.Bson;
 import org.bytesoft.bytejta.supports.jdbc.RecoveredResource;
 import org.bytesoft.bytejta.supports.resource.LocalXAResourceDescriptor;
+import org.bytesoft.bytetcc.supports.internal.MongoCollections;
 import org.bytesoft.bytetcc.supports.internal.MongoCompensableLogger;
 import org.bytesoft.bytetcc.supports.resource.LocalResourceCleaner;
+import org.bytesoft.bytetcc.xa.CompensableXid;
 import org.bytesoft.common.utils.ByteUtils;
-import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.compensable.CompensableBeanFactory;
 import org.bytesoft.compensable.aware.CompensableBeanFactoryAware;
 import org.bytesoft.compensable.aware.CompensableEndpointAware;
@@ -34,8 +34,6 @@ import org.slf4j.LoggerFactory;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
-import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Filters;
 
 public class CompensableCleanupWork
 		implements Work, LocalResourceCleaner, CompensableEndpointAware, CompensableBeanFactoryAware {
@@ -49,6 +47,7 @@ public class CompensableCleanupWork
 
 	@javax.annotation.Resource
 	private MongoClient mongoClient;
+	private volatile MongoCollections collections;
 	@javax.inject.Inject
 	private CommandDispatcher commandDispatcher;
 	private String endpoint;
@@ -58,17 +57,12 @@ public class CompensableCleanupWork
 
 	public void forget(Xid xid, String resourceId) throws RuntimeException {
 		try {
-			String application = CommonUtils.getApplication(this.endpoint);
-			String databaseName = application.replaceAll("\\W", "_");
-			MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-			MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_REMOVEDRESES);
+			MongoCollection<Document> collection = this.getCollections().getRemovedReses();
 
-			byte[] global = xid.getGlobalTransactionId();
-			byte[] branch = xid.getBranchQualifier();
 
 			Document document = new Document();
-			document.append(CONSTANTS_FD_GLOBAL, ByteUtils.byteArrayToString(global));
-			document.append(CONSTANTS_FD_BRANCH, ByteUtils.byteArrayToString(branch));
+			document.append(CONSTANTS_FD_GLOBAL, CompensableXid.toGlobalTransactionKey(xid));
+			document.append(CONSTANTS_FD_BRANCH, CompensableXid.toBranchQualifierKey(xid));
 			document.append("resource_id", resourceId);
 			document.append("created", this.endpoint);
 
@@ -107,9 +101,7 @@ public class CompensableCleanupWork
 	}
 
 	public int timingExecution(int batchSize) {
-		String databaseName = CommonUtils.getApplication(this.endpoint).replaceAll("\\W", "_");
-		MongoDatabase mdb = this.mongoClient.getDatabase(databaseName);
-		MongoCollection<Document> collection = mdb.getCollection(CONSTANTS_TB_REMOVEDRESES);
+		MongoCollection<Document> collection = this.getCollections().getRemovedReses();
 
 		int length = 0;
 
@@ -158,13 +150,11 @@ public class CompensableCleanupWork
 			List<Xid> xidList = entry.getValue();
 			for (int i = 0; i < xidList.size(); i++) {
 				Xid transactionXid = xidList.get(i);
-				byte[] global = transactionXid.getGlobalTransactionId();
-				byte[] branch = transactionXid.getBranchQualifier();
 
-				Bson globalFilter = Filters.eq(CONSTANTS_FD_GLOBAL, ByteUtils.byteArrayToString(global));
-				Bson branchFilter = Filters.eq(CONSTANTS_FD_BRANCH, ByteUtils.byteArrayToString(branch));
+				String globalKey = CompensableXid.toGlobalTransactionKey(transactionXid);
+				String branchKey = CompensableXid.toBranchQualifierKey(transactionXid);
 
-				collection.deleteOne(Filters.and(globalFilter, branchFilter));
+				collection.deleteOne(this.getCollections().branchFilter(globalKey, branchKey));
 			}
 		}
 
@@ -218,6 +208,15 @@ public class CompensableCleanupWork
 		this.beanFactory = tbf;
 	}
 
+	private MongoCollections getCollections() {
+		MongoCollections collections = this.collections;
+		if (collections == null) {
+			collections = MongoCollections.getInstance(this.mongoClient, this.endpoint);
+			this.collections = collections;
+		}
+		return collections;
+	}
+
 	public String getEndpoint() {
 		return this.endpoint;
 	}
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.state.ConnectionState;
+import org.bytesoft.bytetcc.xa.CompensableXid;
+import org.bytesoft.bytetcc.xa.XidFixtures;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MongoCompensableLockTest {
+	static final String ENDPOINT = "192.168.1.1:order-service:8080";
+	static final String REMOTE = "192.168.1.2:order-service:8080";
+
+	private RecordingCompensableLock lock;
+
+	@Before
+	public void setUp() {
+		this.lock = new RecordingCompensableLock();
+		this.lock.setEndpoint(ENDPOINT);
+	}
+
+	@Test
+	public void testReentrantLockIsAcquiredInMongoOnce() {
+		TransactionXid xid = XidFixtures.createGlobalXid(1);
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(1, this.lock.acquired.get());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(0, this.lock.unlocked.get());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(1, this.lock.unlocked.get());
+		Assert.assertEquals(0, this.lock.reExited.get());
+
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(2, this.lock.acquired.get());
+	}
+
+	@Test
+	public void testFailedAcquisitionIsNotRetained() {
+		TransactionXid xid = XidFixtures.createGlobalXid(2);
+		this.lock.acquireResult = false;
+		Assert.assertFalse(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertFalse(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(2, this.lock.acquired.get());
+
+		this.lock.acquireResult = true;
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(3, this.lock.acquired.get());
+	}
+
+	@Test
+	public void testOtherIdentifierIsNotRetained() {
+		TransactionXid xid = XidFixtures.createGlobalXid(3);
+		Assert.assertTrue(this.lock.lockTransaction(xid, REMOTE));
+		Assert.assertTrue(this.lock.lockTransaction(xid, REMOTE));
+		Assert.assertEquals(2, this.lock.acquired.get());
+
+		this.lock.unlockTransaction(xid, REMOTE);
+		Assert.assertEquals(1, this.lock.reExited.get());
+		Assert.assertEquals(1, this.lock.unlocked.get());
+	}
+
+	@Test
+	public void testLeaseIsReusedAfterExit() {
+		TransactionXid xid = XidFixtures.createGlobalXid(4);
+		this.lock.leaseEnabled = true;
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(0, this.lock.unlocked.get());
+
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(1, this.lock.acquired.get());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		this.lock.expireLockLeases();
+		Assert.assertTrue(this.lock.releasedList.isEmpty());
+	}
+
+	@Test
+	public void testExpiredLeaseIsReleased() {
+		TransactionXid xid = XidFixtures.createGlobalXid(5);
+		this.lock.leaseEnabled = true;
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		this.lock.unlockTransaction(xid, ENDPOINT);
+
+		this.lock.discardIdleLockLeases();
+		this.lock.expireLockLeases();
+		Assert.assertEquals(1, this.lock.releasedList.size());
+		Assert.assertEquals(CompensableXid.toGlobalTransactionKey(xid), this.lock.releasedList.get(0));
+
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(2, this.lock.acquired.get());
+	}
+
+	@Test
+	public void testLeaseIsKeptWhenReleaseFails() {
+		TransactionXid xid = XidFixtures.createGlobalXid(6);
+		this.lock.leaseEnabled = true;
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		this.lock.discardIdleLockLeases();
+
+		this.lock.releaseResult = false;
+		this.lock.expireLockLeases();
+		Assert.assertEquals(1, this.lock.releasedList.size());
+
+		this.lock.releaseResult = true;
+		this.lock.expireLockLeases();
+		Assert.assertEquals(2, this.lock.releasedList.size());
+
+		this.lock.expireLockLeases();
+		Assert.assertEquals(2, this.lock.releasedList.size());
+	}
+
+	@Test
+	public void testSuspendedSessionDiscardsIdleLeasesOnly() {
+		TransactionXid idle = XidFixtures.createGlobalXid(7);
+		TransactionXid active = XidFixtures.createGlobalXid(8);
+		this.lock.leaseEnabled = true;
+		Assert.assertTrue(this.lock.lockTransaction(idle, ENDPOINT));
+		this.lock.unlockTransaction(idle, ENDPOINT);
+		Assert.assertTrue(this.lock.lockTransaction(active, ENDPOINT));
+
+		this.lock.stateChanged(null, ConnectionState.SUSPENDED);
+		this.lock.expireLockLeases();
+		Assert.assertEquals(1, this.lock.releasedList.size());
+		Assert.assertEquals(CompensableXid.toGlobalTransactionKey(idle), this.lock.releasedList.get(0));
+
+		Assert.assertTrue(this.lock.lockTransaction(active, ENDPOINT));
+		Assert.assertEquals(2, this.lock.acquired.get());
+	}
+
+	@Test
+	public void testConcurrentLockWaitsForAcquisition() throws Exception {
+		final TransactionXid xid = XidFixtures.createGlobalXid(9);
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		this.lock.entered = entered;
+		this.lock.proceed = proceed;
+
+		final AtomicBoolean first = new AtomicBoolean();
+		final AtomicBoolean second = new AtomicBoolean();
+		Thread firstThread = new Thread(new Runnable() {
+			public void run() {
+				first.set(lock.lockTransaction(xid, ENDPOINT));
+			}
+		});
+		Thread secondThread = new Thread(new Runnable() {
+			public void run() {
+				second.set(lock.lockTransaction(xid, ENDPOINT));
+			}
+		});
+
+		firstThread.start();
+		Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+		secondThread.start();
+		for (int i = 0; i < 500 && secondThread.getState() != Thread.State.TIMED_WAITING; i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(Thread.State.TIMED_WAITING, secondThread.getState());
+		Assert.assertFalse(second.get());
+		Assert.assertEquals(1, this.lock.acquired.get());
+
+		proceed.countDown();
+		firstThread.join(5000);
+		secondThread.join(5000);
+		Assert.assertTrue(first.get());
+		Assert.assertTrue(second.get());
+		Assert.assertEquals(1, this.lock.acquired.get());
+
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(0, this.lock.unlocked.get());
+		this.lock.unlockTransaction(xid, ENDPOINT);
+		Assert.assertEquals(1, this.lock.unlocked.get());
+	}
+
+	@Test
+	public void testWaiterRetriesWhenAcquisitionIsDenied() throws Exception {
+		final TransactionXid xid = XidFixtures.createGlobalXid(10);
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		this.lock.entered = entered;
+		this.lock.proceed = proceed;
+		this.lock.acquireResult = false; // the lock is held by another instance
+
+		final AtomicBoolean first = new AtomicBoolean(true);
+		final AtomicBoolean second = new AtomicBoolean(true);
+		Thread firstThread = new Thread(new Runnable() {
+			public void run() {
+				first.set(lock.lockTransaction(xid, ENDPOINT));
+			}
+		});
+		Thread secondThread = new Thread(new Runnable() {
+			public void run() {
+				second.set(lock.lockTransaction(xid, ENDPOINT));
+			}
+		});
+
+		firstThread.start();
+		Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+		this.lock.entered = null;
+		secondThread.start();
+		for (int i = 0; i < 500 && secondThread.getState() != Thread.State.TIMED_WAITING; i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(Thread.State.TIMED_WAITING, secondThread.getState());
+
+		proceed.countDown();
+		firstThread.join(5000);
+		secondThread.join(5000);
+		Assert.assertFalse(first.get());
+		Assert.assertFalse(second.get());
+		Assert.assertEquals(2, this.lock.acquired.get());
+
+		this.lock.acquireResult = true;
+		Assert.assertTrue(this.lock.lockTransaction(xid, ENDPOINT));
+		Assert.assertEquals(3, this.lock.acquired.get());
+	}
+
+	/**
+	 * Replaces the mongodb round-trips with counters, the curator and mongodb clients are never touched.
+	 */
+	static class RecordingCompensableLock extends MongoCompensableLock {
+		final AtomicInteger acquired = new AtomicInteger();
+		final AtomicInteger reExited = new AtomicInteger();
+		final AtomicInteger unlocked = new AtomicInteger();
+		final List<String> releasedList = new ArrayList<String>();
+		volatile boolean acquireResult = true;
+		volatile boolean releaseResult = true;
+		volatile boolean leaseEnabled;
+		volatile CountDownLatch entered;
+		volatile CountDownLatch proceed;
+
+		boolean acquireTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
+			this.acquired.incrementAndGet();
+			if (this.entered != null) {
+				this.entered.countDown();
+				try {
+					this.proceed.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return this.acquireResult;
+		}
+
+		public boolean reExitTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
+			this.reExited.incrementAndGet();
+			return true;
+		}
+
+		public void unlockTransactionInMongoDB(TransactionXid transactionXid, String identifier) {
+			this.unlocked.incrementAndGet();
+		}
+
+		synchronized boolean releaseLockLeasesInMongoDB(List<String> expiredList) {
+			this.releasedList.addAll(expiredList);
+			return this.releaseResult;
+		}
+
+		boolean isLockLeaseEnabled() {
+			return this.leaseEnabled;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytetcc.supports.CompensableInvocationImpl;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.CompensableInvocation;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactInvocationCodecTest {
+
+	private final CompactInvocationCodec codec = new CompactInvocationCodec();
+
+	@Test
+	public void testArgsRoundTrip() throws Exception {
+		Object[] args = this.createArgs();
+
+		byte[] byteArray = this.codec.encodeArgs(args);
+		Assert.assertEquals(CompactInvocationCodec.MAGIC, byteArray[0]);
+		Assert.assertEquals(CompactInvocationCodec.VERSION, byteArray[1]);
+
+		Assert.assertArrayEquals(args, this.codec.decodeArgs(byteArray));
+	}
+
+	@Test
+	public void testNegativeAndExtremeNumbers() throws Exception {
+		Object[] args = new Object[] { Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0, Long.MIN_VALUE, Long.MAX_VALUE, -1L,
+				Double.NaN, Float.NEGATIVE_INFINITY, Short.MIN_VALUE, Byte.MAX_VALUE, '中' };
+		Assert.assertArrayEquals(args, this.codec.decodeArgs(this.codec.encodeArgs(args)));
+	}
+
+	@Test
+	public void testInvocationRoundTrip() throws Exception {
+		CompensableInvocationImpl invocation = new CompensableInvocationImpl();
+		invocation.setDeclaringClass("org.bytesoft.sample.AccountService");
+		invocation.setMethodName("increaseAmount");
+		invocation.setParameterTypeArray(new String[] { String.class.getName(), double.class.getName() });
+		invocation.setConfirmableKey("accountServiceConfirm");
+		invocation.setCancellableKey(null);
+		invocation.setIdentifier("accountService");
+		invocation.setSimplified(true);
+		invocation.setArgs(new Object[] { "1001", 1.5D });
+
+		CompensableInvocation decoded = this.codec.decodeInvocation(this.codec.encodeInvocation(invocation));
+
+		Assert.assertEquals(invocation.getDeclaringClass(), decoded.getDeclaringClass());
+		Assert.assertEquals(invocation.getMethodName(), decoded.getMethodName());
+		Assert.assertArrayEquals(invocation.getParameterTypeArray(), decoded.getParameterTypeArray());
+		Assert.assertEquals(invocation.getConfirmableKey(), decoded.getConfirmableKey());
+		Assert.assertNull(decoded.getCancellableKey());
+		Assert.assertEquals(invocation.getIdentifier(), decoded.getIdentifier());
+		Assert.assertTrue(decoded.isSimplified());
+		Assert.assertArrayEquals(invocation.getArgs(), decoded.getArgs());
+	}
+
+	@Test
+	public void testDecodeJavaSerializedArgs() throws Exception {
+		Object[] args = this.createArgs();
+		byte[] byteArray = SerializeUtils.serializeObject(args);
+
+		Assert.assertArrayEquals(args, this.codec.decodeArgs(byteArray));
+	}
+
+	@Test
+	public void testSerializedCodecDecodesCompactArgs() throws Exception {
+		Object[] args = this.createArgs();
+		SerializedInvocationCodec serializedCodec = new SerializedInvocationCodec();
+
+		Assert.assertArrayEquals(args, serializedCodec.decodeArgs(this.codec.encodeArgs(args)));
+		Assert.assertArrayEquals(args, serializedCodec.decodeArgs(serializedCodec.encodeArgs(args)));
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testUnsupportedVersion() throws Exception {
+		byte[] byteArray = this.codec.encodeArgs(new Object[] { "value" });
+		byteArray[1] = (byte) (CompactInvocationCodec.VERSION + 1);
+		this.codec.decodeArgs(byteArray);
+	}
+
+	private Object[] createArgs() {
+		List<Object> list = new ArrayList<Object>();
+		list.add("element");
+		list.add(null);
+		list.add(12L);
+
+		Map<Object, Object> hashMap = new HashMap<Object, Object>();
+		hashMap.put("key", 1);
+		Map<Object, Object> linkedHashMap = new LinkedHashMap<Object, Object>();
+		linkedHashMap.put(2, "second");
+		linkedHashMap.put(1, "first");
+		Map<String, String> treeMap = new TreeMap<String, String>(); // falls back to the java serialization
+		treeMap.put("k", "v");
+
+		return new Object[] { null, true, false, (byte) 1, (short) 2, 3, 4L, 5.5F, 6.6D, 'c', "text",
+				new byte[] { 1, 2 }, new Object[] { "nested", 1 }, list, hashMap, linkedHashMap,
+				new BigDecimal("1234.5678"), new BigInteger("123456789012345678901234567890"), new Date(1500000000000L),
+				TimeUnit.SECONDS, treeMap };
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytetcc.TransactionBeanFactoryImpl;
+import org.bytesoft.bytetcc.xa.XidFactoryImpl;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the compact form of the propagated transaction context with the java serialized form, both in the header
+ * text(base64) and in the raw bytes. Run the main method from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionContextCodecBenchmark {
+
+	private TransactionBeanFactoryImpl beanFactory;
+	private TransactionContext transactionContext;
+	private byte[] compactByteArray;
+	private byte[] serializedByteArray;
+	private String compactText;
+	private String serializedText;
+
+	@Setup
+	public void setUp() throws IOException {
+		XidFactory xidFactory = new XidFactoryImpl();
+		this.beanFactory = TransactionBeanFactoryImpl.getInstance();
+		this.beanFactory.setCompensableXidFactory(xidFactory);
+		this.beanFactory.setTransactionXidFactory(new org.bytesoft.bytejta.xa.XidFactoryImpl());
+
+		TransactionXid globalXid = xidFactory.createGlobalXid();
+		this.transactionContext = new TransactionContext();
+		this.transactionContext.setXid(xidFactory.createBranchXid(globalXid));
+		this.transactionContext.setCreatedTime(System.currentTimeMillis());
+		this.transactionContext.setExpiredTime(this.transactionContext.getCreatedTime() + 1000L * 60 * 5);
+		this.transactionContext.setCompensable(true);
+		this.transactionContext.setPropagatedBy("192.168.1.1:order-service:8080");
+
+		this.compactByteArray = TransactionContextCodec.encode(this.transactionContext);
+		this.serializedByteArray = SerializeUtils.serializeObject(this.transactionContext);
+		this.compactText = TransactionContextCodec.encodeText(this.transactionContext, true);
+		this.serializedText = TransactionContextCodec.encodeText(this.transactionContext, false);
+	}
+
+	@Benchmark
+	public byte[] encodeCompact() {
+		return TransactionContextCodec.encode(this.transactionContext);
+	}
+
+	@Benchmark
+	public byte[] encodeSerialized() throws IOException {
+		return SerializeUtils.serializeObject(this.transactionContext);
+	}
+
+	@Benchmark
+	public TransactionContext decodeCompact() throws IOException {
+		return TransactionContextCodec.decode(this.compactByteArray, this.beanFactory);
+	}
+
+	@Benchmark
+	public TransactionContext decodeSerialized() throws IOException {
+		return TransactionContextCodec.decode(this.serializedByteArray, this.beanFactory);
+	}
+
+	@Benchmark
+	public TransactionContext roundTripCompactText() throws IOException {
+		String text = TransactionContextCodec.encodeText(this.transactionContext, true);
+		return TransactionContextCodec.decodeText(text, this.beanFactory);
+	}
+
+	@Benchmark
+	public TransactionContext roundTripSerializedText() throws IOException {
+		String text = TransactionContextCodec.encodeText(this.transactionContext, false);
+		return TransactionContextCodec.decodeText(text, this.beanFactory);
+	}
+
+	@Benchmark
+	public TransactionContext decodeCompactText() throws IOException {
+		return TransactionContextCodec.decodeText(this.compactText, this.beanFactory);
+	}
+
+	@Benchmark
+	public TransactionContext decodeSerializedText() throws IOException {
+		return TransactionContextCodec.decodeText(this.serializedText, this.beanFactory);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TransactionContextCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.serialize;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.bytesoft.bytetcc.TransactionBeanFactoryImpl;
+import org.bytesoft.bytetcc.xa.XidFactoryImpl;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.compensable.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransactionContextCodecTest {
+
+	private final XidFactory compensableXidFactory = new XidFactoryImpl();
+	private final XidFactory transactionXidFactory = new org.bytesoft.bytejta.xa.XidFactoryImpl();
+	private final TransactionBeanFactoryImpl beanFactory = TransactionBeanFactoryImpl.getInstance();
+
+	@Before
+	public void setUp() {
+		this.beanFactory.setCompensableXidFactory(this.compensableXidFactory);
+		this.beanFactory.setTransactionXidFactory(this.transactionXidFactory);
+	}
+
+	@Test
+	public void testBranchXidRoundTrip() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionXid branchXid = this.compensableXidFactory.createBranchXid(globalXid);
+		TransactionContext transactionContext = this.createTransactionContext(branchXid);
+		transactionContext.setCompensable(true);
+		transactionContext.setStatefully(true);
+		transactionContext.setPropagated(true);
+		transactionContext.setPropagatedBy("192.168.1.1:order-service:8080");
+
+		byte[] byteArray = TransactionContextCodec.encode(transactionContext);
+		Assert.assertTrue(TransactionContextCodec.isCompact(byteArray));
+		this.assertTransactionContext(transactionContext, TransactionContextCodec.decode(byteArray, this.beanFactory));
+	}
+
+	@Test
+	public void testGlobalXidRoundTrip() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+		transactionContext.setCompensable(true);
+
+		TransactionContext decoded = TransactionContextCodec.decode(TransactionContextCodec.encode(transactionContext),
+				this.beanFactory);
+		this.assertTransactionContext(transactionContext, decoded);
+		byte[] branchQualifier = decoded.getXid().getBranchQualifier();
+		Assert.assertTrue(branchQualifier == null || branchQualifier.length == 0);
+		Assert.assertNull(decoded.getPropagatedBy());
+	}
+
+	@Test
+	public void testTransactionXidUsesTransactionXidFactory() throws IOException {
+		TransactionXid globalXid = this.transactionXidFactory.createGlobalXid();
+		TransactionXid branchXid = this.transactionXidFactory.createBranchXid(globalXid);
+		TransactionContext transactionContext = this.createTransactionContext(branchXid);
+
+		TransactionContext decoded = TransactionContextCodec.decode(TransactionContextCodec.encode(transactionContext),
+				this.beanFactory);
+		Assert.assertEquals(XidFactory.JTA_FORMAT_ID, decoded.getXid().getFormatId());
+		this.assertTransactionContext(transactionContext, decoded);
+	}
+
+	@Test
+	public void testEncodedBytesAreNotShared() throws IOException {
+		TransactionContext first = this.createTransactionContext(this.compensableXidFactory.createGlobalXid());
+		first.setPropagatedBy("first");
+		TransactionContext second = this.createTransactionContext(this.compensableXidFactory.createGlobalXid());
+		second.setPropagatedBy("second-with-a-longer-value");
+
+		byte[] firstByteArray = TransactionContextCodec.encode(first);
+		byte[] copy = Arrays.copyOf(firstByteArray, firstByteArray.length);
+		TransactionContextCodec.encode(second);
+		Assert.assertArrayEquals(copy, firstByteArray);
+		this.assertTransactionContext(first, TransactionContextCodec.decode(firstByteArray, this.beanFactory));
+	}
+
+	@Test
+	public void testSerializedFormIsAccepted() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+		transactionContext.setCompensable(true);
+		transactionContext.setPropagatedBy("remote");
+
+		byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
+		Assert.assertFalse(TransactionContextCodec.isCompact(byteArray));
+		this.assertTransactionContext(transactionContext, TransactionContextCodec.decode(byteArray, this.beanFactory));
+	}
+
+	@Test
+	public void testTextRoundTrip() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+		transactionContext.setCompensable(true);
+
+		String compactText = TransactionContextCodec.encodeText(transactionContext, true);
+		Assert.assertTrue(TransactionContextCodec.isCompactText(compactText));
+		this.assertTransactionContext(transactionContext,
+				TransactionContextCodec.decodeText(compactText, this.beanFactory));
+
+		String serializedText = TransactionContextCodec.encodeText(transactionContext, false);
+		Assert.assertFalse(TransactionContextCodec.isCompactText(serializedText));
+		this.assertTransactionContext(transactionContext,
+				TransactionContextCodec.decodeText(serializedText, this.beanFactory));
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException {
+		Assert.assertNull(TransactionContextCodec.decode(null, this.beanFactory));
+		Assert.assertNull(TransactionContextCodec.decode(new byte[0], this.beanFactory));
+		Assert.assertNull(TransactionContextCodec.decodeText(null, this.beanFactory));
+		Assert.assertFalse(TransactionContextCodec.isCompactText(null));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedInput() throws IOException {
+		TransactionXid globalXid = this.compensableXidFactory.createGlobalXid();
+		TransactionContext transactionContext = this.createTransactionContext(globalXid);
+		transactionContext.setPropagatedBy("remote");
+
+		byte[] byteArray = TransactionContextCodec.encode(transactionContext);
+		TransactionContextCodec.decode(Arrays.copyOf(byteArray, byteArray.length - 4), this.beanFactory);
+	}
+
+	private TransactionContext createTransactionContext(TransactionXid xid) {
+		TransactionContext transactionContext = new TransactionContext();
+		transactionContext.setXid(xid);
+		transactionContext.setCreatedTime(System.currentTimeMillis());
+		transactionContext.setExpiredTime(transactionContext.getCreatedTime() + 1000L * 60 * 5);
+		return transactionContext;
+	}
+
+	private void assertTransactionContext(TransactionContext expected, TransactionContext actual) {
+		Assert.assertNotNull(actual);
+		Assert.assertEquals(expected.getXid().getFormatId(), actual.getXid().getFormatId());
+		Assert.assertArrayEquals(expected.getXid().getGlobalTransactionId(), actual.getXid().getGlobalTransactionId());
+		byte[] expectedBranchQualifier = expected.getXid().getBranchQualifier();
+		byte[] actualBranchQualifier = actual.getXid().getBranchQualifier();
+		Assert.assertArrayEquals(expectedBranchQualifier == null ? new byte[0] : expectedBranchQualifier,
+				actualBranchQualifier == null ? new byte[0] : actualBranchQualifier);
+		Assert.assertEquals(expected.getCreatedTime(), actual.getCreatedTime());
+		Assert.assertEquals(expected.getExpiredTime(), actual.getExpiredTime());
+		Assert.assertEquals(expected.isCompensable(), actual.isCompensable());
+		Assert.assertEquals(expected.isStatefully(), actual.isStatefully());
+		Assert.assertEquals(expected.isPropagated(), actual.isPropagated());
+		Assert.assertEquals(expected.getPropagatedBy(), actual.getPropagatedBy());
+	}
+
+}
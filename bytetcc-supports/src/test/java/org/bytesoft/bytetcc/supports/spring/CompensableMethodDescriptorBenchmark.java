@@ -0,0 +1,111 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytetcc.supports.spring;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytetcc.supports.spring.CompensableMethodInterceptor.CompensableMethodDescriptor;
+import org.bytesoft.compensable.Compensable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Compares the cached method descriptor of CompensableMethodInterceptor with resolving the annotations and the
+ * interface method by reflection on every invocation, which is what the interceptor did before. The benchmark runs
+ * with several threads since the descriptor is looked up by all the request threads. Run the main method from the
+ * test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CompensableMethodDescriptorBenchmark {
+
+	private CompensableMethodInterceptor interceptor;
+	private Method transferMethod;
+	private Method queryMethod;
+
+	@Setup
+	public void setUp() throws NoSuchMethodException {
+		this.interceptor = new CompensableMethodInterceptor();
+		this.transferMethod = AccountServiceImpl.class.getMethod("transfer", String.class, String.class, long.class);
+		this.queryMethod = AccountServiceImpl.class.getMethod("query", String.class);
+		this.interceptor.getMethodDescriptor(this.transferMethod);
+		this.interceptor.getMethodDescriptor(this.queryMethod);
+	}
+
+	@Benchmark
+	public CompensableMethodDescriptor cachedDescriptor() {
+		return this.interceptor.getMethodDescriptor(this.transferMethod);
+	}
+
+	@Benchmark
+	public CompensableMethodDescriptor resolvedDescriptor() {
+		return this.interceptor.createMethodDescriptor(this.transferMethod);
+	}
+
+	@Benchmark
+	public CompensableMethodDescriptor cachedNonTccDescriptor() {
+		return this.interceptor.getMethodDescriptor(this.queryMethod);
+	}
+
+	@Benchmark
+	public CompensableMethodDescriptor resolvedNonTccDescriptor() {
+		return this.interceptor.createMethodDescriptor(this.queryMethod);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CompensableMethodDescriptorBenchmark.class.getSimpleName()).build())
+				.run();
+	}
+
+	public static interface AccountService {
+		public void transfer(String source, String target, long amount);
+	}
+
+	@Compensable(interfaceClass = AccountService.class, confirmableKey = "accountServiceConfirm", //
+			cancellableKey = "accountServiceCancel")
+	@Transactional
+	public static class AccountServiceImpl implements AccountService {
+
+		@Transactional(rollbackFor = Exception.class)
+		public void transfer(String source, String target, long amount) {
+		}
+
+		/* not declared by the interface class, which is a non-TCC operation. */
+		public long query(String account) {
+			return 0;
+		}
+	}
+
+}